@@ -0,0 +1,95 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.cli;
+
+import com.linkedin.tony.rpc.impl.ApplicationRpcClient;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.net.NetUtils;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.hadoop.security.token.Token;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
+import org.apache.hadoop.yarn.api.records.YarnApplicationState;
+import org.apache.hadoop.yarn.client.api.YarnClient;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.exceptions.YarnException;
+import org.apache.hadoop.yarn.security.client.ClientToAMTokenIdentifier;
+import org.apache.hadoop.yarn.util.ConverterUtils;
+
+
+/**
+ * JobScaler changes the number of instances of a job type of a running TonY application, e.g. to add workers to an
+ * elastic training job. The application master requests containers for new tasks and stops the tasks with the
+ * highest indices when shrinking. Whether a job type can be scaled depends on the runtime and distributed mode, see
+ * {@link com.linkedin.tony.Framework.ApplicationMasterAdapter#canScaleJob}.
+ *
+ * Usage:
+ * CLASSPATH=$(${HADOOP_HDFS_HOME}/bin/hadoop classpath --glob):./:tony-cli-0.4.6-all.jar \
+ * java com.linkedin.tony.cli.JobScaler --app_id application_1234_0001 --job_name worker --instances 8
+ */
+public class JobScaler {
+  private static final Log LOG = LogFactory.getLog(JobScaler.class);
+
+  private JobScaler() { }
+
+  /**
+   * Asks the application master of {@code appId} to run {@code numInstances} tasks of {@code jobName}.
+   */
+  public static void scaleJob(Configuration yarnConf, String appId, String jobName, int numInstances)
+      throws IOException, YarnException {
+    ApplicationReport report;
+    try (YarnClient yarnClient = YarnClient.createYarnClient()) {
+      yarnClient.init(yarnConf);
+      yarnClient.start();
+      report = yarnClient.getApplicationReport(ConverterUtils.toApplicationId(appId));
+    }
+    if (report.getYarnApplicationState() != YarnApplicationState.RUNNING || report.getRpcPort() <= 0) {
+      throw new YarnException("Application " + appId + " isn't running, it's " + report.getYarnApplicationState());
+    }
+
+    if (UserGroupInformation.isSecurityEnabled()) {
+      InetSocketAddress serviceAddr = NetUtils.createSocketAddrForHost(report.getHost(), report.getRpcPort());
+      Token<ClientToAMTokenIdentifier> token = ConverterUtils.convertFromYarn(report.getClientToAMToken(),
+          serviceAddr);
+      UserGroupInformation.getCurrentUser().addToken(token);
+    }
+    try (ApplicationRpcClient rpcClient =
+        ApplicationRpcClient.acquire(report.getHost(), report.getRpcPort(), yarnConf, yarnConf)) {
+      rpcClient.scaleJob(jobName, numInstances);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options opts = new Options();
+    opts.addOption("app_id", true, "ID of the running application");
+    opts.addOption("job_name", true, "Job type to scale, e.g. worker");
+    opts.addOption("instances", true, "Number of instances the job type should have");
+    opts.addOption("help", false, "Print usage");
+    CommandLine cliParser = new GnuParser().parse(opts, args);
+    if (cliParser.hasOption("help") || !cliParser.hasOption("app_id") || !cliParser.hasOption("job_name")
+        || !cliParser.hasOption("instances")) {
+      new HelpFormatter().printHelp("JobScaler", opts);
+      return;
+    }
+    String appId = cliParser.getOptionValue("app_id");
+    String jobName = cliParser.getOptionValue("job_name");
+    int numInstances = Integer.parseInt(cliParser.getOptionValue("instances"));
+
+    try {
+      scaleJob(new YarnConfiguration(), appId, jobName, numInstances);
+    } catch (IOException | YarnException e) {
+      LOG.error("Failed to scale " + jobName + " of " + appId + " to " + numInstances + " instances", e);
+      System.exit(-1);
+    }
+    LOG.info("Scaling " + jobName + " of " + appId + " to " + numInstances + " instances");
+  }
+}
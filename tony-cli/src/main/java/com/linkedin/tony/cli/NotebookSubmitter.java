@@ -9,6 +9,7 @@ import com.linkedin.tony.TonyClient;
 import com.linkedin.tony.TonyConfigurationKeys;
 import com.linkedin.tony.client.TaskUpdateListener;
 import com.linkedin.tony.rpc.TaskInfo;
+import com.linkedin.tony.util.ResourceCache;
 import com.linkedin.tonyproxy.ProxyServer;
 import java.io.File;
 import java.io.IOException;
@@ -17,7 +18,6 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.Arrays;
 import java.util.Set;
-import java.util.UUID;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -26,8 +26,6 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.yarn.exceptions.YarnException;
 
-import static com.linkedin.tony.Constants.TONY_FOLDER;
-
 
 /**
  * NotebookSubmitter is used to submit a python pex file (for example Jupyter Notebook) to run inside a cluster.
@@ -77,10 +75,12 @@ public class NotebookSubmitter extends TonySubmitter {
     Path cachedLibPath;
     Configuration hdfsConf = new Configuration();
     try (FileSystem fs = FileSystem.get(hdfsConf)) {
-      cachedLibPath = new Path(fs.getHomeDirectory(), TONY_FOLDER + Path.SEPARATOR + UUID.randomUUID().toString());
-      fs.mkdirs(cachedLibPath);
-      fs.copyFromLocalFile(new Path(jarPath), cachedLibPath);
-      LOG.info("Copying " + jarPath + " to: " + cachedLibPath);
+      // The fat jar rarely changes between runs, so keep it in the content-addressed cache instead of
+      // uploading a fresh copy for every notebook.
+      ResourceCache resourceCache = new ResourceCache(hdfsConf, fs);
+      Path localJarPath = new Path(jarPath);
+      cachedLibPath = resourceCache.getOrUpload(localJarPath, localJarPath.getName());
+      LOG.info("Using " + cachedLibPath + " for " + jarPath);
     } catch (IOException e) {
       LOG.fatal("Failed to create FileSystem: ", e);
       return -1;
@@ -0,0 +1,208 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.cli;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.linkedin.tony.rpc.TaskInfo;
+import com.linkedin.tony.rpc.impl.ApplicationRpcClient;
+import com.linkedin.tonyproxy.ProxyServer;
+import com.linkedin.tonyproxy.RoutingProxyServer;
+import com.linkedin.tonyproxy.UpstreamResolver;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.net.NetUtils;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.hadoop.security.token.Token;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
+import org.apache.hadoop.yarn.api.records.YarnApplicationState;
+import org.apache.hadoop.yarn.client.api.YarnClient;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.exceptions.YarnException;
+import org.apache.hadoop.yarn.security.client.ClientToAMTokenIdentifier;
+import org.apache.hadoop.yarn.util.ConverterUtils;
+
+
+/**
+ * ProxyGateway serves the web UIs of the tasks of all running TonY applications on a single port, so that one
+ * gateway process can serve everyone's TensorBoards and notebooks instead of running a {@link ProxyServer} per job.
+ *
+ * <p>A task is reached at /app/[appId]/[task]/, where [task] is the job name and index of a task, e.g.
+ * notebook:0, which is routed to the URL the task registered with the application master. TensorBoard is reached
+ * at /app/[appId]/tensorboard/, which is routed to the application's tracking URL.
+ *
+ * Usage:
+ * CLASSPATH=$(${HADOOP_HDFS_HOME}/bin/hadoop classpath --glob):./:tony-cli-0.4.6-all.jar \
+ * java com.linkedin.tony.cli.ProxyGateway --port 18888
+ */
+public class ProxyGateway implements UpstreamResolver {
+  private static final Log LOG = LogFactory.getLog(ProxyGateway.class);
+  @VisibleForTesting
+  static final String TENSORBOARD_TASK = "tensorboard";
+  // How long task URLs are cached. Tasks only register their URLs once they're all scheduled, so keep it short.
+  private static final long CACHE_TTL_MS = TimeUnit.SECONDS.toMillis(5);
+  // Applications not looked up for this long are forgotten, along with their AM connection.
+  private static final long IDLE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(10);
+
+  private final Configuration yarnConf;
+  private final YarnClient yarnClient;
+  private final Map<String, CachedUrls> cache = new ConcurrentHashMap<>();
+  // Held while an application is running so that its AM connection is reused between fetches.
+  private final Map<String, ApplicationRpcClient> rpcClients = new ConcurrentHashMap<>();
+  private final Map<String, Long> lastResolvedMs = new ConcurrentHashMap<>();
+  private volatile long lastEvictionMs = System.currentTimeMillis();
+
+  private static class CachedUrls {
+    private final long fetchedMs = System.currentTimeMillis();
+    private final Map<String, URI> urls;
+
+    CachedUrls(Map<String, URI> urls) {
+      this.urls = urls;
+    }
+  }
+
+  public ProxyGateway(Configuration yarnConf) {
+    this.yarnConf = yarnConf;
+    this.yarnClient = YarnClient.createYarnClient();
+    yarnClient.init(yarnConf);
+    yarnClient.start();
+  }
+
+  @Override
+  public URI resolve(String appId, String task) throws IOException {
+    long now = System.currentTimeMillis();
+    lastResolvedMs.put(appId, now);
+    if (now - lastEvictionMs > IDLE_TIMEOUT_MS) {
+      lastEvictionMs = now;
+      evictIdle(now);
+    }
+    // Refreshed inside compute, so that concurrent requests for an expired application wait for one fetch instead
+    // of each asking the RM and the AM.
+    CachedUrls cached;
+    try {
+      cached = cache.compute(appId, (k, entry) -> {
+        if (entry != null && System.currentTimeMillis() - entry.fetchedMs <= CACHE_TTL_MS) {
+          return entry;
+        }
+        try {
+          return new CachedUrls(fetchTaskUrls(appId));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return cached.urls.get(task);
+  }
+
+  /**
+   * Forgets the applications that weren't looked up in the last {@link #IDLE_TIMEOUT_MS}, e.g. because they
+   * finished while nobody was using their UIs, and closes their AM connections.
+   */
+  private void evictIdle(long now) {
+    lastResolvedMs.entrySet().removeIf(entry -> {
+      if (now - entry.getValue() <= IDLE_TIMEOUT_MS) {
+        return false;
+      }
+      String appId = entry.getKey();
+      cache.remove(appId);
+      closeRpcClient(appId);
+      return true;
+    });
+  }
+
+  private void closeRpcClient(String appId) {
+    ApplicationRpcClient rpcClient = rpcClients.remove(appId);
+    if (rpcClient != null) {
+      rpcClient.close();
+    }
+  }
+
+  private Map<String, URI> fetchTaskUrls(String appId) throws IOException {
+    ApplicationReport report;
+    try {
+      report = yarnClient.getApplicationReport(ConverterUtils.toApplicationId(appId));
+    } catch (IllegalArgumentException e) {
+      return Collections.emptyMap();
+    } catch (YarnException e) {
+      throw new IOException("Failed to get the application report of " + appId, e);
+    }
+    if (report.getYarnApplicationState() != YarnApplicationState.RUNNING || report.getRpcPort() <= 0) {
+      closeRpcClient(appId);
+      return Collections.emptyMap();
+    }
+
+    if (UserGroupInformation.isSecurityEnabled()) {
+      InetSocketAddress serviceAddr = NetUtils.createSocketAddrForHost(report.getHost(), report.getRpcPort());
+      Token<ClientToAMTokenIdentifier> token = ConverterUtils.convertFromYarn(report.getClientToAMToken(),
+          serviceAddr);
+      UserGroupInformation.getCurrentUser().addToken(token);
+    }
+    Set<TaskInfo> taskInfos;
+    try {
+      taskInfos = rpcClients.computeIfAbsent(appId,
+          k -> ApplicationRpcClient.acquire(report.getHost(), report.getRpcPort(), yarnConf, yarnConf)).getTaskInfos();
+    } catch (YarnException e) {
+      throw new IOException("Failed to get the tasks of " + appId, e);
+    }
+    return taskUrls(report.getOriginalTrackingUrl(), taskInfos);
+  }
+
+  /**
+   * @return the URLs of {@code taskInfos} keyed by job name and index, plus the tracking URL, where TensorBoard is
+   *         registered, as {@value #TENSORBOARD_TASK}
+   */
+  @VisibleForTesting
+  static Map<String, URI> taskUrls(String trackingUrl, Set<TaskInfo> taskInfos) {
+    Map<String, URI> urls = new HashMap<>();
+    if (trackingUrl != null && !trackingUrl.isEmpty() && !trackingUrl.equals("N/A")) {
+      // TensorBoard registers itself as host:port.
+      urls.put(TENSORBOARD_TASK, URI.create(trackingUrl.contains("://") ? trackingUrl : "http://" + trackingUrl));
+    }
+    for (TaskInfo taskInfo : taskInfos) {
+      if (taskInfo.getUrl() != null && !taskInfo.getUrl().isEmpty()) {
+        urls.put(taskInfo.getName() + ":" + taskInfo.getIndex(), URI.create(taskInfo.getUrl()));
+      }
+    }
+    return urls;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options opts = new Options();
+    opts.addOption("port", true, "Port to serve on, defaults to a random free port");
+    opts.addOption("max_connections", true, "Maximum number of client connections, defaults to "
+        + ProxyServer.DEFAULT_MAX_CONNECTIONS);
+    opts.addOption("help", false, "Print usage");
+    CommandLine cliParser = new GnuParser().parse(opts, args);
+    if (cliParser.hasOption("help")) {
+      new HelpFormatter().printHelp("ProxyGateway", opts);
+      return;
+    }
+    int port = Integer.parseInt(cliParser.getOptionValue("port", "0"));
+    int maxConnections = Integer.parseInt(cliParser.getOptionValue("max_connections",
+        String.valueOf(ProxyServer.DEFAULT_MAX_CONNECTIONS)));
+
+    RoutingProxyServer server = new RoutingProxyServer(new ProxyGateway(new YarnConfiguration()), port,
+        maxConnections);
+    Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+    LOG.info("Serving task web UIs at " + RoutingProxyServer.PATH_PREFIX + "[appId]/[task]/");
+    server.start();
+  }
+}
@@ -0,0 +1,30 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.cli;
+
+import com.linkedin.tony.rpc.TaskInfo;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+
+public class TestProxyGateway {
+  @Test
+  public void testTaskUrls() {
+    Map<String, URI> urls = ProxyGateway.taskUrls("tbhost:6006", new HashSet<>(Arrays.asList(
+        new TaskInfo("notebook", "0", "http://nbhost:8888"),
+        new TaskInfo("worker", "1", "http://nmhost:8042/node/containerlogs/container_1/user"))));
+    assertEquals(urls.size(), 3);
+    assertEquals(urls.get(ProxyGateway.TENSORBOARD_TASK), URI.create("http://tbhost:6006"));
+    assertEquals(urls.get("notebook:0"), URI.create("http://nbhost:8888"));
+    assertEquals(urls.get("worker:1").getPath(), "/node/containerlogs/container_1/user");
+
+    assertEquals(ProxyGateway.taskUrls("N/A", new HashSet<>()).size(), 0);
+  }
+}
@@ -5,11 +5,19 @@
 package com.linkedin.tony;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.linkedin.tony.events.ContainerAllocated;
+import com.linkedin.tony.events.ContainerLaunched;
+import com.linkedin.tony.events.ContainerRequested;
+import com.linkedin.tony.events.GangReady;
+import com.linkedin.tony.events.Metric;
+import com.linkedin.tony.events.StragglerDetected;
 import com.linkedin.tony.events.TaskFinished;
+import com.linkedin.tony.events.TaskFirstHeartbeat;
+import com.linkedin.tony.events.TaskRegistered;
 import com.linkedin.tony.events.TaskStarted;
 import com.linkedin.tony.models.JobMetadata;
+import com.linkedin.tony.models.JobStartupPhase;
 import com.linkedin.tony.events.ApplicationFinished;
 import com.linkedin.tony.events.ApplicationInited;
 import com.linkedin.tony.events.Event;
@@ -19,6 +27,8 @@ import com.linkedin.tony.rpc.ApplicationRpc;
 import com.linkedin.tony.rpc.ApplicationRpcServer;
 import com.linkedin.tony.rpc.MetricsRpc;
 import com.linkedin.tony.rpc.TaskInfo;
+import com.linkedin.tony.rpc.TaskInfoChangeLog;
+import com.linkedin.tony.rpc.TaskInfoDelta;
 import com.linkedin.tony.rpc.impl.MetricsRpcServer;
 import com.linkedin.tony.rpc.impl.TaskStatus;
 import com.linkedin.tony.tensorflow.JobContainerRequest;
@@ -48,6 +58,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.GnuParser;
@@ -179,9 +190,20 @@ public class ApplicationMaster {
   private volatile boolean taskHasMissesHB = false;
   private Thread mainThread;
 
+  /** Straggler detection, null if disabled **/
+  private StragglerDetector stragglerDetector;
+  private boolean stragglerMitigationEnabled;
+  private int maxReplacementsPerJob;
+
   /** Task Scheduler **/
   private TaskScheduler scheduler;
 
+  /**
+   * Bumped whenever the cluster spec changes or more tasks can start, and sent with each heartbeat response, so
+   * that task executors know when to fetch the cluster spec again.
+   */
+  private final AtomicLong clusterSpecVersion = new AtomicLong();
+
   /** Distributed mode**/
   private TonyConfigurationKeys.DistributedMode distributedMode;
 
@@ -283,6 +305,19 @@ public class ApplicationMaster {
 
     waitingClientSignalStopTimeout = tonyConf.getInt(TonyConfigurationKeys.AM_WAIT_CLIENT_STOP_TIMEOUT,
                                                   TonyConfigurationKeys.DEFAULT_AM_WAIT_CLIENT_STOP_TIMEOUT);
+    if (tonyConf.getBoolean(TonyConfigurationKeys.AM_STRAGGLER_DETECTION_ENABLED,
+        TonyConfigurationKeys.DEFAULT_AM_STRAGGLER_DETECTION_ENABLED)) {
+      stragglerDetector = new StragglerDetector(tonyConf, System.currentTimeMillis());
+    }
+    stragglerMitigationEnabled = tonyConf.getBoolean(TonyConfigurationKeys.AM_STRAGGLER_MITIGATION_ENABLED,
+        TonyConfigurationKeys.DEFAULT_AM_STRAGGLER_MITIGATION_ENABLED);
+    if (stragglerMitigationEnabled
+        && (stragglerDetector == null || distributedMode != TonyConfigurationKeys.DistributedMode.FCFS)) {
+      LOG.warn("Straggler mitigation requires straggler detection and the FCFS distributed mode, disabling it.");
+      stragglerMitigationEnabled = false;
+    }
+    maxReplacementsPerJob = tonyConf.getInt(TonyConfigurationKeys.AM_STRAGGLER_MITIGATION_MAX_REPLACEMENTS_PER_JOB,
+        TonyConfigurationKeys.DEFAULT_AM_STRAGGLER_MITIGATION_MAX_REPLACEMENTS_PER_JOB);
 
     frameworkType = tonyConf.get(TonyConfigurationKeys.FRAMEWORK_NAME,
             TonyConfigurationKeys.DEFAULT_FRAMEWORK_NAME).toUpperCase();
@@ -316,6 +351,7 @@ public class ApplicationMaster {
   private void buildTonySession() {
     TonySession.Builder builder = new TonySession.Builder()
         .setTonyConf(tonyConf)
+        .setTaskInfoChangeLog(new TaskInfoChangeLog())
         .setTaskExecutorJVMArgs(tonyConf.get(TonyConfigurationKeys.TASK_EXECUTOR_JVM_OPTS,
             TonyConfigurationKeys.DEFAULT_TASK_EXECUTOR_JVM_OPTS));
     sessionBuilder = builder;
@@ -426,7 +462,8 @@ public class ApplicationMaster {
     printTaskUrls();
     eventHandler.emitEvent(new Event(EventType.APPLICATION_FINISHED,
         new ApplicationFinished(appIdString, session.getNumCompletedTasks(),
-            session.getNumFailedTasks(), new ArrayList<>()),
+            session.getNumFailedTasks(),
+            JobStartupPhase.toMetrics(JobStartupPhase.aggregate(metricsRpcServer.getStartupPhases()))),
         System.currentTimeMillis()));
     metadata = metadataBuilder
         .setCompleted(completed)
@@ -458,9 +495,21 @@ public class ApplicationMaster {
     ServerSocket rpcSocket = new ServerSocket(0);
     int metricsRpcPort = rpcSocket.getLocalPort();
     rpcSocket.close();
-    metricsRpcServer = new MetricsRpcServer();
-    RPC.Builder metricsServerBuilder = new RPC.Builder(yarnConf).setProtocol(MetricsRpc.class)
-        .setInstance(metricsRpcServer).setPort(metricsRpcPort);
+    metricsRpcServer = new MetricsRpcServer(phases -> eventHandler.emitEvent(
+        new Event(EventType.TASK_STARTUP_PHASES, phases, System.currentTimeMillis())), id -> {
+          TonyTask task = session.getTask(ContainerId.fromString(id));
+          return task != null && session.isCurrent(task);
+        });
+    boolean fairCallQueueEnabled = tonyConf.getBoolean(TonyConfigurationKeys.AM_RPC_FAIR_CALL_QUEUE_ENABLED,
+        TonyConfigurationKeys.DEFAULT_AM_RPC_FAIR_CALL_QUEUE_ENABLED);
+    Configuration metricsServerConf = yarnConf;
+    if (fairCallQueueEnabled) {
+      metricsServerConf = new Configuration(yarnConf);
+      Utils.enableFairCallQueue(metricsServerConf, metricsRpcPort);
+    }
+    RPC.Builder metricsServerBuilder = new RPC.Builder(metricsServerConf).setProtocol(MetricsRpc.class)
+        .setInstance(metricsRpcServer.timed()).setPort(metricsRpcPort)
+        .setNumHandlers(Utils.getRpcHandlerCount(tonyConf, TonyConfigurationKeys.AM_METRICS_RPC_HANDLER_COUNT));
     containerEnv.put(Constants.METRICS_RPC_PORT, Integer.toString(metricsRpcPort));
 
     // Init AMRMClient
@@ -602,7 +651,8 @@ public class ApplicationMaster {
 
     buildTonySession();
     session.setResources(yarnConf, hdfsConf, localResources, containerEnv, hdfsClasspath);
-    scheduler = new TaskScheduler(session, amRMClient, localResources, resourceFs, tonyConf, jobTypeToContainerResources);
+    scheduler = new TaskScheduler(session, amRMClient, localResources, resourceFs, tonyConf, jobTypeToContainerResources,
+        eventHandler);
     scheduler.scheduleTasks();
 
     amRuntimeAdapter.setTonySession(session);
@@ -620,6 +670,9 @@ public class ApplicationMaster {
     // Reset the flags that indicate failure.
     untrackedTaskFailed = false;
     taskHasMissesHB = false;
+    if (stragglerDetector != null) {
+      stragglerDetector.reset();
+    }
 
     // Reset session
     session = sessionBuilder.build();
@@ -706,6 +759,8 @@ public class ApplicationMaster {
         }
       }
 
+      detectStragglers();
+
       // Pause before refresh job status
       try {
         Thread.sleep(5000);
@@ -723,6 +778,91 @@ public class ApplicationMaster {
     return status == FinalApplicationStatus.SUCCEEDED;
   }
 
+  /**
+   * Compares the metrics and heartbeats of the running tasks of each job type, if it's time to, and updates which of
+   * them are stragglers. A STRAGGLER_DETECTED event is emitted when a task becomes one.
+   */
+  private void detectStragglers() {
+    long now = System.currentTimeMillis();
+    if (stragglerDetector == null || !stragglerDetector.isEvaluationDue(now)) {
+      return;
+    }
+    Map<String, Map<String, List<Metric>>> metricsByJobName = new HashMap<>();
+    List<TonyTask> runningTasks = new ArrayList<>();
+    for (Map.Entry<String, TonyTask[]> entry : session.getTonyTasks().entrySet()) {
+      Map<Integer, List<Metric>> jobMetrics = metricsRpcServer.getMetrics(entry.getKey());
+      Map<String, List<Metric>> runningTaskMetrics = new HashMap<>();
+      for (TonyTask task : entry.getValue()) {
+        if (task != null && task.getTaskInfo() != null && task.getTaskInfo().getStatus() == TaskStatus.RUNNING) {
+          runningTasks.add(task);
+          runningTaskMetrics.put(task.getId(),
+              jobMetrics.getOrDefault(Integer.parseInt(task.getTaskIndex()), Collections.emptyList()));
+        }
+      }
+      metricsByJobName.put(entry.getKey(), runningTaskMetrics);
+    }
+
+    Map<String, StragglerDetector.Straggler> stragglers = stragglerDetector.evaluate(metricsByJobName, now);
+    for (TonyTask task : runningTasks) {
+      StragglerDetector.Straggler straggler = stragglers.get(task.getId());
+      if (task.setStragglerReason(straggler == null ? null : straggler.getReason())) {
+        if (straggler == null) {
+          LOG.info("[" + task.getId() + "] is no longer a straggler");
+          continue;
+        }
+        LOG.warn(String.format("[%s] is a straggler: %s is %.2f, the median is %.2f", task.getId(),
+            straggler.getMetric(), straggler.getValue(), straggler.getMedian()));
+        eventHandler.emitEvent(new Event(EventType.STRAGGLER_DETECTED,
+            new StragglerDetected(task.getJobName(), Integer.parseInt(task.getTaskIndex()), straggler.getMetric(),
+                straggler.getValue(), straggler.getMedian()), now));
+        if (stragglerMitigationEnabled) {
+          requestReplacement(task);
+        }
+      }
+    }
+  }
+
+  /**
+   * Requests a container for a new task to replace {@code straggler}, unless its job type is out of replacements.
+   * The straggler keeps running until the replacement registers.
+   */
+  private void requestReplacement(TonyTask straggler) {
+    if (!session.requestReplacement(straggler, maxReplacementsPerJob)) {
+      LOG.info("Not replacing straggler [" + straggler.getId() + "], its job type has used its "
+          + maxReplacementsPerJob + " replacements or one is pending");
+      return;
+    }
+    LOG.info("Requesting a container to replace straggler [" + straggler.getId() + "]");
+    requestContainer(straggler.getJobName());
+  }
+
+  /**
+   * Restarts {@code task}, which failed, in a new container with the same index, unless it has run out of attempts.
+   * The other tasks keep running; the new attempt gets the current cluster spec when it registers, and the other
+   * tasks are told to fetch it again through {@link #clusterSpecVersion}.
+   * @return whether the task will be restarted
+   */
+  private boolean retryTask(TonyTask task) {
+    if (session.isTrainingFinished() || !session.retryTask(task)) {
+      return false;
+    }
+    LOG.info("Restarting task [" + task.getId() + "], attempt " + session.getTaskAttempts(task.getId()));
+    // The next attempt registers for heartbeat monitoring once it has registered with the AM.
+    hbMonitor.unregister(task);
+    requestContainer(task.getJobName());
+    return true;
+  }
+
+  /**
+   * Requests one more container for a task of {@code jobName}.
+   */
+  private void requestContainer(String jobName) {
+    JobContainerRequest request = session.getContainerRequestForType(jobName);
+    amRMClient.addContainerRequest(Utils.setupContainerRequestForRM(request));
+    eventHandler.emitEvent(new Event(EventType.CONTAINER_REQUESTED,
+        new ContainerRequested(jobName, 1, request.getPriority()), System.currentTimeMillis()));
+  }
+
   /**
    * Returns the tasks whose containers have launched but not called {@link ApplicationRpc#registerWorkerSpec} yet.
    */
@@ -734,6 +874,8 @@ public class ApplicationMaster {
 
   private void stop() {
     stopRunningContainers();
+    LOG.info("Application RPC calls: " + applicationRpcServer.getCallMetrics());
+    LOG.info("Metrics RPC calls: " + metricsRpcServer.getCallMetrics());
 
     FinalApplicationStatus status = session.getFinalStatus();
     String appMessage = session.getFinalMessage();
@@ -779,7 +921,7 @@ public class ApplicationMaster {
   // Run the preprocessing job and set up the common env variables for worker jobs.
   private int doPreprocessingJob() throws Exception {
 
-    Utils.extractResources(appIdString);
+    Utils.extractResources(appIdString, tonyConf);
     HashMap<String, String> extraEnv = new HashMap<>(shellEnv);
     if (singleNode) {
       ServerSocket tbSocket = new ServerSocket(0);
@@ -847,6 +989,9 @@ public class ApplicationMaster {
 
   private ApplicationRpcServer setupRPCService(String hostname) throws IOException {
     ApplicationRpcServer rpcServer = new ApplicationRpcServer(hostname, new RpcForClient(), yarnConf);
+    rpcServer.setNumHandlers(Utils.getRpcHandlerCount(tonyConf, TonyConfigurationKeys.AM_RPC_HANDLER_COUNT));
+    rpcServer.setFairCallQueueEnabled(tonyConf.getBoolean(TonyConfigurationKeys.AM_RPC_FAIR_CALL_QUEUE_ENABLED,
+        TonyConfigurationKeys.DEFAULT_AM_RPC_FAIR_CALL_QUEUE_ENABLED));
     amPort = rpcServer.getRpcPort();
     return rpcServer;
   }
@@ -862,7 +1007,39 @@ public class ApplicationMaster {
       if (!amRuntimeAdapter.receiveTaskCallbackInfo(taskId, callbackInfo)) {
         LOG.error("Errors on receiving task executors' callbaclk info. task id: "
                 + taskId + ", callback info: " + callbackInfo);
+        return;
+      }
+      // E.g. the Horovod driver is ready, so the workers waiting for it can start.
+      clusterSpecVersion.incrementAndGet();
+    }
+
+    @Override
+    public void scaleJob(String jobName, int numInstances) throws YarnException {
+      if (scheduler == null || session.isTrainingFinished()) {
+        throw new YarnException("Can't change the instances of " + jobName + " before the tasks are scheduled or"
+            + " after training has finished");
+      }
+      if (!amRuntimeAdapter.canScaleJob(distributedMode, jobName)) {
+        throw new YarnException("The " + frameworkType + " runtime can't change the instances of " + jobName
+            + " in the " + distributedMode + " distributed mode now");
+      }
+      List<TonyTask> removed;
+      try {
+        removed = scheduler.scaleJob(jobName, numInstances);
+      } catch (IllegalArgumentException e) {
+        throw new YarnException("Can't change the instances of " + jobName + ": " + e.getMessage());
+      }
+      LOG.info("Changed the number of instances of " + jobName + " to " + numInstances);
+      for (TonyTask task : removed) {
+        LOG.info("Stopping removed task [" + task.getId() + "] in " + task.getContainer().getId());
+        hbMonitor.unregister(task);
+        if (stragglerDetector != null) {
+          stragglerDetector.forget(task.getId());
+        }
+        amRuntimeAdapter.onTaskRemoved(task);
+        nmClientAsync.stopContainerAsync(task.getContainer().getId(), task.getContainer().getNodeId());
       }
+      clusterSpecVersion.incrementAndGet();
     }
 
     @Override
@@ -887,14 +1064,38 @@ public class ApplicationMaster {
     }
 
     @Override
-    public void taskExecutorHeartbeat(String taskId) {
+    public TaskInfoDelta getTaskInfos(long sinceVersion) {
+      // The notebook's tasks never change, so always return both.
+      if (singleNode && proxyUrl != null) {
+        return new TaskInfoDelta(0, getTaskInfos());
+      }
+
+      if (!singleNode && session != null && session.allTasksScheduled()) {
+        return session.getTaskInfoChangeLog().getChangesSince(sinceVersion);
+      }
+
+      // Keep the client at its version, so it gets every task that changes once all of them are scheduled.
+      return new TaskInfoDelta(sinceVersion, Collections.emptySet());
+    }
+
+    @Override
+    public long taskExecutorHeartbeat(String taskId) {
       TonyTask task = session.getTask(taskId);
       if (task != null) {
         LOG.debug("[" + taskId + "] Received HB Ping !!");
         hbMonitor.receivedPing(task);
+        if (stragglerDetector != null) {
+          stragglerDetector.onHeartbeat(taskId, System.currentTimeMillis());
+        }
+        if (task.markHeartbeatReceived()) {
+          eventHandler.emitEvent(new Event(EventType.TASK_FIRST_HEARTBEAT,
+              new TaskFirstHeartbeat(task.getJobName(), Integer.parseInt(task.getTaskIndex())),
+              System.currentTimeMillis()));
+        }
       } else {
         LOG.warn("[" + taskId + "] Not registered for heartbeat monitoring !!");
       }
+      return clusterSpecVersion.get();
     }
 
     @Override
@@ -906,10 +1107,39 @@ public class ApplicationMaster {
     @Override
     public String registerWorkerSpec(String taskId, String spec) throws IOException {
       TonyTask task = session.getTask(taskId);
-      if (task.getHost() == null) {
+      TonyTask straggler = session.registerReplacement(taskId, spec);
+      if (straggler != null) {
+        LOG.info("Received registration from the replacement of straggler " + taskId + " with spec: " + spec
+            + ", stopping the straggler in " + straggler.getContainer().getId());
+        task = session.getTask(taskId);
+        amRuntimeAdapter.onTaskRegistered(task);
+        hbMonitor.register(task);
+        stragglerDetector.onReplaced(taskId, System.currentTimeMillis());
+        nmClientAsync.stopContainerAsync(straggler.getContainer().getId(), straggler.getContainer().getNodeId());
+        clusterSpecVersion.incrementAndGet();
+      } else if (setHostPortOnce(task, spec)) {
         LOG.info("Received cluster spec registration request from task " + taskId + " with spec: " + spec);
-        task.setHostPort(spec);
-        session.addRegisteredTask(taskId);
+        amRuntimeAdapter.onTaskRegistered(task);
+        boolean gangReady;
+        boolean allRegistered;
+        // Counted atomically so that only the task that completes the gang reports it ready.
+        synchronized (session) {
+          gangReady = session.addRegisteredTask(taskId)
+              && session.getNumRegisteredTasks() == session.getNumExpectedTasks();
+          allRegistered = session.getNumRegisteredTasks() >= session.getNumExpectedTasks();
+        }
+        // The spec has a new host and port, which the running tasks should fetch, and in GANG mode the waiting
+        // tasks can start once all have registered, including when a restarted task registers again.
+        if (distributedMode == TonyConfigurationKeys.DistributedMode.FCFS || allRegistered) {
+          clusterSpecVersion.incrementAndGet();
+        }
+        eventHandler.emitEvent(new Event(EventType.TASK_REGISTERED,
+            new TaskRegistered(task.getJobName(), Integer.parseInt(task.getTaskIndex()), spec),
+            System.currentTimeMillis()));
+        if (gangReady) {
+          eventHandler.emitEvent(new Event(EventType.GANG_READY,
+              new GangReady(session.getNumRegisteredTasks(), session.sessionId), System.currentTimeMillis()));
+        }
 
         // HB Registration should happen only after worker registration..
         // The Task registration timeout will take care of rescheduling the task
@@ -925,6 +1155,21 @@ public class ApplicationMaster {
       return null;
     }
 
+    /**
+     * Handlers run {@link #registerWorkerSpec} concurrently, and a task retries the call until it gets its cluster
+     * spec, so only the first call of a task registers it.
+     * @return whether this call set the host and port of {@code task}
+     */
+    private boolean setHostPortOnce(TonyTask task, String spec) {
+      synchronized (task) {
+        if (task.getHost() != null) {
+          return false;
+        }
+        task.setHostPort(spec);
+        return true;
+      }
+    }
+
     /**
      * This method was used to workaround an issue that the Python script finished while the container failed to
      * close due to GPU allocation issue, which doesn't exist anymore.
@@ -1027,6 +1272,13 @@ public class ApplicationMaster {
     @Override
     public void onContainerStarted(ContainerId containerId, Map<String, ByteBuffer> allServiceResponse) {
       LOG.info("Successfully started container " + containerId);
+      TonyTask task = session.getTask(containerId);
+      if (task != null) {
+        eventHandler.emitEvent(new Event(EventType.CONTAINER_LAUNCHED,
+            new ContainerLaunched(task.getJobName(), Integer.parseInt(task.getTaskIndex()),
+                task.getContainer().getNodeId().getHost(), containerId.toString()),
+            System.currentTimeMillis()));
+      }
     }
 
     @Override
@@ -1082,14 +1334,16 @@ public class ApplicationMaster {
       }
     }
 
+    // Looks at every job type, not just those with tasks waiting for a container, since containers are also
+    // allocated for replacements of stragglers.
+    private String getJobName(int priority) {
+      JobContainerRequest request = session.getContainerRequestByPriority(priority);
+      return request == null ? null : request.getJobName();
+    }
+
     private String getNodeLabelsExpression(int priority) {
-      final List<JobContainerRequest> requests = session.getContainersRequests();
-      for (JobContainerRequest request : requests) {
-        if (request.getPriority() == priority) {
-          return request.getNodeLabelsExpression();
-        }
-      }
-      return null;
+      JobContainerRequest request = session.getContainerRequestByPriority(priority);
+      return request == null ? null : request.getNodeLabelsExpression();
     }
 
     @Override
@@ -1105,6 +1359,10 @@ public class ApplicationMaster {
             container.getPriority().getPriority(),
             getNodeLabelsExpression(container.getPriority().getPriority()),
             new ArrayList<>())));
+        eventHandler.emitEvent(new Event(EventType.CONTAINER_ALLOCATED,
+            new ContainerAllocated(getJobName(container.getPriority().getPriority()),
+                container.getPriority().getPriority(), container.getNodeId().getHost(), container.getId().toString()),
+            System.currentTimeMillis()));
         LOG.info("Launching a task in container"
             + ", containerId = " + container.getId()
             + ", containerNode = " + container.getNodeId().getHost() + ":" + container.getNodeId().getPort()
@@ -1153,11 +1411,16 @@ public class ApplicationMaster {
      */
     public void run() {
       TonyTask task = session.getAndInitMatchingTaskByPriority(container.getPriority().getPriority());
-      Preconditions.checkNotNull(task, "Task was null! Nothing to schedule.");
+      if (task == null) {
+        // E.g. the replacement of a straggler that finished before its container was allocated, or a task that was
+        // removed by scaling its job type down.
+        LOG.warn("No task to run in container " + container.getId() + ", releasing it.");
+        amRMClient.releaseAssignedContainer(container.getId());
+        return;
+      }
 
       task.setTaskInfo(container);
-      TaskInfo taskInfo = task.getTaskInfo();
-      taskInfo.setStatus(TaskStatus.READY);
+      task.setStatus(TaskStatus.READY);
 
       // Add job type specific resources
       Map<String, LocalResource> containerResources = jobTypeToContainerResources.get(task.getJobName());
@@ -1214,7 +1477,7 @@ public class ApplicationMaster {
 
       Utils.printTaskUrl(task.getTaskInfo(), LOG);
       nmClientAsync.startContainerAsync(container, ctx);
-      taskInfo.setStatus(TaskStatus.RUNNING);
+      task.setStatus(TaskStatus.RUNNING);
       eventHandler.emitEvent(new Event(EventType.TASK_STARTED,
           new TaskStarted(task.getJobName(), Integer.parseInt(task.getTaskIndex()),
               container.getNodeHttpAddress().split(":")[0], container.getId().toString()),
@@ -1223,6 +1486,13 @@ public class ApplicationMaster {
   }
 
   private void onTaskDeemedDead(TonyTask task) {
+    // The heartbeat monitor only knows tasks by ID, so make sure this is the task's current attempt.
+    TonyTask current = session.getTask(task.getId());
+    if (current != null && current.getContainer() != null && retryTask(current)) {
+      LOG.warn("Task [" + task.getId() + "] has missed [" + maxConsecutiveHBMiss + "] heartbeats, stopping it.");
+      nmClientAsync.stopContainerAsync(current.getContainer().getId(), current.getContainer().getNodeId());
+      return;
+    }
     String msg = "Task with id [" + task.getId() + "] has missed"
         + " [" + maxConsecutiveHBMiss + "] heartbeats. Ending application!";
     LOG.error(msg);
@@ -1239,7 +1509,32 @@ public class ApplicationMaster {
         return;
       }
 
+      // Stragglers that have been replaced, replacements that failed before registering and failed tasks that are
+      // being restarted don't affect the job.
+      if (!session.isCurrent(task)) {
+        LOG.info("Container " + containerId + " of task " + task + ", which is no longer its current attempt,"
+            + " finished with exitStatus " + exitStatus + ".");
+        if (session.discardReplacement(task)) {
+          LOG.warn("Replacement of straggler [" + task.getId() + "] failed, keeping the straggler.");
+        }
+        return;
+      }
+      TonyTask replacement = session.cancelReplacement(task.getId());
+      if (replacement != null && replacement.getContainer() != null) {
+        LOG.info("Straggler [" + task.getId() + "] finished before its replacement registered, stopping it.");
+        nmClientAsync.stopContainerAsync(replacement.getContainer().getId(),
+            replacement.getContainer().getNodeId());
+      }
+
       LOG.info("Container " + containerId + " for task " + task + " finished with exitStatus " + exitStatus + ".");
+      if (exitStatus != ContainerExitStatus.SUCCESS && exitStatus != ContainerExitStatus.KILLED_BY_APPMASTER
+          && retryTask(task)) {
+        eventHandler.emitEvent(new Event(EventType.TASK_FINISHED,
+            new TaskFinished(task.getJobName(), Integer.parseInt(task.getTaskIndex()), TaskStatus.FAILED.toString(),
+                metricsRpcServer.getMetrics(task.getJobName(), Integer.parseInt(task.getTaskIndex())),
+                diagnosticMessage), System.currentTimeMillis()));
+        return;
+      }
       session.onTaskCompleted(task.getJobName(), task.getTaskIndex(), exitStatus, diagnosticMessage);
 
       scheduler.registerDependencyCompleted(task.getJobName());
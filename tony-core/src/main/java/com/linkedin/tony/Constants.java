@@ -37,6 +37,7 @@ public class Constants {
   public static final String JOBS_SUFFIX = "jobs";
   public static final String CONFIG_SUFFIX = "config";
   public static final String LOGS_SUFFIX = "logs";
+  public static final String TIMELINE_SUFFIX = "timeline";
   public static final String HISTFILE_SUFFIX = "jhist";
   public static final String INPROGRESS = "inprogress";
   public static final String SUCCEEDED = "SUCCEEDED";
@@ -50,6 +51,10 @@ public class Constants {
   public static final String TASK_NUM = "TASK_NUM";
   public static final String IS_CHIEF = "IS_CHIEF";
   public static final String CLUSTER_SPEC = "CLUSTER_SPEC";
+  // Path of a file with the current cluster spec, which the task executor rewrites whenever it changes, e.g. when
+  // a failed task is restarted on another host
+  public static final String CLUSTER_SPEC_FILE = "CLUSTER_SPEC_FILE";
+  public static final String CLUSTER_SPEC_FILE_NAME = "cluster_spec.json";
   public static final String TF_CONFIG = "TF_CONFIG";
 
   // PyTorch constants
@@ -174,6 +179,34 @@ public class Constants {
   public static final String MAX_GPU_MAIN_MEMORY_USAGE = "MAX_GPU_MAIN_MEMORY_USAGE";
   // Average across GPUs of BAR1 memory used
   public static final String AVG_GPU_MAIN_MEMORY_USAGE = "AVG_GPU_MAIN_MEMORY_USAGE";
+  // Maximum and average number of CPU cores used by the task's process tree
+  public static final String MAX_CPU_CORES = "MAX_CPU_CORES";
+  public static final String AVG_CPU_CORES = "AVG_CPU_CORES";
+  // Total user and system CPU time of the task's process tree
+  public static final String CPU_TIME_MS = "CPU_TIME_MS";
+  // Times the task's processes waited, e.g. for I/O, and were preempted
+  public static final String VOLUNTARY_CONTEXT_SWITCHES = "VOLUNTARY_CONTEXT_SWITCHES";
+  public static final String NONVOLUNTARY_CONTEXT_SWITCHES = "NONVOLUNTARY_CONTEXT_SWITCHES";
+  // Bytes the task's processes read from and wrote to storage
+  public static final String READ_BYTES = "READ_BYTES";
+  public static final String WRITE_BYTES = "WRITE_BYTES";
+  // Bytes received and sent on the task's network namespace, excluding loopback
+  public static final String NETWORK_RECEIVE_BYTES = "NETWORK_RECEIVE_BYTES";
+  public static final String NETWORK_TRANSMIT_BYTES = "NETWORK_TRANSMIT_BYTES";
+  // Memory, CPU, GPU utilization and GPU memory usage, whose distributions are reported as e.g. P90_MEMORY_BYTES
+  public static final String MEMORY_BYTES = "MEMORY_BYTES";
+  public static final String CPU_CORES = "CPU_CORES";
+  public static final String GPU_UTILIZATION = "GPU_UTILIZATION";
+  public static final String GPU_FB_MEMORY_USAGE = "GPU_FB_MEMORY_USAGE";
+  public static final String GPU_MAIN_MEMORY_USAGE = "GPU_MAIN_MEMORY_USAGE";
+  // Maximum GPU core temperature in degrees Celsius
+  public static final String MAX_GPU_TEMPERATURE = "MAX_GPU_TEMPERATURE";
+  // Maximum power drawn by the GPU board in watts
+  public static final String MAX_GPU_POWER_DRAW = "MAX_GPU_POWER_DRAW";
+  // Average power drawn by the GPU board in watts
+  public static final String AVG_GPU_POWER_DRAW = "AVG_GPU_POWER_DRAW";
+  // Maximum GPU memory in MiB used by the task's processes
+  public static final String MAX_GPU_PROCESS_MEMORY_MIB = "MAX_GPU_PROCESS_MEMORY_MIB";
 
   public static final int MAX_REPEATED_GPU_ERROR_ALLOWED = 10;
 
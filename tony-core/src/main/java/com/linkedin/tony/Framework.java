@@ -53,6 +53,25 @@ public class Framework {
          * and the start of downstream tasks needs to rely on the info after the start of the upstream task.
          */
         boolean receiveTaskCallbackInfo(String taskId, String callbackInfo);
+
+        /**
+         * For AM, whether the number of instances of a job type can be changed now.
+         * Tasks that have started only know the members in the cluster spec they got,
+         * so runtimes whose tasks can't pick up new members should refuse once they have started.
+         */
+        boolean canScaleJob(TonyConfigurationKeys.DistributedMode distributedMode, String jobName);
+
+        /**
+         * For AM, called when a task registers its host and port, before {@link #canStartTask}.
+         * Runtimes can keep membership derived from the registered tasks up to date here instead of
+         * going through every task for each cluster spec.
+         */
+        default void onTaskRegistered(TonySession.TonyTask task) {
+        }
+
+        /** For AM, called when a task is removed by scaling its job type down. **/
+        default void onTaskRemoved(TonySession.TonyTask task) {
+        }
     }
 
     public interface TaskExecutorAdapter {
@@ -102,12 +102,16 @@ public class LocalizableResource {
   }
 
   public LocalResource toLocalResource() {
+    return toLocalResource(LocalResourceVisibility.PRIVATE);
+  }
+
+  public LocalResource toLocalResource(LocalResourceVisibility visibility) {
     if (isDirectory) {
       throw new RuntimeException("Resource is directory and cannot be converted to LocalResource.");
     }
     return LocalResource.newInstance(ConverterUtils.getYarnUrlFromURI(
       URI.create(sourceFileStatus.getPath().toString())),
-      resourceType, LocalResourceVisibility.PRIVATE,
+      resourceType, visibility,
       sourceFileStatus.getLen(), sourceFileStatus.getModificationTime());
   }
 
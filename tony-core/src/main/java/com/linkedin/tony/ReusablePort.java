@@ -23,6 +23,9 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.SocketException;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SocketChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -37,16 +40,19 @@ import com.google.common.base.Preconditions;
 import static java.util.Objects.requireNonNull;
 
 /**
- * This class encapsulates netty objects related to an established port which enables SO_REUSEPORT.
+ * This class encapsulates an established port which enables SO_REUSEPORT.
  * See <a href="https://lwn.net/Articles/542629/">https://lwn.net/Articles/542629/</a> about
- * SO_REUSEPORT. It only works with Linux platform since EpollEventLoopGroup used in
- * {@link ReusablePort#create(int)} is not supported via other platforms. See
- * <a href="https://netty.io/4.0/api/io/netty/channel/epoll/EpollEventLoopGroup.html">
- *   https://netty.io/4.0/api/io/netty/channel/epoll/EpollEventLoopGroup.html</a>.
+ * SO_REUSEPORT. On JDKs exposing SO_REUSEPORT for socket channels (Java 9+ on Linux), the port is
+ * held by a socket bound in this JVM. Otherwise it is held by a python process running
+ * "reserve_reusable_port.py". Either way the socket is only bound and never listens, so that it
+ * does not take any of the connections meant for the process reusing the port.
  */
 final class ReusablePort extends ServerPort {
   private static final Log LOG = LogFactory.getLog(ReusablePort.class);
+  // null if SO_REUSEPORT can't be set from this JVM
+  private static final SocketOption<Boolean> SO_REUSEPORT = lookUpReusePortOption();
   private final Process socketProcess;
+  private final SocketChannel socketChannel;
   private final int port;
   public static final Path RESERVE_PORT_SCRIPT_PATH = requireNonNull(createPortReserveScript());
   public static final String PORT_FILE_NAME_SUFFIX = "___PORT___";
@@ -74,11 +80,60 @@ final class ReusablePort extends ServerPort {
   }
 
 
+  /**
+   * Looks up SO_REUSEPORT reflectively, since StandardSocketOptions only has it from Java 9 on and
+   * TonY still builds with Java 8.
+   * @return the option, or null if it doesn't exist or isn't supported by socket channels
+   */
+  @SuppressWarnings("unchecked")
+  private static SocketOption<Boolean> lookUpReusePortOption() {
+    try {
+      SocketOption<Boolean> option =
+          (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+      try (SocketChannel channel = SocketChannel.open()) {
+        if (channel.supportedOptions().contains(option)) {
+          return option;
+        }
+      }
+    } catch (ReflectiveOperationException | IOException | RuntimeException ex) {
+      LOG.debug("SO_REUSEPORT is not available in this JVM", ex);
+    }
+    LOG.info("SO_REUSEPORT can't be set from this JVM, reusable ports will be reserved with python");
+    return null;
+  }
+
+  /**
+   * @return whether ports can be reserved in this JVM rather than with a python process
+   */
+  static boolean isInJvmReservationSupported() {
+    return SO_REUSEPORT != null;
+  }
+
+  @VisibleForTesting
+  static SocketOption<Boolean> getReusePortOption() {
+    return SO_REUSEPORT;
+  }
+
   ReusablePort(Process socketProcess, int port) {
     this.socketProcess = socketProcess;
+    this.socketChannel = null;
+    this.port = port;
+  }
+
+  private ReusablePort(SocketChannel socketChannel, int port) {
+    this.socketProcess = null;
+    this.socketChannel = socketChannel;
     this.port = port;
   }
 
+  /**
+   * @return whether the port is held by a socket in this JVM rather than by a python process
+   */
+  @VisibleForTesting
+  boolean isReservedInJvm() {
+    return this.socketChannel != null;
+  }
+
   private static void killSocketBindingProcess(Process process) {
     requireNonNull(process);
 
@@ -114,6 +169,13 @@ final class ReusablePort extends ServerPort {
     if (this.socketProcess != null) {
       killSocketBindingProcess(this.socketProcess);
     }
+    if (this.socketChannel != null) {
+      try {
+        this.socketChannel.close();
+      } catch (IOException ex) {
+        LOG.warn("Failed to close the socket reserving port " + this.port, ex);
+      }
+    }
   }
 
   /**
@@ -190,7 +252,26 @@ final class ReusablePort extends ServerPort {
   }
 
   /**
-   * Creates a binding port with python which has built-in port reuse support.
+   * Binds a socket with SO_REUSEPORT to the port in this JVM. A {@link SocketChannel} is used
+   * rather than a {@link java.nio.channels.ServerSocketChannel} because binding the latter also
+   * makes it listen, and the kernel would then hand it some of the connections meant for the
+   * process reusing the port.
+   */
+  private static ReusablePort bindInJvm(int port) throws IOException {
+    SocketChannel channel = SocketChannel.open();
+    try {
+      channel.setOption(SO_REUSEPORT, true);
+      channel.bind(new InetSocketAddress(InetAddress.getByName("localhost"), port));
+      return new ReusablePort(channel, port);
+    } catch (IOException | RuntimeException ex) {
+      channel.close();
+      throw ex;
+    }
+  }
+
+  /**
+   * Creates a binding port with SO_REUSEPORT, either in this JVM or, if the JVM doesn't support
+   * the option, with python which has built-in port reuse support.
    * <p>port reuse feature is detailed in:
    * <a href="https://lwn.net/Articles/542629/">https://lwn.net/Articles/542629/</a>
    * </p>
@@ -207,33 +288,47 @@ final class ReusablePort extends ServerPort {
     // - In Linkedin, as of now(2020/08), only Java 8 and 11 are officially supported, but Java 11
     //   introduces incompatibility with Play version tony-portal
     //   (https://github.com/linkedin/TonY/tree/master/tony-portal) is using. Upgrading Play to a
-    //   Java 11-compatible version requires non-trivial amount of effort.
+    //   Java 11-compatible version requires non-trivial amount of effort. So SO_REUSEPORT is
+    //   looked up at runtime, and executors running on Java 9+ reserve the port in-process.
 
     Preconditions.checkArgument(port > 0, "Port must > 0.");
 
+    if (!isPortAvailable(port)) {
+      LOG.info("Port " + port + " is no longer available");
+      throw new IOException("Fail to bind to the port " + port);
+    }
+
+    if (isInJvmReservationSupported()) {
+      try {
+        ReusablePort reusablePort = bindInJvm(port);
+        LOG.info("Port " + port + " is reserved");
+        return reusablePort;
+      } catch (BindException ex) {
+        // Someone else took the port since the check above, python won't do any better.
+        throw ex;
+      } catch (IOException ex) {
+        LOG.warn("Failed to reserve port " + port + " in this JVM, falling back to python", ex);
+      }
+    }
+
     String socketBindingProcess = String.format("python %s -p %s",
         RESERVE_PORT_SCRIPT_PATH, port);
 
     ProcessBuilder taskProcessBuilder = new ProcessBuilder("bash", "-c", socketBindingProcess);
     taskProcessBuilder.redirectError(ProcessBuilder.Redirect.INHERIT);
     taskProcessBuilder.redirectOutput(ProcessBuilder.Redirect.INHERIT);
-    if (isPortAvailable(port)) {
-      LOG.debug("Starting process " + socketBindingProcess);
-      // Launching the python process binding the socket. The python process will create a file
-      // after port is bound. TonY needs to wait the file creation.
-      Process taskProcess = taskProcessBuilder.start();
-      boolean portSuccessfulyCreated = waitTillPortReserved(port);
-      if (!portSuccessfulyCreated) {
-        LOG.info("Port " + port + " failed to be reserved");
-        killSocketBindingProcess(taskProcess);
-        throw new IOException("Fail to bind to the port " + port);
-      }
-      LOG.info("Port " + port + " is reserved");
-      return new ReusablePort(taskProcess, port);
-    } else {
-      LOG.info("Port " + port + " is no longer available");
+    LOG.debug("Starting process " + socketBindingProcess);
+    // Launching the python process binding the socket. The python process will create a file
+    // after port is bound. TonY needs to wait the file creation.
+    Process taskProcess = taskProcessBuilder.start();
+    boolean portSuccessfulyCreated = waitTillPortReserved(port);
+    if (!portSuccessfulyCreated) {
+      LOG.info("Port " + port + " failed to be reserved");
+      killSocketBindingProcess(taskProcess);
       throw new IOException("Fail to bind to the port " + port);
     }
+    LOG.info("Port " + port + " is reserved");
+    return new ReusablePort(taskProcess, port);
   }
 }
 
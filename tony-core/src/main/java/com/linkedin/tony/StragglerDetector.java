@@ -0,0 +1,253 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.linkedin.tony.events.Metric;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.hadoop.conf.Configuration;
+
+
+/**
+ * Finds stragglers by comparing the running tasks of each job type, which do the same work and so should progress
+ * at about the same rate. A task is a straggler if one of its metrics is far below the median of its job type, or
+ * if the longest gap between its heartbeats since the last evaluation is far above the median, where far is a
+ * modified z-score, 0.6745 * |value - median| / MAD, above the threshold. The median and the median absolute
+ * deviation (MAD) aren't skewed by the stragglers themselves, as the mean and standard deviation would be.
+ */
+public class StragglerDetector {
+  /** The name under which the longest gap between a task's heartbeats is compared. */
+  public static final String HEARTBEAT_GAP_MS = "HEARTBEAT_GAP_MS";
+  // Fewer tasks don't have a meaningful median.
+  @VisibleForTesting
+  static final int MIN_TASKS = 3;
+  // Deviations smaller than this fraction of the median aren't flagged, however close together the other tasks are.
+  @VisibleForTesting
+  static final double MIN_RELATIVE_DEVIATION = 0.2;
+  // Scale the MAD and the mean absolute deviation to the standard deviation of normally distributed values.
+  private static final double MAD_SCALE = 0.6745;
+  private static final double MEAN_ABSOLUTE_DEVIATION_SCALE = 0.7979;
+
+  private final List<String> metrics;
+  private final double threshold;
+  private final long intervalMs;
+  private final long gracePeriodMs;
+  private long lastEvaluationMs;
+  private final ConcurrentMap<String, Heartbeats> heartbeats = new ConcurrentHashMap<>();
+
+  private static class Heartbeats {
+    private final long firstMs;
+    private long lastMs;
+    private long maxGapMs;
+
+    Heartbeats(long nowMs) {
+      this.firstMs = nowMs;
+      this.lastMs = nowMs;
+    }
+  }
+
+  /**
+   * A task whose {@link #getMetric() metric} is far from the median of its job type.
+   */
+  public static class Straggler {
+    private final String jobName;
+    private final String metric;
+    private final boolean low;
+    private final double value;
+    private final double median;
+
+    Straggler(String jobName, String metric, boolean low, double value, double median) {
+      this.jobName = jobName;
+      this.metric = metric;
+      this.low = low;
+      this.value = value;
+      this.median = median;
+    }
+
+    public String getMetric() {
+      return metric;
+    }
+
+    public double getValue() {
+      return value;
+    }
+
+    public double getMedian() {
+      return median;
+    }
+
+    /**
+     * @return why the task is a straggler. Doesn't include the values, so it only changes with the metric.
+     */
+    public String getReason() {
+      return String.format("%s far %s the median of %s tasks", metric, low ? "below" : "above", jobName);
+    }
+  }
+
+  public StragglerDetector(Configuration conf, long nowMs) {
+    this.metrics = Arrays.asList(conf.getTrimmedStrings(TonyConfigurationKeys.AM_STRAGGLER_DETECTION_METRICS,
+        TonyConfigurationKeys.DEFAULT_AM_STRAGGLER_DETECTION_METRICS.split(",")));
+    this.threshold = conf.getDouble(TonyConfigurationKeys.AM_STRAGGLER_DETECTION_THRESHOLD,
+        TonyConfigurationKeys.DEFAULT_AM_STRAGGLER_DETECTION_THRESHOLD);
+    this.intervalMs = conf.getLong(TonyConfigurationKeys.AM_STRAGGLER_DETECTION_INTERVAL_MS,
+        TonyConfigurationKeys.DEFAULT_AM_STRAGGLER_DETECTION_INTERVAL_MS);
+    this.gracePeriodMs = conf.getLong(TonyConfigurationKeys.AM_STRAGGLER_DETECTION_GRACE_PERIOD_MS,
+        TonyConfigurationKeys.DEFAULT_AM_STRAGGLER_DETECTION_GRACE_PERIOD_MS);
+    this.lastEvaluationMs = nowMs;
+  }
+
+  /**
+   * Records a heartbeat from {@code taskId}. Called by RPC handlers, concurrently with {@link #evaluate}.
+   */
+  public void onHeartbeat(String taskId, long nowMs) {
+    Heartbeats taskHeartbeats = heartbeats.computeIfAbsent(taskId, k -> new Heartbeats(nowMs));
+    synchronized (taskHeartbeats) {
+      taskHeartbeats.maxGapMs = Math.max(taskHeartbeats.maxGapMs, nowMs - taskHeartbeats.lastMs);
+      taskHeartbeats.lastMs = nowMs;
+    }
+  }
+
+  /**
+   * Forgets the heartbeats of {@code taskId}, e.g. when it's removed from its job type.
+   */
+  public void forget(String taskId) {
+    heartbeats.remove(taskId);
+  }
+
+  /**
+   * Starts the heartbeats and the grace period of {@code taskId} over, when a new task has replaced it.
+   */
+  public void onReplaced(String taskId, long nowMs) {
+    heartbeats.put(taskId, new Heartbeats(nowMs));
+  }
+
+  /**
+   * Forgets the heartbeats of every task, e.g. when the session is retried.
+   */
+  public void reset() {
+    heartbeats.clear();
+  }
+
+  public boolean isEvaluationDue(long nowMs) {
+    return nowMs - lastEvaluationMs >= intervalMs;
+  }
+
+  /**
+   * Compares the running tasks of each job type. Tasks in their grace period, which starts with their first
+   * heartbeat, are left out, as their metrics still reflect their start-up.
+   * @param metricsByJobName for each job type, the latest metrics of each of its running tasks, by task ID
+   * @return the stragglers, by task ID. A task that is a straggler by several metrics is reported by the one it's
+   *         furthest off in.
+   */
+  public Map<String, Straggler> evaluate(Map<String, Map<String, List<Metric>>> metricsByJobName, long nowMs) {
+    lastEvaluationMs = nowMs;
+    Map<String, Straggler> stragglers = new HashMap<>();
+    Map<String, Double> scores = new HashMap<>();
+    for (Map.Entry<String, Map<String, List<Metric>>> job : metricsByJobName.entrySet()) {
+      Map<String, List<Metric>> tasks = new HashMap<>(job.getValue());
+      tasks.keySet().removeIf(taskId -> isInGracePeriod(taskId, nowMs));
+      if (tasks.size() < MIN_TASKS) {
+        continue;
+      }
+      for (String metric : metrics) {
+        Map<String, Double> values = new HashMap<>();
+        tasks.forEach((taskId, taskMetrics) -> {
+          double value = getValue(taskMetrics, metric);
+          // Negative values are metrics the task couldn't collect.
+          if (value >= 0) {
+            values.put(taskId, value);
+          }
+        });
+        findOutliers(job.getKey(), metric, values, true, stragglers, scores);
+      }
+      findOutliers(job.getKey(), HEARTBEAT_GAP_MS, getHeartbeatGaps(tasks.keySet(), nowMs), false, stragglers,
+          scores);
+    }
+    return stragglers;
+  }
+
+  private boolean isInGracePeriod(String taskId, long nowMs) {
+    Heartbeats taskHeartbeats = heartbeats.get(taskId);
+    return taskHeartbeats != null && nowMs - taskHeartbeats.firstMs < gracePeriodMs;
+  }
+
+  /**
+   * @return the longest gap between the heartbeats of each task since the last call, including the time since its
+   *         latest heartbeat, for the tasks that have sent any
+   */
+  private Map<String, Double> getHeartbeatGaps(Iterable<String> taskIds, long nowMs) {
+    Map<String, Double> gaps = new HashMap<>();
+    for (String taskId : taskIds) {
+      Heartbeats taskHeartbeats = heartbeats.get(taskId);
+      if (taskHeartbeats != null) {
+        synchronized (taskHeartbeats) {
+          gaps.put(taskId, (double) Math.max(taskHeartbeats.maxGapMs, nowMs - taskHeartbeats.lastMs));
+          taskHeartbeats.maxGapMs = 0;
+        }
+      }
+    }
+    return gaps;
+  }
+
+  private void findOutliers(String jobName, String metric, Map<String, Double> values, boolean low,
+      Map<String, Straggler> stragglers, Map<String, Double> scores) {
+    if (values.size() < MIN_TASKS) {
+      return;
+    }
+    double median = median(new ArrayList<>(values.values()));
+    List<Double> deviations = new ArrayList<>();
+    double totalDeviation = 0;
+    for (double value : values.values()) {
+      deviations.add(Math.abs(value - median));
+      totalDeviation += Math.abs(value - median);
+    }
+    double mad = median(deviations);
+    double meanDeviation = totalDeviation / values.size();
+    for (Map.Entry<String, Double> entry : values.entrySet()) {
+      double deviation = low ? median - entry.getValue() : entry.getValue() - median;
+      double score = modifiedZScore(deviation, mad, meanDeviation);
+      if (deviation > MIN_RELATIVE_DEVIATION * Math.abs(median) && score > threshold
+          && score > scores.getOrDefault(entry.getKey(), 0d)) {
+        scores.put(entry.getKey(), score);
+        stragglers.put(entry.getKey(), new Straggler(jobName, metric, low, entry.getValue(), median));
+      }
+    }
+  }
+
+  /**
+   * When more than half the values equal the median, the MAD is 0, so the mean absolute deviation is used instead.
+   */
+  @VisibleForTesting
+  static double modifiedZScore(double deviation, double mad, double meanDeviation) {
+    if (mad > 0) {
+      return MAD_SCALE * deviation / mad;
+    } else if (meanDeviation > 0) {
+      return MEAN_ABSOLUTE_DEVIATION_SCALE * deviation / meanDeviation;
+    }
+    return 0;
+  }
+
+  @VisibleForTesting
+  static double median(List<Double> values) {
+    values.sort(null);
+    int middle = values.size() / 2;
+    return values.size() % 2 == 1 ? values.get(middle) : (values.get(middle - 1) + values.get(middle)) / 2;
+  }
+
+  private static double getValue(List<Metric> taskMetrics, String name) {
+    for (Metric metric : taskMetrics) {
+      if (metric.getName().toString().equals(name)) {
+        return metric.getValue();
+      }
+    }
+    return -1;
+  }
+}
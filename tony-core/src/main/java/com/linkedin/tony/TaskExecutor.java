@@ -4,13 +4,26 @@
  */
 package com.linkedin.tony;
 
+import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -22,8 +35,11 @@ import org.apache.hadoop.yarn.api.records.ContainerId;
 import org.apache.hadoop.yarn.exceptions.YarnException;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.linkedin.tony.rpc.MetricWritable;
 import com.linkedin.tony.rpc.MetricsRpc;
 import com.linkedin.tony.rpc.impl.ApplicationRpcClient;
+import com.linkedin.tony.rpc.impl.AsyncApplicationRpcClient;
+import com.linkedin.tony.rpc.impl.MetricsWritable;
 import com.linkedin.tony.util.Utils;
 
 import static java.util.Objects.requireNonNull;
@@ -36,6 +52,11 @@ public class TaskExecutor {
   private static final Log LOG = LogFactory.getLog(TaskExecutor.class);
 
   private static final int MAX_NUM_FAILED_HB_ATTEMPTS = 5;
+  // Enough for a heartbeat and a metrics update to be in flight next to registration and the other calls.
+  private static final int NUM_ASYNC_RPC_THREADS = 4;
+  // How long a task that can't start yet waits before registering again, unless a heartbeat response reports a new
+  // cluster spec version first.
+  private static final long REGISTRATION_RETRY_INTERVAL_MS = 3000;
 
   @VisibleForTesting
   protected Configuration tonyConf = new Configuration(false);
@@ -62,13 +83,27 @@ public class TaskExecutor {
   private Configuration yarnConf = new Configuration(false);
   private Configuration hdfsConf = new Configuration(false);
   private ApplicationRpcClient proxy;
+  private AsyncApplicationRpcClient asyncProxy;
   private Map<String, String> shellEnv = new HashMap<>();
   private int hbInterval;
+  // A heartbeat that takes longer than the AM waits for it is of no use, so it's counted as failed.
+  private long hbTimeoutMs;
   private final ScheduledExecutorService scheduledThreadPool = Executors.newScheduledThreadPool(2);
-  private int numFailedHBAttempts = 0;
+  private final AtomicInteger numFailedHBAttempts = new AtomicInteger();
+  // The AM's cluster spec version, as of the latest heartbeat response. Changed while holding
+  // clusterSpecVersionLock, which is notified, so that a registration waiting for it wakes up.
+  private volatile long clusterSpecVersion;
+  private final Object clusterSpecVersionLock = new Object();
+  // The cluster spec version the cluster spec file was written at, or -1 until it's first written.
+  private final AtomicLong clusterSpecFileVersion = new AtomicLong(-1);
+  private final AtomicBoolean clusterSpecFetchPending = new AtomicBoolean();
   private String frameworkType;
   private String appIdString;
 
+  // How long each start-up phase took, in the order the phases finished. Resource extraction runs concurrently
+  // with the other phases, so the durations can add up to more than the total start-up time.
+  private final Map<String, Long> startupPhaseTimesMs = Collections.synchronizedMap(new LinkedHashMap<>());
+
   private static Framework.TaskExecutorAdapter taskRuntimeAdapter;
 
   @VisibleForTesting
@@ -154,27 +189,46 @@ public class TaskExecutor {
 
   private static TaskExecutor createExecutor() throws Exception {
     TaskExecutor executor = new TaskExecutor();
+    executor.recordStartupPhase("jvm-start", ManagementFactory.getRuntimeMXBean().getStartTime());
+    long phaseStart = System.currentTimeMillis();
     executor.initConfigs();
-    Utils.extractResources(executor.appIdString);
+    executor.recordStartupPhase("init-configs", phaseStart);
+
+    // Unpacking the src zip and the venv is the slowest part of start-up. None of the steps up to and including
+    // registration need the files, only the user process does, so the archives are extracted in the background
+    // and waited for right before the executor hands over to the framework runtime.
+    long extractionStart = System.currentTimeMillis();
+    CompletableFuture<Void> resourceExtraction = Utils.extractResourcesAsync(executor.appIdString, executor.tonyConf)
+        .whenComplete((unused, failure) -> executor.recordStartupPhase("extract-resources", extractionStart));
 
+    phaseStart = System.currentTimeMillis();
     LOG.info("Setting up application RPC client, connecting to: " + executor.amHost + ":" + executor.amPort);
-    executor.proxy = ApplicationRpcClient.getInstance(executor.amHost, executor.amPort, executor.yarnConf);
+    executor.proxy = ApplicationRpcClient.acquire(executor.amHost, executor.amPort, executor.yarnConf,
+        executor.tonyConf);
 
     LOG.info("Setting up metrics RPC client, connecting to: " + executor.amHost + ":" + executor.metricsRPCPort);
     executor.metricsProxy = RPC.getProxy(MetricsRpc.class, RPC.getProtocolVersion(MetricsRpc.class),
         new InetSocketAddress(executor.amHost, executor.metricsRPCPort), executor.yarnConf);
+    executor.asyncProxy =
+        new AsyncApplicationRpcClient(executor.proxy, executor.metricsProxy, NUM_ASYNC_RPC_THREADS);
     executor.scheduledThreadPool.scheduleAtFixedRate(
-        new TaskMonitor(executor.jobName, executor.taskIndex, executor.yarnConf, executor.tonyConf, executor.metricsProxy),
+        new TaskMonitor(executor.jobName, executor.taskIndex, executor.yarnConf, executor.tonyConf,
+            executor.asyncProxy),
         0,
         executor.metricsIntervalMs,
         TimeUnit.MILLISECONDS);
+    executor.recordStartupPhase("rpc-setup", phaseStart);
 
     assert taskRuntimeAdapter == null;
     taskRuntimeAdapter = FrameworkRuntimeProvider.getTaskAdapter(executor.frameworkType, executor);
 
+    phaseStart = System.currentTimeMillis();
     executor.setupPorts();
+    executor.recordStartupPhase("reserve-ports", phaseStart);
 
+    phaseStart = System.currentTimeMillis();
     executor.clusterSpec = executor.registerAndGetClusterSpec();
+    executor.recordStartupPhase("register", phaseStart);
 
     if (executor.clusterSpec == null) {
       LOG.error("Failed to register worker with AM.");
@@ -182,10 +236,48 @@ public class TaskExecutor {
     }
     LOG.debug("Task is on distributed mode: " + executor.distributedMode);
     LOG.info("Successfully registered and got cluster spec: " + executor.clusterSpec);
+    executor.initClusterSpecFile();
+
+    phaseStart = System.currentTimeMillis();
+    awaitResourceExtraction(resourceExtraction);
+    executor.recordStartupPhase("wait-for-resources", phaseStart);
+    LOG.info("Start-up phase times in ms: " + executor.startupPhaseTimesMs);
+    executor.reportStartupPhases();
 
     return executor;
   }
 
+  private void reportStartupPhases() {
+    MetricsWritable phases;
+    synchronized (startupPhaseTimesMs) {
+      phases = new MetricsWritable(startupPhaseTimesMs.size());
+      int i = 0;
+      for (Map.Entry<String, Long> phase : startupPhaseTimesMs.entrySet()) {
+        phases.setMetric(i++, new MetricWritable(phase.getKey(), phase.getValue()));
+      }
+    }
+    try {
+      metricsProxy.updateStartupPhases(jobName, taskIndex, Utils.getCurrentHostName(), phases);
+    } catch (Exception e) {
+      LOG.warn("Failed to report start-up phase times to AM", e);
+    }
+  }
+
+  private static void awaitResourceExtraction(CompletableFuture<Void> resourceExtraction) {
+    try {
+      resourceExtraction.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOG.fatal("Interrupted while unpacking resources", e);
+    } catch (ExecutionException e) {
+      LOG.fatal("Failed to unpack resources", e.getCause());
+    }
+  }
+
+  private void recordStartupPhase(String phase, long startTimeMs) {
+    startupPhaseTimesMs.put(phase, System.currentTimeMillis() - startTimeMs);
+  }
+
   public static void main(String[] unused) throws Exception {
     LOG.info("TaskExecutor is running..");
     TaskExecutor executor = null;
@@ -259,6 +351,8 @@ public class TaskExecutor {
         TonyConfigurationKeys.DEFAULT_WORKER_TIMEOUT);
     hbInterval = tonyConf.getInt(TonyConfigurationKeys.TASK_HEARTBEAT_INTERVAL_MS,
         TonyConfigurationKeys.DEFAULT_TASK_HEARTBEAT_INTERVAL_MS);
+    hbTimeoutMs = (long) hbInterval * tonyConf.getInt(TonyConfigurationKeys.TASK_MAX_MISSED_HEARTBEATS,
+        TonyConfigurationKeys.DEFAULT_TASK_MAX_MISSED_HEARTBEATS);
     String[] shellEnvs = tonyConf.getStrings(TonyConfigurationKeys.EXECUTION_ENV);
     shellEnv = Utils.parseKeyValue(shellEnvs);
     taskCommand = tonyConf.get(TonyConfigurationKeys.getExecuteCommandKey(jobName),
@@ -286,14 +380,100 @@ public class TaskExecutor {
     LOG.info("ContainerId is: " + containerId + " HostName is: " + hostName);
 
     // Start the Heartbeater..
-    scheduledThreadPool.scheduleAtFixedRate(new Heartbeater(),
+    Heartbeater heartbeater = new Heartbeater();
+    heartbeater.schedule = scheduledThreadPool.scheduleAtFixedRate(heartbeater,
         0, hbInterval, TimeUnit.MILLISECONDS);
 
     LOG.info("Connecting to " + amHost + ":" + amPort + " to register worker spec: " + jobName + " " + taskIndex + " "
              + hostName + ":" + this.rpcPort.getPort());
-    return Utils.pollTillNonNull(() ->
-        proxy.registerWorkerSpec(jobName + ":" + taskIndex,
-            hostName + ":" + this.rpcPort.getPort()), 3, 0);
+    // The AM returns null until the task can start, e.g. until all tasks have registered in GANG mode, and then
+    // bumps the cluster spec version it sends with the heartbeat responses, so the task registers again as soon as
+    // a heartbeat reports a new version.
+    try {
+      while (true) {
+        long version = clusterSpecVersion;
+        String spec = proxy.registerWorkerSpec(jobName + ":" + taskIndex, hostName + ":" + this.rpcPort.getPort());
+        if (spec != null) {
+          return spec;
+        }
+        awaitClusterSpecVersionChange(version, REGISTRATION_RETRY_INTERVAL_MS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOG.error("Interrupted while waiting to register worker spec", e);
+      return null;
+    } catch (Exception e) {
+      LOG.error("Failed to register worker spec", e);
+      return null;
+    }
+  }
+
+  private void awaitClusterSpecVersionChange(long version, long timeoutMs) throws InterruptedException {
+    long deadlineMs = System.currentTimeMillis() + timeoutMs;
+    synchronized (clusterSpecVersionLock) {
+      long remainingMs = timeoutMs;
+      while (clusterSpecVersion == version && remainingMs > 0) {
+        clusterSpecVersionLock.wait(remainingMs);
+        remainingMs = deadlineMs - System.currentTimeMillis();
+      }
+    }
+  }
+
+  /**
+   * Writes the cluster spec file, which the user process finds through {@link Constants#CLUSTER_SPEC_FILE}. From
+   * then on, it's rewritten whenever a heartbeat response reports a new cluster spec version, so that tasks that
+   * keep running when another one is restarted or the job is scaled can pick up the new hosts and ports.
+   */
+  private void initClusterSpecFile() throws IOException, YarnException {
+    long version = clusterSpecVersion;
+    writeClusterSpecFile(proxy.getClusterSpec());
+    clusterSpecFileVersion.set(version);
+    shellEnv.put(Constants.CLUSTER_SPEC_FILE, new File(Constants.CLUSTER_SPEC_FILE_NAME).getAbsolutePath());
+  }
+
+  /**
+   * Called with the cluster spec version of each heartbeat response. Wakes up a registration waiting for the task
+   * to be able to start, and fetches the cluster spec and rewrites the file if it has changed since the file was
+   * written.
+   */
+  private void onClusterSpecVersion(long version) {
+    if (clusterSpecVersion != version) {
+      synchronized (clusterSpecVersionLock) {
+        clusterSpecVersion = version;
+        clusterSpecVersionLock.notifyAll();
+      }
+    }
+    long fileVersion = clusterSpecFileVersion.get();
+    // One fetch at a time; if it fails, the next heartbeat tries again.
+    if (fileVersion < 0 || fileVersion == version || !clusterSpecFetchPending.compareAndSet(false, true)) {
+      return;
+    }
+    asyncProxy.getClusterSpec(hbTimeoutMs).whenComplete((spec, failure) -> {
+      try {
+        if (failure != null) {
+          LOG.warn("[" + taskId + "] Failed to fetch the changed cluster spec", failure);
+          return;
+        }
+        writeClusterSpecFile(spec);
+        clusterSpecFileVersion.set(version);
+        LOG.info("Cluster spec changed, updated " + Constants.CLUSTER_SPEC_FILE_NAME + ": " + spec);
+      } catch (IOException e) {
+        LOG.warn("[" + taskId + "] Failed to write the changed cluster spec", e);
+      } finally {
+        clusterSpecFetchPending.set(false);
+      }
+    });
+  }
+
+  /**
+   * Replaces the cluster spec file atomically, so that the user process never reads a partly written one.
+   */
+  private static void writeClusterSpecFile(String spec) throws IOException {
+    File file = new File(Constants.CLUSTER_SPEC_FILE_NAME).getAbsoluteFile();
+    File tmpFile = new File(file.getPath() + ".tmp");
+    Files.write(tmpFile.toPath(), spec.getBytes(StandardCharsets.UTF_8));
+    Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
   }
 
   public void callbackInfoToAM(String taskId, String callbackInfo) throws IOException, YarnException {
@@ -322,6 +502,10 @@ public class TaskExecutor {
   private class Heartbeater implements Runnable {
     int hbMissCounter = 0;
     int numHbToMiss;
+    // Set once the heartbeater is scheduled, so that a failed heartbeat can stop it.
+    volatile ScheduledFuture<?> schedule;
+    // Set while a heartbeat is waiting for the AM, so that a slow AM doesn't get a new heartbeat every interval.
+    private final AtomicBoolean heartbeatPending = new AtomicBoolean();
 
     private Heartbeater() {
       String hbMissStr = System.getenv(Constants.TEST_TASK_EXECUTOR_NUM_HB_MISS);
@@ -337,26 +521,35 @@ public class TaskExecutor {
 
     @Override
     public void run() {
-      try {
-        if (hbMissCounter == 0) {
-          LOG.debug("[" + taskId + "] Sending Ping !!");
-          proxy.taskExecutorHeartbeat(taskId);
-          numFailedHBAttempts = 0;
-          hbMissCounter = numHbToMiss;
-        } else {
-          LOG.debug("[" + taskId + "] Skipping heartbeat for Testing !!");
-          hbMissCounter--;
-        }
-      } catch (Exception e) {
-        LOG.error("[" + taskId + "] Failed to send Heart Beat.", e);
-        if (++numFailedHBAttempts > MAX_NUM_FAILED_HB_ATTEMPTS) {
-          LOG.error("[" + taskId + "] Exceeded max number of allowed failed heart beat send attempts. "
-              + "Going to stop heartbeating!");
-          e.printStackTrace();
-          throw new RuntimeException(e);
-        } else {
-          LOG.warn("Will retry heartbeat..");
+      if (hbMissCounter == 0) {
+        // The intervals in which a heartbeat is still waiting for the AM are skipped, so at most one heartbeat is
+        // in flight and each failed one stands for at least one interval.
+        if (!heartbeatPending.compareAndSet(false, true)) {
+          LOG.debug("[" + taskId + "] Previous heartbeat is still pending, skipping this one");
+          return;
         }
+        LOG.debug("[" + taskId + "] Sending Ping !!");
+        // Don't block the scheduler thread, which also drives TaskMonitor, while the AM is slow to respond.
+        asyncProxy.taskExecutorHeartbeat(taskId, hbTimeoutMs).whenComplete((version, failure) -> {
+          heartbeatPending.set(false);
+          if (failure == null) {
+            numFailedHBAttempts.set(0);
+            onClusterSpecVersion(version);
+            return;
+          }
+          LOG.error("[" + taskId + "] Failed to send Heart Beat.", failure);
+          if (numFailedHBAttempts.incrementAndGet() > MAX_NUM_FAILED_HB_ATTEMPTS) {
+            LOG.error("[" + taskId + "] Exceeded max number of allowed failed heart beat send attempts. "
+                + "Going to stop heartbeating!");
+            schedule.cancel(false);
+          } else {
+            LOG.warn("Will retry heartbeat..");
+          }
+        });
+        hbMissCounter = numHbToMiss;
+      } else {
+        LOG.debug("[" + taskId + "] Skipping heartbeat for Testing !!");
+        hbMissCounter--;
       }
     }
   }
@@ -7,15 +7,26 @@ package com.linkedin.tony;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.linkedin.tony.rpc.MetricWritable;
-import com.linkedin.tony.rpc.MetricsRpc;
+import com.linkedin.tony.rpc.impl.AsyncApplicationRpcClient;
 import com.linkedin.tony.rpc.impl.MetricsWritable;
+import com.linkedin.tony.util.ProcessTreeStats;
+import com.linkedin.tony.util.QuantileSketch;
 import com.linkedin.tony.util.gpu.GpuDeviceInformation;
 import com.linkedin.tony.util.gpu.GpuDiscoverer;
 import com.linkedin.tony.util.gpu.GpuInfoException;
+import com.linkedin.tony.util.gpu.PerGpuDeviceInformation;
+import com.linkedin.tony.util.gpu.PerGpuProcessInfo;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.yarn.api.ApplicationConstants;
+import org.apache.hadoop.yarn.util.ProcfsBasedProcessTree;
 import org.apache.hadoop.yarn.util.ResourceCalculatorProcessTree;
 
 
@@ -27,14 +38,27 @@ class TaskMonitor implements Runnable {
 
   private String taskType;
   private int taskIndex;
-  private MetricsRpc metricsRpcClient;
+  // Sent with each update, so that the AM can tell the task from a straggler it replaced or vice versa.
+  private final String containerId = System.getenv(ApplicationConstants.Environment.CONTAINER_ID.name());
+  private AsyncApplicationRpcClient metricsRpcClient;
+  // Set while an update is waiting for the AM. The metrics are cumulative, so the next update makes up for a
+  // skipped one.
+  private final AtomicBoolean updatePending = new AtomicBoolean();
   private ResourceCalculatorProcessTree resourceCalculator;
   private GpuDiscoverer gpuDiscoverer;
+  private final ProcessTreeStats processTreeStats = new ProcessTreeStats();
+  private long firstHostRefreshMs = -1;
+  private long firstCpuTimeMs;
+  private long lastHostRefreshMs;
+  private long lastCpuTimeMs;
 
   public static final List<String> METRICS_TO_COLLECT =
       ImmutableList.of(Constants.MAX_MEMORY_BYTES, Constants.AVG_MEMORY_BYTES, Constants.MAX_GPU_UTILIZATION,
           Constants.AVG_GPU_UTILIZATION, Constants.MAX_GPU_FB_MEMORY_USAGE, Constants.AVG_GPU_FB_MEMORY_USAGE,
-          Constants.MAX_GPU_MAIN_MEMORY_USAGE, Constants.AVG_GPU_MAIN_MEMORY_USAGE);
+          Constants.MAX_GPU_MAIN_MEMORY_USAGE, Constants.AVG_GPU_MAIN_MEMORY_USAGE, Constants.MAX_CPU_CORES,
+          Constants.AVG_CPU_CORES, Constants.CPU_TIME_MS, Constants.VOLUNTARY_CONTEXT_SWITCHES,
+          Constants.NONVOLUNTARY_CONTEXT_SWITCHES, Constants.READ_BYTES, Constants.WRITE_BYTES,
+          Constants.NETWORK_RECEIVE_BYTES, Constants.NETWORK_TRANSMIT_BYTES);
 
   public static final int MAX_MEMORY_BYTES_INDEX = 0;
   public static final int AVG_MEMORY_BYTES_INDEX = 1;
@@ -44,17 +68,59 @@ class TaskMonitor implements Runnable {
   public static final int AVG_GPU_FB_MEMORY_USAGE_INDEX = 5;
   public static final int MAX_GPU_MAIN_MEMORY_USAGE_INDEX = 6;
   public static final int AVG_GPU_MAIN_MEMORY_USAGE_INDEX = 7;
+  public static final int MAX_CPU_CORES_INDEX = 8;
+  public static final int AVG_CPU_CORES_INDEX = 9;
+  public static final int CPU_TIME_MS_INDEX = 10;
+  public static final int VOLUNTARY_CONTEXT_SWITCHES_INDEX = 11;
+  public static final int NONVOLUNTARY_CONTEXT_SWITCHES_INDEX = 12;
+  public static final int READ_BYTES_INDEX = 13;
+  public static final int WRITE_BYTES_INDEX = 14;
+  public static final int NETWORK_RECEIVE_BYTES_INDEX = 15;
+  public static final int NETWORK_TRANSMIT_BYTES_INDEX = 16;
+
+  // Sketched on every refresh and reported as P50_, P90_ and P99_ metrics, e.g. P90_MEMORY_BYTES. GPU metrics are
+  // averaged across GPUs.
+  public static final List<String> QUANTILE_METRICS_TO_COLLECT =
+      ImmutableList.of(Constants.MEMORY_BYTES, Constants.GPU_UTILIZATION, Constants.GPU_FB_MEMORY_USAGE,
+          Constants.GPU_MAIN_MEMORY_USAGE, Constants.CPU_CORES);
+  public static final int[] PERCENTILES_TO_REPORT = {50, 90, 99};
+
+  public static final int MEMORY_BYTES_SKETCH_INDEX = 0;
+  public static final int GPU_UTILIZATION_SKETCH_INDEX = 1;
+  public static final int GPU_FB_MEMORY_USAGE_SKETCH_INDEX = 2;
+  public static final int GPU_MAIN_MEMORY_USAGE_SKETCH_INDEX = 3;
+  public static final int CPU_CORES_SKETCH_INDEX = 4;
+
+  // Collected for each GPU and reported as e.g. MAX_GPU_UTILIZATION:0 for the first GPU.
+  public static final List<String> PER_GPU_METRICS_TO_COLLECT =
+      ImmutableList.of(Constants.MAX_GPU_UTILIZATION, Constants.AVG_GPU_UTILIZATION, Constants.MAX_GPU_FB_MEMORY_USAGE,
+          Constants.AVG_GPU_FB_MEMORY_USAGE, Constants.MAX_GPU_TEMPERATURE, Constants.MAX_GPU_POWER_DRAW,
+          Constants.AVG_GPU_POWER_DRAW, Constants.MAX_GPU_PROCESS_MEMORY_MIB);
+
+  public static final int GPU_MAX_UTILIZATION_INDEX = 0;
+  public static final int GPU_AVG_UTILIZATION_INDEX = 1;
+  public static final int GPU_MAX_FB_MEMORY_USAGE_INDEX = 2;
+  public static final int GPU_AVG_FB_MEMORY_USAGE_INDEX = 3;
+  public static final int GPU_MAX_TEMPERATURE_INDEX = 4;
+  public static final int GPU_MAX_POWER_DRAW_INDEX = 5;
+  public static final int GPU_AVG_POWER_DRAW_INDEX = 6;
+  public static final int GPU_MAX_PROCESS_MEMORY_MIB_INDEX = 7;
 
   private Boolean isGpuMachine;
   private Boolean gpuMetricsEnabled;
 
   private MetricsWritable metrics = new MetricsWritable(METRICS_TO_COLLECT.size());
+  private final QuantileSketch[] sketches = new QuantileSketch[QUANTILE_METRICS_TO_COLLECT.size()];
+  // Indexed by metric, then by GPU. Allocated on the first GPU refresh, once the number of GPUs is known.
+  private double[][] perGpuMetrics = null;
+  // How many readings each average in perGpuMetrics is over, since GPUs don't always have every reading.
+  private int[][] perGpuNumReadings = null;
 
   @VisibleForTesting
   protected int numRefreshes = 0;
 
   TaskMonitor(String taskType, int taskIndex,
-      Configuration yarnConf, Configuration tonyConf, MetricsRpc metricsRpcClient) {
+      Configuration yarnConf, Configuration tonyConf, AsyncApplicationRpcClient metricsRpcClient) {
     this.taskType = taskType;
     this.taskIndex = taskIndex;
 
@@ -72,6 +138,11 @@ class TaskMonitor implements Runnable {
     if (isGpuMachine && gpuMetricsEnabled) {
       this.gpuDiscoverer = GpuDiscoverer.getInstance();
       this.gpuDiscoverer.initialize(yarnConf);
+      if (tonyConf.getBoolean(TonyConfigurationKeys.TASK_GPU_METRICS_SAMPLING_ENABLED,
+          TonyConfigurationKeys.DEFAULT_TASK_GPU_METRICS_SAMPLING_ENABLED)) {
+        this.gpuDiscoverer.startSampling(tonyConf.getInt(TonyConfigurationKeys.TASK_METRICS_UPDATE_INTERVAL_MS,
+            TonyConfigurationKeys.DEFAULT_TASK_METRICS_UPDATE_INTERVAL_MS));
+      }
     }
   }
 
@@ -80,6 +151,9 @@ class TaskMonitor implements Runnable {
     for (int i = 0; i < METRICS_TO_COLLECT.size(); i++) {
       metrics.setMetric(i, new MetricWritable(METRICS_TO_COLLECT.get(i), -1d));
     }
+    for (int i = 0; i < sketches.length; i++) {
+      sketches[i] = new QuantileSketch();
+    }
   }
 
   private boolean checkIsGpuMachine(Configuration conf) {
@@ -91,15 +165,23 @@ class TaskMonitor implements Runnable {
   @Override
   public void run() {
     refreshMetrics();
-    try {
-      metricsRpcClient.updateMetrics(taskType, taskIndex, metrics);
-    } catch (Exception e) {
-      LOG.error("Encountered exception updating metrics", e);
+    if (!updatePending.compareAndSet(false, true)) {
+      LOG.debug("Previous metrics update is still pending, skipping this one");
+      return;
     }
+    // Sent without waiting, so that a slow AM doesn't delay the next refresh or the heartbeats sharing this thread.
+    metricsRpcClient.updateMetrics(taskType, taskIndex, containerId, getMetricsToReport(), 0)
+        .whenComplete((unused, failure) -> {
+          updatePending.set(false);
+          if (failure != null) {
+            LOG.error("Encountered exception updating metrics", failure);
+          }
+        });
   }
 
   private void refreshMetrics() {
     refreshMemoryBytesMetrics();
+    refreshHostMetrics();
     if (isGpuMachine && gpuMetricsEnabled) {
       refreshGPUMetrics();
     }
@@ -111,52 +193,89 @@ class TaskMonitor implements Runnable {
     double memoryBytes = resourceCalculator.getRssMemorySize();
     setMaxMetrics(MAX_MEMORY_BYTES_INDEX, memoryBytes);
     setAvgMetrics(AVG_MEMORY_BYTES_INDEX, memoryBytes);
+    sketches[MEMORY_BYTES_SKETCH_INDEX].add(memoryBytes);
+  }
+
+  private void refreshHostMetrics() {
+    List<String> pids = getTaskPidList();
+    if (pids == null) {
+      return;
+    }
+    processTreeStats.update(pids);
+    long now = System.currentTimeMillis();
+    long cpuTimeMs = processTreeStats.getCpuTimeMs();
+    if (firstHostRefreshMs < 0) {
+      firstHostRefreshMs = now;
+      firstCpuTimeMs = cpuTimeMs;
+    } else if (now > lastHostRefreshMs) {
+      double cpuCores = (double) (cpuTimeMs - lastCpuTimeMs) / (now - lastHostRefreshMs);
+      setMaxMetrics(MAX_CPU_CORES_INDEX, cpuCores);
+      setMetric(AVG_CPU_CORES_INDEX, (double) (cpuTimeMs - firstCpuTimeMs) / (now - firstHostRefreshMs));
+      sketches[CPU_CORES_SKETCH_INDEX].add(cpuCores);
+    }
+    lastHostRefreshMs = now;
+    lastCpuTimeMs = cpuTimeMs;
+    setMetric(CPU_TIME_MS_INDEX, cpuTimeMs);
+    setMetric(VOLUNTARY_CONTEXT_SWITCHES_INDEX, processTreeStats.getVoluntaryContextSwitches());
+    setMetric(NONVOLUNTARY_CONTEXT_SWITCHES_INDEX, processTreeStats.getNonvoluntaryContextSwitches());
+    setMetric(READ_BYTES_INDEX, processTreeStats.getReadBytes());
+    setMetric(WRITE_BYTES_INDEX, processTreeStats.getWriteBytes());
+    setMetric(NETWORK_RECEIVE_BYTES_INDEX, processTreeStats.getNetworkReceiveBytes());
+    setMetric(NETWORK_TRANSMIT_BYTES_INDEX, processTreeStats.getNetworkTransmitBytes());
   }
 
   private void refreshGPUMetrics() {
     try {
       GpuDeviceInformation gpuInfo = gpuDiscoverer.getGpuDeviceInformation();
 
-      double maxGpuUtilization = gpuInfo.getGpus().stream()
+      // nvidia-smi doesn't report some readings for some GPUs, e.g. utilization under MIG, which are then
+      // negative and left out.
+      OptionalDouble maxGpuUtilization = gpuInfo.getGpus().stream()
           .mapToDouble(x -> x.getGpuUtilizations().getOverallGpuUtilization())
-          .max()
-          .getAsDouble();
-      double avgGpuUtilization = gpuInfo.getGpus().stream()
+          .filter(x -> x >= 0)
+          .max();
+      OptionalDouble avgGpuUtilization = gpuInfo.getGpus().stream()
           .mapToDouble(x -> x.getGpuUtilizations().getOverallGpuUtilization())
-          .average()
-          .getAsDouble();
-      double maxGpuFBMemoryUsage = gpuInfo.getGpus().stream()
-          .mapToDouble(
-              (x -> ((double) x.getGpuFBMemoryUsage().getUsedMemoryMiB() / x.getGpuFBMemoryUsage().getTotalMemoryMiB()
-                  * 100)))
-          .max()
-          .getAsDouble();
-      double avgGpuFBMemoryUsage = gpuInfo.getGpus().stream()
-          .mapToDouble(
-              (x ->
-                  ((double) x.getGpuFBMemoryUsage().getUsedMemoryMiB() / x.getGpuFBMemoryUsage().getTotalMemoryMiB()
-                      * 100)))
-          .average()
-          .getAsDouble();
-      double maxGpuMainMemoryUsage = gpuInfo.getGpus().stream()
+          .filter(x -> x >= 0)
+          .average();
+      OptionalDouble maxGpuFBMemoryUsage = gpuInfo.getGpus().stream()
+          .mapToDouble(TaskMonitor::getFBMemoryUsage)
+          .filter(x -> x >= 0)
+          .max();
+      OptionalDouble avgGpuFBMemoryUsage = gpuInfo.getGpus().stream()
+          .mapToDouble(TaskMonitor::getFBMemoryUsage)
+          .filter(x -> x >= 0)
+          .average();
+      // Not reported when sampling nvidia-smi in query mode.
+      OptionalDouble maxGpuMainMemoryUsage = gpuInfo.getGpus().stream()
+          .filter(x -> x.getGpuMainMemoryUsage() != null)
           .mapToDouble((x ->
               ((double) x.getGpuMainMemoryUsage().getUsedMemoryMiB() / x.getGpuMainMemoryUsage().getTotalMemoryMiB()
               * 100)))
-          .max()
-          .getAsDouble();
-      double avgGpuMainMemoryUsage = gpuInfo.getGpus().stream()
+          .max();
+      OptionalDouble avgGpuMainMemoryUsage = gpuInfo.getGpus().stream()
+          .filter(x -> x.getGpuMainMemoryUsage() != null)
           .mapToDouble((x ->
               ((double) x.getGpuMainMemoryUsage().getUsedMemoryMiB() / x.getGpuMainMemoryUsage().getTotalMemoryMiB()
               * 100)))
-          .average()
-          .getAsDouble();
-
-      setMaxMetrics(MAX_GPU_UTILIZATION_INDEX, maxGpuUtilization);
-      setAvgMetrics(AVG_GPU_UTILIZATION_INDEX, avgGpuUtilization);
-      setMaxMetrics(MAX_GPU_FB_MEMORY_USAGE_INDEX, maxGpuFBMemoryUsage);
-      setAvgMetrics(AVG_GPU_FB_MEMORY_USAGE_INDEX, avgGpuFBMemoryUsage);
-      setMaxMetrics(MAX_GPU_MAIN_MEMORY_USAGE_INDEX, maxGpuMainMemoryUsage);
-      setAvgMetrics(AVG_GPU_MAIN_MEMORY_USAGE_INDEX, avgGpuMainMemoryUsage);
+          .average();
+
+      if (maxGpuUtilization.isPresent()) {
+        setMaxMetrics(MAX_GPU_UTILIZATION_INDEX, maxGpuUtilization.getAsDouble());
+        setAvgMetrics(AVG_GPU_UTILIZATION_INDEX, avgGpuUtilization.getAsDouble());
+        sketches[GPU_UTILIZATION_SKETCH_INDEX].add(avgGpuUtilization.getAsDouble());
+      }
+      if (maxGpuFBMemoryUsage.isPresent()) {
+        setMaxMetrics(MAX_GPU_FB_MEMORY_USAGE_INDEX, maxGpuFBMemoryUsage.getAsDouble());
+        setAvgMetrics(AVG_GPU_FB_MEMORY_USAGE_INDEX, avgGpuFBMemoryUsage.getAsDouble());
+        sketches[GPU_FB_MEMORY_USAGE_SKETCH_INDEX].add(avgGpuFBMemoryUsage.getAsDouble());
+      }
+      if (maxGpuMainMemoryUsage.isPresent()) {
+        setMaxMetrics(MAX_GPU_MAIN_MEMORY_USAGE_INDEX, maxGpuMainMemoryUsage.getAsDouble());
+        setAvgMetrics(AVG_GPU_MAIN_MEMORY_USAGE_INDEX, avgGpuMainMemoryUsage.getAsDouble());
+        sketches[GPU_MAIN_MEMORY_USAGE_SKETCH_INDEX].add(avgGpuMainMemoryUsage.getAsDouble());
+      }
+      refreshPerGpuMetrics(gpuInfo.getGpus());
     } catch (GpuInfoException e) {
       // Follow YARN's GPUDiscoverer mechanism of capping number of gpu metrics query
       if (gpuDiscoverer.getNumOfErrorExecutionSinceLastSucceed() >= Constants.MAX_REPEATED_GPU_ERROR_ALLOWED) {
@@ -169,6 +288,120 @@ class TaskMonitor implements Runnable {
     }
   }
 
+  @VisibleForTesting
+  void refreshPerGpuMetrics(List<PerGpuDeviceInformation> gpus) {
+    if (perGpuMetrics == null || perGpuMetrics[0].length != gpus.size()) {
+      perGpuMetrics = new double[PER_GPU_METRICS_TO_COLLECT.size()][gpus.size()];
+      for (double[] values : perGpuMetrics) {
+        Arrays.fill(values, -1d);
+      }
+      perGpuNumReadings = new int[PER_GPU_METRICS_TO_COLLECT.size()][gpus.size()];
+    }
+    Set<String> taskPids = getTaskPids();
+    for (int i = 0; i < gpus.size(); i++) {
+      PerGpuDeviceInformation gpu = gpus.get(i);
+      double utilization = gpu.getGpuUtilizations().getOverallGpuUtilization();
+      setMaxGpuMetric(GPU_MAX_UTILIZATION_INDEX, i, utilization);
+      setAvgGpuMetric(GPU_AVG_UTILIZATION_INDEX, i, utilization);
+      double fbMemoryUsage = getFBMemoryUsage(gpu);
+      setMaxGpuMetric(GPU_MAX_FB_MEMORY_USAGE_INDEX, i, fbMemoryUsage);
+      setAvgGpuMetric(GPU_AVG_FB_MEMORY_USAGE_INDEX, i, fbMemoryUsage);
+      if (gpu.getTemperature() != null) {
+        setMaxGpuMetric(GPU_MAX_TEMPERATURE_INDEX, i, gpu.getTemperature().getCurrentGpuTemp());
+      }
+      if (gpu.getPowerReadings() != null) {
+        setMaxGpuMetric(GPU_MAX_POWER_DRAW_INDEX, i, gpu.getPowerReadings().getPowerDraw());
+        setAvgGpuMetric(GPU_AVG_POWER_DRAW_INDEX, i, gpu.getPowerReadings().getPowerDraw());
+      }
+      if (taskPids != null) {
+        long processMemoryMiB = 0;
+        for (PerGpuProcessInfo process : gpu.getProcesses()) {
+          if (taskPids.contains(String.valueOf(process.getPid())) && process.getUsedMemoryMiB() > 0) {
+            processMemoryMiB += process.getUsedMemoryMiB();
+          }
+        }
+        setMaxGpuMetric(GPU_MAX_PROCESS_MEMORY_MIB_INDEX, i, processMemoryMiB);
+      }
+    }
+  }
+
+  /**
+   * @return the percentage of {@code gpu}'s frame buffer memory in use, or -1 if nvidia-smi didn't report it
+   */
+  private static double getFBMemoryUsage(PerGpuDeviceInformation gpu) {
+    long usedMemoryMiB = gpu.getGpuFBMemoryUsage().getUsedMemoryMiB();
+    long totalMemoryMiB = gpu.getGpuFBMemoryUsage().getTotalMemoryMiB();
+    if (usedMemoryMiB < 0 || gpu.getGpuFBMemoryUsage().getAvailMemoryMiB() < 0 || totalMemoryMiB <= 0) {
+      return -1;
+    }
+    return (double) usedMemoryMiB / totalMemoryMiB * 100;
+  }
+
+  /**
+   * @return the pids of the task's process tree as of the last refresh, or null if they aren't known
+   */
+  private List<String> getTaskPidList() {
+    if (resourceCalculator instanceof ProcfsBasedProcessTree) {
+      return ((ProcfsBasedProcessTree) resourceCalculator).getCurrentProcessIDs();
+    }
+    return null;
+  }
+
+  private Set<String> getTaskPids() {
+    List<String> pids = getTaskPidList();
+    return pids == null ? null : new HashSet<>(pids);
+  }
+
+  private void setAvgGpuMetric(int metricIndex, int gpuIndex, double newMetricValue) {
+    if (newMetricValue < 0) {
+      return;
+    }
+    double[] values = perGpuMetrics[metricIndex];
+    int numReadings = perGpuNumReadings[metricIndex][gpuIndex]++;
+    values[gpuIndex] = numReadings == 0 ? newMetricValue
+        : (values[gpuIndex] * numReadings + newMetricValue) / (numReadings + 1);
+  }
+
+  private void setMaxGpuMetric(int metricIndex, int gpuIndex, double newMetricValue) {
+    if (newMetricValue < 0) {
+      return;
+    }
+    double[] values = perGpuMetrics[metricIndex];
+    values[gpuIndex] = Math.max(values[gpuIndex], newMetricValue);
+  }
+
+  /**
+   * @return the task's metrics, followed by the percentiles of those sketched and by the metrics of each GPU, if any
+   *         have been collected. Percentiles of metrics that weren't collected are -1.
+   */
+  @VisibleForTesting
+  MetricsWritable getMetricsToReport() {
+    int numGpus = perGpuMetrics == null ? 0 : perGpuMetrics[0].length;
+    MetricsWritable report = new MetricsWritable(METRICS_TO_COLLECT.size()
+        + QUANTILE_METRICS_TO_COLLECT.size() * PERCENTILES_TO_REPORT.length
+        + PER_GPU_METRICS_TO_COLLECT.size() * numGpus);
+    int i = 0;
+    // Copied, since the report is sent from another thread while the next refresh updates the metrics.
+    for (; i < METRICS_TO_COLLECT.size(); i++) {
+      MetricWritable metric = metrics.getMetric(i);
+      report.setMetric(i, new MetricWritable(metric.getName(), metric.getValue()));
+    }
+    for (int metric = 0; metric < QUANTILE_METRICS_TO_COLLECT.size(); metric++) {
+      QuantileSketch sketch = sketches[metric];
+      for (int percentile : PERCENTILES_TO_REPORT) {
+        report.setMetric(i++, new MetricWritable("P" + percentile + "_" + QUANTILE_METRICS_TO_COLLECT.get(metric),
+            sketch.getCount() == 0 ? -1d : sketch.getQuantile(percentile / 100.0)));
+      }
+    }
+    for (int gpu = 0; gpu < numGpus; gpu++) {
+      for (int metric = 0; metric < PER_GPU_METRICS_TO_COLLECT.size(); metric++) {
+        report.setMetric(i++, new MetricWritable(PER_GPU_METRICS_TO_COLLECT.get(metric) + ":" + gpu,
+            perGpuMetrics[metric][gpu]));
+      }
+    }
+    return report;
+  }
+
   @VisibleForTesting
   void setAvgMetrics(int metricIndex, double newMetricValue) {
     MetricWritable metric = metrics.getMetric(metricIndex);
@@ -176,6 +409,10 @@ class TaskMonitor implements Runnable {
     metrics.setMetric(metricIndex, metric);
   }
 
+  private void setMetric(int metricIndex, double newMetricValue) {
+    metrics.getMetric(metricIndex).setValue(newMetricValue);
+  }
+
   @VisibleForTesting
   void setMaxMetrics(int metricIndex, double newMetricValue) {
     MetricWritable metric = metrics.getMetric(metricIndex);
@@ -5,6 +5,11 @@
 package com.linkedin.tony;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.linkedin.tony.events.ContainerRequested;
+import com.linkedin.tony.events.Event;
+import com.linkedin.tony.events.EventHandler;
+import com.linkedin.tony.events.EventType;
 import com.linkedin.tony.tensorflow.JobContainerRequest;
 import com.linkedin.tony.tensorflow.TonySession;
 import com.linkedin.tony.util.Utils;
@@ -33,6 +38,7 @@ public class TaskScheduler {
   private AMRMClientAsync<AMRMClient.ContainerRequest> amRMClient;
   private FileSystem resourceFs;
   private Configuration tonyConf;
+  private EventHandler eventHandler;
 
   // job with dependency -> (dependent job name, number of instances for that job)
   private Map<JobContainerRequest, Map<String, Integer>> taskDependencyMap = new HashMap<>();
@@ -43,13 +49,15 @@ public class TaskScheduler {
   boolean dependencyCheckPassed = true;
 
   public TaskScheduler(TonySession session, AMRMClientAsync<AMRMClient.ContainerRequest> amRMClient, Map<String, LocalResource> localResources,
-      FileSystem resourceFs, Configuration tonyConf, Map<String, Map<String, LocalResource>> jobTypeToContainerResources) {
+      FileSystem resourceFs, Configuration tonyConf, Map<String, Map<String, LocalResource>> jobTypeToContainerResources,
+      EventHandler eventHandler) {
     this.session = session;
     this.amRMClient = amRMClient;
     this.localResources = localResources;
     this.resourceFs = resourceFs;
     this.tonyConf = tonyConf;
     this.jobTypeToContainerResources = jobTypeToContainerResources;
+    this.eventHandler = eventHandler;
   }
 
   public void scheduleTasks() {
@@ -101,17 +109,48 @@ public class TaskScheduler {
     for (int i = 0; i < request.getNumInstances(); i++) {
       amRMClient.addContainerRequest(containerAsk);
     }
+    eventHandler.emitEvent(new Event(EventType.CONTAINER_REQUESTED,
+        new ContainerRequested(jobName, request.getNumInstances(), request.getPriority()),
+        System.currentTimeMillis()));
     session.addNumExpectedTask(request.getNumInstances());
   }
 
+  /**
+   * Changes the number of instances of {@code jobName} to {@code numInstances}. If the job type has been scheduled,
+   * containers are requested for the new tasks; otherwise it will be scheduled with the new number. Containers
+   * that were requested for removed tasks are released when they're allocated.
+   * @return the removed tasks whose containers should be stopped
+   */
+  synchronized List<TonySession.TonyTask> scaleJob(String jobName, int numInstances) {
+    // Job types that depend on this one wait for a fixed number of its tasks to complete.
+    Preconditions.checkArgument(taskDependencyMap.values().stream().noneMatch(deps -> deps.containsKey(jobName)),
+        "Other job types depend on " + jobName);
+    JobContainerRequest request = session.getContainerRequestForType(jobName);
+    Preconditions.checkArgument(request != null, "Unknown job type " + jobName);
+    int numAdded = numInstances - request.getNumInstances();
+    List<TonySession.TonyTask> removed = session.resizeJob(jobName, numInstances);
+    if (jobTypeToContainerRequestsMap.containsKey(jobName)) {
+      AMRMClient.ContainerRequest containerAsk = jobTypeToContainerRequestsMap.get(jobName).get(0);
+      for (int i = 0; i < numAdded; i++) {
+        amRMClient.addContainerRequest(containerAsk);
+      }
+      if (numAdded > 0) {
+        eventHandler.emitEvent(new Event(EventType.CONTAINER_REQUESTED,
+            new ContainerRequested(jobName, numAdded, request.getPriority()), System.currentTimeMillis()));
+      }
+      session.addNumExpectedTask(numAdded);
+    }
+    return removed;
+  }
+
   private Map<String, LocalResource> getContainerResources(String jobName) {
     Map<String, LocalResource> containerResources = new ConcurrentHashMap<>(localResources);
     String[] resources = tonyConf.getStrings(TonyConfigurationKeys.getResourcesKey(jobName));
-    Utils.addResources(resources, containerResources, resourceFs);
+    Utils.addResources(resources, containerResources, resourceFs, tonyConf);
 
     // All resources available to all containers
     resources = tonyConf.getStrings(TonyConfigurationKeys.getContainerResourcesKey());
-    Utils.addResources(resources, containerResources, resourceFs);
+    Utils.addResources(resources, containerResources, resourceFs, tonyConf);
     return containerResources;
   }
 
@@ -8,15 +8,18 @@ import azkaban.jobtype.HadoopConfigurationInjector;
 import azkaban.utils.Props;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
-import com.google.common.io.Files;
 import com.linkedin.tony.client.CallbackHandler;
 import com.linkedin.tony.client.TaskUpdateListener;
 import com.linkedin.tony.rpc.TaskInfo;
+import com.linkedin.tony.rpc.TaskInfoDelta;
 import com.linkedin.tony.rpc.impl.ApplicationRpcClient;
 import com.linkedin.tony.rpc.impl.TaskStatus;
 import com.linkedin.tony.security.TokenCache;
 import com.linkedin.tony.tensorflow.JobContainerRequest;
+import com.linkedin.tony.util.AdaptiveInterval;
 import com.linkedin.tony.util.HdfsUtils;
+import com.linkedin.tony.util.ResourceCache;
+import com.linkedin.tony.util.ResourceUploader;
 import com.linkedin.tony.util.Utils;
 import com.linkedin.tony.util.VersionInfo;
 import java.io.File;
@@ -42,6 +45,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -52,7 +57,6 @@ import org.apache.commons.cli.GnuParser;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -147,6 +151,9 @@ public class TonyClient implements AutoCloseable {
   private String hadoopFrameworkLocation = null;
   private String hadoopFrameworkClasspath = null;
   private String sidecarTBScriptPath = null;
+  private ResourceCache resourceCache = null;
+  private ResourceUploader resourceUploader = null;
+  private final List<PendingUpload> pendingUploads = new ArrayList<>();
 
   private String tonyFinalConfPath;
   private Configuration tonyConf;
@@ -161,6 +168,11 @@ public class TonyClient implements AutoCloseable {
 
   // For access from CLI.
   private Set<TaskInfo> taskInfos = new HashSet<>();
+  // The tasks received from the AM keyed by job name and index, and the version of the AM's change log they're
+  // current as of, so that only changed tasks are fetched.
+  private final Map<String, TaskInfo> taskInfosById = new HashMap<>();
+  private long taskInfoVersion = 0;
+  private boolean taskInfoPollFailed = false;
 
   /**
    * Gets default hadoop application classpath from yarnConf.
@@ -228,21 +240,26 @@ public class TonyClient implements AutoCloseable {
   @VisibleForTesting
   public String processFinalTonyConf() throws IOException, ParseException {
     FileSystem fs = FileSystem.get(hdfsConf);
+    if (ResourceCache.isEnabled(tonyConf)) {
+      resourceCache = new ResourceCache(tonyConf, fs);
+      LOG.info("Resource cache enabled at " + resourceCache.getCacheRoot() + " with "
+          + resourceCache.getVisibility() + " visibility.");
+    }
+
     String tonySrcZipName = Utils.getTonySrcZipName(appId.toString());
     if (srcDir != null) {
       if (Utils.isArchive(srcDir)) {
-        Utils.uploadFileAndSetConfResources(appResourcesPath, new Path(srcDir),
+        uploadFileAndSetConfResources(new Path(srcDir),
             tonySrcZipName, tonyConf, fs, LocalResourceType.FILE, TonyConfigurationKeys.getContainerResourcesKey());
       } else {
-        Utils.zipFolder(Paths.get(srcDir), Paths.get(tonySrcZipName));
-        Utils.uploadFileAndSetConfResources(appResourcesPath, new Path(tonySrcZipName),
+        uploadDirectoryAndSetConfResources(Paths.get(srcDir),
             tonySrcZipName, tonyConf, fs, LocalResourceType.FILE, TonyConfigurationKeys.getContainerResourcesKey());
       }
     }
 
     if (pythonVenv != null) {
-      Utils.uploadFileAndSetConfResources(appResourcesPath,
-          new Path(pythonVenv), Constants.PYTHON_VENV_ZIP, tonyConf, fs, LocalResourceType.FILE, TonyConfigurationKeys.getContainerResourcesKey());
+      uploadFileAndSetConfResources(new Path(pythonVenv), Constants.PYTHON_VENV_ZIP, tonyConf, fs,
+          LocalResourceType.FILE, TonyConfigurationKeys.getContainerResourcesKey());
     }
 
     if (sidecarTBScriptPath != null) {
@@ -700,12 +717,12 @@ public class TonyClient implements AutoCloseable {
   @VisibleForTesting
   public void processTonyConfResources(Configuration tonyConf, FileSystem fs) throws IOException, ParseException {
     Set<String> resourceKeys = tonyConf.getValByRegex(TonyConfigurationKeys.RESOURCES_REGEX).keySet();
+    Set<String> resourcesToBeRemoved = new HashSet<>();
     for (String resourceKey : resourceKeys) {
       String[] resources = tonyConf.getStrings(resourceKey);
       if (resources == null) {
         continue;
       }
-      Set<String> resourcesToBeRemoved = new HashSet<>();
       for (String resource: resources) {
         // If a hdfs classpath does not exist, we skip it rather than failing the job.
         // This is because there are some cases where while constructing a ML flow, we have a hdfs classpath that might
@@ -734,13 +751,13 @@ public class TonyClient implements AutoCloseable {
           if (file.isFile()) {
             // If it is archive format, set it as ARCHIVE format.
             if (lr.isArchive()) {
-              Utils.uploadFileAndSetConfResources(appResourcesPath,
+              uploadFileAndSetConfResources(
                   localFilePath,
                   lr.getLocalizedFileName(),
                   tonyConf,
                   fs, LocalResourceType.ARCHIVE, resourceKey);
             } else {
-              Utils.uploadFileAndSetConfResources(appResourcesPath,
+              uploadFileAndSetConfResources(
                   localFilePath,
                   lr.getLocalizedFileName(),
                   tonyConf,
@@ -748,29 +765,23 @@ public class TonyClient implements AutoCloseable {
             }
           } else {
             // file is directory
-            File tmpDir = Files.createTempDir();
-            tmpDir.deleteOnExit();
-            try {
-              java.nio.file.Path dest = Paths.get(tmpDir.getAbsolutePath(), file.getName());
-              Utils.zipFolder(Paths.get(resource), dest);
-              Utils.uploadFileAndSetConfResources(appResourcesPath,
-                  new Path(dest.toString()),
-                  lr.getLocalizedFileName(),
-                  tonyConf,
-                  fs, LocalResourceType.ARCHIVE, resourceKey);
-            } finally {
-              try {
-                FileUtils.deleteDirectory(tmpDir);
-              } catch (IOException ex) {
-                // ignore the deletion failure and continue
-                LOG.warn("Failed to delete temp directory " + tmpDir, ex);
-              }
-            }
+            uploadDirectoryAndSetConfResources(file.toPath(),
+                lr.getLocalizedFileName(),
+                tonyConf,
+                fs, LocalResourceType.ARCHIVE, resourceKey);
           }
         }
       }
+    }
+
+    // Uploads run in parallel, their remote addresses are added once all of them have finished.
+    awaitPendingUploads();
+    for (String resourceKey : resourceKeys) {
+      String[] resources = tonyConf.getStrings(resourceKey);
+      if (resources == null) {
+        continue;
+      }
       // Filter out original local file locations
-      resources = tonyConf.getStrings(resourceKey);
       resources = Stream.of(resources).filter((filePath) ->
               new Path(filePath).toUri().getScheme() != null && !resourcesToBeRemoved.contains(filePath)
       ).toArray(String[]::new);
@@ -779,6 +790,129 @@ public class TonyClient implements AutoCloseable {
 
   }
 
+  /**
+   * Uploads a local file to the application's resource folder and adds it to {@code resourceKey}. When the resource
+   * cache is enabled the file goes to the cache instead, and is not uploaded at all if its content is already there.
+   * Local files are uploaded asynchronously, see {@link #awaitPendingUploads()}.
+   */
+  private void uploadFileAndSetConfResources(Path filePath, String fileName, Configuration tonyConf, FileSystem fs,
+      LocalResourceType resourceType, String resourceKey) throws IOException {
+    if (filePath.toUri().getScheme() != null) {
+      Utils.uploadFileAndSetConfResources(appResourcesPath, filePath, fileName, tonyConf, fs, resourceType,
+          resourceKey);
+      return;
+    }
+    ResourceUploader uploader = getResourceUploader(fs);
+    Future<String> upload = uploader.submit(() -> {
+      if (resourceCache != null) {
+        String contentHash = ResourceCache.hash(Paths.get(filePath.toUri().getPath()));
+        Path cached = resourceCache.lookup(contentHash, filePath.getName());
+        if (cached != null) {
+          LOG.info("Reusing cached resource " + cached + " for " + filePath);
+        } else {
+          cached = resourceCache.put(contentHash, filePath.getName(), dst -> uploader.uploadFile(filePath, dst));
+        }
+        return toConfResource(cached, fileName, resourceType);
+      }
+      Path dst = new Path(appResourcesPath, fileName);
+      uploader.uploadFile(filePath, dst);
+      fs.setPermission(dst, new FsPermission((short) 0770));
+      return toConfResource(dst, fileName, resourceType);
+    });
+    pendingUploads.add(new PendingUpload(tonyConf, resourceKey, upload));
+  }
+
+  /**
+   * Zips a local directory straight into the remote file system and adds it to {@code resourceKey}, like
+   * {@link #uploadFileAndSetConfResources}. With the resource cache enabled the directory content is hashed up
+   * front, so an unchanged directory is neither zipped nor uploaded.
+   */
+  private void uploadDirectoryAndSetConfResources(java.nio.file.Path dir, String fileName, Configuration tonyConf,
+      FileSystem fs, LocalResourceType resourceType, String resourceKey) {
+    java.nio.file.Path dirName = dir.toAbsolutePath().normalize().getFileName();
+    String zipName = (dirName == null ? "root" : dirName.toString()) + ".zip";
+    ResourceUploader uploader = getResourceUploader(fs);
+    Future<String> upload = uploader.submit(() -> {
+      if (resourceCache != null) {
+        String contentHash = ResourceCache.hash(dir);
+        Path cached = resourceCache.lookup(contentHash, zipName);
+        if (cached != null) {
+          LOG.info("Reusing cached resource " + cached + " for directory " + dir);
+        } else {
+          cached = resourceCache.put(contentHash, zipName, dst -> uploader.uploadDirectory(dir, dst));
+        }
+        return toConfResource(cached, fileName, resourceType);
+      }
+      Path dst = new Path(appResourcesPath, fileName);
+      uploader.uploadDirectory(dir, dst);
+      fs.setPermission(dst, new FsPermission((short) 0770));
+      return toConfResource(dst, fileName, resourceType);
+    });
+    pendingUploads.add(new PendingUpload(tonyConf, resourceKey, upload));
+  }
+
+  private ResourceUploader getResourceUploader(FileSystem fs) {
+    if (resourceUploader == null) {
+      int numThreads = tonyConf.getInt(TonyConfigurationKeys.RESOURCE_UPLOAD_THREADS,
+          TonyConfigurationKeys.DEFAULT_RESOURCE_UPLOAD_THREADS);
+      boolean zipStoreOnly = tonyConf.getBoolean(TonyConfigurationKeys.RESOURCE_ZIP_STORE_ONLY,
+          TonyConfigurationKeys.DEFAULT_RESOURCE_ZIP_STORE_ONLY);
+      resourceUploader = new ResourceUploader(fs, numThreads, zipStoreOnly);
+    }
+    return resourceUploader;
+  }
+
+  /**
+   * Waits for all uploads started by {@link #uploadFileAndSetConfResources} and
+   * {@link #uploadDirectoryAndSetConfResources} and adds the uploaded files to their resource keys, in the order the
+   * uploads were started.
+   */
+  private void awaitPendingUploads() throws IOException {
+    try {
+      for (PendingUpload upload : pendingUploads) {
+        Utils.appendConfResources(upload.resourceKey, upload.resource.get(), upload.conf);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while uploading resources.", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to upload resources.", e.getCause());
+    } finally {
+      pendingUploads.clear();
+      if (resourceUploader != null) {
+        resourceUploader.close();
+        resourceUploader = null;
+      }
+    }
+  }
+
+  private static String toConfResource(Path uploaded, String fileName, LocalResourceType resourceType) {
+    // Cached files keep their original name, so the name inside the container is given explicitly.
+    String resource = uploaded.toString();
+    if (!uploaded.getName().equals(fileName)) {
+      resource += Constants.RESOURCE_DIVIDER + fileName;
+    }
+    if (resourceType == LocalResourceType.ARCHIVE) {
+      resource += Constants.ARCHIVE_SUFFIX;
+    }
+    return resource;
+  }
+
+  /**
+   * An upload running on the {@link ResourceUploader} whose result still has to be added to the configuration.
+   */
+  private static class PendingUpload {
+    private final Configuration conf;
+    private final String resourceKey;
+    private final Future<String> resource;
+
+    PendingUpload(Configuration conf, String resourceKey, Future<String> resource) {
+      this.conf = conf;
+      this.resourceKey = resourceKey;
+      this.resource = resource;
+    }
+  }
+
   /**
    * Validates that the configuration does not violate any limits. Throws a {@link RuntimeException}
    * if any limits are exceeded.
@@ -869,11 +1003,11 @@ public class TonyClient implements AutoCloseable {
 
     // Add AM resources
     String[] amResources = tonyConf.getStrings(TonyConfigurationKeys.getResourcesKey(Constants.AM_NAME));
-    Utils.addResources(amResources, localResources, fs);
+    Utils.addResources(amResources, localResources, fs, tonyConf);
 
     // Add resources for all containers
     amResources = tonyConf.getStrings(TonyConfigurationKeys.getContainerResourcesKey());
-    Utils.addResources(amResources, localResources, fs);
+    Utils.addResources(amResources, localResources, fs, tonyConf);
 
     setAMEnvironment(localResources, fs);
 
@@ -1030,20 +1164,39 @@ public class TonyClient implements AutoCloseable {
   @VisibleForTesting
   public boolean monitorApplication() throws YarnException, IOException, InterruptedException {
     boolean result;
+    long minPollIntervalMs = tonyConf.getLong(TonyConfigurationKeys.CLIENT_POLL_INTERVAL_MIN_MS,
+        TonyConfigurationKeys.DEFAULT_CLIENT_POLL_INTERVAL_MIN_MS);
+    // The RM is shared by every client on the cluster, so only poll it often while something is happening.
+    AdaptiveInterval rmPollInterval = new AdaptiveInterval(minPollIntervalMs,
+        tonyConf.getLong(TonyConfigurationKeys.CLIENT_POLL_INTERVAL_MAX_MS,
+            TonyConfigurationKeys.DEFAULT_CLIENT_POLL_INTERVAL_MAX_MS));
+    long nextRmPollTime = 0;
+    YarnApplicationState appState = null;
+    FinalApplicationStatus finalApplicationStatus = null;
     while (true) {
-      // Check app status every 1 second.
-      Thread.sleep(1000);
-
-      // Get application report for the appId we are interested in
-      ApplicationReport report = yarnClient.getApplicationReport(appId);
-
-      YarnApplicationState appState = report.getYarnApplicationState();
+      Thread.sleep(minPollIntervalMs);
 
-      FinalApplicationStatus finalApplicationStatus = report.getFinalApplicationStatus();
-      initRpcClientAndLogAMUrl(report);
+      if (System.currentTimeMillis() >= nextRmPollTime) {
+        // Get application report for the appId we are interested in
+        ApplicationReport report = yarnClient.getApplicationReport(appId);
+        if (report.getYarnApplicationState() != appState) {
+          rmPollInterval.onChange();
+        } else {
+          rmPollInterval.onNoChange();
+        }
+        appState = report.getYarnApplicationState();
+        finalApplicationStatus = report.getFinalApplicationStatus();
+        nextRmPollTime = System.currentTimeMillis() + rmPollInterval.getIntervalMs();
+        initRpcClientAndLogAMUrl(report);
+      }
 
       boolean isFirstTimePrint = taskInfos.isEmpty();
       boolean isTaskUpdated = updateTaskInfoAndReturn();
+      if (amRpcClient != null && (taskInfoPollFailed || allTasksCompleted(taskInfos))) {
+        // The application is likely finishing, so check its state right away.
+        rmPollInterval.onChange();
+        nextRmPollTime = 0;
+      }
       if (isTaskUpdated) {
         if (isFirstTimePrint) {
           // if it's first time printing tasks, log detailed info of the tasks, including
@@ -1062,8 +1215,8 @@ public class TonyClient implements AutoCloseable {
       if (YarnApplicationState.KILLED == appState) {
         LOG.warn("Application " + appId.getId() + " was killed. YarnState: " + appState + ". "
             + "FinalApplicationStatus = " + finalApplicationStatus + ".");
-        // Set amRpcClient to null so client does not try to connect to a killed AM.
-        amRpcClient = null;
+        // Release amRpcClient so client does not try to connect to a killed AM.
+        releaseAMRpcClient();
         result = false;
         break;
       }
@@ -1106,6 +1259,13 @@ public class TonyClient implements AutoCloseable {
       } catch (Exception e) {
         LOG.error("Errors on calling AM to finish application. Maybe AM has finished.", e);
       }
+      releaseAMRpcClient();
+    }
+  }
+
+  private void releaseAMRpcClient() {
+    if (amRpcClient != null) {
+      amRpcClient.close();
       amRpcClient = null;
     }
   }
@@ -1127,7 +1287,8 @@ public class TonyClient implements AutoCloseable {
     String log = "%s, %s, %s, %s";
     for (TaskInfo taskInfo : sortedTasks) {
       LOG.info(String.format(log, taskInfo.getStatus(), taskInfo.getName(),
-          taskInfo.getIndex(), taskInfo.getUrl()));
+          taskInfo.getIndex(), taskInfo.getUrl())
+          + (taskInfo.isStraggler() ? ", straggler: " + taskInfo.getStragglerReason() : ""));
     }
   }
 
@@ -1187,9 +1348,15 @@ public class TonyClient implements AutoCloseable {
    */
   private boolean updateTaskInfoAndReturn() {
     boolean taskUpdated = false;
+    taskInfoPollFailed = false;
     if (amRpcClient != null) {
       try {
-        Set<TaskInfo> receivedInfos = amRpcClient.getTaskInfos();
+        TaskInfoDelta delta = amRpcClient.getTaskInfos(taskInfoVersion);
+        taskInfoVersion = delta.getVersion();
+        for (TaskInfo taskInfo : delta.getTaskInfos()) {
+          taskInfosById.put(taskInfo.getName() + ":" + taskInfo.getIndex(), taskInfo);
+        }
+        Set<TaskInfo> receivedInfos = new HashSet<>(taskInfosById.values());
         taskUpdated = !taskInfos.equals(receivedInfos);
         // If task status is changed, invoke callback for all listeners.
         if (taskUpdated) {
@@ -1200,11 +1367,17 @@ public class TonyClient implements AutoCloseable {
         }
       } catch (IOException | YarnException e) {
         LOG.error("Errors on calling AM to update task infos.", e);
+        taskInfoPollFailed = true;
       }
     }
     return taskUpdated;
   }
 
+  private static boolean allTasksCompleted(Set<TaskInfo> tasks) {
+    return !tasks.isEmpty() && tasks.stream().allMatch(task -> task.getStatus() == TaskStatus.SUCCEEDED
+        || task.getStatus() == TaskStatus.FAILED || task.getStatus() == TaskStatus.FINISHED);
+  }
+
   private void initRpcClientAndLogAMUrl(ApplicationReport report) throws IOException {
     if (!amRpcServerInitialized && report.getRpcPort() != -1) {
       try {
@@ -1223,7 +1396,7 @@ public class TonyClient implements AutoCloseable {
       LOG.info("AM RPC port: " + report.getRpcPort());
 
       addClientToAMTokenToUGI(report);
-      amRpcClient = ApplicationRpcClient.getInstance(amHost, amRpcPort, yarnConf);
+      amRpcClient = ApplicationRpcClient.acquire(amHost, amRpcPort, yarnConf, tonyConf);
       amRpcServerInitialized = true;
     }
   }
@@ -1283,6 +1456,7 @@ public class TonyClient implements AutoCloseable {
 
   @Override
   public void close() {
+    releaseAMRpcClient();
     Utils.cleanupHDFSPath(hdfsConf, appResourcesPath);
   }
 
@@ -129,6 +129,19 @@ public class TonyConfigurationKeys {
   public static final String RM_CLIENT_CONNECT_RETRY_MULTIPLIER = TONY_APPLICATION_PREFIX + "num-client-rm-connect-retries";
   public static final int DEFAULT_RM_CLIENT_CONNECT_RETRY_MULTIPLIER = 3;
 
+  // The client polls the application master at the min interval, and the RM at an interval that backs off to the
+  // max while the application's state doesn't change.
+  public static final String CLIENT_POLL_INTERVAL_MIN_MS = TONY_APPLICATION_PREFIX + "client-poll-interval-min-ms";
+  public static final long DEFAULT_CLIENT_POLL_INTERVAL_MIN_MS = 1000;
+  public static final String CLIENT_POLL_INTERVAL_MAX_MS = TONY_APPLICATION_PREFIX + "client-poll-interval-max-ms";
+  public static final long DEFAULT_CLIENT_POLL_INTERVAL_MAX_MS = 10000;
+
+  // How calls from clients and task executors to the application master's RPC server are retried.
+  public static final String AM_RPC_MAX_RETRIES = TONY_APPLICATION_PREFIX + "am-rpc-max-retries";
+  public static final int DEFAULT_AM_RPC_MAX_RETRIES = 10;
+  public static final String AM_RPC_RETRY_INTERVAL_MS = TONY_APPLICATION_PREFIX + "am-rpc-retry-interval-ms";
+  public static final long DEFAULT_AM_RPC_RETRY_INTERVAL_MS = 2000;
+
   public static final String APPLICATION_TAGS = TONY_APPLICATION_PREFIX + "tags";
 
   public static final String APPLICATION_PREPARE_STAGE = TONY_APPLICATION_PREFIX + "prepare-stage";
@@ -141,6 +154,23 @@ public class TonyConfigurationKeys {
   public static final String APPLICATION_HADOOP_LOCATION = TONY_HADOOP_PREFIX + "location";
   public static final String APPLICATION_HADOOP_CLASSPATH = TONY_HADOOP_PREFIX + "classpath";
 
+  // Content-addressed cache for resources uploaded by the client
+  public static final String RESOURCE_CACHE_PREFIX = TONY_APPLICATION_PREFIX + "resource-cache.";
+
+  public static final String RESOURCE_CACHE_ENABLED = RESOURCE_CACHE_PREFIX + "enabled";
+  public static final boolean DEFAULT_RESOURCE_CACHE_ENABLED = false;
+
+  public static final String RESOURCE_CACHE_LOCATION = RESOURCE_CACHE_PREFIX + "location";
+
+  public static final String RESOURCE_CACHE_VISIBILITY = RESOURCE_CACHE_PREFIX + "visibility";
+  public static final String DEFAULT_RESOURCE_CACHE_VISIBILITY = "PRIVATE";
+
+  public static final String RESOURCE_UPLOAD_THREADS = TONY_APPLICATION_PREFIX + "resource-upload-threads";
+  public static final int DEFAULT_RESOURCE_UPLOAD_THREADS = 4;
+
+  public static final String RESOURCE_ZIP_STORE_ONLY = TONY_APPLICATION_PREFIX + "resource-zip-store-only";
+  public static final boolean DEFAULT_RESOURCE_ZIP_STORE_ONLY = false;
+
   // Task configurations
   public static final String TONY_TASK_PREFIX = TONY_PREFIX + "task.";
 
@@ -167,6 +197,15 @@ public class TonyConfigurationKeys {
   public static final String TASK_GPU_METRICS_ENABLED = TONY_TASK_PREFIX + "gpu-metrics.enabled";
   public static final boolean DEFAULT_TASK_GPU_METRICS_ENABLED = true;
 
+  public static final String TASK_GPU_METRICS_SAMPLING_ENABLED = TONY_TASK_PREFIX + "gpu-metrics.sampling.enabled";
+  public static final boolean DEFAULT_TASK_GPU_METRICS_SAMPLING_ENABLED = true;
+
+  public static final String TASK_VENV_CACHE_ENABLED = TONY_TASK_PREFIX + "venv-cache.enabled";
+  public static final boolean DEFAULT_TASK_VENV_CACHE_ENABLED = false;
+
+  public static final String TASK_VENV_CACHE_LOCATION = TONY_TASK_PREFIX + "venv-cache.location";
+  public static final String DEFAULT_TASK_VENV_CACHE_LOCATION = "/tmp/tony-venv-cache";
+
   // AM configurations
   public static final String AM_PREFIX = TONY_PREFIX + "am.";
 
@@ -185,6 +224,41 @@ public class TonyConfigurationKeys {
   public static final String AM_WAIT_CLIENT_STOP_TIMEOUT = AM_PREFIX + "wait-client-signal-stop-timeout-sec";
   public static final int DEFAULT_AM_WAIT_CLIENT_STOP_TIMEOUT = 15;
 
+  // Handler threads of the AM's application and metrics RPC servers. If 0, they're sized by the number of tasks.
+  public static final String AM_RPC_HANDLER_COUNT = AM_PREFIX + "rpc-handler-count";
+  public static final String AM_METRICS_RPC_HANDLER_COUNT = AM_PREFIX + "metrics-rpc-handler-count";
+  public static final int DEFAULT_AM_RPC_HANDLER_COUNT = 0;
+
+  public static final String AM_RPC_FAIR_CALL_QUEUE_ENABLED = AM_PREFIX + "rpc-fair-call-queue.enabled";
+  public static final boolean DEFAULT_AM_RPC_FAIR_CALL_QUEUE_ENABLED = false;
+
+  public static final String AM_STRAGGLER_DETECTION_ENABLED = AM_PREFIX + "straggler-detection.enabled";
+  public static final boolean DEFAULT_AM_STRAGGLER_DETECTION_ENABLED = true;
+
+  public static final String AM_STRAGGLER_DETECTION_INTERVAL_MS = AM_PREFIX + "straggler-detection.interval-ms";
+  public static final long DEFAULT_AM_STRAGGLER_DETECTION_INTERVAL_MS = 30000;
+
+  // How many median absolute deviations from the median of its job type a task must be to be a straggler
+  public static final String AM_STRAGGLER_DETECTION_THRESHOLD = AM_PREFIX + "straggler-detection.threshold";
+  public static final double DEFAULT_AM_STRAGGLER_DETECTION_THRESHOLD = 3.5;
+
+  // Task metrics that are lower for slower tasks, compared across the tasks of each job type
+  public static final String AM_STRAGGLER_DETECTION_METRICS = AM_PREFIX + "straggler-detection.metrics";
+  public static final String DEFAULT_AM_STRAGGLER_DETECTION_METRICS = "AVG_GPU_UTILIZATION,AVG_CPU_CORES";
+
+  // How long after its first heartbeat, or after replacing a straggler, a task is left out of straggler detection
+  public static final String AM_STRAGGLER_DETECTION_GRACE_PERIOD_MS =
+      AM_PREFIX + "straggler-detection.grace-period-ms";
+  public static final long DEFAULT_AM_STRAGGLER_DETECTION_GRACE_PERIOD_MS = 60000;
+
+  // Only supported in FCFS distributed mode, where tasks don't wait for each other to start
+  public static final String AM_STRAGGLER_MITIGATION_ENABLED = AM_PREFIX + "straggler-mitigation.enabled";
+  public static final boolean DEFAULT_AM_STRAGGLER_MITIGATION_ENABLED = false;
+
+  public static final String AM_STRAGGLER_MITIGATION_MAX_REPLACEMENTS_PER_JOB =
+      AM_PREFIX + "straggler-mitigation.max-replacements-per-job";
+  public static final int DEFAULT_AM_STRAGGLER_MITIGATION_MAX_REPLACEMENTS_PER_JOB = 1;
+
   // Keys/default values for configurable TensorFlow job names
   public static final String INSTANCES_REGEX = "tony\\.([a-z]+)\\.instances";
   public static final String MAX_TOTAL_RESOURCES_REGEX = TONY_TASK_PREFIX + "max-total-([a-z]+)";
@@ -192,6 +266,7 @@ public class TonyConfigurationKeys {
   public static final String DEFAULT_MEMORY = "2g";
   public static final int DEFAULT_VCORES = 1;
   public static final int DEFAULT_GPUS = 0;
+  public static final int DEFAULT_MAX_TASK_ATTEMPTS = 1;
 
   public static String getInstancesKey(String jobName) {
     return String.format(TONY_PREFIX + "%s.instances", jobName);
@@ -218,6 +293,15 @@ public class TonyConfigurationKeys {
     return String.format(TONY_PREFIX + "%s.depends-on", jobName);
   }
 
+  /**
+   * Configuration key for how many times each {@code jobName} task may run, so that a failed task is restarted in a
+   * new container, with the same index, without restarting the other tasks, which are sent the updated cluster
+   * spec.
+   */
+  public static String getMaxTaskAttemptsKey(String jobName) {
+    return String.format(TONY_PREFIX + "%s.max-attempts", jobName);
+  }
+
   public static String getMaxTotalResourceKey(String resource) {
     return String.format(TONY_TASK_PREFIX + "max-total-%s", resource);
   }
@@ -318,6 +402,10 @@ public class TonyConfigurationKeys {
   public static final String HOROVOD_DRIVER_DEBUG_MODE_ENABLE = TONY_HOROVOD_PREFIX + "driver.mode.debug";
   public static final boolean DEFAULT_HOROVOD_DEBUG_MODE_ENABLE = false;
 
+  // How long the driver waits for the rendezvous server to write its port file.
+  public static final String HOROVOD_DRIVER_START_TIMEOUT_MS = TONY_HOROVOD_PREFIX + "driver.start-timeout-ms";
+  public static final long DEFAULT_HOROVOD_DRIVER_START_TIMEOUT_MS = 10000;
+
   // Set Tensorboard log dir to start it
   public static final String TENSORBOARD_LOG_DIR = TONY_APPLICATION_PREFIX + "tensorboard-log-dir";
 
@@ -7,9 +7,13 @@ package com.linkedin.tony.horovod;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
@@ -25,6 +29,7 @@ import org.codehaus.jackson.map.ObjectMapper;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
 import com.linkedin.tony.TonyConfigurationKeys;
 import com.linkedin.tony.util.Utils;
@@ -44,6 +49,8 @@ import static java.util.Objects.requireNonNull;
  * env 'DRIVER_OUTPUT_PATH'in python script.
  * And the script must touch a file after starting rendezvous server.
  * This file must be'{PORT}_____HOROVOD_RENDEZVOUS_SERVER____'as name and Horovod's slot info as content.
+ * The driver output dir is watched for it, and it's read once its content is complete JSON, so it's best written
+ * to another name in the same dir and renamed.
  */
 public class HorovodDriver {
     private static final Log LOG = LogFactory.getLog(HorovodDriver.class);
@@ -54,6 +61,7 @@ public class HorovodDriver {
     private static final String CLUSTER_WORKER_LIST = "CLUSTER_WORKER_LIST";
     private static final String DRIVER_OUTPUT_PATH = "DRIVER_OUTPUT_PATH";
     public static final String PORT_FILE_NAME_SUFFIX = "____HOROVOD_RENDEZVOUS_SERVER____";
+    private static final long PROCESS_CHECK_INTERVAL_MS = 1000;
 
     // Just for unit test.
     private static boolean inTestMode = false;
@@ -121,39 +129,38 @@ public class HorovodDriver {
     }
 
     /**
+     * Waits for the port file by watching the driver output dir, so it's read as soon as it's written rather than on
+     * the next of a few fixed checks.
      * @return Pair, left is Rendezvous server port, right is SlotInfo.
-     * @throws IOException
+     * @throws Exception when the driver process exits or the port file isn't written within {@code timeoutMs}
      * @param taskProcess
      */
-    private static Pair<Integer, List<SlotInfo>> waitTillServerStarted(final Process taskProcess) throws Exception {
-        int checkCount = 0;
-        int maxCheckCount = 5;
-        Duration checkInterval = Duration.ofSeconds(2);
-
-        while (!existPortFile() && (checkCount++) < maxCheckCount) {
+    private static Pair<Integer, List<SlotInfo>> waitTillServerStarted(final Process taskProcess,
+            WatchService watcher, long timeoutMs) throws Exception {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        Pair<Integer, List<SlotInfo>> serverInfo = getServerInfo();
+        while (serverInfo.getRight() == null) {
             if (taskProcess != null && !taskProcess.isAlive()) {
-                throw new Exception("Horovod Driver python process has finished, exit code: " + taskProcess.exitValue());
+                String msg = "Driver python process has ended abnormally, exit code: " + taskProcess.exitValue();
+                LOG.error(msg);
+                throw new Exception(msg);
             }
 
-            try {
-                LOG.info("Rendezvous server don't start, sleep for " + checkInterval.getSeconds() + " secs");
-                Thread.sleep(checkInterval.toMillis());
-            } catch (Exception e) {
-                LOG.warn(e);
+            long remainingMs = deadline - System.currentTimeMillis();
+            if (remainingMs <= 0) {
+                LOG.error("Timeout of starting horovod driver.");
+                throw new Exception("Errors on starting horovod driver within " + timeoutMs + " ms.");
             }
-        }
-
-        if (checkCount > maxCheckCount) {
-            LOG.error("Timeout of starting horovod driver.");
-            throw new Exception("Errors on starting horovod driver within the fixed time.");
-        }
 
-        if (taskProcess != null && !taskProcess.isAlive()) {
-            String msg = "Driver python process has ended abnormally, exit code: " + taskProcess.exitValue();
-            LOG.error(msg);
-            throw new Exception(msg);
+            // Wake up now and then to notice the process exiting without writing the port file.
+            WatchKey key = watcher.poll(Math.min(remainingMs, PROCESS_CHECK_INTERVAL_MS), TimeUnit.MILLISECONDS);
+            if (key != null) {
+                key.pollEvents();
+                key.reset();
+                serverInfo = getServerInfo();
+            }
         }
-        return getServerInfo();
+        return serverInfo;
     }
 
     @VisibleForTesting
@@ -171,10 +178,18 @@ public class HorovodDriver {
                 int tempIndex = fileName.indexOf(PORT_FILE_NAME_SUFFIX);
                 port = Integer.parseInt(fileName.substring(0, tempIndex));
                 String fileContent = FileUtils.readFileToString(file);
-                // TODO: 4/10/21 fast fail when file content is empty.
-                LOG.info("Horovod rendezvous server slot info: \n" + fileContent);
-                List<SlotInfo> slotInfoList = new Gson().fromJson(fileContent,
-                        new TypeToken<List<SlotInfo>>() { }.getType());
+                List<SlotInfo> slotInfoList;
+                try {
+                    slotInfoList = new Gson().fromJson(fileContent, new TypeToken<List<SlotInfo>>() { }.getType());
+                } catch (JsonParseException e) {
+                    // A custom driver script may still be writing it.
+                    slotInfoList = null;
+                }
+                if (slotInfoList == null) {
+                    LOG.info("Horovod rendezvous server slot info isn't fully written yet.");
+                } else {
+                    LOG.info("Horovod rendezvous server slot info: \n" + fileContent);
+                }
                 return Pair.of(port, slotInfoList);
             }
         }
@@ -209,10 +224,23 @@ public class HorovodDriver {
             taskProcessBuilder.environment().putAll(shellEnv);
         }
 
-        LOG.info("Starting python's Horovod driver cmd: " + driverProcessCommand);
-        Process taskProcess = taskProcessBuilder.start();
-        Pair<Integer, List<SlotInfo>> serverInfo = waitTillServerStarted(taskProcess);
-        return new HorovodDriver(taskProcess, serverInfo.getLeft(), serverInfo.getRight());
+        long startTimeoutMs = tonyConf.getLong(TonyConfigurationKeys.HOROVOD_DRIVER_START_TIMEOUT_MS,
+                TonyConfigurationKeys.DEFAULT_HOROVOD_DRIVER_START_TIMEOUT_MS);
+        // Watch before starting the process so that the port file can't be written unnoticed.
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            getDriverOutputDir().toPath().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            LOG.info("Starting python's Horovod driver cmd: " + driverProcessCommand);
+            Process taskProcess = taskProcessBuilder.start();
+            try {
+                Pair<Integer, List<SlotInfo>> serverInfo =
+                        waitTillServerStarted(taskProcess, watcher, startTimeoutMs);
+                return new HorovodDriver(taskProcess, serverInfo.getLeft(), serverInfo.getRight());
+            } catch (Exception e) {
+                killProcess(taskProcess);
+                throw e;
+            }
+        }
     }
 
     @VisibleForTesting
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.horovod;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Horovod workers on each host, updated as workers register, so that the worker list given to the driver and
+ * the task indices on a host given to its workers are read without going through every task. Thread-safe.
+ */
+public class HostSlotTable {
+    private final Map<String, String> hostByTaskId = new HashMap<>();
+    // The task indices of the workers on each host, sorted.
+    private final Map<String, List<Integer>> indicesByHost = new HashMap<>();
+    private long version = 0;
+    private String workerList = null;
+
+    /**
+     * Records that the worker {@code taskId} runs on {@code host}, moving it if it ran on another host before, e.g.
+     * when it's restarted in a new container.
+     */
+    public synchronized void put(String taskId, int taskIndex, String host) {
+        String previousHost = hostByTaskId.put(taskId, host);
+        if (host.equals(previousHost)) {
+            return;
+        }
+        if (previousHost != null) {
+            removeIndex(previousHost, taskIndex);
+        }
+        List<Integer> indices = indicesByHost.computeIfAbsent(host, k -> new ArrayList<>());
+        int pos = Collections.binarySearch(indices, taskIndex);
+        indices.add(pos < 0 ? -pos - 1 : pos, taskIndex);
+        changed();
+    }
+
+    public synchronized void remove(String taskId, int taskIndex) {
+        String host = hostByTaskId.remove(taskId);
+        if (host != null) {
+            removeIndex(host, taskIndex);
+            changed();
+        }
+    }
+
+    /**
+     * Forgets every worker, e.g. when the session is retried.
+     */
+    public synchronized void clear() {
+        hostByTaskId.clear();
+        indicesByHost.clear();
+        changed();
+    }
+
+    private void removeIndex(String host, int taskIndex) {
+        List<Integer> indices = indicesByHost.get(host);
+        indices.remove(Integer.valueOf(taskIndex));
+        if (indices.isEmpty()) {
+            indicesByHost.remove(host);
+        }
+    }
+
+    private void changed() {
+        version++;
+        workerList = null;
+    }
+
+    /**
+     * @return the hosts and their number of workers, like h1:2,h2:1
+     */
+    public synchronized String getWorkerList() {
+        if (workerList == null) {
+            StringBuilder builder = new StringBuilder();
+            for (Map.Entry<String, List<Integer>> entry : indicesByHost.entrySet()) {
+                if (builder.length() > 0) {
+                    builder.append(',');
+                }
+                builder.append(entry.getKey()).append(':').append(entry.getValue().size());
+            }
+            workerList = builder.toString();
+        }
+        return workerList;
+    }
+
+    /**
+     * @return the sorted task indices of the workers on {@code host}
+     */
+    public synchronized List<Integer> getTaskIndices(String host) {
+        return new ArrayList<>(indicesByHost.getOrDefault(host, Collections.emptyList()));
+    }
+
+    /**
+     * @return a number that changes whenever a worker is added, moved or removed
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+}
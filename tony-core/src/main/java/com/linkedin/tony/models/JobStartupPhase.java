@@ -0,0 +1,103 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.models;
+
+import com.linkedin.tony.events.Metric;
+import com.linkedin.tony.events.TaskStartupPhases;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Distribution of one task executor start-up phase across all tasks of a job.
+ */
+public class JobStartupPhase {
+  private static final String METRIC_PREFIX = "startup.";
+
+  private String phase;
+  private int numTasks;
+  private double p50;
+  private double p95;
+  private double max;
+  private String slowestTask;
+
+  public String getPhase() {
+    return phase;
+  }
+
+  public int getNumTasks() {
+    return numTasks;
+  }
+
+  public double getP50() {
+    return p50;
+  }
+
+  public double getP95() {
+    return p95;
+  }
+
+  public double getMax() {
+    return max;
+  }
+
+  public String getSlowestTask() {
+    return slowestTask;
+  }
+
+  /**
+   * Aggregates the start-up timings reported by each task into p50, p95 and max per phase. Phases are listed in the
+   * order they first appear.
+   */
+  public static List<JobStartupPhase> aggregate(List<TaskStartupPhases> tasks) {
+    Map<String, List<Double>> durations = new LinkedHashMap<>();
+    Map<String, JobStartupPhase> phases = new LinkedHashMap<>();
+    for (TaskStartupPhases task : tasks) {
+      for (Metric metric : task.getPhases()) {
+        String name = metric.getName().toString();
+        durations.computeIfAbsent(name, k -> new ArrayList<>()).add(metric.getValue());
+        JobStartupPhase phase = phases.computeIfAbsent(name, k -> new JobStartupPhase());
+        if (phase.slowestTask == null || metric.getValue() > phase.max) {
+          phase.max = metric.getValue();
+          phase.slowestTask = task.getTaskType() + ":" + task.getTaskIndex();
+        }
+      }
+    }
+    for (Map.Entry<String, JobStartupPhase> entry : phases.entrySet()) {
+      List<Double> values = durations.get(entry.getKey());
+      Collections.sort(values);
+      JobStartupPhase phase = entry.getValue();
+      phase.phase = entry.getKey();
+      phase.numTasks = values.size();
+      phase.p50 = percentile(values, 50);
+      phase.p95 = percentile(values, 95);
+    }
+    return new ArrayList<>(phases.values());
+  }
+
+  /**
+   * @return the aggregates as metrics named startup.[phase].p50, startup.[phase].p95 and startup.[phase].max
+   */
+  public static List<Metric> toMetrics(List<JobStartupPhase> phases) {
+    List<Metric> metrics = new ArrayList<>();
+    for (JobStartupPhase phase : phases) {
+      metrics.add(new Metric(METRIC_PREFIX + phase.phase + ".p50", phase.p50));
+      metrics.add(new Metric(METRIC_PREFIX + phase.phase + ".p95", phase.p95));
+      metrics.add(new Metric(METRIC_PREFIX + phase.phase + ".max", phase.max));
+    }
+    return metrics;
+  }
+
+  /**
+   * Nearest-rank percentile of a sorted, non-empty list.
+   */
+  private static double percentile(List<Double> sorted, int percentile) {
+    int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+    return sorted.get(Math.max(0, rank - 1));
+  }
+}
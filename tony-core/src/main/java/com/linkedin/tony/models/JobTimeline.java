@@ -0,0 +1,159 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.models;
+
+import com.linkedin.tony.events.ContainerAllocated;
+import com.linkedin.tony.events.ContainerLaunched;
+import com.linkedin.tony.events.ContainerRequested;
+import com.linkedin.tony.events.TaskFinished;
+import com.linkedin.tony.events.TaskFirstHeartbeat;
+import com.linkedin.tony.events.TaskRegistered;
+import com.linkedin.tony.events.TaskStarted;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Scheduling timeline of a job, rebuilt from the AM's history events: when containers were requested, allocated
+ * and launched, and when each task registered, first heartbeated and finished. Used to tell how much of a job's
+ * start-up went to waiting for allocation versus launching containers versus task executor start-up.
+ */
+public class JobTimeline {
+  private long start = -1;
+  private long end = -1;
+  private long gangReady = -1;
+  private final List<TaskTimeline> tasks;
+
+  private JobTimeline(List<TaskTimeline> tasks) {
+    this.tasks = tasks;
+  }
+
+  public long getStart() {
+    return start;
+  }
+
+  public long getEnd() {
+    return end;
+  }
+
+  /**
+   * @return when the last task of the (latest) session registered, or -1 if that never happened
+   */
+  public long getGangReady() {
+    return gangReady;
+  }
+
+  public List<TaskTimeline> getTasks() {
+    return tasks;
+  }
+
+  public List<TaskTimeline.Segment> getSegments(TaskTimeline task) {
+    return task.getSegments(start, end);
+  }
+
+  /**
+   * Builds the timeline from {@code events}, which must be in the order they were emitted. If a task was run more
+   * than once, e.g. after an AM retry, its latest container is shown.
+   */
+  public static JobTimeline fromEvents(List<JobEvent> events) {
+    Map<String, List<Long>> requestTimes = new HashMap<>();
+    Map<String, Long> allocationTimes = new HashMap<>();
+    Map<String, Long> launchTimes = new HashMap<>();
+    Map<String, TaskTimeline> tasksById = new LinkedHashMap<>();
+    Map<String, TaskTimeline> tasksByContainer = new HashMap<>();
+    JobTimeline timeline = new JobTimeline(new ArrayList<>());
+
+    for (JobEvent e : events) {
+      long timestamp = e.getTimestamp().getTime();
+      if (timeline.start < 0) {
+        timeline.start = timestamp;
+      }
+      timeline.end = Math.max(timeline.end, timestamp);
+      switch (e.getType()) {
+        case CONTAINER_REQUESTED: {
+          ContainerRequested requested = (ContainerRequested) e.getEvent();
+          requestTimes.computeIfAbsent(requested.getTaskType().toString(), k -> new ArrayList<>()).add(timestamp);
+          break;
+        }
+        case CONTAINER_ALLOCATED:
+          allocationTimes.put(((ContainerAllocated) e.getEvent()).getContainerID().toString(), timestamp);
+          break;
+        case TASK_STARTED: {
+          TaskStarted started = (TaskStarted) e.getEvent();
+          String taskId = started.getTaskType() + ":" + started.getTaskIndex();
+          TaskTimeline task = new TaskTimeline(taskId);
+          task.setHost(started.getHost().toString());
+          if (started.getContainerID() != null) {
+            String containerId = started.getContainerID().toString();
+            task.setContainerId(containerId);
+            task.setAllocated(allocationTimes.getOrDefault(containerId, -1L));
+            task.setLaunched(launchTimes.getOrDefault(containerId, -1L));
+            tasksByContainer.put(containerId, task);
+          }
+          long allocatedOrStarted = task.getAllocated() >= 0 ? task.getAllocated() : timestamp;
+          task.setRequested(latestBefore(requestTimes.get(started.getTaskType().toString()), allocatedOrStarted));
+          tasksById.remove(taskId);
+          tasksById.put(taskId, task);
+          break;
+        }
+        case CONTAINER_LAUNCHED: {
+          String containerId = ((ContainerLaunched) e.getEvent()).getContainerID().toString();
+          launchTimes.put(containerId, timestamp);
+          TaskTimeline task = tasksByContainer.get(containerId);
+          if (task != null) {
+            task.setLaunched(timestamp);
+          }
+          break;
+        }
+        case TASK_REGISTERED: {
+          TaskRegistered registered = (TaskRegistered) e.getEvent();
+          TaskTimeline task = tasksById.get(registered.getTaskType() + ":" + registered.getTaskIndex());
+          if (task != null) {
+            task.setRegistered(timestamp);
+          }
+          break;
+        }
+        case TASK_FIRST_HEARTBEAT: {
+          TaskFirstHeartbeat heartbeat = (TaskFirstHeartbeat) e.getEvent();
+          TaskTimeline task = tasksById.get(heartbeat.getTaskType() + ":" + heartbeat.getTaskIndex());
+          if (task != null) {
+            task.setFirstHeartbeat(timestamp);
+          }
+          break;
+        }
+        case TASK_FINISHED: {
+          TaskFinished finished = (TaskFinished) e.getEvent();
+          TaskTimeline task = tasksById.get(finished.getTaskType() + ":" + finished.getTaskIndex());
+          if (task != null) {
+            task.setFinished(timestamp);
+          }
+          break;
+        }
+        case GANG_READY:
+          timeline.gangReady = timestamp;
+          break;
+        default:
+          break;
+      }
+    }
+    timeline.tasks.addAll(tasksById.values());
+    return timeline;
+  }
+
+  private static long latestBefore(List<Long> timestamps, long limit) {
+    long latest = -1;
+    if (timestamps != null) {
+      for (long timestamp : timestamps) {
+        if (timestamp <= limit) {
+          latest = Math.max(latest, timestamp);
+        }
+      }
+    }
+    return latest;
+  }
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Scheduling milestones of a single task, from its container request to its completion. Timestamps are in
+ * milliseconds since the epoch, or -1 if the milestone wasn't recorded.
+ */
+public class TaskTimeline {
+  private final String taskId;
+  private String host;
+  private String containerId;
+  private long requested = -1;
+  private long allocated = -1;
+  private long launched = -1;
+  private long registered = -1;
+  private long firstHeartbeat = -1;
+  private long finished = -1;
+
+  public TaskTimeline(String taskId) {
+    this.taskId = taskId;
+  }
+
+  public String getTaskId() {
+    return taskId;
+  }
+
+  public String getHost() {
+    return host;
+  }
+
+  public void setHost(String host) {
+    this.host = host;
+  }
+
+  public String getContainerId() {
+    return containerId;
+  }
+
+  public void setContainerId(String containerId) {
+    this.containerId = containerId;
+  }
+
+  public long getRequested() {
+    return requested;
+  }
+
+  public void setRequested(long requested) {
+    this.requested = requested;
+  }
+
+  public long getAllocated() {
+    return allocated;
+  }
+
+  public void setAllocated(long allocated) {
+    this.allocated = allocated;
+  }
+
+  public long getLaunched() {
+    return launched;
+  }
+
+  public void setLaunched(long launched) {
+    this.launched = launched;
+  }
+
+  public long getRegistered() {
+    return registered;
+  }
+
+  public void setRegistered(long registered) {
+    this.registered = registered;
+  }
+
+  public long getFirstHeartbeat() {
+    return firstHeartbeat;
+  }
+
+  public void setFirstHeartbeat(long firstHeartbeat) {
+    this.firstHeartbeat = firstHeartbeat;
+  }
+
+  public long getFinished() {
+    return finished;
+  }
+
+  public void setFinished(long finished) {
+    this.finished = finished;
+  }
+
+  /**
+   * Splits the task's life into consecutive phases (waiting for allocation, launching, starting up until
+   * registration, running), positioned relative to the job's time span for drawing a Gantt chart. Phases whose
+   * start or end wasn't recorded are left out.
+   */
+  public List<Segment> getSegments(long jobStart, long jobEnd) {
+    List<Segment> segments = new ArrayList<>();
+    addSegment(segments, "allocation", requested, allocated, jobStart, jobEnd);
+    addSegment(segments, "launch", allocated, launched, jobStart, jobEnd);
+    addSegment(segments, "registration", launched, registered, jobStart, jobEnd);
+    addSegment(segments, "running", registered, finished, jobStart, jobEnd);
+    return segments;
+  }
+
+  private static void addSegment(List<Segment> segments, String name, long start, long end, long jobStart,
+      long jobEnd) {
+    if (start < 0 || end < start) {
+      return;
+    }
+    double span = Math.max(1, jobEnd - jobStart);
+    segments.add(new Segment(name, end - start, (start - jobStart) * 100 / span, (end - start) * 100 / span));
+  }
+
+  public static class Segment {
+    private final String name;
+    private final long durationMs;
+    private final double offsetPercent;
+    private final double widthPercent;
+
+    Segment(String name, long durationMs, double offsetPercent, double widthPercent) {
+      this.name = name;
+      this.durationMs = durationMs;
+      this.offsetPercent = offsetPercent;
+      this.widthPercent = widthPercent;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getDurationMs() {
+      return durationMs;
+    }
+
+    public double getOffsetPercent() {
+      return offsetPercent;
+    }
+
+    public double getWidthPercent() {
+      return widthPercent;
+    }
+  }
+}
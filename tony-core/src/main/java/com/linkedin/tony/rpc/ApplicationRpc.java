@@ -16,12 +16,34 @@ public interface ApplicationRpc {
    */
   Set<TaskInfo> getTaskInfos() throws IOException, YarnException;
 
+  /**
+   * Returns the tasks whose status changed after {@code sinceVersion}, which is 0 for the first call and the version
+   * of the previous {@link TaskInfoDelta} afterwards. Like {@link #getTaskInfos()}, no tasks are returned before all
+   * tasks have been allocated.
+   */
+  TaskInfoDelta getTaskInfos(long sinceVersion) throws IOException, YarnException;
+
   String getClusterSpec() throws IOException, YarnException;
   String registerWorkerSpec(String worker, String spec) throws IOException, YarnException;
   String registerTensorBoardUrl(String spec) throws Exception;
   String registerExecutionResult(int exitCode, String jobName, String jobIndex, String sessionId) throws Exception;
   void finishApplication() throws YarnException, IOException;
-  void taskExecutorHeartbeat(String taskId) throws YarnException, IOException;
+
+  /**
+   * @return the AM's cluster spec version, which changes whenever the cluster spec changes or more tasks can start,
+   *         so that the task executor knows when to call {@link #getClusterSpec()} or {@link #registerWorkerSpec}
+   *         again
+   */
+  long taskExecutorHeartbeat(String taskId) throws YarnException, IOException;
+
   void reset();
   void registerCallbackInfo(String taskId, String callbackInfo) throws YarnException, IOException;
+
+  /**
+   * Changes the number of instances of the job type {@code jobName} to {@code numInstances} while the application
+   * runs. Containers are requested for new tasks and the tasks with the highest indices are stopped when shrinking.
+   * Tasks get the new membership from the cluster spec they fetch when they register, and running tasks are told
+   * to fetch it again.
+   */
+  void scaleJob(String jobName, int numInstances) throws YarnException, IOException;
 }
@@ -7,6 +7,7 @@ package com.linkedin.tony.rpc;
 import com.google.protobuf.BlockingService;
 import com.linkedin.tony.TonyPolicyProvider;
 import com.linkedin.tony.rpc.impl.pb.service.TensorFlowClusterPBServiceImpl;
+import com.linkedin.tony.util.Utils;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.util.Random;
@@ -32,6 +33,9 @@ public class ApplicationRpcServer extends Thread implements TensorFlowCluster {
   private ClientToAMTokenSecretManager secretManager;
   private Server server;
   private Configuration conf;
+  private int numHandlers = 1;
+  private boolean fairCallQueueEnabled = false;
+  private final RpcCallMetrics callMetrics = new RpcCallMetrics();
 
   public ApplicationRpcServer(String hostname, ApplicationRpc rpc, Configuration conf) throws IOException {
     this.rpcAddress = hostname;
@@ -45,7 +49,14 @@ public class ApplicationRpcServer extends Thread implements TensorFlowCluster {
   @Override
   public GetTaskInfosResponse getTaskInfos(GetTaskInfosRequest request) throws IOException, YarnException {
     GetTaskInfosResponse response = RECORD_FACTORY.newRecordInstance(GetTaskInfosResponse.class);
-    response.setTaskInfos(this.appRpc.getTaskInfos());
+    // Clients that don't send a version get every task, as before.
+    if (request.hasSinceVersion()) {
+      TaskInfoDelta delta = this.appRpc.getTaskInfos(request.getSinceVersion());
+      response.setTaskInfos(delta.getTaskInfos());
+      response.setVersion(delta.getVersion());
+    } else {
+      response.setTaskInfos(this.appRpc.getTaskInfos());
+    }
     return response;
   }
 
@@ -73,7 +84,6 @@ public class ApplicationRpcServer extends Thread implements TensorFlowCluster {
     String clusterSpec = this.appRpc.registerTensorBoardUrl(request.getSpec());
     response.setSpec(clusterSpec);
     return response;
-
   }
 
   @Override
@@ -95,7 +105,7 @@ public class ApplicationRpcServer extends Thread implements TensorFlowCluster {
   public HeartbeatResponse taskExecutorHeartbeat(HeartbeatRequest request)
       throws YarnException, IOException {
     HeartbeatResponse response = RECORD_FACTORY.newRecordInstance(HeartbeatResponse.class);
-    this.appRpc.taskExecutorHeartbeat(request.getTaskId());
+    response.setClusterSpecVersion(this.appRpc.taskExecutorHeartbeat(request.getTaskId()));
     return response;
   }
 
@@ -106,6 +116,13 @@ public class ApplicationRpcServer extends Thread implements TensorFlowCluster {
     return response;
   }
 
+  @Override
+  public Empty scaleJob(ScaleJobRequest request) throws YarnException, IOException {
+    Empty response = RECORD_FACTORY.newRecordInstance(Empty.class);
+    this.appRpc.scaleJob(request.getJobName(), request.getNumInstances());
+    return response;
+  }
+
   // Reset the Application RPC's state
   public void reset() {
     this.appRpc.reset();
@@ -115,6 +132,21 @@ public class ApplicationRpcServer extends Thread implements TensorFlowCluster {
     return rpcPort;
   }
 
+  public void setNumHandlers(int numHandlers) {
+    this.numHandlers = numHandlers;
+  }
+
+  public void setFairCallQueueEnabled(boolean fairCallQueueEnabled) {
+    this.fairCallQueueEnabled = fairCallQueueEnabled;
+  }
+
+  /**
+   * @return the number and latency of the calls served so far, by method
+   */
+  public RpcCallMetrics getCallMetrics() {
+    return callMetrics;
+  }
+
   public void setSecretManager(ClientToAMTokenSecretManager secretManager) {
     this.secretManager = secretManager;
   }
@@ -122,14 +154,20 @@ public class ApplicationRpcServer extends Thread implements TensorFlowCluster {
   @Override
   public void run() {
     try {
+      if (fairCallQueueEnabled) {
+        conf = new Configuration(conf);
+        Utils.enableFairCallQueue(conf, rpcPort);
+      }
       RPC.setProtocolEngine(conf, TensorFlowClusterPB.class, ProtobufRpcEngine.class);
+      // Every call goes through callMetrics, which records how long each method takes.
       TensorFlowClusterPBServiceImpl
-              translator = new TensorFlowClusterPBServiceImpl(this);
+              translator = new TensorFlowClusterPBServiceImpl(callMetrics.timed(TensorFlowCluster.class, this));
       BlockingService service = com.linkedin.tony.rpc.proto.TensorFlowCluster.TensorFlowClusterService
               .newReflectiveBlockingService(translator);
       server = new RPC.Builder(conf).setProtocol(TensorFlowClusterPB.class)
               .setInstance(service).setBindAddress(rpcAddress)
               .setPort(rpcPort) // TODO: let RPC randomly generate it
+              .setNumHandlers(numHandlers)
               .setSecretManager(secretManager).build();
       server.start();
       if (conf.getBoolean(
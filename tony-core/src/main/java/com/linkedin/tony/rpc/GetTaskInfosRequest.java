@@ -5,4 +5,9 @@
 package com.linkedin.tony.rpc;
 
 public interface GetTaskInfosRequest {
+    boolean hasSinceVersion();
+
+    long getSinceVersion();
+
+    void setSinceVersion(long sinceVersion);
 }
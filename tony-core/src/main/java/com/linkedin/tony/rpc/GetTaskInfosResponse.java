@@ -11,4 +11,8 @@ public interface GetTaskInfosResponse {
     Set<TaskInfo> getTaskInfos();
 
     void setTaskInfos(Set<TaskInfo> taskInfos);
+
+    long getVersion();
+
+    void setVersion(long version);
 }
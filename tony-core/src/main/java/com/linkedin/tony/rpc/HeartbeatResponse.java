@@ -5,4 +5,11 @@
 package com.linkedin.tony.rpc;
 
 public interface HeartbeatResponse {
+  /**
+   * @return the AM's cluster spec version, which changes whenever the cluster spec changes or tasks become ready
+   *         to start, so that task executors know when to fetch it again
+   */
+  long getClusterSpecVersion();
+
+  void setClusterSpecVersion(long clusterSpecVersion);
 }
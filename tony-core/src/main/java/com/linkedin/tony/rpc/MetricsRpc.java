@@ -9,7 +9,15 @@ import org.apache.hadoop.ipc.VersionedProtocol;
 
 
 public interface MetricsRpc extends VersionedProtocol {
-  long versionID = 1L;
+  long versionID = 2L;
 
-  void updateMetrics(String taskType, int taskIndex, MetricsWritable metrics);
+  /**
+   * Replaces the metrics of {@code taskType} {@code taskIndex} with those of the task in {@code containerId}.
+   */
+  void updateMetrics(String taskType, int taskIndex, String containerId, MetricsWritable metrics);
+
+  /**
+   * Reports how long each phase of a task executor's start-up took, in milliseconds.
+   */
+  void updateStartupPhases(String taskType, int taskIndex, String host, MetricsWritable phases);
 }
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.rpc;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Counts the calls to each method of an RPC server and how long the handlers took to serve them. Time spent waiting
+ * in the server's call queue isn't included; Hadoop reports it as RpcQueueTime in the server's RpcActivity metrics.
+ */
+public class RpcCallMetrics {
+  private final ConcurrentMap<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+
+  private static class MethodMetrics {
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+  }
+
+  /**
+   * Records a call to {@code method} that started at {@code startNanos}, as returned by {@link System#nanoTime()},
+   * and has just finished.
+   */
+  public void record(String method, long startNanos) {
+    long nanos = System.nanoTime() - startNanos;
+    MethodMetrics metrics = methods.computeIfAbsent(method, k -> new MethodMetrics());
+    metrics.calls.incrementAndGet();
+    metrics.totalNanos.addAndGet(nanos);
+    metrics.maxNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  /**
+   * @return a {@code protocol} that passes each call on to {@code impl} and records it under the method's name
+   */
+  public <T> T timed(Class<T> protocol, T impl) {
+    return protocol.cast(Proxy.newProxyInstance(protocol.getClassLoader(), new Class<?>[] {protocol},
+        (proxy, method, args) -> {
+          long start = System.nanoTime();
+          try {
+            return method.invoke(impl, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          } finally {
+            if (method.getDeclaringClass() != Object.class) {
+              record(method.getName(), start);
+            }
+          }
+        }));
+  }
+
+  public long getCalls(String method) {
+    MethodMetrics metrics = methods.get(method);
+    return metrics == null ? 0 : metrics.calls.get();
+  }
+
+  public double getAvgLatencyMs(String method) {
+    MethodMetrics metrics = methods.get(method);
+    long calls = metrics == null ? 0 : metrics.calls.get();
+    return calls == 0 ? 0 : (double) metrics.totalNanos.get() / calls / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  public double getMaxLatencyMs(String method) {
+    MethodMetrics metrics = methods.get(method);
+    return metrics == null ? 0 : (double) metrics.maxNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (String method : new TreeSet<>(methods.keySet())) {
+      if (sb.length() > 0) {
+        sb.append(", ");
+      }
+      sb.append(String.format("%s: calls=%d, avgLatencyMs=%.2f, maxLatencyMs=%.2f", method, getCalls(method),
+          getAvgLatencyMs(method), getMaxLatencyMs(method)));
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,13 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.rpc;
+
+
+public interface ScaleJobRequest {
+  String getJobName();
+  void setJobName(String jobName);
+  int getNumInstances();
+  void setNumInstances(int numInstances);
+}
@@ -10,13 +10,14 @@ import java.util.Objects;
 
 
 /**
- * Contains the name, index, URL, and status for a task.
+ * Contains the name, index, URL, and status for a task, and whether the AM deems it a straggler.
  */
 public class TaskInfo implements Comparable<TaskInfo> {
   private final String name;   // The name (worker or ps) of the task
   private final String index;  // The index of the task
   private final String url;    // The URL where the logs for the task can be found
   private TaskStatus status = TaskStatus.NEW;
+  private String stragglerReason;  // Why the AM deems the task a straggler, or null if it doesn't
 
   public TaskInfo(String name, String index, String url) {
     this.name = name;
@@ -28,6 +29,10 @@ public class TaskInfo implements Comparable<TaskInfo> {
     this.status = status;
   }
 
+  public void setStragglerReason(String stragglerReason) {
+    this.stragglerReason = stragglerReason;
+  }
+
   public String getName() {
     return name;
   }
@@ -44,6 +49,14 @@ public class TaskInfo implements Comparable<TaskInfo> {
     return status;
   }
 
+  public String getStragglerReason() {
+    return stragglerReason;
+  }
+
+  public boolean isStraggler() {
+    return stragglerReason != null;
+  }
+
   @Override
   public int compareTo(TaskInfo other) {
     if (this.getStatus().equals(other.getStatus())) {
@@ -69,18 +82,20 @@ public class TaskInfo implements Comparable<TaskInfo> {
     return Objects.equals(name, taskInfo.name)
             && Objects.equals(index, taskInfo.index)
             && Objects.equals(url, taskInfo.url)
-            && Objects.equals(status, taskInfo.getStatus());
+            && Objects.equals(status, taskInfo.getStatus())
+            && Objects.equals(stragglerReason, taskInfo.stragglerReason);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(name, index, url, status);
+    return Objects.hash(name, index, url, status, stragglerReason);
   }
 
   @Override
   public String toString() {
     return String.format(
-        "[TaskInfo] name: %s, index: %s, url: %s status: %s",
-        this.name, this.index, this.url, this.status.toString());
+        "[TaskInfo] name: %s, index: %s, url: %s status: %s%s",
+        this.name, this.index, this.url, this.status.toString(),
+        isStraggler() ? ", straggler: " + this.stragglerReason : "");
   }
 }
@@ -0,0 +1,50 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.rpc;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Records which tasks changed and when, so that clients can ask for just the tasks that changed since the last
+ * time they asked instead of every task. Each change gets the next version number; a task only appears in the log
+ * once, at the version of its latest change.
+ */
+public class TaskInfoChangeLog {
+  private long version = 0;
+  private final TreeMap<Long, TaskInfo> changes = new TreeMap<>();
+  private final Map<String, Long> taskVersions = new HashMap<>();
+
+  /**
+   * Records that {@code taskInfo} has been created, or its status or straggler reason has changed.
+   */
+  public synchronized void record(TaskInfo taskInfo) {
+    version++;
+    Long previous = taskVersions.put(taskInfo.getName() + ":" + taskInfo.getIndex(), version);
+    if (previous != null) {
+      changes.remove(previous);
+    }
+    changes.put(version, taskInfo);
+  }
+
+  /**
+   * @return the version of the latest change
+   */
+  public synchronized long getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns the tasks that changed after {@code sinceVersion}, or every task if {@code sinceVersion} is ahead of
+   * this log, e.g. because it came from a previous application master.
+   */
+  public synchronized TaskInfoDelta getChangesSince(long sinceVersion) {
+    long since = sinceVersion > version ? 0 : sinceVersion;
+    return new TaskInfoDelta(version, new HashSet<>(changes.tailMap(since, false).values()));
+  }
+}
@@ -0,0 +1,30 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.rpc;
+
+import java.util.Set;
+
+
+/**
+ * The tasks that changed since a version of the AM's {@link TaskInfoChangeLog}, along with the version they're
+ * current as of, which should be passed in the next call to {@link ApplicationRpc#getTaskInfos(long)}.
+ */
+public class TaskInfoDelta {
+  private final long version;
+  private final Set<TaskInfo> taskInfos;
+
+  public TaskInfoDelta(long version, Set<TaskInfo> taskInfos) {
+    this.version = version;
+    this.taskInfos = taskInfos;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public Set<TaskInfo> getTaskInfos() {
+    return taskInfos;
+  }
+}
@@ -34,4 +34,6 @@ public interface TensorFlowCluster extends VersionedProtocol {
   HeartbeatResponse taskExecutorHeartbeat(HeartbeatRequest request) throws YarnException, IOException;
 
   Empty registerCallbackInfo(RegisterCallbackInfoRequest request) throws YarnException, IOException;
+
+  Empty scaleJob(ScaleJobRequest request) throws YarnException, IOException;
 }
@@ -4,7 +4,8 @@
  */
 package com.linkedin.tony.rpc.impl;
 
-
+import com.google.common.annotations.VisibleForTesting;
+import com.linkedin.tony.TonyConfigurationKeys;
 import com.linkedin.tony.rpc.Empty;
 import com.linkedin.tony.rpc.GetClusterSpecRequest;
 import com.linkedin.tony.rpc.GetClusterSpecResponse;
@@ -18,12 +19,18 @@ import com.linkedin.tony.rpc.RegisterTensorBoardUrlRequest;
 import com.linkedin.tony.rpc.RegisterTensorBoardUrlResponse;
 import com.linkedin.tony.rpc.RegisterWorkerSpecRequest;
 import com.linkedin.tony.rpc.RegisterWorkerSpecResponse;
+import com.linkedin.tony.rpc.ScaleJobRequest;
 import com.linkedin.tony.rpc.ApplicationRpc;
 import com.linkedin.tony.rpc.TensorFlowCluster;
 import com.linkedin.tony.rpc.TaskInfo;
+import com.linkedin.tony.rpc.TaskInfoDelta;
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.security.PrivilegedAction;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -31,6 +38,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.retry.RetryPolicies;
 import org.apache.hadoop.io.retry.RetryPolicy;
 import org.apache.hadoop.io.retry.RetryProxy;
+import org.apache.hadoop.ipc.RPC;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.yarn.ipc.YarnRPC;
 import org.apache.hadoop.yarn.exceptions.YarnException;
@@ -38,36 +46,87 @@ import org.apache.hadoop.yarn.factories.RecordFactory;
 import org.apache.hadoop.yarn.factory.providers.RecordFactoryProvider;
 
 
-public class ApplicationRpcClient implements ApplicationRpc {
+/**
+ * Client of the application master's RPC server. Clients are shared by everything in the JVM that talks to the same
+ * application master as the same user, e.g. the TonyClients of all the jobs run by an Azkaban executor, so that they
+ * reuse the same connection. Each {@link #acquire} must be matched by a {@link #close}, which stops the client once
+ * no one is using it anymore.
+ */
+public class ApplicationRpcClient implements ApplicationRpc, Closeable {
+  // Guarded by itself, as is the refCount of each client.
+  private static final Map<ClientKey, ApplicationRpcClient> CLIENTS = new HashMap<>();
+
   private RecordFactory recordFactory = RecordFactoryProvider.getRecordFactory(null);
-  private TensorFlowCluster tensorflow;
-  private static ApplicationRpcClient instance = null;
-  private static int port = 0;
-  private static String address = "";
-
-  public static ApplicationRpcClient getInstance(String serverAddress, int serverPort, Configuration conf) {
-    if (null == instance || !serverAddress.equals(address) || serverPort != port) {
-      instance = new ApplicationRpcClient(serverAddress, serverPort, conf);
-      address = serverAddress;
-      port = serverPort;
+  private final ClientKey key;
+  private final TensorFlowCluster tensorflow;
+  private int refCount = 0;
+
+  private static final class ClientKey {
+    private final String address;
+    private final int port;
+    private final UserGroupInformation ugi;
+
+    ClientKey(String address, int port, UserGroupInformation ugi) {
+      this.address = address;
+      this.port = port;
+      this.ugi = ugi;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      ClientKey other = (ClientKey) o;
+      return port == other.port && address.equals(other.address) && ugi.equals(other.ugi);
     }
-    return instance;
-  }
 
-  private ApplicationRpcClient(String serverAddress, int serverPort, Configuration conf) {
-    InetSocketAddress address = new InetSocketAddress(serverAddress, serverPort);
-    YarnRPC rpc;
-    rpc = YarnRPC.create(conf);
+    @Override
+    public int hashCode() {
+      return Objects.hash(address, port, ugi);
+    }
+  }
 
+  /**
+   * Returns the client of the application master at {@code serverAddress}:{@code serverPort} for the current user,
+   * creating it if there isn't one. Calls are retried as configured in {@code tonyConf} by
+   * {@link TonyConfigurationKeys#AM_RPC_MAX_RETRIES} and {@link TonyConfigurationKeys#AM_RPC_RETRY_INTERVAL_MS};
+   * a client that is already in use keeps the retry policy it was created with.
+   */
+  public static ApplicationRpcClient acquire(String serverAddress, int serverPort, Configuration yarnConf,
+      Configuration tonyConf) {
     UserGroupInformation ugi;
     try {
       ugi = UserGroupInformation.getCurrentUser();
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
-    RetryPolicy retryPolicy = RetryPolicies.retryUpToMaximumCountWithFixedSleep(
-            10, 2000, TimeUnit.MILLISECONDS);
-    this.tensorflow = getProxy(conf, rpc, ugi, address, TensorFlowCluster.class, retryPolicy);
+    ClientKey key = new ClientKey(serverAddress, serverPort, ugi);
+    synchronized (CLIENTS) {
+      // Creating the proxy doesn't connect to the server, so it's cheap enough to do while holding the lock.
+      ApplicationRpcClient client =
+          CLIENTS.computeIfAbsent(key, k -> new ApplicationRpcClient(k, yarnConf, getRetryPolicy(tonyConf)));
+      client.refCount++;
+      return client;
+    }
+  }
+
+  private static RetryPolicy getRetryPolicy(Configuration tonyConf) {
+    return RetryPolicies.retryUpToMaximumCountWithFixedSleep(
+        tonyConf.getInt(TonyConfigurationKeys.AM_RPC_MAX_RETRIES, TonyConfigurationKeys.DEFAULT_AM_RPC_MAX_RETRIES),
+        tonyConf.getLong(TonyConfigurationKeys.AM_RPC_RETRY_INTERVAL_MS,
+            TonyConfigurationKeys.DEFAULT_AM_RPC_RETRY_INTERVAL_MS),
+        TimeUnit.MILLISECONDS);
+  }
+
+  private ApplicationRpcClient(ClientKey key, Configuration conf, RetryPolicy retryPolicy) {
+    this.key = key;
+    InetSocketAddress address = new InetSocketAddress(key.address, key.port);
+    YarnRPC rpc = YarnRPC.create(conf);
+    this.tensorflow = getProxy(conf, rpc, key.ugi, address, TensorFlowCluster.class, retryPolicy);
   }
 
   private static <T> T getProxy(final Configuration conf, final YarnRPC rpc, final UserGroupInformation user,
@@ -76,6 +135,27 @@ public class ApplicationRpcClient implements ApplicationRpc {
     return (T) RetryProxy.create(protocol, proxy, retryPolicy);
   }
 
+  @VisibleForTesting
+  int getRefCount() {
+    synchronized (CLIENTS) {
+      return refCount;
+    }
+  }
+
+  /**
+   * Releases this client, stopping it if it isn't used by anyone else.
+   */
+  @Override
+  public void close() {
+    synchronized (CLIENTS) {
+      if (refCount == 0 || --refCount > 0) {
+        return;
+      }
+      CLIENTS.remove(key);
+    }
+    RPC.stopProxy(tensorflow);
+  }
+
   @Override
   public Set<TaskInfo> getTaskInfos() throws IOException, YarnException {
     GetTaskInfosResponse response =
@@ -83,6 +163,14 @@ public class ApplicationRpcClient implements ApplicationRpc {
     return response.getTaskInfos();
   }
 
+  @Override
+  public TaskInfoDelta getTaskInfos(long sinceVersion) throws IOException, YarnException {
+    GetTaskInfosRequest request = recordFactory.newRecordInstance(GetTaskInfosRequest.class);
+    request.setSinceVersion(sinceVersion);
+    GetTaskInfosResponse response = tensorflow.getTaskInfos(request);
+    return new TaskInfoDelta(response.getVersion(), response.getTaskInfos());
+  }
+
   @Override
   public String getClusterSpec() throws IOException, YarnException {
     GetClusterSpecResponse response =
@@ -125,10 +213,10 @@ public class ApplicationRpcClient implements ApplicationRpc {
   }
 
   @Override
-  public void taskExecutorHeartbeat(String taskId) throws YarnException, IOException {
+  public long taskExecutorHeartbeat(String taskId) throws YarnException, IOException {
     HeartbeatRequest request = recordFactory.newRecordInstance(HeartbeatRequest.class);
     request.setTaskId(taskId);
-    tensorflow.taskExecutorHeartbeat(request);
+    return tensorflow.taskExecutorHeartbeat(request).getClusterSpecVersion();
   }
 
   @Override
@@ -139,5 +227,13 @@ public class ApplicationRpcClient implements ApplicationRpc {
     tensorflow.registerCallbackInfo(request);
   }
 
+  @Override
+  public void scaleJob(String jobName, int numInstances) throws YarnException, IOException {
+    ScaleJobRequest request = recordFactory.newRecordInstance(ScaleJobRequest.class);
+    request.setJobName(jobName);
+    request.setNumInstances(numInstances);
+    tensorflow.scaleJob(request);
+  }
+
   public void reset() { }
 }
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.rpc.impl;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.linkedin.tony.rpc.ApplicationRpc;
+import com.linkedin.tony.rpc.MetricsRpc;
+import com.linkedin.tony.rpc.TaskInfoDelta;
+import java.io.Closeable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+
+/**
+ * Makes calls to the application master's RPC server without blocking the caller. The calls run on a small pool of
+ * threads sharing one {@link ApplicationRpc} client, whose connection carries them concurrently, so a call stuck on
+ * a slow or GC-pausing AM doesn't hold up the ones behind it. Metric updates to the AM's {@link MetricsRpc} server
+ * run on the same threads.
+ *
+ * <p>Each call can be given a timeout, after which its future fails with a {@link TimeoutException}. A call that
+ * has already been sent isn't interrupted, since that could tear down the connection shared with the other calls,
+ * so the AM may still receive it.
+ */
+public class AsyncApplicationRpcClient implements Closeable {
+  private final ApplicationRpc rpc;
+  private final MetricsRpc metricsRpc;
+  private final ExecutorService callExecutor;
+  private final ScheduledExecutorService timeoutExecutor;
+
+  public AsyncApplicationRpcClient(ApplicationRpc rpc, int numThreads) {
+    this(rpc, null, numThreads);
+  }
+
+  /**
+   * @param metricsRpc the client of the AM's metrics server, or null if no metrics are updated through this client
+   */
+  public AsyncApplicationRpcClient(ApplicationRpc rpc, MetricsRpc metricsRpc, int numThreads) {
+    this.rpc = rpc;
+    this.metricsRpc = metricsRpc;
+    this.callExecutor = Executors.newFixedThreadPool(numThreads,
+        new ThreadFactoryBuilder().setNameFormat("am-rpc-call-%d").setDaemon(true).build());
+    this.timeoutExecutor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("am-rpc-timeout-%d").setDaemon(true).build());
+  }
+
+  public CompletableFuture<Long> taskExecutorHeartbeat(String taskId, long timeoutMs) {
+    return call(() -> rpc.taskExecutorHeartbeat(taskId), timeoutMs);
+  }
+
+  public CompletableFuture<String> getClusterSpec(long timeoutMs) {
+    return call(rpc::getClusterSpec, timeoutMs);
+  }
+
+  public CompletableFuture<String> registerWorkerSpec(String worker, String spec, long timeoutMs) {
+    return call(() -> rpc.registerWorkerSpec(worker, spec), timeoutMs);
+  }
+
+  public CompletableFuture<String> registerTensorBoardUrl(String spec, long timeoutMs) {
+    return call(() -> rpc.registerTensorBoardUrl(spec), timeoutMs);
+  }
+
+  public CompletableFuture<String> registerExecutionResult(int exitCode, String jobName, String jobIndex,
+      String sessionId, long timeoutMs) {
+    return call(() -> rpc.registerExecutionResult(exitCode, jobName, jobIndex, sessionId), timeoutMs);
+  }
+
+  public CompletableFuture<Void> registerCallbackInfo(String taskId, String callbackInfo, long timeoutMs) {
+    return call(() -> {
+      rpc.registerCallbackInfo(taskId, callbackInfo);
+      return null;
+    }, timeoutMs);
+  }
+
+  public CompletableFuture<TaskInfoDelta> getTaskInfos(long sinceVersion, long timeoutMs) {
+    return call(() -> rpc.getTaskInfos(sinceVersion), timeoutMs);
+  }
+
+  public CompletableFuture<Void> updateMetrics(String taskType, int taskIndex, String containerId,
+      MetricsWritable metrics, long timeoutMs) {
+    return call(() -> {
+      metricsRpc.updateMetrics(taskType, taskIndex, containerId, metrics);
+      return null;
+    }, timeoutMs);
+  }
+
+  /**
+   * Runs {@code call} on the call threads.
+   * @param timeoutMs how long to wait for the call to complete, or 0 to wait indefinitely
+   */
+  @VisibleForTesting
+  <T> CompletableFuture<T> call(Callable<T> call, long timeoutMs) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    Future<?> task = callExecutor.submit(() -> {
+      try {
+        future.complete(call.call());
+      } catch (Throwable t) {
+        future.completeExceptionally(t);
+      }
+    });
+    if (timeoutMs > 0) {
+      ScheduledFuture<?> timeout = timeoutExecutor.schedule(() -> {
+        if (future.completeExceptionally(new TimeoutException("AM RPC call timed out after " + timeoutMs + " ms"))) {
+          // Drops the call if it hasn't been sent yet.
+          task.cancel(false);
+        }
+      }, timeoutMs, TimeUnit.MILLISECONDS);
+      future.whenComplete((result, failure) -> timeout.cancel(false));
+    }
+    return future;
+  }
+
+  @Override
+  public void close() {
+    callExecutor.shutdownNow();
+    timeoutExecutor.shutdownNow();
+  }
+}
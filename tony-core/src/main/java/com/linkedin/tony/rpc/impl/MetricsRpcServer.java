@@ -5,12 +5,18 @@
 package com.linkedin.tony.rpc.impl;
 
 import com.linkedin.tony.events.Metric;
+import com.linkedin.tony.events.TaskStartupPhases;
 import com.linkedin.tony.rpc.MetricsRpc;
+import com.linkedin.tony.rpc.RpcCallMetrics;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.ipc.ProtocolSignature;
@@ -22,25 +28,90 @@ import org.apache.hadoop.ipc.ProtocolSignature;
 public class MetricsRpcServer implements MetricsRpc {
   private static final Log LOG = LogFactory.getLog(MetricsRpcServer.class);
 
-  private Map<String, Map<Integer, MetricsWritable>> metricsMap = new HashMap<>();
+  // Read by the AM's straggler detection while handlers update it.
+  private final Map<String, Map<Integer, MetricsWritable>> metricsMap = new ConcurrentHashMap<>();
+  private final List<TaskStartupPhases> startupPhases = new CopyOnWriteArrayList<>();
+  private final Consumer<TaskStartupPhases> startupPhasesListener;
+  private final Predicate<String> isCurrentContainer;
+  private final RpcCallMetrics callMetrics = new RpcCallMetrics();
+
+  public MetricsRpcServer() {
+    this(phases -> { }, containerId -> true);
+  }
+
+  /**
+   * @param startupPhasesListener called with the start-up phase timings of each task as they are reported
+   * @param isCurrentContainer whether a container runs the current task of its job type and index. Metric updates
+   *                           from other containers, e.g. a straggler that has been replaced, are dropped.
+   */
+  public MetricsRpcServer(Consumer<TaskStartupPhases> startupPhasesListener, Predicate<String> isCurrentContainer) {
+    this.startupPhasesListener = startupPhasesListener;
+    this.isCurrentContainer = isCurrentContainer;
+  }
 
   public List<Metric> getMetrics(String taskType, int taskIndex) {
-    if (!metricsMap.containsKey(taskType) || !metricsMap.get(taskType).containsKey(taskIndex)) {
+    Map<Integer, MetricsWritable> taskMetrics = metricsMap.get(taskType);
+    MetricsWritable metrics = taskMetrics == null ? null : taskMetrics.get(taskIndex);
+    if (metrics == null) {
       LOG.warn("No metrics for " + taskType + " " + taskIndex + "!");
       return Collections.EMPTY_LIST;
     }
-    return metricsMap.get(taskType).get(taskIndex).getMetricsAsList();
+    return metrics.getMetricsAsList();
   }
 
   /**
-   * Replaces the metrics stored for {@code taskType} {@code taskIndex} with {@code metrics}.
+   * @return the latest metrics of each task of {@code taskType} that has reported any, by task index
+   */
+  public Map<Integer, List<Metric>> getMetrics(String taskType) {
+    Map<Integer, List<Metric>> metrics = new HashMap<>();
+    Map<Integer, MetricsWritable> taskMetrics = metricsMap.get(taskType);
+    if (taskMetrics != null) {
+      taskMetrics.forEach((index, writable) -> metrics.put(index, writable.getMetricsAsList()));
+    }
+    return metrics;
+  }
+
+  /**
+   * Replaces the metrics stored for {@code taskType} {@code taskIndex} with {@code metrics}, unless they're from a
+   * task that has been replaced or hasn't replaced the running one yet. Updates without a container ID are kept.
    */
   @Override
-  public void updateMetrics(String taskType, int taskIndex, MetricsWritable metrics) {
-    if (!metricsMap.containsKey(taskType)) {
-      metricsMap.put(taskType, new HashMap<>());
+  public void updateMetrics(String taskType, int taskIndex, String containerId, MetricsWritable metrics) {
+    if (containerId != null && !isCurrentContainer.test(containerId)) {
+      LOG.debug("Dropping metrics of " + taskType + " " + taskIndex + " from " + containerId
+          + ", which isn't running the task");
+      return;
     }
-    metricsMap.get(taskType).put(taskIndex, metrics);
+    metricsMap.computeIfAbsent(taskType, k -> new ConcurrentHashMap<>()).put(taskIndex, metrics);
+  }
+
+  @Override
+  public void updateStartupPhases(String taskType, int taskIndex, String host, MetricsWritable phases) {
+    TaskStartupPhases taskStartupPhases = new TaskStartupPhases(taskType, taskIndex, host,
+        phases.getMetricsAsList());
+    startupPhases.add(taskStartupPhases);
+    startupPhasesListener.accept(taskStartupPhases);
+  }
+
+  /**
+   * @return the start-up phase timings reported so far, one entry per task executor
+   */
+  public List<TaskStartupPhases> getStartupPhases() {
+    return startupPhases;
+  }
+
+  /**
+   * @return the number and latency of the calls served so far, by method
+   */
+  public RpcCallMetrics getCallMetrics() {
+    return callMetrics;
+  }
+
+  /**
+   * @return this server, recording each call in {@link #getCallMetrics()}; to be served by the RPC server
+   */
+  public MetricsRpc timed() {
+    return callMetrics.timed(MetricsRpc.class, this);
   }
 
   @Override
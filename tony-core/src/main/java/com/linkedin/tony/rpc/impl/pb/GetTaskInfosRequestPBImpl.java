@@ -8,6 +8,7 @@ package com.linkedin.tony.rpc.impl.pb;
 import com.linkedin.tony.rpc.GetTaskInfosRequest;
 import com.linkedin.tony.rpc.proto.YarnTensorFlowClusterProtos;
 import com.linkedin.tony.rpc.proto.YarnTensorFlowClusterProtos.GetTaskInfosRequestProto;
+import com.linkedin.tony.rpc.proto.YarnTensorFlowClusterProtos.GetTaskInfosRequestProtoOrBuilder;
 
 
 public class GetTaskInfosRequestPBImpl implements GetTaskInfosRequest {
@@ -50,4 +51,22 @@ public class GetTaskInfosRequestPBImpl implements GetTaskInfosRequest {
     }
     viaProto = false;
   }
+
+  @Override
+  public boolean hasSinceVersion() {
+    GetTaskInfosRequestProtoOrBuilder p = viaProto ? proto : builder;
+    return p.hasSinceVersion();
+  }
+
+  @Override
+  public long getSinceVersion() {
+    GetTaskInfosRequestProtoOrBuilder p = viaProto ? proto : builder;
+    return p.getSinceVersion();
+  }
+
+  @Override
+  public void setSinceVersion(long sinceVersion) {
+    maybeInitBuilder();
+    builder.setSinceVersion(sinceVersion);
+  }
 }
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.rpc.impl.pb;
+
+import com.linkedin.tony.rpc.ScaleJobRequest;
+import com.linkedin.tony.rpc.proto.YarnTensorFlowClusterProtos.ScaleJobRequestProto;
+import com.linkedin.tony.rpc.proto.YarnTensorFlowClusterProtos.ScaleJobRequestProtoOrBuilder;
+
+
+public class ScaleJobRequestPBImpl implements ScaleJobRequest {
+  private ScaleJobRequestProto proto = ScaleJobRequestProto.getDefaultInstance();
+  private ScaleJobRequestProto.Builder builder = null;
+  private boolean viaProto = false;
+  private String jobName = null;
+
+  public ScaleJobRequestPBImpl() {
+    builder = ScaleJobRequestProto.newBuilder();
+  }
+
+  public ScaleJobRequestPBImpl(ScaleJobRequestProto proto) {
+    this.proto = proto;
+    viaProto = true;
+  }
+
+  private void mergeLocalToProto() {
+    if (viaProto) {
+      maybeInitBuilder();
+    }
+    mergeLocalToBuilder();
+    proto = builder.build();
+    viaProto = true;
+  }
+
+  private void mergeLocalToBuilder() {
+    if (this.jobName != null) {
+      builder.setJobName(this.jobName);
+    }
+  }
+
+  public ScaleJobRequestProto getProto() {
+    mergeLocalToProto();
+    proto = viaProto ? proto : builder.build();
+    viaProto = true;
+    return proto;
+  }
+
+  private void maybeInitBuilder() {
+    if (viaProto || builder == null) {
+      builder = ScaleJobRequestProto.newBuilder(proto);
+    }
+    viaProto = false;
+  }
+
+  @Override
+  public String getJobName() {
+    ScaleJobRequestProtoOrBuilder p = viaProto ? proto : builder;
+    if (this.jobName != null) {
+      return this.jobName;
+    }
+    if (!p.hasJobName()) {
+      return null;
+    }
+    this.jobName = p.getJobName();
+    return this.jobName;
+  }
+
+  @Override
+  public void setJobName(String jobName) {
+    maybeInitBuilder();
+    if (jobName == null) {
+      builder.clearJobName();
+    }
+    this.jobName = jobName;
+  }
+
+  @Override
+  public int getNumInstances() {
+    ScaleJobRequestProtoOrBuilder p = viaProto ? proto : builder;
+    return p.getNumInstances();
+  }
+
+  @Override
+  public void setNumInstances(int numInstances) {
+    maybeInitBuilder();
+    builder.setNumInstances(numInstances);
+  }
+}
@@ -20,6 +20,7 @@ import com.linkedin.tony.rpc.RegisterTensorBoardUrlRequest;
 import com.linkedin.tony.rpc.RegisterTensorBoardUrlResponse;
 import com.linkedin.tony.rpc.RegisterWorkerSpecRequest;
 import com.linkedin.tony.rpc.RegisterWorkerSpecResponse;
+import com.linkedin.tony.rpc.ScaleJobRequest;
 import com.linkedin.tony.rpc.TensorFlowCluster;
 import com.linkedin.tony.rpc.TensorFlowClusterPB;
 import com.linkedin.tony.rpc.impl.pb.EmptyPBImpl;
@@ -36,11 +37,13 @@ import com.linkedin.tony.rpc.impl.pb.RegisterTensorBoardUrlRequestPBImpl;
 import com.linkedin.tony.rpc.impl.pb.RegisterTensorBoardUrlResponsePBImpl;
 import com.linkedin.tony.rpc.impl.pb.RegisterWorkerSpecRequestPBImpl;
 import com.linkedin.tony.rpc.impl.pb.RegisterWorkerSpecResponsePBImpl;
+import com.linkedin.tony.rpc.impl.pb.ScaleJobRequestPBImpl;
 import com.linkedin.tony.rpc.proto.YarnTensorFlowClusterProtos;
 import com.linkedin.tony.rpc.proto.YarnTensorFlowClusterProtos.GetClusterSpecRequestProto;
 import com.linkedin.tony.rpc.proto.YarnTensorFlowClusterProtos.GetTaskInfosRequestProto;
 import com.linkedin.tony.rpc.proto.YarnTensorFlowClusterProtos.RegisterWorkerSpecRequestProto;
 import com.linkedin.tony.rpc.proto.YarnTensorFlowClusterProtos.HeartbeatRequestProto;
+import com.linkedin.tony.rpc.proto.YarnTensorFlowClusterProtos.ScaleJobRequestProto;
 import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -158,6 +161,17 @@ public class TensorFlowClusterPBClientImpl implements TensorFlowCluster, Closeab
     }
   }
 
+  @Override
+  public Empty scaleJob(ScaleJobRequest request) throws YarnException, IOException {
+    ScaleJobRequestProto requestProto = ((ScaleJobRequestPBImpl) request).getProto();
+    try {
+      return new EmptyPBImpl(proxy.scaleJob(null, requestProto));
+    } catch (ServiceException e) {
+      RPCUtil.unwrapAndThrowException(e);
+      return null;
+    }
+  }
+
   @Override
   public long getProtocolVersion(String protocol, long version) {
     return TensorFlowCluster.versionID;
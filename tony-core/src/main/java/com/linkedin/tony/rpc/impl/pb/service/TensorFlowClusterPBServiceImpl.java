@@ -29,6 +29,7 @@ import com.linkedin.tony.rpc.impl.pb.RegisterTensorBoardUrlRequestPBImpl;
 import com.linkedin.tony.rpc.impl.pb.RegisterTensorBoardUrlResponsePBImpl;
 import com.linkedin.tony.rpc.impl.pb.RegisterWorkerSpecRequestPBImpl;
 import com.linkedin.tony.rpc.impl.pb.RegisterWorkerSpecResponsePBImpl;
+import com.linkedin.tony.rpc.impl.pb.ScaleJobRequestPBImpl;
 import com.linkedin.tony.rpc.proto.YarnTensorFlowClusterProtos;
 import com.linkedin.tony.rpc.proto.YarnTensorFlowClusterProtos.EmptyProto;
 import com.linkedin.tony.rpc.proto.YarnTensorFlowClusterProtos.GetClusterSpecRequestProto;
@@ -40,6 +41,7 @@ import com.linkedin.tony.rpc.proto.YarnTensorFlowClusterProtos.RegisterTensorBoa
 import com.linkedin.tony.rpc.proto.YarnTensorFlowClusterProtos.RegisterTensorBoardUrlResponseProto;
 import com.linkedin.tony.rpc.proto.YarnTensorFlowClusterProtos.RegisterWorkerSpecRequestProto;
 import com.linkedin.tony.rpc.proto.YarnTensorFlowClusterProtos.RegisterWorkerSpecResponseProto;
+import com.linkedin.tony.rpc.proto.YarnTensorFlowClusterProtos.ScaleJobRequestProto;
 import org.apache.hadoop.yarn.exceptions.YarnException;
 
 import java.io.IOException;
@@ -148,4 +150,15 @@ public class TensorFlowClusterPBServiceImpl implements TensorFlowClusterPB {
       throw new ServiceException(e);
     }
   }
+
+  @Override
+  public EmptyProto scaleJob(RpcController controller, ScaleJobRequestProto proto) throws ServiceException {
+    ScaleJobRequestPBImpl request = new ScaleJobRequestPBImpl(proto);
+    try {
+      Empty response = real.scaleJob(request);
+      return ((EmptyPBImpl) response).getProto();
+    } catch (YarnException | IOException e) {
+      throw new ServiceException(e);
+    }
+  }
 }
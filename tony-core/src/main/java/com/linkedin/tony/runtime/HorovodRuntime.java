@@ -23,7 +23,6 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.conf.Configuration;
@@ -39,6 +38,7 @@ import com.linkedin.tony.TonyConfigurationKeys;
 import com.linkedin.tony.horovod.DriverCallbackInfo;
 import com.linkedin.tony.horovod.HorovodClusterSpec;
 import com.linkedin.tony.horovod.HorovodDriver;
+import com.linkedin.tony.horovod.HostSlotTable;
 import com.linkedin.tony.horovod.SlotInfo;
 import com.linkedin.tony.tensorflow.TonySession;
 import com.linkedin.tony.util.Utils;
@@ -77,6 +77,11 @@ public class HorovodRuntime extends MLGenericRuntime {
     class HorovodAMAdapter extends AM {
         private volatile boolean isDriverReady = false;
 
+        // Kept up to date as workers register, so the driver's worker list and workers' specs don't scan every task.
+        private final HostSlotTable hostSlots = new HostSlotTable();
+        private final Map<String, String> workerSpecsByHost = new HashMap<>();
+        private long workerSpecsVersion = -1;
+
         private List<SlotInfo> workerSlotMetaInfo;
         private String rendezvServerPort;
         private String rendezvServerHost;
@@ -87,17 +92,8 @@ public class HorovodRuntime extends MLGenericRuntime {
         public String constructClusterSpec(String taskId) throws IOException {
             assert session != null;
 
-            TonySession.TonyTask tonyTask = session.getTask(taskId);
-            String taskHost = tonyTask.getHost();
-
-            List<Integer> sameHostIndexCollection = new ArrayList<>();
-            String workerList = buildWorkerList(session, taskHost, sameHostIndexCollection);
-
-            log.info("Horovod Worker host list: " + workerList);
-            Collections.sort(sameHostIndexCollection);
-            log.info("Same host name task index collection: " + sameHostIndexCollection);
-
             if (isDriverRole(taskId)) {
+                String workerList = hostSlots.getWorkerList();
                 log.info("starting Horovod Driver, worker list: " + workerList);
                 return workerList;
             }
@@ -107,16 +103,34 @@ public class HorovodRuntime extends MLGenericRuntime {
                 return null;
             }
 
-            log.info("Starting Horovod worker, task id: " + taskId);
             // when task role is worker, it will return horovod cluster spec.
-            HorovodClusterSpec spec = new HorovodClusterSpec(
-                    workerSlotMetaInfo,
-                    rendezvServerPort,
-                    rendezvServerHost,
-                    sameHostIndexCollection
-            );
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.writeValueAsString(spec);
+            return getWorkerSpec(session.getTask(taskId).getHost());
+        }
+
+        /**
+         * Workers on the same host get the same spec, so it's built once per host until the workers or the driver
+         * change, rather than for every worker.
+         */
+        private synchronized String getWorkerSpec(String host) throws IOException {
+            long version = hostSlots.getVersion();
+            if (version != workerSpecsVersion) {
+                workerSpecsByHost.clear();
+                workerSpecsVersion = version;
+            }
+            String spec = workerSpecsByHost.get(host);
+            if (spec == null) {
+                List<Integer> sameHostIndexCollection = hostSlots.getTaskIndices(host);
+                log.info("Same host name task index collection of " + host + ": " + sameHostIndexCollection);
+                HorovodClusterSpec clusterSpec = new HorovodClusterSpec(
+                        workerSlotMetaInfo,
+                        rendezvServerPort,
+                        rendezvServerHost,
+                        sameHostIndexCollection
+                );
+                spec = new ObjectMapper().writeValueAsString(clusterSpec);
+                workerSpecsByHost.put(host, spec);
+            }
+            return spec;
         }
 
         private boolean isDriverRole(String taskId) {
@@ -129,33 +143,28 @@ public class HorovodRuntime extends MLGenericRuntime {
             return false;
         }
 
-        @VisibleForTesting
-        public String buildWorkerList(TonySession session, String taskHost, List<Integer> sameHostIndexCollection) {
-            assert session != null;
+        @Override
+        public void setTonySession(TonySession session) {
+            super.setTonySession(session);
+            hostSlots.clear();
+        }
+
+        @Override
+        public void onTaskRegistered(TonySession.TonyTask task) {
+            if (!DRIVER.equals(task.getJobName())) {
+                hostSlots.put(task.getId(), Integer.parseInt(task.getTaskIndex()), task.getHost());
+            }
+        }
 
-            Map<String, Integer> hostNumProcMap = new HashMap<>();
-            session.getTonyTasks().values().stream()
-                    .flatMap(tasks -> Arrays.stream(tasks))
-                    .filter(task -> task != null && !DRIVER.equals(task.getJobName()))
-                    .forEach(task -> {
-                        int numProc = hostNumProcMap.getOrDefault(task.getHost(), 0);
-                        hostNumProcMap.put(task.getHost(), ++numProc);
-
-                        if (task.getHost().equals(taskHost)) {
-                            sameHostIndexCollection.add(Integer.parseInt(task.getTaskIndex()));
-                        }
-                    });
-
-            String workerList = StringUtils.join(
-                    hostNumProcMap.entrySet()
-                            .stream()
-                            .map(entry -> entry.getKey() + ":" + entry.getValue())
-                            .collect(Collectors.toList()),
-                    ","
-            );
-            return workerList;
+        @Override
+        public void onTaskRemoved(TonySession.TonyTask task) {
+            hostSlots.remove(task.getId(), Integer.parseInt(task.getTaskIndex()));
         }
 
+        @VisibleForTesting
+        HostSlotTable getHostSlots() {
+            return hostSlots;
+        }
 
         @Override
         public boolean receiveTaskCallbackInfo(String taskId, String callbackInfo) {
@@ -168,9 +177,12 @@ public class HorovodRuntime extends MLGenericRuntime {
             }
 
             DriverCallbackInfo driverCallbackInfo = new Gson().fromJson(callbackInfo, DriverCallbackInfo.class);
-            this.workerSlotMetaInfo = driverCallbackInfo.getSlotInfos();
-            this.rendezvServerPort = driverCallbackInfo.getPort();
-            this.rendezvServerHost = driverCallbackInfo.getHost();
+            synchronized (this) {
+                this.workerSlotMetaInfo = driverCallbackInfo.getSlotInfos();
+                this.rendezvServerPort = driverCallbackInfo.getPort();
+                this.rendezvServerHost = driverCallbackInfo.getHost();
+                workerSpecsByHost.clear();
+            }
 
             this.isDriverReady = true;
 
@@ -206,6 +218,12 @@ public class HorovodRuntime extends MLGenericRuntime {
             return true;
         }
 
+        @Override
+        public boolean canScaleJob(TonyConfigurationKeys.DistributedMode distributedMode, String jobName) {
+            // The driver gets the worker list when it starts, which is after every worker has registered.
+            return !DRIVER.equals(jobName) && super.canScaleJob(distributedMode, jobName);
+        }
+
         @Override
         public boolean validateAndUpdateConfig(Configuration tonyConf) {
             this.isDriverDebugMode = checkInDebugMode(tonyConf);
@@ -96,6 +96,21 @@ public abstract class MLGenericRuntime extends AbstractFrameworkRuntime {
             }
         }
 
+        @Override
+        public boolean canScaleJob(TonyConfigurationKeys.DistributedMode distributedMode, String jobName) {
+            assert session != null;
+            switch (distributedMode) {
+                case GANG:
+                    // Once the gang has started, its tasks can't learn about new members.
+                    return session.getNumRegisteredTasks() < session.getNumExpectedTasks();
+                case FCFS:
+                    // New tasks get the current cluster spec when they register.
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
         @Override
         public boolean validateAndUpdateConfig(Configuration tonyConf) {
             if (!validate(tonyConf)) {
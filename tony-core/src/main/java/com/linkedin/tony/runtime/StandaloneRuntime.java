@@ -78,6 +78,12 @@ public class StandaloneRuntime extends AbstractFrameworkRuntime {
         public boolean receiveTaskCallbackInfo(String taskId, String callbackInfo) {
             return true;
         }
+
+        @Override
+        public boolean canScaleJob(TonyConfigurationKeys.DistributedMode distributedMode, String jobName) {
+            // Standalone runs exactly one instance.
+            return false;
+        }
     }
 
     static class Task implements Framework.TaskExecutorAdapter {
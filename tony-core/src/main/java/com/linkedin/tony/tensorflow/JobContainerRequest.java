@@ -33,6 +33,10 @@ public class JobContainerRequest {
     return numInstances;
   }
 
+  public void setNumInstances(int numInstances) {
+    this.numInstances = numInstances;
+  }
+
   public long getMemory() {
     return memory;
   }
@@ -10,18 +10,21 @@ import com.linkedin.tony.Constants;
 import com.linkedin.tony.TonyClient;
 import com.linkedin.tony.TonyConfigurationKeys;
 import com.linkedin.tony.rpc.TaskInfo;
+import com.linkedin.tony.rpc.TaskInfoChangeLog;
 import com.linkedin.tony.rpc.impl.TaskStatus;
 import com.linkedin.tony.util.Utils;
 import java.net.URI;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
@@ -64,10 +67,23 @@ public class TonySession {
   // go straight to the cleaning phase.
   private boolean trainingFinished = false;
 
-  private Set<String> registeredTasks = new HashSet<>();
+  // Added to by concurrent RPC handlers.
+  private volatile Set<String> registeredTasks = ConcurrentHashMap.newKeySet();
 
   private int numExpectedTasks = 0;
 
+  // For each job type, the stragglers waiting for a container to run their replacement in, in the order they were
+  // found.
+  private final Map<String, Queue<TonyTask>> stragglersToReplace = new HashMap<>();
+  // Replacements whose containers have been allocated but that haven't registered yet, by task ID.
+  private final Map<String, TonyTask> replacements = new HashMap<>();
+  private final Map<String, Integer> numReplacements = new HashMap<>();
+
+  // For each job type, the failed tasks waiting for a container to run their next attempt in.
+  private final Map<String, Queue<TonyTask>> tasksToRetry = new HashMap<>();
+  // How many times each task has been started, by task ID, if more than once.
+  private final Map<String, Integer> taskAttempts = new HashMap<>();
+
   public enum TaskType {
     TASK_TYPE_CHIEF, TASK_TYPE_PARAMETER_SERVER, TASK_TYPE_OTHERS
   }
@@ -82,6 +98,9 @@ public class TonySession {
 
   private ConcurrentHashMap<ContainerId, TonyTask> containerIdMap = new ConcurrentHashMap<>();
 
+  // Shared by the sessions of an application so that its versions keep increasing across session resets.
+  private TaskInfoChangeLog taskInfoChangeLog = new TaskInfoChangeLog();
+
   public TonySession() {
   }
 
@@ -89,6 +108,9 @@ public class TonySession {
     this.containerRequests = Utils.parseContainerRequests(builder.tonyConf);
     this.jvmArgs = builder.jvmArgs;
     this.tonyConf = builder.tonyConf;
+    if (builder.taskInfoChangeLog != null) {
+      this.taskInfoChangeLog = builder.taskInfoChangeLog;
+    }
 
     for (Map.Entry<String, JobContainerRequest> entry : containerRequests.entrySet()) {
       jobTasks.put(entry.getKey(), new TonyTask[entry.getValue().getNumInstances()]);
@@ -99,6 +121,10 @@ public class TonySession {
     return this.jobTasks;
   }
 
+  public TaskInfoChangeLog getTaskInfoChangeLog() {
+    return taskInfoChangeLog;
+  }
+
 
   public boolean isTrainingFinished() {
     return trainingFinished;
@@ -124,7 +150,7 @@ public class TonySession {
     try {
       if (hdfsClasspathDir != null) {
         FileSystem fs = FileSystem.get(new URI(hdfsClasspathDir), hdfsConf);
-        Utils.addResource(hdfsClasspathDir, localResources, fs);
+        Utils.addResource(hdfsClasspathDir, localResources, fs, tonyConf);
       }
     } catch (Exception e) {
       throw new RuntimeException(e);
@@ -230,6 +256,163 @@ public class TonySession {
           return tasks[i];
         }
       }
+      TonyTask failed = tasksToRetry.getOrDefault(jobName, new ArrayDeque<>()).poll();
+      if (failed != null) {
+        int index = Integer.parseInt(failed.getTaskIndex());
+        tasks[index] = new TonyTask(jobName, failed.getTaskIndex(), sessionId, System.currentTimeMillis());
+        return tasks[index];
+      }
+      TonyTask straggler = stragglersToReplace.getOrDefault(jobName, new ArrayDeque<>()).poll();
+      if (straggler != null) {
+        TonyTask replacement = new TonyTask(jobName, straggler.getTaskIndex(), sessionId, System.currentTimeMillis());
+        replacement.replacing = true;
+        replacements.put(replacement.getId(), replacement);
+        return replacement;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Queues {@code task}, which failed, to be run again with the same index once a container is allocated for it,
+   * unless it has already run {@link TonyConfigurationKeys#getMaxTaskAttemptsKey} times. Until then, its status is
+   * {@link TaskStatus#NEW} and it doesn't count as completed.
+   * @return whether a container should be requested for the next attempt
+   */
+  public synchronized boolean retryTask(TonyTask task) {
+    String jobName = task.getJobName();
+    int maxAttempts = tonyConf.getInt(TonyConfigurationKeys.getMaxTaskAttemptsKey(jobName),
+        TonyConfigurationKeys.DEFAULT_MAX_TASK_ATTEMPTS);
+    int attempts = taskAttempts.getOrDefault(task.getId(), 1);
+    if (attempts >= maxAttempts || !isCurrent(task)) {
+      return false;
+    }
+    taskAttempts.put(task.getId(), attempts + 1);
+    tasksToRetry.computeIfAbsent(jobName, k -> new ArrayDeque<>()).add(task);
+    task.setStatus(TaskStatus.NEW);
+    return true;
+  }
+
+  /**
+   * @return how many times the task {@code taskId} has been started
+   */
+  public synchronized int getTaskAttempts(String taskId) {
+    return taskAttempts.getOrDefault(taskId, 1);
+  }
+
+  /**
+   * Queues {@code straggler} to be replaced by a new task with the same index once a container is allocated for it,
+   * unless a replacement is already pending or {@code maxReplacementsPerJob} tasks of its job type have been.
+   * @return whether a container should be requested for the replacement
+   */
+  public synchronized boolean requestReplacement(TonyTask straggler, int maxReplacementsPerJob) {
+    String jobName = straggler.getJobName();
+    Queue<TonyTask> stragglers = stragglersToReplace.computeIfAbsent(jobName, k -> new ArrayDeque<>());
+    int replaced = numReplacements.getOrDefault(jobName, 0);
+    if (replaced >= maxReplacementsPerJob || stragglers.contains(straggler)
+        || replacements.containsKey(straggler.getId())) {
+      return false;
+    }
+    stragglers.add(straggler);
+    numReplacements.put(jobName, replaced + 1);
+    return true;
+  }
+
+  /**
+   * Makes the pending replacement of {@code taskId} the task, if {@code spec} is its registration and not the
+   * straggler's. The replacement's status changes are recorded from then on.
+   * @return the straggler it replaced, whose container should be stopped, or null if {@code spec} isn't from a
+   *         replacement
+   */
+  public synchronized TonyTask registerReplacement(String taskId, String spec) {
+    TonyTask replacement = replacements.get(taskId);
+    TonyTask straggler = getTask(taskId);
+    if (replacement == null || straggler == null || straggler.getHost() == null
+        || straggler.getHostPort().equals(spec)) {
+      return null;
+    }
+    replacements.remove(taskId);
+    replacement.setHostPort(spec);
+    replacement.replacing = false;
+    jobTasks.get(replacement.getJobName())[Integer.parseInt(replacement.getTaskIndex())] = replacement;
+    taskInfoChangeLog.record(replacement.getTaskInfo());
+    return straggler;
+  }
+
+  /**
+   * Cancels the replacement of {@code taskId}, e.g. because the straggler finished first.
+   * @return the replacement if its container has been allocated, so that it can be stopped, or null
+   */
+  public synchronized TonyTask cancelReplacement(String taskId) {
+    TonyTask task = getTask(taskId);
+    if (task != null) {
+      stragglersToReplace.getOrDefault(task.getJobName(), new ArrayDeque<>()).remove(task);
+    }
+    return replacements.remove(taskId);
+  }
+
+  /**
+   * Discards {@code replacement} if it hasn't registered, e.g. because its container failed.
+   * @return whether it was a pending replacement
+   */
+  public synchronized boolean discardReplacement(TonyTask replacement) {
+    return replacements.remove(replacement.getId(), replacement);
+  }
+
+  /**
+   * @return whether {@code task} is the one running its job type and index, rather than a straggler that has been
+   *         replaced, a replacement that hasn't registered yet or a failed task waiting to be restarted
+   */
+  public synchronized boolean isCurrent(TonyTask task) {
+    return getTask(task.getId()) == task
+        && !tasksToRetry.getOrDefault(task.getJobName(), new ArrayDeque<>()).contains(task);
+  }
+
+  /**
+   * Changes the number of tasks of {@code jobName} to {@code numInstances}. New tasks get the next indices and are
+   * created as containers are allocated for them. When shrinking, the tasks with the highest indices are removed,
+   * along with their pending replacements and restarts, and the running ones are marked {@link TaskStatus#FINISHED}.
+   * @return the removed tasks and replacements that have a container, which should be stopped
+   */
+  public synchronized List<TonyTask> resizeJob(String jobName, int numInstances) {
+    TonyTask[] tasks = jobTasks.get(jobName);
+    Preconditions.checkArgument(tasks != null, "Unknown job type " + jobName);
+    Preconditions.checkArgument(numInstances > 0, "Invalid number of instances " + numInstances);
+    List<TonyTask> removed = new ArrayList<>();
+    for (int i = numInstances; i < tasks.length; i++) {
+      String taskId = jobName + ":" + i;
+      registeredTasks.remove(taskId);
+      taskAttempts.remove(taskId);
+      TonyTask replacement = replacements.remove(taskId);
+      if (replacement != null && replacement.getContainer() != null) {
+        removed.add(replacement);
+      }
+      TonyTask task = tasks[i];
+      if (task == null) {
+        continue;
+      }
+      tasksToRetry.getOrDefault(jobName, new ArrayDeque<>()).remove(task);
+      stragglersToReplace.getOrDefault(jobName, new ArrayDeque<>()).remove(task);
+      if (task.getTaskInfo() != null && !task.isCompleted()) {
+        task.setExitStatus(ContainerExitStatus.KILLED_BY_APPMASTER);
+        if (task.getContainer() != null) {
+          removed.add(task);
+        }
+      }
+    }
+    jobTasks.put(jobName, Arrays.copyOf(tasks, numInstances));
+    containerRequests.get(jobName).setNumInstances(numInstances);
+    return removed;
+  }
+
+  /**
+   * @return the container request of the job type whose containers are requested with {@code priority}
+   */
+  public JobContainerRequest getContainerRequestByPriority(int priority) {
+    for (JobContainerRequest request : containerRequests.values()) {
+      if (request.getPriority() == priority) {
+        return request;
+      }
     }
     return null;
   }
@@ -407,6 +590,7 @@ public class TonySession {
   public static class Builder {
     private String jvmArgs;
     private Configuration tonyConf;
+    private TaskInfoChangeLog taskInfoChangeLog;
 
     public TonySession build() {
       return new TonySession(this);
@@ -421,6 +605,11 @@ public class TonySession {
       this.tonyConf = tonyConf;
       return this;
     }
+
+    public Builder setTaskInfoChangeLog(TaskInfoChangeLog taskInfoChangeLog) {
+      this.taskInfoChangeLog = taskInfoChangeLog;
+      return this;
+    }
   }
 
   @VisibleForTesting
@@ -454,6 +643,14 @@ public class TonySession {
      */
     boolean completed = false;
 
+    private final AtomicBoolean heartbeatReceived = new AtomicBoolean(false);
+
+    /**
+     * Set while the task is a replacement for a straggler that hasn't registered yet, during which its status
+     * changes aren't recorded, so that clients keep seeing the straggler.
+     */
+    private boolean replacing = false;
+
     public String getJobName() {
       return jobName;
     }
@@ -474,6 +671,14 @@ public class TonySession {
       return startTime;
     }
 
+    /**
+     * Records that the task's executor has sent a heartbeat.
+     * @return true if this is the first heartbeat of the task
+     */
+    public boolean markHeartbeatReceived() {
+      return heartbeatReceived.compareAndSet(false, true);
+    }
+
     public Container getContainer() {
       return container;
     }
@@ -509,13 +714,13 @@ public class TonySession {
         this.exitStatus = status;
         switch (status) {
           case ContainerExitStatus.SUCCESS:
-            taskInfo.setStatus(TaskStatus.SUCCEEDED);
+            setStatus(TaskStatus.SUCCEEDED);
             break;
           case ContainerExitStatus.KILLED_BY_APPMASTER:
-            taskInfo.setStatus(TaskStatus.FINISHED);
+            setStatus(TaskStatus.FINISHED);
             break;
           default:
-            taskInfo.setStatus(TaskStatus.FAILED);
+            setStatus(TaskStatus.FAILED);
             break;
         }
         this.completed = true;
@@ -533,6 +738,30 @@ public class TonySession {
       taskInfo = new TaskInfo(jobName, taskIndex, Utils.constructContainerUrl(container));
     }
 
+    /**
+     * Sets the status of the task and records the change for clients polling the AM for task updates.
+     */
+    public void setStatus(TaskStatus status) {
+      taskInfo.setStatus(status);
+      if (!replacing) {
+        taskInfoChangeLog.record(taskInfo);
+      }
+    }
+
+    /**
+     * Sets why the AM deems the task a straggler, or null if it no longer does, and records the change for clients
+     * polling the AM for task updates.
+     * @return whether the reason changed
+     */
+    public boolean setStragglerReason(String reason) {
+      if (Objects.equals(taskInfo.getStragglerReason(), reason)) {
+        return false;
+      }
+      taskInfo.setStragglerReason(reason);
+      taskInfoChangeLog.record(taskInfo);
+      return true;
+    }
+
     TonyTask(String jobName, String taskIndex, int sessionId, long startTime) {
       this.jobName = jobName;
       this.taskIndex = taskIndex;
@@ -615,12 +844,15 @@ public class TonySession {
     return tonyConf;
   }
 
-  public void addRegisteredTask(String taskId) {
-    registeredTasks.add(taskId);
+  /**
+   * @return whether {@code taskId} registered for the first time, rather than a retried task registering again
+   */
+  public boolean addRegisteredTask(String taskId) {
+    return registeredTasks.add(taskId);
   }
 
   public void resetRegisteredTasks() {
-    registeredTasks = new HashSet<>();
+    registeredTasks = ConcurrentHashMap.newKeySet();
   }
 
   public int getNumRegisteredTasks() {
@@ -0,0 +1,38 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.util;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * A polling interval that doubles, up to a maximum, every time a poll finds nothing new, and drops back to the
+ * minimum as soon as something changes. Not thread-safe.
+ */
+public class AdaptiveInterval {
+  private final long minMs;
+  private final long maxMs;
+  private long currentMs;
+
+  public AdaptiveInterval(long minMs, long maxMs) {
+    Preconditions.checkArgument(minMs > 0 && maxMs >= minMs,
+        "Invalid polling interval range [" + minMs + ", " + maxMs + "]");
+    this.minMs = minMs;
+    this.maxMs = maxMs;
+    this.currentMs = minMs;
+  }
+
+  public long getIntervalMs() {
+    return currentMs;
+  }
+
+  public void onChange() {
+    currentMs = minMs;
+  }
+
+  public void onNoChange() {
+    currentMs = Math.min(maxMs, currentMs * 2);
+  }
+}
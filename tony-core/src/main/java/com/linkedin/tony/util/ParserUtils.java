@@ -9,10 +9,13 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.linkedin.tony.Constants;
 import com.linkedin.tony.events.Event;
+import com.linkedin.tony.events.EventType;
+import com.linkedin.tony.events.TaskStartupPhases;
 import com.linkedin.tony.models.JobConfig;
 import com.linkedin.tony.models.JobEvent;
 import com.linkedin.tony.models.JobLog;
 import com.linkedin.tony.models.JobMetadata;
+import com.linkedin.tony.models.JobStartupPhase;
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.LocalDate;
@@ -288,6 +291,16 @@ public class ParserUtils {
     return events.stream().map(JobEvent::convertEventToJobEvent).collect(Collectors.toList());
   }
 
+  /**
+   * Aggregates the start-up phase timings of all tasks in {@code events}, see {@link JobStartupPhase#aggregate}.
+   */
+  public static List<JobStartupPhase> mapJobEventToJobStartupPhases(List<JobEvent> events) {
+    return JobStartupPhase.aggregate(events.stream()
+        .filter(e -> e.getType() == EventType.TASK_STARTUP_PHASES)
+        .map(e -> (TaskStartupPhases) e.getEvent())
+        .collect(Collectors.toList()));
+  }
+
   /**
    *
    * @param events : List of events
@@ -0,0 +1,323 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.util;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+
+/**
+ * Cumulative CPU time, context switches and disk I/O of a process tree, plus the network traffic of its network
+ * namespace, read from /proc. Files are read into a reused buffer and parsed in place, so sampling doesn't allocate
+ * beyond bookkeeping for new processes. The counters of processes that have exited are kept, so the totals don't
+ * drop when a process in the tree exits. Linux only, and not thread-safe.
+ */
+public class ProcessTreeStats {
+  // Times in /proc/[pid]/stat are in USER_HZ, which is 100 on all architectures Hadoop runs on.
+  private static final long MS_PER_CLOCK_TICK = 10;
+
+  private static final int CPU_TIME_MS = 0;
+  private static final int VOLUNTARY_CONTEXT_SWITCHES = 1;
+  private static final int NONVOLUNTARY_CONTEXT_SWITCHES = 2;
+  private static final int READ_BYTES = 3;
+  private static final int WRITE_BYTES = 4;
+  private static final int NUM_COUNTERS = 5;
+
+  private static final byte[] VOLUNTARY_CTXT_SWITCHES_KEY = key("voluntary_ctxt_switches:");
+  private static final byte[] NONVOLUNTARY_CTXT_SWITCHES_KEY = key("nonvoluntary_ctxt_switches:");
+  private static final byte[] READ_BYTES_KEY = key("read_bytes:");
+  private static final byte[] WRITE_BYTES_KEY = key("write_bytes:");
+
+  private final String procfsDir;
+  private final Map<String, ProcessCounters> processes = new HashMap<>();
+  private final long[] exitedTotals = new long[NUM_COUNTERS];
+  private final long[] totals = new long[NUM_COUNTERS];
+  private byte[] buffer = new byte[4096];
+  private long networkReceiveBytes;
+  private long networkTransmitBytes;
+  private long initialNetworkReceiveBytes = -1;
+  private long initialNetworkTransmitBytes = -1;
+  private long updateGeneration = 0;
+
+  private static class ProcessCounters {
+    private final String statPath;
+    private final String statusPath;
+    private final String ioPath;
+    private final long[] counters = new long[NUM_COUNTERS];
+    private long lastSeenGeneration;
+
+    ProcessCounters(String procfsDir, String pid) {
+      String dir = procfsDir + "/" + pid;
+      this.statPath = dir + "/stat";
+      this.statusPath = dir + "/status";
+      this.ioPath = dir + "/io";
+    }
+  }
+
+  public ProcessTreeStats() {
+    this("/proc");
+  }
+
+  @VisibleForTesting
+  ProcessTreeStats(String procfsDir) {
+    this.procfsDir = procfsDir;
+  }
+
+  private static byte[] key(String key) {
+    return key.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Re-reads the counters of the processes {@code pids}, which should be all the processes currently in the tree.
+   */
+  public void update(Iterable<String> pids) {
+    updateGeneration++;
+    for (String pid : pids) {
+      ProcessCounters process = processes.get(pid);
+      if (process == null) {
+        process = new ProcessCounters(procfsDir, pid);
+        processes.put(pid, process);
+      }
+      process.lastSeenGeneration = updateGeneration;
+      // Keep the previous values of any file that can't be read, e.g. because the process has just exited.
+      long[] counters = process.counters;
+      int length = read(process.statPath);
+      if (length > 0) {
+        counters[CPU_TIME_MS] = parseCpuTimeMs(length, counters[CPU_TIME_MS]);
+      }
+      length = read(process.statusPath);
+      if (length > 0) {
+        counters[VOLUNTARY_CONTEXT_SWITCHES] = parseValue(length, VOLUNTARY_CTXT_SWITCHES_KEY,
+            counters[VOLUNTARY_CONTEXT_SWITCHES]);
+        counters[NONVOLUNTARY_CONTEXT_SWITCHES] = parseValue(length, NONVOLUNTARY_CTXT_SWITCHES_KEY,
+            counters[NONVOLUNTARY_CONTEXT_SWITCHES]);
+      }
+      length = read(process.ioPath);
+      if (length > 0) {
+        counters[READ_BYTES] = parseValue(length, READ_BYTES_KEY, counters[READ_BYTES]);
+        counters[WRITE_BYTES] = parseValue(length, WRITE_BYTES_KEY, counters[WRITE_BYTES]);
+      }
+    }
+
+    Arrays.fill(totals, 0);
+    Iterator<ProcessCounters> it = processes.values().iterator();
+    while (it.hasNext()) {
+      ProcessCounters process = it.next();
+      long[] sums = totals;
+      if (process.lastSeenGeneration != updateGeneration) {
+        sums = exitedTotals;
+        it.remove();
+      }
+      for (int i = 0; i < NUM_COUNTERS; i++) {
+        sums[i] += process.counters[i];
+      }
+    }
+    for (int i = 0; i < NUM_COUNTERS; i++) {
+      totals[i] += exitedTotals[i];
+    }
+
+    int length = read(procfsDir + "/net/dev");
+    if (length > 0) {
+      parseNetworkBytes(length);
+    }
+  }
+
+  /**
+   * Reads a file into {@link #buffer}, growing it if needed.
+   * @return the number of bytes read, or -1 if the file couldn't be read
+   */
+  private int read(String path) {
+    try (FileInputStream in = new FileInputStream(path)) {
+      int length = 0;
+      int n;
+      while ((n = in.read(buffer, length, buffer.length - length)) > 0) {
+        length += n;
+        if (length == buffer.length) {
+          buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+      }
+      return length;
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Parses utime + stime, the 14th and 15th fields of /proc/[pid]/stat. The 2nd field is the command name in
+   * parentheses, which may itself contain spaces or parentheses, so fields are counted from the last ')'.
+   */
+  private long parseCpuTimeMs(int length, long defaultValue) {
+    int pos = length - 1;
+    while (pos >= 0 && buffer[pos] != ')') {
+      pos--;
+    }
+    if (pos < 0) {
+      return defaultValue;
+    }
+    // Skip to the 14th field; the 3rd starts after ") ".
+    pos = skipFields(pos + 2, length, 14 - 3);
+    long utime = parseLong(pos, length);
+    long stime = parseLong(skipFields(pos, length, 1), length);
+    return utime < 0 || stime < 0 ? defaultValue : (utime + stime) * MS_PER_CLOCK_TICK;
+  }
+
+  /**
+   * Parses the value of a "key: value" line, like those of /proc/[pid]/status and /proc/[pid]/io.
+   */
+  private long parseValue(int length, byte[] key, long defaultValue) {
+    for (int lineStart = 0; lineStart < length; ) {
+      if (startsWith(lineStart, length, key)) {
+        long value = parseLong(skipSpaces(lineStart + key.length, length), length);
+        return value < 0 ? defaultValue : value;
+      }
+      while (lineStart < length && buffer[lineStart] != '\n') {
+        lineStart++;
+      }
+      lineStart++;
+    }
+    return defaultValue;
+  }
+
+  /**
+   * Sums the received and transmitted bytes of every interface but loopback in /proc/net/dev, where each line after
+   * the two header lines is "[interface]: [8 receive counters] [8 transmit counters]", bytes being the first of each.
+   */
+  private void parseNetworkBytes(int length) {
+    long receiveBytes = 0;
+    long transmitBytes = 0;
+    int lineStart = 0;
+    for (int line = 0; lineStart < length; line++) {
+      int lineEnd = lineStart;
+      while (lineEnd < length && buffer[lineEnd] != '\n') {
+        lineEnd++;
+      }
+      int colon = lineStart;
+      while (colon < lineEnd && buffer[colon] != ':') {
+        colon++;
+      }
+      if (line >= 2 && colon < lineEnd && !isLoopback(skipSpaces(lineStart, colon), colon)) {
+        int pos = skipSpaces(colon + 1, lineEnd);
+        long received = parseLong(pos, lineEnd);
+        long transmitted = parseLong(skipFields(pos, lineEnd, 8), lineEnd);
+        if (received >= 0 && transmitted >= 0) {
+          receiveBytes += received;
+          transmitBytes += transmitted;
+        }
+      }
+      lineStart = lineEnd + 1;
+    }
+    if (initialNetworkReceiveBytes < 0) {
+      initialNetworkReceiveBytes = receiveBytes;
+      initialNetworkTransmitBytes = transmitBytes;
+    }
+    networkReceiveBytes = receiveBytes - initialNetworkReceiveBytes;
+    networkTransmitBytes = transmitBytes - initialNetworkTransmitBytes;
+  }
+
+  private boolean startsWith(int pos, int length, byte[] prefix) {
+    if (pos + prefix.length > length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (buffer[pos + i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isLoopback(int nameStart, int nameEnd) {
+    return nameEnd - nameStart == 2 && buffer[nameStart] == 'l' && buffer[nameStart + 1] == 'o';
+  }
+
+  private int skipSpaces(int pos, int length) {
+    while (pos < length && (buffer[pos] == ' ' || buffer[pos] == '\t')) {
+      pos++;
+    }
+    return pos;
+  }
+
+  /**
+   * @return the start of the field {@code numFields} space-separated fields after the one starting at {@code pos}
+   */
+  private int skipFields(int pos, int length, int numFields) {
+    for (int i = 0; i < numFields; i++) {
+      while (pos < length && buffer[pos] != ' ' && buffer[pos] != '\t') {
+        pos++;
+      }
+      pos = skipSpaces(pos, length);
+    }
+    return pos;
+  }
+
+  /**
+   * @return the non-negative number starting at {@code pos}, or -1 if there's none
+   */
+  private long parseLong(int pos, int length) {
+    long value = 0;
+    int start = pos;
+    while (pos < length && buffer[pos] >= '0' && buffer[pos] <= '9') {
+      value = value * 10 + (buffer[pos] - '0');
+      pos++;
+    }
+    return pos == start ? -1 : value;
+  }
+
+  /**
+   * @return user and system CPU time used by the tree, in milliseconds
+   */
+  public long getCpuTimeMs() {
+    return totals[CPU_TIME_MS];
+  }
+
+  /**
+   * @return the number of times processes in the tree gave up the CPU, e.g. to wait for I/O
+   */
+  public long getVoluntaryContextSwitches() {
+    return totals[VOLUNTARY_CONTEXT_SWITCHES];
+  }
+
+  /**
+   * @return the number of times processes in the tree were preempted
+   */
+  public long getNonvoluntaryContextSwitches() {
+    return totals[NONVOLUNTARY_CONTEXT_SWITCHES];
+  }
+
+  /**
+   * @return bytes the tree caused to be read from storage
+   */
+  public long getReadBytes() {
+    return totals[READ_BYTES];
+  }
+
+  /**
+   * @return bytes the tree caused to be written to storage
+   */
+  public long getWriteBytes() {
+    return totals[WRITE_BYTES];
+  }
+
+  /**
+   * @return bytes received on the tree's network namespace, excluding loopback, since the first update. Unless
+   *         the task runs in its own network namespace, this includes other processes on the host.
+   */
+  public long getNetworkReceiveBytes() {
+    return networkReceiveBytes;
+  }
+
+  /**
+   * @return bytes transmitted on the tree's network namespace, excluding loopback, since the first update
+   */
+  public long getNetworkTransmitBytes() {
+    return networkTransmitBytes;
+  }
+}
@@ -13,12 +13,20 @@ public class ProtoUtils {
   public static TaskInfo taskInfoProtoToTaskInfo(TaskInfoProto taskInfoProto) {
     TaskInfo taskInfo = new TaskInfo(taskInfoProto.getName(), taskInfoProto.getIndex(), taskInfoProto.getUrl());
     taskInfo.setStatus(TaskStatus.values()[taskInfoProto.getTaskStatus().ordinal()]);
+    if (taskInfoProto.hasStragglerReason()) {
+      taskInfo.setStragglerReason(taskInfoProto.getStragglerReason());
+    }
     return taskInfo;
   }
 
   public static TaskInfoProto taskInfoToTaskInfoProto(TaskInfo taskInfo) {
-    return TaskInfoProto.newBuilder().setName(taskInfo.getName()).setIndex(taskInfo.getIndex())
-        .setUrl(taskInfo.getUrl()).setTaskStatus(TaskInfoProto.TaskStatus.values()[taskInfo.getStatus().ordinal()]).build();
+    TaskInfoProto.Builder builder = TaskInfoProto.newBuilder().setName(taskInfo.getName())
+        .setIndex(taskInfo.getIndex()).setUrl(taskInfo.getUrl())
+        .setTaskStatus(TaskInfoProto.TaskStatus.values()[taskInfo.getStatus().ordinal()]);
+    if (taskInfo.isStraggler()) {
+      builder.setStragglerReason(taskInfo.getStragglerReason());
+    }
+    return builder.build();
   }
 
   private ProtoUtils() { }
@@ -0,0 +1,124 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.util;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * A fixed-size sketch of a stream of non-negative values from which quantiles can be read to within a relative
+ * error, in the style of DDSketch. Values are counted in buckets whose bounds grow geometrically, so adding a value
+ * doesn't allocate. If the values span more buckets than the sketch has, the lowest buckets are merged, which only
+ * loses accuracy for the lowest quantiles. Not thread-safe.
+ */
+public class QuantileSketch {
+  public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+  // With the default accuracy, covers values spanning about 9 orders of magnitude.
+  public static final int DEFAULT_NUM_BUCKETS = 1024;
+
+  private final double gamma;
+  private final double logGamma;
+  // counts[i] is the number of values in (gamma^(minIndex + i - 1), gamma^(minIndex + i)].
+  private final long[] counts;
+  private int minIndex;
+  private long zeroCount = 0;
+  private long count = 0;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+
+  public QuantileSketch() {
+    this(DEFAULT_RELATIVE_ACCURACY, DEFAULT_NUM_BUCKETS);
+  }
+
+  public QuantileSketch(double relativeAccuracy, int numBuckets) {
+    Preconditions.checkArgument(relativeAccuracy > 0 && relativeAccuracy < 1,
+        "Invalid relative accuracy " + relativeAccuracy);
+    Preconditions.checkArgument(numBuckets > 0, "Invalid number of buckets " + numBuckets);
+    this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+    this.logGamma = Math.log(gamma);
+    this.counts = new long[numBuckets];
+  }
+
+  /**
+   * Adds {@code value} to the sketch. Negative values, which TonY uses for metrics that aren't available, and NaN
+   * are ignored.
+   */
+  public void add(double value) {
+    if (!(value >= 0)) {
+      return;
+    }
+    count++;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+    if (value == 0) {
+      zeroCount++;
+      return;
+    }
+
+    int index = (int) Math.ceil(Math.log(value) / logGamma);
+    if (count == zeroCount + 1) {
+      // First non-zero value, leave room for the values to go either way.
+      minIndex = index - counts.length / 2;
+    }
+    if (index < minIndex) {
+      counts[0]++;
+      return;
+    }
+    int shift = index - (minIndex + counts.length - 1);
+    if (shift > 0) {
+      collapseLowest(shift);
+    }
+    counts[index - minIndex]++;
+  }
+
+  /**
+   * Merges the lowest {@code shift} + 1 buckets into one, making room for {@code shift} buckets at the top.
+   */
+  private void collapseLowest(int shift) {
+    long collapsed = 0;
+    for (int i = 0; i <= shift && i < counts.length; i++) {
+      collapsed += counts[i];
+    }
+    for (int i = 1; i < counts.length; i++) {
+      counts[i] = i + shift < counts.length ? counts[i + shift] : 0;
+    }
+    counts[0] = collapsed;
+    minIndex += shift;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @param quantile between 0 and 1, e.g. 0.99 for the 99th percentile
+   * @return the value at {@code quantile}, to within the relative accuracy, or NaN if no values were added. The
+   *         minimum and maximum are exact.
+   */
+  public double getQuantile(double quantile) {
+    Preconditions.checkArgument(quantile >= 0 && quantile <= 1, "Invalid quantile " + quantile);
+    if (count == 0) {
+      return Double.NaN;
+    }
+    long rank = (long) (quantile * (count - 1));
+    if (rank == 0) {
+      return min;
+    } else if (rank == count - 1) {
+      return max;
+    }
+    long seen = zeroCount;
+    if (rank < seen) {
+      return 0;
+    }
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (rank < seen) {
+        double value = 2 * Math.pow(gamma, minIndex + i) / (gamma + 1);
+        return Math.max(min, Math.min(max, value));
+      }
+    }
+    return max;
+  }
+}
@@ -0,0 +1,255 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.util;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.linkedin.tony.Constants;
+import com.linkedin.tony.TonyConfigurationKeys;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsAction;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.yarn.api.records.LocalResourceVisibility;
+
+
+/**
+ * A content-addressed cache of client resources on the remote file system.
+ *
+ * Every cached resource lives at {@code <cache root>/<sha-256 of content>/<file name>}, so resubmitting an unchanged
+ * venv, src dir or jar only costs a local hash and an existence check instead of a full upload. Entries are
+ * published with a rename so concurrent submissions of the same content never observe a partial file, and they are
+ * never deleted by the client; expiring old entries is left to the cluster's retention tooling.
+ */
+public class ResourceCache {
+  private static final Log LOG = LogFactory.getLog(ResourceCache.class);
+
+  private static final String CACHE_DIR_NAME = "cache";
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final FsPermission PUBLIC_DIR_PERMISSION = new FsPermission((short) 0755);
+  private static final FsPermission PUBLIC_FILE_PERMISSION = new FsPermission((short) 0644);
+  private static final FsPermission PRIVATE_PERMISSION = new FsPermission((short) 0770);
+
+  private final FileSystem fs;
+  private final Path cacheRoot;
+  private final LocalResourceVisibility visibility;
+
+  /**
+   * Creates the cache described by {@code tonyConf}. The resolved cache root and the effective visibility are written
+   * back to {@code tonyConf} so the AM builds its {@link org.apache.hadoop.yarn.api.records.LocalResource}s with the
+   * same view of the cache as the client.
+   */
+  public ResourceCache(Configuration tonyConf, FileSystem fs) throws IOException {
+    this.fs = fs;
+    this.cacheRoot = fs.makeQualified(getCacheRoot(tonyConf, fs));
+    Utils.createDirIfNotExists(fs, cacheRoot, PUBLIC_DIR_PERMISSION);
+
+    LocalResourceVisibility configured = LocalResourceVisibility.valueOf(
+        tonyConf.get(TonyConfigurationKeys.RESOURCE_CACHE_VISIBILITY,
+            TonyConfigurationKeys.DEFAULT_RESOURCE_CACHE_VISIBILITY).toUpperCase());
+    if (configured == LocalResourceVisibility.PUBLIC && !isPubliclyTraversable(fs, cacheRoot)) {
+      LOG.warn("Resource cache " + cacheRoot + " or one of its ancestors is not world-accessible, "
+          + "falling back to " + LocalResourceVisibility.PRIVATE + " visibility.");
+      configured = LocalResourceVisibility.PRIVATE;
+    }
+    this.visibility = configured;
+
+    tonyConf.set(TonyConfigurationKeys.RESOURCE_CACHE_LOCATION, cacheRoot.toString());
+    tonyConf.set(TonyConfigurationKeys.RESOURCE_CACHE_VISIBILITY, visibility.name());
+  }
+
+  /**
+   * Writes the content of a cache entry to the given path.
+   */
+  public interface EntryWriter {
+    void write(Path dst) throws IOException;
+  }
+
+  public static boolean isEnabled(Configuration tonyConf) {
+    return tonyConf.getBoolean(TonyConfigurationKeys.RESOURCE_CACHE_ENABLED,
+        TonyConfigurationKeys.DEFAULT_RESOURCE_CACHE_ENABLED);
+  }
+
+  public Path getCacheRoot() {
+    return cacheRoot;
+  }
+
+  public LocalResourceVisibility getVisibility() {
+    return visibility;
+  }
+
+  /**
+   * Returns the cached copy of content with the given hash, or {@code null} if it has not been uploaded yet.
+   */
+  public Path lookup(String contentHash, String fileName) throws IOException {
+    Path cached = new Path(new Path(cacheRoot, contentHash), fileName);
+    return fs.exists(cached) ? cached : null;
+  }
+
+  /**
+   * Uploads {@code localFile} into the cache entry for {@code contentHash}, unless another client already did.
+   * @return the path of the cached file
+   */
+  public Path put(String contentHash, Path localFile, String fileName) throws IOException {
+    return put(contentHash, fileName, dst -> HdfsUtils.copySrcToDest(localFile, dst, fs.getConf()));
+  }
+
+  /**
+   * Publishes the content produced by {@code writer} as the cache entry for {@code contentHash}, unless another client
+   * already did. The writer gets a temporary path inside the entry, which is renamed once it has been written.
+   * @return the path of the cached file
+   */
+  public Path put(String contentHash, String fileName, EntryWriter writer) throws IOException {
+    Path entryDir = new Path(cacheRoot, contentHash);
+    Path cached = new Path(entryDir, fileName);
+    if (fs.exists(cached)) {
+      return cached;
+    }
+
+    Utils.createDirIfNotExists(fs, entryDir, getDirPermission());
+    Path tmp = new Path(entryDir, "." + fileName + "." + UUID.randomUUID() + ".tmp");
+    try {
+      writer.write(tmp);
+      fs.setPermission(tmp, getFilePermission());
+      if (!fs.rename(tmp, cached)) {
+        if (!fs.exists(cached)) {
+          throw new IOException("Failed to publish resource cache entry " + cached);
+        }
+        LOG.info("Resource " + cached + " was published concurrently by another client.");
+      }
+    } finally {
+      if (fs.exists(tmp)) {
+        fs.delete(tmp, false);
+      }
+    }
+    LOG.info("Published resource cache entry " + cached);
+    return cached;
+  }
+
+  /**
+   * Returns the cached copy of the local file {@code localFile}, uploading it first if needed.
+   */
+  public Path getOrUpload(Path localFile, String fileName) throws IOException {
+    String contentHash = hash(Paths.get(localFile.toUri().getPath()));
+    Path cached = lookup(contentHash, fileName);
+    if (cached != null) {
+      LOG.info("Reusing cached resource " + cached + " for " + localFile);
+      return cached;
+    }
+    return put(contentHash, localFile, fileName);
+  }
+
+  private FsPermission getDirPermission() {
+    return visibility == LocalResourceVisibility.PUBLIC ? PUBLIC_DIR_PERMISSION : PRIVATE_PERMISSION;
+  }
+
+  private FsPermission getFilePermission() {
+    return visibility == LocalResourceVisibility.PUBLIC ? PUBLIC_FILE_PERMISSION : PRIVATE_PERMISSION;
+  }
+
+  /**
+   * Computes the SHA-256 of a local file, or of a directory's regular files together with their relative paths.
+   * Files are visited in sorted order so the digest depends only on content and layout.
+   */
+  public static String hash(java.nio.file.Path local) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+    byte[] buffer = new byte[BUFFER_SIZE];
+    if (Files.isDirectory(local)) {
+      List<java.nio.file.Path> files;
+      try (Stream<java.nio.file.Path> walk = Files.walk(local)) {
+        files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+      }
+      for (java.nio.file.Path file : files) {
+        digest.update(local.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(Long.toString(Files.size(file)).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        updateDigest(digest, file, buffer);
+      }
+    } else {
+      updateDigest(digest, local, buffer);
+    }
+    return toHex(digest.digest());
+  }
+
+  private static void updateDigest(MessageDigest digest, java.nio.file.Path file, byte[] buffer) throws IOException {
+    try (InputStream in = Files.newInputStream(file)) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    }
+  }
+
+  static String toHex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+  @VisibleForTesting
+  static Path getCacheRoot(Configuration tonyConf, FileSystem fs) {
+    String location = tonyConf.get(TonyConfigurationKeys.RESOURCE_CACHE_LOCATION);
+    if (location != null && !location.isEmpty()) {
+      return new Path(location);
+    }
+    return new Path(fs.getHomeDirectory(), Constants.TONY_FOLDER + Path.SEPARATOR + CACHE_DIR_NAME);
+  }
+
+  /**
+   * YARN only localizes a PUBLIC resource if every ancestor directory can be traversed by others.
+   */
+  private static boolean isPubliclyTraversable(FileSystem fs, Path dir) throws IOException {
+    for (Path current = dir; current != null; current = current.getParent()) {
+      FileStatus status = fs.getFileStatus(current);
+      if (!status.getPermission().getOtherAction().implies(FsAction.EXECUTE)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the visibility a resource should be localized with. Resources inside the configured cache use the cache's
+   * visibility, everything else stays {@link LocalResourceVisibility#PRIVATE}.
+   */
+  public static LocalResourceVisibility getVisibility(Path resource, Configuration tonyConf) {
+    if (tonyConf == null || !isEnabled(tonyConf)) {
+      return LocalResourceVisibility.PRIVATE;
+    }
+    String location = tonyConf.get(TonyConfigurationKeys.RESOURCE_CACHE_LOCATION);
+    if (location == null || location.isEmpty()) {
+      return LocalResourceVisibility.PRIVATE;
+    }
+    String root = new Path(location).toUri().getPath();
+    String path = resource.toUri().getPath();
+    if (!path.startsWith(root + Path.SEPARATOR)) {
+      return LocalResourceVisibility.PRIVATE;
+    }
+    return LocalResourceVisibility.valueOf(tonyConf.get(TonyConfigurationKeys.RESOURCE_CACHE_VISIBILITY,
+        TonyConfigurationKeys.DEFAULT_RESOURCE_CACHE_VISIBILITY).toUpperCase());
+  }
+}
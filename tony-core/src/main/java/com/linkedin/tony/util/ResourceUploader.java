@@ -0,0 +1,145 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+
+/**
+ * Uploads client resources to the remote file system on a bounded thread pool.
+ *
+ * Local files are streamed straight into the destination, and directories are zipped directly into the remote
+ * output stream, so no temporary archive is written to local disk. Each upload logs its progress and throughput.
+ */
+public class ResourceUploader implements AutoCloseable {
+  private static final Log LOG = LogFactory.getLog(ResourceUploader.class);
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final long PROGRESS_INTERVAL_MS = 5000;
+
+  private final FileSystem fs;
+  private final ExecutorService uploadPool;
+  private final ZipArchiver zipArchiver;
+
+  public ResourceUploader(FileSystem fs, int numThreads) {
+    this(fs, numThreads, false);
+  }
+
+  /**
+   * @param fs the file system to upload to
+   * @param numThreads number of resources uploaded concurrently
+   * @param zipStoreOnly if true, directories are archived without compression
+   */
+  public ResourceUploader(FileSystem fs, int numThreads, boolean zipStoreOnly) {
+    this.fs = fs;
+    this.uploadPool = Executors.newFixedThreadPool(Math.max(1, numThreads),
+        new ThreadFactoryBuilder().setNameFormat("resource-uploader-%d").setDaemon(true).build());
+    this.zipArchiver = new ZipArchiver(Runtime.getRuntime().availableProcessors(), zipStoreOnly);
+  }
+
+  public <T> Future<T> submit(Callable<T> upload) {
+    return uploadPool.submit(upload);
+  }
+
+  /**
+   * Streams the local file {@code localFile} to {@code dst}, overwriting it if it exists.
+   */
+  public void uploadFile(Path localFile, Path dst) throws IOException {
+    FileSystem localFs = FileSystem.getLocal(fs.getConf());
+    long length = localFs.getFileStatus(localFile).getLen();
+    try (InputStream in = localFs.open(localFile);
+        OutputStream out = new ProgressOutputStream(fs.create(dst, true), localFile.toString(), length)) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+    }
+  }
+
+  /**
+   * Zips the local directory {@code dir} straight into {@code dst}, overwriting it if it exists.
+   */
+  public void uploadDirectory(java.nio.file.Path dir, Path dst) throws IOException {
+    try (OutputStream out = new ProgressOutputStream(fs.create(dst, true), dir.toString(), -1)) {
+      zipArchiver.archive(dir, out);
+    }
+  }
+
+  @Override
+  public void close() {
+    uploadPool.shutdownNow();
+    zipArchiver.close();
+  }
+
+  private static String formatBytes(double bytes) {
+    return String.format("%.1f MB", bytes / (1024 * 1024));
+  }
+
+  /**
+   * Counts the bytes written through it and periodically logs how far an upload has come.
+   */
+  private static class ProgressOutputStream extends FilterOutputStream {
+    private final String name;
+    private final long totalBytes;
+    private final long startTime = System.currentTimeMillis();
+    private long lastReportTime = startTime;
+    private long bytesWritten = 0;
+
+    ProgressOutputStream(OutputStream out, String name, long totalBytes) {
+      super(out);
+      this.name = name;
+      this.totalBytes = totalBytes;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      onWritten(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      onWritten(len);
+    }
+
+    private void onWritten(int len) {
+      bytesWritten += len;
+      long now = System.currentTimeMillis();
+      if (now - lastReportTime >= PROGRESS_INTERVAL_MS) {
+        lastReportTime = now;
+        String progress = totalBytes > 0
+            ? String.format(" of %s (%d%%)", formatBytes(totalBytes), bytesWritten * 100 / totalBytes) : "";
+        LOG.info("Uploading " + name + ": " + formatBytes(bytesWritten) + progress + ", "
+            + formatBytes(throughput(now)) + "/s");
+      }
+    }
+
+    private double throughput(long now) {
+      return bytesWritten * 1000.0 / Math.max(1, now - startTime);
+    }
+
+    @Override
+    public void close() throws IOException {
+      super.close();
+      long now = System.currentTimeMillis();
+      LOG.info("Uploaded " + name + ": " + formatBytes(bytesWritten) + " in " + (now - startTime) + " ms, "
+          + formatBytes(throughput(now)) + "/s");
+    }
+  }
+}
@@ -7,6 +7,7 @@ package com.linkedin.tony.util;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -14,10 +15,6 @@ import java.net.InetAddress;
 import java.net.SocketException;
 import java.net.URL;
 import java.net.UnknownHostException;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -27,12 +24,13 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
@@ -72,17 +70,19 @@ import com.linkedin.tony.horovod.HorovodClusterSpec;
 import com.linkedin.tony.rpc.TaskInfo;
 import com.linkedin.tony.tensorflow.JobContainerRequest;
 
-import net.lingala.zip4j.core.ZipFile;
-import net.lingala.zip4j.exception.ZipException;
-
 import static com.linkedin.tony.Constants.SIDECAR_TB_ROLE_NAME;
 import static com.linkedin.tony.Constants.EVALUATOR_JOB_NAME;
 import static com.linkedin.tony.Constants.JOBS_SUFFIX;
 import static com.linkedin.tony.Constants.LOGS_SUFFIX;
+import static com.linkedin.tony.Constants.TIMELINE_SUFFIX;
 
 public class Utils {
   private static final Log LOG = LogFactory.getLog(Utils.class);
 
+  private static final int TASKS_PER_RPC_HANDLER = 50;
+  private static final int MIN_RPC_HANDLERS = 4;
+  private static final int MAX_RPC_HANDLERS = 64;
+
   private static final String WORKER_LOG_URL_TEMPLATE = "http://%s/node/containerlogs/%s/%s";
 
   /**
@@ -130,17 +130,17 @@ public class Utils {
     Preconditions.checkArgument(interval >= 0, "Interval must be non-negative.");
     Preconditions.checkArgument(timeout >= 0, "Timeout must be non-negative.");
 
-    int remainingTime = timeout;
+    // Counts the time the calls take too, so slow calls don't stretch the timeout.
+    long deadlineMs = System.currentTimeMillis() + timeout * 1000L;
     T ret;
     try {
-      while (timeout == 0 || remainingTime >= 0) {
+      while (timeout == 0 || System.currentTimeMillis() <= deadlineMs) {
         ret = func.call();
         if (ret != null) {
           LOG.info("pollTillNonNull function finished within " + timeout + " seconds");
           return ret;
         }
-        Thread.sleep(interval * 1000);
-        remainingTime -= interval;
+        Thread.sleep(interval * 1000L);
       }
     } catch (Exception e) {
       LOG.error("pollTillNonNull function threw exception", e);
@@ -163,24 +163,27 @@ public class Utils {
   }
 
   public static void zipFolder(java.nio.file.Path sourceFolderPath, java.nio.file.Path zipPath) throws IOException {
-    ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zipPath.toFile()));
-    Files.walkFileTree(sourceFolderPath, new SimpleFileVisitor<java.nio.file.Path>() {
-      public FileVisitResult visitFile(java.nio.file.Path file, BasicFileAttributes attrs) throws IOException {
-        zos.putNextEntry(new ZipEntry(sourceFolderPath.relativize(file).toString()));
-        Files.copy(file, zos);
-        zos.closeEntry();
-        return FileVisitResult.CONTINUE;
-      }
-    });
-    zos.close();
+    try (OutputStream out = new FileOutputStream(zipPath.toFile())) {
+      zipFolder(sourceFolderPath, out);
+    }
+  }
+
+  /**
+   * Writes a zip archive of {@code sourceFolderPath} to {@code out}. The archive is finished, but {@code out} is left
+   * open so callers can stream it to any destination, e.g. a file on HDFS. Entries are compressed in parallel and
+   * the output is reproducible, see {@link ZipArchiver}.
+   */
+  public static void zipFolder(java.nio.file.Path sourceFolderPath, OutputStream out) throws IOException {
+    try (ZipArchiver archiver = new ZipArchiver(Runtime.getRuntime().availableProcessors(), false)) {
+      archiver.archive(sourceFolderPath, out);
+    }
   }
 
   public static void unzipArchive(String src, String dst) {
     LOG.info("Unzipping " + src + " to destination " + dst);
-    try {
-      ZipFile zipFile = new ZipFile(src);
-      zipFile.extractAll(dst);
-    } catch (ZipException e) {
+    try (ZipExtractor extractor = new ZipExtractor(Runtime.getRuntime().availableProcessors())) {
+      extractor.extract(src, dst);
+    } catch (IOException e) {
       LOG.fatal("Failed to unzip " + src, e);
     }
   }
@@ -459,6 +462,31 @@ public class Utils {
         .sum();
   }
 
+  /**
+   * Returns how many handler threads an AM RPC server should run: the value of {@code handlerCountKey} if it's set,
+   * otherwise one for every {@value #TASKS_PER_RPC_HANDLER} tasks, so that registration storms of large jobs don't
+   * queue behind a few handlers.
+   */
+  public static int getRpcHandlerCount(Configuration tonyConf, String handlerCountKey) {
+    int handlerCount = tonyConf.getInt(handlerCountKey, TonyConfigurationKeys.DEFAULT_AM_RPC_HANDLER_COUNT);
+    if (handlerCount > 0) {
+      return handlerCount;
+    }
+    int numTasks = getNumTotalTasks(tonyConf);
+    return Math.max(MIN_RPC_HANDLERS,
+        Math.min(MAX_RPC_HANDLERS, (numTasks + TASKS_PER_RPC_HANDLER - 1) / TASKS_PER_RPC_HANDLER));
+  }
+
+  /**
+   * Makes the RPC server on {@code port} queue calls in a FairCallQueue, which serves each user's calls in turn.
+   */
+  public static void enableFairCallQueue(Configuration conf, int port) {
+    String prefix = "ipc." + port + ".";
+    conf.set(prefix + "callqueue.impl", "org.apache.hadoop.ipc.FairCallQueue");
+    // Needed for the calls to be prioritized by user on Hadoop 2.8 and later; ignored by earlier versions.
+    conf.set(prefix + "scheduler.impl", "org.apache.hadoop.ipc.DecayRpcScheduler");
+  }
+
   /**
    * Extracts TensorFlow job name from configuration key of the form "tony.*.instances".
    * @param confKey Name of the configuration key
@@ -545,9 +573,18 @@ public class Utils {
    * @param fs  {@link FileSystem} used to list the resources
    */
   public static void addResources(String[] resources, Map<String, LocalResource> resourcesMap, FileSystem fs) {
+    addResources(resources, resourcesMap, fs, null);
+  }
+
+  /**
+   * Same as {@link #addResources(String[], Map, FileSystem)}, but resources inside the client's resource cache are
+   * localized with the visibility configured in {@code tonyConf}.
+   */
+  public static void addResources(String[] resources, Map<String, LocalResource> resourcesMap, FileSystem fs,
+      Configuration tonyConf) {
     if (null != resources) {
       for (String dir : resources) {
-        Utils.addResource(dir, resourcesMap, fs);
+        Utils.addResource(dir, resourcesMap, fs, tonyConf);
       }
     }
   }
@@ -560,6 +597,15 @@ public class Utils {
    * @param fs the filesystem instance used to read the {@code path}.
    */
   public static void addResource(String path, Map<String, LocalResource> resourcesMap, FileSystem fs) {
+    addResource(path, resourcesMap, fs, null);
+  }
+
+  /**
+   * Same as {@link #addResource(String, Map, FileSystem)}, but files inside the client's resource cache are localized
+   * with the visibility configured in {@code tonyConf}.
+   */
+  public static void addResource(String path, Map<String, LocalResource> resourcesMap, FileSystem fs,
+      Configuration tonyConf) {
     try {
       if (path != null) {
         // Check the format of the path, if the path is of path#archive, we set resource type as ARCHIVE
@@ -572,10 +618,11 @@ public class Utils {
             if (fileStatus.isDirectory()) {
               continue;
             }
-            addResource(fileStatus.getPath().toString(), resourcesMap, fs);
+            addResource(fileStatus.getPath().toString(), resourcesMap, fs, tonyConf);
           }
         } else {
-          resourcesMap.put(localizableResource.getLocalizedFileName(), localizableResource.toLocalResource());
+          resourcesMap.put(localizableResource.getLocalizedFileName(), localizableResource.toLocalResource(
+              ResourceCache.getVisibility(localizableResource.getSourceFilePath(), tonyConf)));
         }
       }
     } catch (IOException | ParseException exception) {
@@ -747,19 +794,86 @@ public class Utils {
     }
   }
 
-  public static void extractResources(String appId) {
+  public static void extractResources(String appId, Configuration tonyConf) {
+    try {
+      extractResourcesAsync(appId, tonyConf).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOG.fatal("Interrupted while unpacking resources", e);
+    } catch (ExecutionException e) {
+      LOG.fatal("Failed to unpack resources", e.getCause());
+    }
+  }
+
+  /**
+   * Starts unpacking the src zip and the Python virtual environment in the background. Both archives are extracted
+   * at the same time and share one pool of threads, so the caller can go on with other setup work and only wait on
+   * the returned future once it needs the files. If {@link VenvCache} is enabled in {@code tonyConf}, the venv is
+   * linked to a tree shared with the other containers on this host instead.
+   */
+  public static CompletableFuture<Void> extractResourcesAsync(String appId, Configuration tonyConf) {
+    ZipExtractor extractor = new ZipExtractor(Runtime.getRuntime().availableProcessors());
+    // Each extraction is started and fails on its own, so that a bad src zip does not keep the venv from unpacking.
+    CompletableFuture<Void> src = extractSrcAsync(appId, extractor).whenComplete((unused, failure) -> {
+      if (failure != null) {
+        LOG.error("Failed to unpack src directory", failure);
+      }
+    });
+    CompletableFuture<Void> venv = extractVenvAsync(tonyConf, extractor).whenComplete((unused, failure) -> {
+      if (failure != null) {
+        LOG.error("Failed to unpack Python virtual environment", failure);
+      }
+    });
+    return CompletableFuture.allOf(src, venv).whenComplete((unused, failure) -> extractor.close());
+  }
+
+  private static CompletableFuture<Void> extractSrcAsync(String appId, ZipExtractor extractor) {
     String tonySrcZipName = getTonySrcZipName(appId);
-    if (new File(tonySrcZipName).exists()) {
-      LOG.info("Unpacking src directory..");
-      Utils.unzipArchive(tonySrcZipName, "./");
+    if (!new File(tonySrcZipName).exists()) {
+      return CompletableFuture.completedFuture(null);
     }
+    LOG.info("Unpacking src directory..");
+    try {
+      return extractor.extractAsync(tonySrcZipName, "./");
+    } catch (IOException e) {
+      return failedFuture(e);
+    }
+  }
+
+  private static CompletableFuture<Void> extractVenvAsync(Configuration tonyConf, ZipExtractor extractor) {
     File venvZip = new File(Constants.PYTHON_VENV_ZIP);
-    if (venvZip.exists() && venvZip.isFile()) {
-      LOG.info("Unpacking Python virtual environment.. ");
-      Utils.unzipArchive(Constants.PYTHON_VENV_ZIP, Constants.PYTHON_VENV_DIR);
-    } else {
+    if (!venvZip.exists() || !venvZip.isFile()) {
       LOG.info("No virtual environment uploaded.");
+      return CompletableFuture.completedFuture(null);
+    }
+    LOG.info("Unpacking Python virtual environment.. ");
+    if (!VenvCache.isEnabled(tonyConf)) {
+      try {
+        return extractor.extractAsync(Constants.PYTHON_VENV_ZIP, Constants.PYTHON_VENV_DIR);
+      } catch (IOException e) {
+        return failedFuture(e);
+      }
     }
+    VenvCache venvCache = new VenvCache(tonyConf);
+    // Waiting for another container to populate the cache blocks, so it gets its own thread rather than
+    // one of the extractor's.
+    return CompletableFuture.runAsync(() -> {
+      try {
+        venvCache.extract(Constants.PYTHON_VENV_ZIP, Constants.PYTHON_VENV_DIR, extractor);
+      } catch (IOException e) {
+        throw new CompletionException(e);
+      }
+    }, runnable -> {
+      Thread thread = new Thread(runnable, "venv-cache");
+      thread.setDaemon(true);
+      thread.start();
+    });
+  }
+
+  private static CompletableFuture<Void> failedFuture(Throwable failure) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    future.completeExceptionally(failure);
+    return future;
   }
 
   /**
@@ -773,6 +887,7 @@ public class Utils {
     if (Objects.nonNull(jobId)) {
       titleAndLinks.put("Logs", "/" + LOGS_SUFFIX + "/" + jobId);
       titleAndLinks.put("Events", "/" + JOBS_SUFFIX + "/" + jobId);
+      titleAndLinks.put("Timeline", "/" + TIMELINE_SUFFIX + "/" + jobId);
     }
     return titleAndLinks;
   }
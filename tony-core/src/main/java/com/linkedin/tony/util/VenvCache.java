@@ -0,0 +1,225 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.util;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.linkedin.tony.TonyConfigurationKeys;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+
+
+/**
+ * Node-local cache of extracted Python virtual environments, shared by all containers of a user on a host.
+ *
+ * Entries are keyed by a checksum of the archive, so containers of the same job, and later jobs shipping the same
+ * venv, extract it only once per host. The first container to need an entry extracts it into a temporary directory
+ * while holding a file lock and then atomically renames it into place; containers waiting on the lock find the
+ * finished entry once they get it. Every container links its venv directory to the cached tree.
+ *
+ * Containers run whatever a cached tree contains, so the cache is only used if no other user can have placed or
+ * replaced anything in it: the per-user directory must be owned by the user and not be writable by group or others,
+ * and so must the shared root, unless it's owned by root with the sticky bit set, like /tmp. Directories TonY creates
+ * get mode 0700. Otherwise each container extracts its venv into its own directory.
+ *
+ * Cached trees are shared, so the task must not modify its venv (e.g. pip install into it) when the cache is
+ * enabled. Entries are not evicted by TonY; their modification time is refreshed on every use so that a periodic
+ * cleaner can remove stale ones.
+ */
+public class VenvCache {
+  private static final Log LOG = LogFactory.getLog(VenvCache.class);
+
+  private static final int STICKY_BIT = 01000;
+  private static final FileAttribute<Set<PosixFilePermission>> PRIVATE_DIR =
+      PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------"));
+
+  private final Path sharedRoot;
+  private final Path cacheRoot;
+  private final String user;
+
+  public VenvCache(Configuration tonyConf) {
+    this(Paths.get(tonyConf.get(TonyConfigurationKeys.TASK_VENV_CACHE_LOCATION,
+        TonyConfigurationKeys.DEFAULT_TASK_VENV_CACHE_LOCATION)), System.getProperty("user.name"));
+  }
+
+  @VisibleForTesting
+  VenvCache(Path sharedRoot, String user) {
+    this.sharedRoot = sharedRoot.toAbsolutePath();
+    this.cacheRoot = this.sharedRoot.resolve(user);
+    this.user = user;
+  }
+
+  public static boolean isEnabled(Configuration tonyConf) {
+    return tonyConf != null && tonyConf.getBoolean(TonyConfigurationKeys.TASK_VENV_CACHE_ENABLED,
+        TonyConfigurationKeys.DEFAULT_TASK_VENV_CACHE_ENABLED);
+  }
+
+  /**
+   * Makes the contents of {@code venvZip} available at {@code venvDir} by linking it to the cached tree, extracting
+   * the archive into the cache first if no other container has done so yet. If the cache can't be used, the archive
+   * is extracted straight into {@code venvDir}.
+   */
+  public void extract(String venvZip, String venvDir, ZipExtractor extractor) throws IOException {
+    Path linkPath = Paths.get(venvDir);
+    try {
+      Path cached = getOrExtract(venvZip, extractor);
+      Files.createSymbolicLink(linkPath, cached);
+      LOG.info("Linked " + venvDir + " to cached virtual environment " + cached);
+    } catch (IOException e) {
+      LOG.warn("Failed to use the virtual environment cache in " + cacheRoot + ", extracting " + venvZip
+          + " to " + venvDir + " instead", e);
+      extractor.extract(venvZip, venvDir);
+    }
+  }
+
+  @VisibleForTesting
+  Path getOrExtract(String venvZip, ZipExtractor extractor) throws IOException {
+    checkCacheDirs();
+    String checksum = checksum(venvZip);
+    Path entry = cacheRoot.resolve(checksum);
+    if (Files.isDirectory(entry)) {
+      LOG.info("Found cached virtual environment " + entry);
+      touch(entry);
+      return entry;
+    }
+
+    long startTime = System.currentTimeMillis();
+    try (FileChannel lockChannel = FileChannel.open(cacheRoot.resolve(checksum + ".lock"),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock ignored = lockChannel.lock()) {
+      if (Files.isDirectory(entry)) {
+        LOG.info("Virtual environment " + entry + " was extracted by another container while waiting "
+            + (System.currentTimeMillis() - startTime) + " ms for it");
+        touch(entry);
+        return entry;
+      }
+      Path tmp = cacheRoot.resolve(checksum + "." + UUID.randomUUID() + ".tmp");
+      try {
+        extractor.extract(venvZip, tmp.toString());
+        Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        if (Files.exists(tmp)) {
+          FileUtils.deleteQuietly(tmp.toFile());
+        }
+      }
+      LOG.info("Extracted " + venvZip + " into cache entry " + entry);
+      return entry;
+    }
+  }
+
+  /**
+   * Creates the shared root and the per-user directory if needed and checks that no other user can write to them.
+   * @throws IOException if the cache must not be used
+   */
+  private void checkCacheDirs() throws IOException {
+    UserPrincipal currentUser = sharedRoot.getFileSystem().getUserPrincipalLookupService()
+        .lookupPrincipalByName(user);
+    if (sharedRoot.getParent() != null) {
+      Files.createDirectories(sharedRoot.getParent());
+    }
+    createPrivateDir(sharedRoot);
+    checkDir(sharedRoot, currentUser, true);
+    createPrivateDir(cacheRoot);
+    checkDir(cacheRoot, currentUser, false);
+  }
+
+  private static void createPrivateDir(Path dir) throws IOException {
+    try {
+      Files.createDirectory(dir, PRIVATE_DIR);
+    } catch (FileAlreadyExistsException e) {
+      // Whoever created it, it's checked next.
+    }
+  }
+
+  /**
+   * @param shared whether {@code dir} is the root shared by all users, which may also be owned by root and be
+   *               writable by others if its sticky bit is set, so that users can't replace each other's directories
+   */
+  private static void checkDir(Path dir, UserPrincipal currentUser, boolean shared) throws IOException {
+    PosixFileAttributes attrs = Files.readAttributes(dir, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    if (!attrs.isDirectory()) {
+      throw new IOException(dir + " isn't a directory");
+    }
+    String owner = attrs.owner().getName();
+    if (!attrs.owner().equals(currentUser) && !(shared && "root".equals(owner))) {
+      throw new IOException(dir + " is owned by " + owner + " rather than " + currentUser.getName());
+    }
+    Set<PosixFilePermission> permissions = attrs.permissions();
+    boolean writableByOthers = permissions.contains(PosixFilePermission.GROUP_WRITE)
+        || permissions.contains(PosixFilePermission.OTHERS_WRITE);
+    if (writableByOthers && !(shared && isSticky(dir))) {
+      throw new IOException(dir + " is writable by other users: " + PosixFilePermissions.toString(permissions));
+    }
+  }
+
+  private static boolean isSticky(Path dir) {
+    try {
+      return ((Integer) Files.getAttribute(dir, "unix:mode", LinkOption.NOFOLLOW_LINKS) & STICKY_BIT) != 0;
+    } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  private static void touch(Path entry) {
+    try {
+      Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (IOException e) {
+      LOG.debug("Failed to update modification time of " + entry, e);
+    }
+  }
+
+  /**
+   * Computes a checksum that identifies the archive's content from its central directory, i.e. the name, size and
+   * CRC-32 of every entry, without reading the (possibly multi-GB) entry data.
+   */
+  @VisibleForTesting
+  static String checksum(String zip) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+    List<String> entries = new ArrayList<>();
+    try (ZipFile zipFile = new ZipFile(zip)) {
+      for (ZipEntry entry : Collections.list(zipFile.entries())) {
+        entries.add(entry.getName() + '\0' + entry.getSize() + '\0' + entry.getCrc());
+      }
+    }
+    Collections.sort(entries);
+    for (String entry : entries) {
+      digest.update(entry.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) '\n');
+    }
+    return ResourceCache.toHex(digest.digest());
+  }
+}
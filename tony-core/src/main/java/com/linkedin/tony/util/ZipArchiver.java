@@ -0,0 +1,532 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.util;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+
+/**
+ * Writes zip archives of local directories, deflating entries in parallel.
+ *
+ * Files are split into chunks that are deflated independently on a thread pool. Each chunk is primed with the last
+ * 32 KB of the chunk before it, so the compression ratio stays close to a single-threaded deflate, and the chunks are
+ * written back in order as one deflate stream. Content that is already compressed (wheels, jars, archives, ...) is
+ * stored as is, and a store-only mode skips compression altogether.
+ *
+ * Archives are reproducible: entries are sorted by path and carry a fixed timestamp, and the chunking does not depend
+ * on the number of threads, so the same directory always produces the same bytes.
+ */
+public class ZipArchiver implements AutoCloseable {
+  @VisibleForTesting
+  static final int CHUNK_SIZE = 1024 * 1024;
+  private static final int DICTIONARY_SIZE = 32 * 1024;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int TASKS_PER_THREAD = 4;
+
+  private static final Set<String> COMPRESSED_EXTENSIONS = ImmutableSet.of(
+      "whl", "egg", "zip", "jar", "pex", "gz", "tgz", "bz2", "xz", "zst", "7z", "npz", "png", "jpg", "jpeg", "gif");
+
+  // 1980-01-01 00:00:00, the earliest time a zip entry can represent.
+  private static final int DOS_TIME = 0;
+  private static final int DOS_DATE = (1 << 5) | 1;
+
+  private static final int LOCAL_HEADER_SIG = 0x04034b50;
+  private static final int DATA_DESCRIPTOR_SIG = 0x08074b50;
+  private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+  private static final int END_SIG = 0x06054b50;
+  private static final int ZIP64_END_SIG = 0x06064b50;
+  private static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+  private static final int ZIP64_EXTRA_ID = 0x0001;
+  private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+  private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+  // Deflate may expand incompressible data slightly, so sizes close to the limit already use zip64.
+  private static final long ZIP64_THRESHOLD = ZIP64_MAGIC - (ZIP64_MAGIC >> 8);
+  private static final int VERSION_DEFAULT = 20;
+  private static final int VERSION_ZIP64 = 45;
+  private static final int FLAG_DATA_DESCRIPTOR = 0x08;
+  private static final int FLAG_UTF8 = 0x800;
+
+  private final ExecutorService compressionPool;
+  private final int maxTasksInFlight;
+  private final boolean storeOnly;
+
+  /**
+   * @param numThreads threads used to compress entries
+   * @param storeOnly if true, every entry is stored without compression
+   */
+  public ZipArchiver(int numThreads, boolean storeOnly) {
+    int threads = Math.max(1, numThreads);
+    this.compressionPool = Executors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder().setNameFormat("zip-archiver-%d").setDaemon(true).build());
+    this.maxTasksInFlight = threads * TASKS_PER_THREAD;
+    this.storeOnly = storeOnly;
+  }
+
+  /**
+   * Writes an archive of the regular files under {@code sourceDir} to {@code out}. The archive is finished and
+   * flushed, but {@code out} is not closed.
+   */
+  public void archive(Path sourceDir, OutputStream out) throws IOException {
+    List<Entry> entries;
+    try (Stream<Path> walk = Files.walk(sourceDir)) {
+      entries = walk.filter(Files::isRegularFile)
+          .map(file -> new Entry(file, sourceDir.relativize(file).toString().replace(File.separatorChar, '/')))
+          .collect(Collectors.toList());
+    }
+    Collections.sort(entries, (e1, e2) -> e1.name.compareTo(e2.name));
+    for (Entry entry : entries) {
+      entry.size = Files.size(entry.file);
+      entry.method = storeOnly || isCompressed(entry.name) ? ZipEntry.STORED : ZipEntry.DEFLATED;
+    }
+
+    ZipOutput zipOut = new ZipOutput(new BufferedOutputStream(out, BUFFER_SIZE));
+    Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+    Iterator<Callable<Chunk>> tasks = new TaskIterator(entries);
+    try {
+      for (Entry entry : entries) {
+        entry.offset = zipOut.position;
+        if (entry.method == ZipEntry.STORED) {
+          entry.crc = nextChunk(tasks, inFlight).crc;
+          entry.compressedSize = entry.size;
+          writeLocalHeader(zipOut, entry);
+          try (InputStream in = Files.newInputStream(entry.file)) {
+            long copied = zipOut.copy(in);
+            if (copied != entry.size) {
+              throw new IOException(entry.file + " changed while it was being archived.");
+            }
+          }
+        } else {
+          writeLocalHeader(zipOut, entry);
+          long crc = 0;
+          long compressedSize = 0;
+          for (int i = 0; i < numChunks(entry.size); i++) {
+            Chunk chunk = nextChunk(tasks, inFlight);
+            zipOut.write(chunk.data, 0, chunk.data.length);
+            crc = crc32Combine(crc, chunk.crc, chunk.rawLength);
+            compressedSize += chunk.data.length;
+          }
+          entry.crc = crc;
+          entry.compressedSize = compressedSize;
+          writeDataDescriptor(zipOut, entry);
+        }
+      }
+      writeCentralDirectory(zipOut, entries);
+      zipOut.flush();
+    } finally {
+      for (Future<Chunk> future : inFlight) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    compressionPool.shutdownNow();
+  }
+
+  private Chunk nextChunk(Iterator<Callable<Chunk>> tasks, Deque<Future<Chunk>> inFlight) throws IOException {
+    while (inFlight.size() < maxTasksInFlight && tasks.hasNext()) {
+      inFlight.add(compressionPool.submit(tasks.next()));
+    }
+    try {
+      return inFlight.poll().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while compressing archive entries.", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Failed to compress archive entry.", e.getCause());
+    }
+  }
+
+  private static boolean isCompressed(String name) {
+    int dot = name.lastIndexOf('.');
+    return dot >= 0 && COMPRESSED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+  }
+
+  private static int numChunks(long size) {
+    return (int) Math.max(1, (size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+  }
+
+  /**
+   * Yields, in write order, one checksum task per stored entry and one task per chunk of each deflated entry.
+   */
+  private static class TaskIterator implements Iterator<Callable<Chunk>> {
+    private final List<Entry> entries;
+    private int entryIndex = 0;
+    private int chunkIndex = 0;
+
+    TaskIterator(List<Entry> entries) {
+      this.entries = entries;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return entryIndex < entries.size();
+    }
+
+    @Override
+    public Callable<Chunk> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Entry entry = entries.get(entryIndex);
+      if (entry.method == ZipEntry.STORED) {
+        entryIndex++;
+        return () -> checksum(entry);
+      }
+      int index = chunkIndex++;
+      if (chunkIndex == numChunks(entry.size)) {
+        entryIndex++;
+        chunkIndex = 0;
+      }
+      return () -> deflateChunk(entry, index);
+    }
+  }
+
+  private static Chunk checksum(Entry entry) throws IOException {
+    CRC32 crc = new CRC32();
+    byte[] buffer = new byte[BUFFER_SIZE];
+    try (InputStream in = Files.newInputStream(entry.file)) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        crc.update(buffer, 0, read);
+      }
+    }
+    return new Chunk(null, crc.getValue(), entry.size);
+  }
+
+  private static Chunk deflateChunk(Entry entry, int index) throws IOException {
+    long start = (long) index * CHUNK_SIZE;
+    int rawLength = (int) Math.min(CHUNK_SIZE, entry.size - start);
+    int dictionaryLength = (int) Math.min(DICTIONARY_SIZE, start);
+    byte[] raw = new byte[dictionaryLength + rawLength];
+    try (FileChannel channel = FileChannel.open(entry.file, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.wrap(raw);
+      long position = start - dictionaryLength;
+      while (buffer.hasRemaining()) {
+        int read = channel.read(buffer, position);
+        if (read < 0) {
+          throw new IOException(entry.file + " changed while it was being archived.");
+        }
+        position += read;
+      }
+    }
+
+    CRC32 crc = new CRC32();
+    crc.update(raw, dictionaryLength, rawLength);
+
+    boolean last = start + rawLength >= entry.size;
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    try {
+      if (dictionaryLength > 0) {
+        deflater.setDictionary(raw, 0, dictionaryLength);
+      }
+      deflater.setInput(raw, dictionaryLength, rawLength);
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream(rawLength / 2 + 64);
+      byte[] buffer = new byte[BUFFER_SIZE];
+      if (last) {
+        deflater.finish();
+        while (!deflater.finished()) {
+          int length = deflater.deflate(buffer);
+          compressed.write(buffer, 0, length);
+        }
+      } else {
+        // A sync flush ends the chunk on a byte boundary without ending the deflate stream.
+        int length;
+        do {
+          length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+          compressed.write(buffer, 0, length);
+        } while (length == buffer.length);
+      }
+      return new Chunk(compressed.toByteArray(), crc.getValue(), rawLength);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Returns the CRC-32 of two concatenated blocks of data from the CRCs of each block, like zlib's crc32_combine.
+   */
+  @VisibleForTesting
+  static long crc32Combine(long crc1, long crc2, long length2) {
+    if (length2 <= 0) {
+      return crc1;
+    }
+    long[] even = new long[32];
+    long[] odd = new long[32];
+    // Operator for a single zero bit.
+    odd[0] = 0xEDB88320L;
+    long row = 1;
+    for (int n = 1; n < 32; n++) {
+      odd[n] = row;
+      row <<= 1;
+    }
+    gf2MatrixSquare(even, odd);
+    gf2MatrixSquare(odd, even);
+
+    // Apply length2 zero bytes to crc1, squaring the operator for each bit of length2.
+    long len = length2;
+    do {
+      gf2MatrixSquare(even, odd);
+      if ((len & 1) != 0) {
+        crc1 = gf2MatrixTimes(even, crc1);
+      }
+      len >>= 1;
+      if (len == 0) {
+        break;
+      }
+      gf2MatrixSquare(odd, even);
+      if ((len & 1) != 0) {
+        crc1 = gf2MatrixTimes(odd, crc1);
+      }
+      len >>= 1;
+    } while (len != 0);
+    return crc1 ^ crc2;
+  }
+
+  private static long gf2MatrixTimes(long[] matrix, long vector) {
+    long sum = 0;
+    for (int i = 0; vector != 0; i++, vector >>>= 1) {
+      if ((vector & 1) != 0) {
+        sum ^= matrix[i];
+      }
+    }
+    return sum;
+  }
+
+  private static void gf2MatrixSquare(long[] square, long[] matrix) {
+    for (int n = 0; n < 32; n++) {
+      square[n] = gf2MatrixTimes(matrix, matrix[n]);
+    }
+  }
+
+  private static void writeLocalHeader(ZipOutput out, Entry entry) throws IOException {
+    boolean descriptor = entry.method == ZipEntry.DEFLATED;
+    boolean zip64 = entry.size >= ZIP64_THRESHOLD;
+    out.writeInt(LOCAL_HEADER_SIG);
+    out.writeShort(zip64 ? VERSION_ZIP64 : VERSION_DEFAULT);
+    out.writeShort(flags(entry));
+    out.writeShort(entry.method);
+    out.writeShort(DOS_TIME);
+    out.writeShort(DOS_DATE);
+    out.writeInt(descriptor ? 0 : entry.crc);
+    if (zip64) {
+      out.writeInt(ZIP64_MAGIC);
+      out.writeInt(ZIP64_MAGIC);
+    } else {
+      out.writeInt(descriptor ? 0 : entry.compressedSize);
+      out.writeInt(descriptor ? 0 : entry.size);
+    }
+    out.writeShort(entry.nameBytes.length);
+    out.writeShort(zip64 ? 20 : 0);
+    out.write(entry.nameBytes, 0, entry.nameBytes.length);
+    if (zip64) {
+      out.writeShort(ZIP64_EXTRA_ID);
+      out.writeShort(16);
+      out.writeLong(descriptor ? 0 : entry.size);
+      out.writeLong(descriptor ? 0 : entry.compressedSize);
+    }
+  }
+
+  private static void writeDataDescriptor(ZipOutput out, Entry entry) throws IOException {
+    out.writeInt(DATA_DESCRIPTOR_SIG);
+    out.writeInt(entry.crc);
+    if (entry.size >= ZIP64_THRESHOLD) {
+      out.writeLong(entry.compressedSize);
+      out.writeLong(entry.size);
+    } else {
+      out.writeInt(entry.compressedSize);
+      out.writeInt(entry.size);
+    }
+  }
+
+  private static void writeCentralDirectory(ZipOutput out, List<Entry> entries) throws IOException {
+    long start = out.position;
+    for (Entry entry : entries) {
+      boolean zip64Sizes = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+      boolean zip64Offset = entry.offset >= ZIP64_MAGIC;
+      int extraDataLength = (zip64Sizes ? 16 : 0) + (zip64Offset ? 8 : 0);
+      boolean zip64 = extraDataLength > 0 || entry.size >= ZIP64_THRESHOLD;
+      out.writeInt(CENTRAL_HEADER_SIG);
+      out.writeShort(zip64 ? VERSION_ZIP64 : VERSION_DEFAULT);
+      out.writeShort(zip64 ? VERSION_ZIP64 : VERSION_DEFAULT);
+      out.writeShort(flags(entry));
+      out.writeShort(entry.method);
+      out.writeShort(DOS_TIME);
+      out.writeShort(DOS_DATE);
+      out.writeInt(entry.crc);
+      out.writeInt(zip64Sizes ? ZIP64_MAGIC : entry.compressedSize);
+      out.writeInt(zip64Sizes ? ZIP64_MAGIC : entry.size);
+      out.writeShort(entry.nameBytes.length);
+      out.writeShort(extraDataLength > 0 ? extraDataLength + 4 : 0);
+      out.writeShort(0);
+      out.writeShort(0);
+      out.writeShort(0);
+      out.writeInt(0);
+      out.writeInt(zip64Offset ? ZIP64_MAGIC : entry.offset);
+      out.write(entry.nameBytes, 0, entry.nameBytes.length);
+      if (extraDataLength > 0) {
+        out.writeShort(ZIP64_EXTRA_ID);
+        out.writeShort(extraDataLength);
+        if (zip64Sizes) {
+          out.writeLong(entry.size);
+          out.writeLong(entry.compressedSize);
+        }
+        if (zip64Offset) {
+          out.writeLong(entry.offset);
+        }
+      }
+    }
+    long size = out.position - start;
+
+    if (entries.size() >= ZIP64_MAGIC_COUNT || start >= ZIP64_MAGIC || size >= ZIP64_MAGIC) {
+      long zip64EndOffset = out.position;
+      out.writeInt(ZIP64_END_SIG);
+      out.writeLong(44);
+      out.writeShort(VERSION_ZIP64);
+      out.writeShort(VERSION_ZIP64);
+      out.writeInt(0);
+      out.writeInt(0);
+      out.writeLong(entries.size());
+      out.writeLong(entries.size());
+      out.writeLong(size);
+      out.writeLong(start);
+      out.writeInt(ZIP64_LOCATOR_SIG);
+      out.writeInt(0);
+      out.writeLong(zip64EndOffset);
+      out.writeInt(1);
+    }
+    out.writeInt(END_SIG);
+    out.writeShort(0);
+    out.writeShort(0);
+    out.writeShort(Math.min(entries.size(), ZIP64_MAGIC_COUNT));
+    out.writeShort(Math.min(entries.size(), ZIP64_MAGIC_COUNT));
+    out.writeInt(Math.min(size, ZIP64_MAGIC));
+    out.writeInt(Math.min(start, ZIP64_MAGIC));
+    out.writeShort(0);
+  }
+
+  private static int flags(Entry entry) {
+    return FLAG_UTF8 | (entry.method == ZipEntry.DEFLATED ? FLAG_DATA_DESCRIPTOR : 0);
+  }
+
+  private static class Entry {
+    private final Path file;
+    private final String name;
+    private final byte[] nameBytes;
+    private int method;
+    private long size;
+    private long compressedSize;
+    private long crc;
+    private long offset;
+
+    Entry(Path file, String name) {
+      this.file = file;
+      this.name = name;
+      this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  private static class Chunk {
+    private final byte[] data;
+    private final long crc;
+    private final long rawLength;
+
+    Chunk(byte[] data, long crc, long rawLength) {
+      this.data = data;
+      this.crc = crc;
+      this.rawLength = rawLength;
+    }
+  }
+
+  /**
+   * Little-endian writer that keeps track of the archive offset.
+   */
+  private static class ZipOutput {
+    private final OutputStream out;
+    private final byte[] scratch = new byte[8];
+    private long position = 0;
+
+    ZipOutput(OutputStream out) {
+      this.out = out;
+    }
+
+    void writeShort(int value) throws IOException {
+      scratch[0] = (byte) value;
+      scratch[1] = (byte) (value >>> 8);
+      write(scratch, 0, 2);
+    }
+
+    void writeInt(long value) throws IOException {
+      for (int i = 0; i < 4; i++) {
+        scratch[i] = (byte) (value >>> (8 * i));
+      }
+      write(scratch, 0, 4);
+    }
+
+    void writeLong(long value) throws IOException {
+      for (int i = 0; i < 8; i++) {
+        scratch[i] = (byte) (value >>> (8 * i));
+      }
+      write(scratch, 0, 8);
+    }
+
+    void write(byte[] bytes, int offset, int length) throws IOException {
+      out.write(bytes, offset, length);
+      position += length;
+    }
+
+    long copy(InputStream in) throws IOException {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      long copied = 0;
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        write(buffer, 0, read);
+        copied += read;
+      }
+      return copied;
+    }
+
+    void flush() throws IOException {
+      out.flush();
+    }
+  }
+}
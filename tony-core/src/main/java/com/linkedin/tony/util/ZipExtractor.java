@@ -0,0 +1,164 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * Extracts zip archives with their entries spread over a thread pool.
+ *
+ * The archive is opened once with random access, so every entry can be inflated independently of the others. The
+ * largest entries are started first, which keeps a single big file (e.g. a shared library in a virtual environment)
+ * from being the last thing left running. Several archives may be extracted at the same time on one extractor; they
+ * share its threads.
+ */
+public class ZipExtractor implements AutoCloseable {
+  private static final Log LOG = LogFactory.getLog(ZipExtractor.class);
+
+  private final ExecutorService extractionPool;
+
+  /**
+   * @param numThreads threads used to extract entries
+   */
+  public ZipExtractor(int numThreads) {
+    this.extractionPool = Executors.newFixedThreadPool(Math.max(1, numThreads),
+        new ThreadFactoryBuilder().setNameFormat("zip-extractor-%d").setDaemon(true).build());
+  }
+
+  /**
+   * Extracts {@code src} into {@code dst} and waits for it to finish. Existing files are overwritten.
+   */
+  public void extract(String src, String dst) throws IOException {
+    try {
+      extractAsync(src, dst).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while extracting " + src, e);
+    } catch (ExecutionException e) {
+      throw toIOException(src, e.getCause());
+    }
+  }
+
+  /**
+   * Starts extracting {@code src} into {@code dst}. The central directory is read and the directory tree is created
+   * on the calling thread; the entries are then written on the pool. The returned future completes once every entry
+   * has been written, or exceptionally with the first failure.
+   */
+  public CompletableFuture<Void> extractAsync(String src, String dst) throws IOException {
+    long startTime = System.currentTimeMillis();
+    Path dstDir = Paths.get(dst).toAbsolutePath().normalize();
+    ZipFile zipFile = new ZipFile(src);
+    List<CompletableFuture<Void>> writes = new ArrayList<>();
+    AtomicLong bytesWritten = new AtomicLong();
+    try {
+      List<ZipEntry> files = new ArrayList<>();
+      Set<Path> dirs = new HashSet<>();
+      Files.createDirectories(dstDir);
+      for (ZipEntry entry : Collections.list(zipFile.entries())) {
+        Path target = resolve(dstDir, entry.getName());
+        if (entry.isDirectory()) {
+          createDirectories(target, dirs);
+        } else {
+          createDirectories(target.getParent(), dirs);
+          files.add(entry);
+        }
+      }
+      // Entry sizes may be unknown (-1), those are treated as small.
+      files.sort((e1, e2) -> Long.compare(e2.getSize(), e1.getSize()));
+      for (ZipEntry entry : files) {
+        Path target = resolve(dstDir, entry.getName());
+        writes.add(CompletableFuture.runAsync(() -> {
+          try {
+            bytesWritten.addAndGet(writeEntry(zipFile, entry, target));
+          } catch (IOException e) {
+            throw new CompletionException(e);
+          }
+        }, extractionPool));
+      }
+    } catch (IOException | RuntimeException e) {
+      writes.forEach(write -> write.cancel(false));
+      zipFile.close();
+      throw e;
+    }
+
+    return CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).whenComplete((unused, failure) -> {
+      try {
+        zipFile.close();
+      } catch (IOException e) {
+        LOG.warn("Failed to close " + src, e);
+      }
+      if (failure == null) {
+        LOG.info("Extracted " + writes.size() + " files (" + bytesWritten.get() / 1024 + " KB) from " + src
+            + " to " + dst + " in " + (System.currentTimeMillis() - startTime) + " ms");
+      }
+    });
+  }
+
+  @Override
+  public void close() {
+    extractionPool.shutdownNow();
+  }
+
+  private static long writeEntry(ZipFile zipFile, ZipEntry entry, Path target) throws IOException {
+    long written;
+    try (InputStream in = zipFile.getInputStream(entry)) {
+      written = Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+    if (entry.getTime() != -1) {
+      Files.setLastModifiedTime(target, FileTime.fromMillis(entry.getTime()));
+    }
+    return written;
+  }
+
+  private static void createDirectories(Path dir, Set<Path> created) throws IOException {
+    if (created.add(dir)) {
+      Files.createDirectories(dir);
+    }
+  }
+
+  /**
+   * Resolves an entry name against the destination, rejecting names that would escape it (e.g. "../../.bashrc").
+   */
+  private static Path resolve(Path dstDir, String entryName) throws IOException {
+    Path target = dstDir.resolve(entryName).normalize();
+    if (!target.startsWith(dstDir)) {
+      throw new IOException("Zip entry " + entryName + " is outside of the target directory " + dstDir);
+    }
+    return target;
+  }
+
+  static IOException toIOException(String src, Throwable failure) {
+    if (failure instanceof CompletionException && failure.getCause() != null) {
+      failure = failure.getCause();
+    }
+    if (failure instanceof IOException) {
+      return (IOException) failure;
+    }
+    return new IOException("Failed to extract " + src, failure);
+  }
+}
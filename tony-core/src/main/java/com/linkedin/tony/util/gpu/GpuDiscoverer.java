@@ -54,6 +54,8 @@ public class GpuDiscoverer {
 
   // command should not run more than 10 sec.
   private static final int MAX_EXEC_TIMEOUT_MS = 10 * 1000;
+  // A sample older than this many sampling intervals is stale, e.g. because nvidia-smi hung.
+  private static final int MAX_SAMPLE_AGE_INTERVALS = 3;
   private static GpuDiscoverer instance;
 
   static {
@@ -65,6 +67,9 @@ public class GpuDiscoverer {
   private Map<String, String> environment = new HashMap<>();
   private GpuDeviceInformationParser parser = new GpuDeviceInformationParser();
 
+  private NvidiaSmiSampler sampler = null;
+  private long samplingIntervalMs;
+
   private int numOfErrorExecutionSinceLastSucceed = 0;
   GpuDeviceInformation lastDiscoveredGpuInformation = null;
 
@@ -104,6 +109,19 @@ public class GpuDiscoverer {
       throw new GpuInfoException(msg);
     }
 
+    if (sampler != null) {
+      GpuDeviceInformation info = sampler.getLatestSample(MAX_SAMPLE_AGE_INTERVALS * samplingIntervalMs);
+      if (info != null) {
+        numOfErrorExecutionSinceLastSucceed = 0;
+        lastDiscoveredGpuInformation = info;
+        return info;
+      }
+      if (!sampler.isRunning()) {
+        LOG.warn("nvidia-smi sampler is not running, falling back to " + pathOfGpuBinary + " -x -q");
+        stopSampling();
+      }
+    }
+
     String output;
     try {
       output = Shell.execCommand(environment,
@@ -189,6 +207,40 @@ public class GpuDiscoverer {
     return info;
   }
 
+  /**
+   * Starts sampling GPUs every {@code intervalMs} with a long-running nvidia-smi, which
+   * {@link #getGpuDeviceInformation()} then returns the latest sample of. Until the first sample arrives, or if the
+   * samples go stale or nvidia-smi exits, e.g. because it doesn't support query mode, it falls back to running
+   * nvidia-smi -x -q. This needs to be called after initialize.
+   */
+  public synchronized void startSampling(long intervalMs) {
+    if (conf == null || pathOfGpuBinary == null || sampler != null) {
+      return;
+    }
+    NvidiaSmiSampler newSampler = new NvidiaSmiSampler(pathOfGpuBinary, environment, intervalMs);
+    try {
+      newSampler.start();
+    } catch (IOException e) {
+      LOG.warn("Failed to start nvidia-smi sampler, falling back to " + pathOfGpuBinary + " -x -q", e);
+      return;
+    }
+    sampler = newSampler;
+    samplingIntervalMs = intervalMs;
+    Runtime.getRuntime().addShutdownHook(new Thread(newSampler::close));
+  }
+
+  public synchronized void stopSampling() {
+    if (sampler != null) {
+      sampler.close();
+      sampler = null;
+    }
+  }
+
+  @VisibleForTesting
+  synchronized boolean isSampling() {
+    return sampler != null;
+  }
+
   public int getNumOfErrorExecutionSinceLastSucceed() {
     return this.numOfErrorExecutionSinceLastSucceed;
   }
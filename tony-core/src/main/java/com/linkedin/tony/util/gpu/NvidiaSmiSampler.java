@@ -0,0 +1,242 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.util.gpu;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * Samples GPUs with a long-running nvidia-smi in query mode, which prints one CSV line per GPU every interval,
+ * instead of forking nvidia-smi -x -q and parsing its XML output on every refresh. A second one prints a line per
+ * process using a GPU.
+ *
+ * <p>BAR1 memory can't be queried this way, so samples have no main memory usage.
+ */
+public class NvidiaSmiSampler implements Closeable {
+  private static final Log LOG = LogFactory.getLog(NvidiaSmiSampler.class);
+  @VisibleForTesting
+  static final String QUERY_FIELDS = "index,uuid,name,utilization.gpu,memory.used,memory.free,temperature.gpu,"
+      + "power.draw";
+  private static final int NUM_FIELDS = QUERY_FIELDS.split(",").length;
+  @VisibleForTesting
+  static final String PROCESS_QUERY_FIELDS = "gpu_uuid,pid,used_memory";
+  private static final int NUM_PROCESS_FIELDS = PROCESS_QUERY_FIELDS.split(",").length;
+
+  private final String pathOfGpuBinary;
+  private final Map<String, String> environment;
+  private final long intervalMs;
+  // The latest reading of each GPU, keyed by index.
+  private final TreeMap<Integer, PerGpuDeviceInformation> latest = new TreeMap<>();
+  private long lastSampleNanos;
+  // The latest reading of each process, keyed by GPU UUID and pid. Nothing is printed for processes that have
+  // exited, so readings are dropped once they're older than the latest GPU readings may be.
+  private final Map<String, ProcessSample> latestProcesses = new HashMap<>();
+  private Process process;
+  private Process processQuery;
+  private volatile boolean running = false;
+
+  private static class ProcessSample {
+    private final String gpuUuid;
+    private final PerGpuProcessInfo info;
+    private final long sampleNanos = System.nanoTime();
+
+    ProcessSample(String gpuUuid, PerGpuProcessInfo info) {
+      this.gpuUuid = gpuUuid;
+      this.info = info;
+    }
+  }
+
+  public NvidiaSmiSampler(String pathOfGpuBinary, Map<String, String> environment, long intervalMs) {
+    this.pathOfGpuBinary = pathOfGpuBinary;
+    this.environment = environment;
+    this.intervalMs = intervalMs;
+  }
+
+  public synchronized void start() throws IOException {
+    process = startQuery("--query-gpu=" + QUERY_FIELDS);
+    running = true;
+    startReader(process, "nvidia-smi-sampler", this::addSample, () -> running = false);
+    try {
+      processQuery = startQuery("--query-compute-apps=" + PROCESS_QUERY_FIELDS);
+      startReader(processQuery, "nvidia-smi-process-sampler", this::addProcessSample, () -> { });
+    } catch (IOException e) {
+      LOG.warn("Failed to start sampling GPU processes", e);
+    }
+  }
+
+  private Process startQuery(String query) throws IOException {
+    ProcessBuilder builder = new ProcessBuilder(pathOfGpuBinary, query, "--format=csv,noheader,nounits", "-lms",
+        String.valueOf(intervalMs)).redirectError(new File("/dev/null"));
+    builder.environment().putAll(environment);
+    return builder.start();
+  }
+
+  private void startReader(Process query, String name, Consumer<String> lineHandler, Runnable onExit) {
+    Thread reader = new Thread(() -> {
+      try (BufferedReader in = new BufferedReader(
+          new InputStreamReader(query.getInputStream(), StandardCharsets.UTF_8))) {
+        String line;
+        while ((line = in.readLine()) != null) {
+          lineHandler.accept(line);
+        }
+      } catch (IOException e) {
+        LOG.debug("Failed to read from nvidia-smi", e);
+      } finally {
+        onExit.run();
+      }
+      LOG.info(name + " exited");
+    }, name);
+    reader.setDaemon(true);
+    reader.start();
+  }
+
+  private void addSample(String line) {
+    PerGpuDeviceInformation gpu = parseLine(line);
+    if (gpu == null) {
+      LOG.debug("Skipping unexpected nvidia-smi output: " + line);
+      return;
+    }
+    synchronized (this) {
+      latest.put(gpu.getMinorNumber(), gpu);
+      lastSampleNanos = System.nanoTime();
+    }
+  }
+
+  private void addProcessSample(String line) {
+    String[] fields = splitLine(line, NUM_PROCESS_FIELDS);
+    if (fields == null) {
+      LOG.debug("Skipping unexpected nvidia-smi output: " + line);
+      return;
+    }
+    PerGpuProcessInfo info = new PerGpuProcessInfo();
+    try {
+      info.setPid(Integer.parseInt(fields[1]));
+      info.setUsedMemoryMiB((long) parseNumber(fields[2]));
+    } catch (NumberFormatException e) {
+      LOG.debug("Skipping unexpected nvidia-smi output: " + line);
+      return;
+    }
+    synchronized (this) {
+      latestProcesses.put(fields[0] + ":" + fields[1], new ProcessSample(fields[0], info));
+    }
+  }
+
+  /**
+   * @return whether nvidia-smi is still running
+   */
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * @param maxAgeMs how long ago the latest reading may have been taken
+   * @return the latest reading of each GPU and the processes using it, or null if there's none within
+   *         {@code maxAgeMs}
+   */
+  public synchronized GpuDeviceInformation getLatestSample(long maxAgeMs) {
+    long now = System.nanoTime();
+    long maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMs);
+    if (latest.isEmpty() || now - lastSampleNanos > maxAgeNanos) {
+      return null;
+    }
+    latestProcesses.values().removeIf(sample -> now - sample.sampleNanos > maxAgeNanos);
+    for (PerGpuDeviceInformation gpu : latest.values()) {
+      List<PerGpuProcessInfo> processes = new ArrayList<>();
+      for (ProcessSample sample : latestProcesses.values()) {
+        if (sample.gpuUuid.equals(gpu.getUuid())) {
+          processes.add(sample.info);
+        }
+      }
+      gpu.setProcesses(processes);
+    }
+    GpuDeviceInformation info = new GpuDeviceInformation();
+    info.setGpus(new ArrayList<>(latest.values()));
+    return info;
+  }
+
+  /**
+   * Parses a line of {@link #QUERY_FIELDS}, such as
+   * "0, GPU-5a2e..., Tesla V100-SXM2-16GB, 45, 1024, 15136, 38, 62.47".
+   * Values nvidia-smi doesn't have, such as [N/A] or [Not Supported], are read as -1.
+   * @return the GPU, with its index as the minor number, or null if the line isn't in that format
+   */
+  @VisibleForTesting
+  static PerGpuDeviceInformation parseLine(String line) {
+    String[] fields = splitLine(line, NUM_FIELDS);
+    if (fields == null) {
+      return null;
+    }
+    try {
+      PerGpuDeviceInformation gpu = new PerGpuDeviceInformation();
+      gpu.setMinorNumber(Integer.parseInt(fields[0]));
+      gpu.setUuid(fields[1]);
+      gpu.setProductName(fields[2]);
+      PerGpuUtilizations utilizations = new PerGpuUtilizations();
+      utilizations.setOverallGpuUtilization(parseNumber(fields[3]));
+      gpu.setGpuUtilizations(utilizations);
+      PerGpuFBMemoryUsage fbMemoryUsage = new PerGpuFBMemoryUsage();
+      fbMemoryUsage.setUsedMemoryMiB((long) parseNumber(fields[4]));
+      fbMemoryUsage.setAvailMemoryMiB((long) parseNumber(fields[5]));
+      gpu.setGpuFBMemoryUsage(fbMemoryUsage);
+      PerGpuTemperature temperature = new PerGpuTemperature();
+      temperature.setCurrentGpuTemp(parseNumber(fields[6]));
+      gpu.setTemperature(temperature);
+      PerGpuPowerReadings powerReadings = new PerGpuPowerReadings();
+      powerReadings.setPowerDraw(parseNumber(fields[7]));
+      gpu.setPowerReadings(powerReadings);
+      return gpu;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Splits a line into {@code numFields} comma-separated fields, trimming each, without a regex. The last field
+   * takes the rest of the line.
+   * @return the fields, or null if the line has fewer
+   */
+  private static String[] splitLine(String line, int numFields) {
+    String[] fields = new String[numFields];
+    int start = 0;
+    for (int i = 0; i < numFields; i++) {
+      int end = i == numFields - 1 ? line.length() : line.indexOf(',', start);
+      if (end < 0 || start > line.length()) {
+        return null;
+      }
+      fields[i] = line.substring(start, end).trim();
+      start = end + 1;
+    }
+    return fields;
+  }
+
+  private static float parseNumber(String field) {
+    return field.startsWith("[") ? -1f : Float.parseFloat(field);
+  }
+
+  @Override
+  public synchronized void close() {
+    if (process != null) {
+      process.destroy();
+    }
+    if (processQuery != null) {
+      processQuery.destroy();
+    }
+  }
+}
@@ -18,7 +18,10 @@
 
 package com.linkedin.tony.util.gpu;
 
+import java.util.ArrayList;
+import java.util.List;
 import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.adapters.XmlAdapter;
 import org.apache.hadoop.classification.InterfaceAudience;
@@ -29,7 +32,7 @@ import org.apache.hadoop.classification.InterfaceStability;
  * Capture single GPU device information such as memory size, temperature,
  * utilization.
  *
- * Ported from Hadoop 2.9.0 with Temperature attribute removed
+ * Ported from Hadoop 2.9.0, with power readings and processes added
  */
 @InterfaceAudience.Private
 @InterfaceStability.Unstable
@@ -43,9 +46,13 @@ public class PerGpuDeviceInformation {
   private PerGpuUtilizations gpuUtilizations;
   private PerGpuFBMemoryUsage gpuFBMemoryUsage;
   private PerGpuMainMemoryUsage gpuMainMemoryUsage;
+  private PerGpuTemperature temperature;
+  private PerGpuPowerReadings powerReadings;
+  private List<PerGpuProcessInfo> processes = new ArrayList<>();
 
   /**
-   * Convert formats like "34 C", "75.6 %" to float.
+   * Convert formats like "34 C", "75.6 %" to float, and values that aren't
+   * available, like "N/A", to -1.
    */
   @InterfaceAudience.Private
   @InterfaceStability.Unstable
@@ -64,12 +71,17 @@ public class PerGpuDeviceInformation {
         return -1f;
       }
 
-      return Float.valueOf(v.split(" ")[0]);
+      try {
+        return Float.valueOf(v.split(" ")[0]);
+      } catch (NumberFormatException e) {
+        return -1f;
+      }
     }
   }
 
   /**
-   * Convert formats like "725 MiB" to long.
+   * Convert formats like "725 MiB" to long, and values that aren't available,
+   * like "N/A", to -1.
    */
   @InterfaceAudience.Private
   @InterfaceStability.Unstable
@@ -87,7 +99,11 @@ public class PerGpuDeviceInformation {
       if (v == null) {
         return -1L;
       }
-      return Long.valueOf(v.split(" ")[0]);
+      try {
+        return Long.valueOf(v.split(" ")[0]);
+      } catch (NumberFormatException e) {
+        return -1L;
+      }
     }
   }
 
@@ -145,6 +161,34 @@ public class PerGpuDeviceInformation {
     this.gpuMainMemoryUsage = gpuMainMemoryUsage;
   }
 
+  @XmlElement(name = "temperature")
+  public PerGpuTemperature getTemperature() {
+    return temperature;
+  }
+
+  public void setTemperature(PerGpuTemperature temperature) {
+    this.temperature = temperature;
+  }
+
+  @XmlElement(name = "power_readings")
+  public PerGpuPowerReadings getPowerReadings() {
+    return powerReadings;
+  }
+
+  public void setPowerReadings(PerGpuPowerReadings powerReadings) {
+    this.powerReadings = powerReadings;
+  }
+
+  @XmlElementWrapper(name = "processes")
+  @XmlElement(name = "process_info")
+  public List<PerGpuProcessInfo> getProcesses() {
+    return processes;
+  }
+
+  public void setProcesses(List<PerGpuProcessInfo> processes) {
+    this.processes = processes;
+  }
+
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
@@ -0,0 +1,36 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.util.gpu;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+
+
+/**
+ * GPU power readings
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Unstable
+@XmlRootElement(name = "power_readings")
+public class PerGpuPowerReadings {
+  private float powerDraw = -1f;
+
+  /**
+   * Power currently drawn by the board in watts
+   * @return power draw, or -1 if not available
+   */
+  @XmlJavaTypeAdapter(PerGpuDeviceInformation.StrToFloatBeforeSpaceAdapter.class)
+  @XmlElement(name = "power_draw")
+  public Float getPowerDraw() {
+    return powerDraw;
+  }
+
+  public void setPowerDraw(Float powerDraw) {
+    this.powerDraw = powerDraw;
+  }
+}
@@ -130,10 +130,12 @@ def __port_file_path(port):
 def create_port_file(port, host_alloc_plan):
     port_file = __port_file_path(port)
     logging.info("Creating port file %s", port_file)
-    with open(__port_file_path(port), 'w') as fo:
+    # TonY watches for the port file, so it's renamed into place to never be seen half written.
+    tmp_port_file = port_file + ".tmp"
+    with open(tmp_port_file, 'w') as fo:
         fo.write(_get_host_plan_json(host_alloc_plan))
-        logging.info("Port file for %s created", port_file)
-        pass
+    os.rename(tmp_port_file, port_file)
+    logging.info("Port file for %s created", port_file)
 
 
 def delete_port_file(port):
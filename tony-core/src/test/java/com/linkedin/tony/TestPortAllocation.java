@@ -11,6 +11,9 @@ import static org.testng.Assert.fail;
 
 import java.io.IOException;
 import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
 import java.time.Duration;
 import org.apache.commons.lang.SystemUtils;
 import org.testng.annotations.Test;
@@ -260,4 +263,34 @@ public class TestPortAllocation {
       }
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Tests a port reserved in the JVM can be bound and listened on by another socket with port
+   * reuse, as tensorflow does, and that the reservation doesn't take its connections.
+   */
+  @Test
+  public void testInJvmReservationAllowsPortReuse() throws IOException {
+    if (!ReusablePort.isInJvmReservationSupported()) {
+      System.out.println("Skip this test since SO_REUSEPORT can't be set from this JVM");
+      return;
+    }
+
+    try (ReusablePort reusablePort = ReusablePort.create();
+        ServerSocketChannel server = ServerSocketChannel.open()) {
+      assertTrue(reusablePort.isReservedInJvm());
+      int port = reusablePort.getPort();
+      assertPortIsReserved(port);
+
+      server.setOption(ReusablePort.getReusePortOption(), true);
+      server.bind(new InetSocketAddress("localhost", port));
+      for (int i = 0; i < 10; i++) {
+        try (Socket client = new java.net.Socket("localhost", port)) {
+          assertTrue(server.accept().isConnected());
+        }
+      }
+
+      reusablePort.close();
+      assertPortIsReserved(port);
+    }
+  }
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony;
+
+import com.linkedin.tony.events.Metric;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.hadoop.conf.Configuration;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+
+public class TestStragglerDetector {
+  private StragglerDetector detector;
+
+  @BeforeMethod
+  public void setUp() {
+    Configuration conf = new Configuration(false);
+    conf.set(TonyConfigurationKeys.AM_STRAGGLER_DETECTION_METRICS, Constants.AVG_GPU_UTILIZATION);
+    conf.setLong(TonyConfigurationKeys.AM_STRAGGLER_DETECTION_INTERVAL_MS, 1000);
+    conf.setLong(TonyConfigurationKeys.AM_STRAGGLER_DETECTION_GRACE_PERIOD_MS, 500);
+    detector = new StragglerDetector(conf, 0);
+  }
+
+  private static Map<String, List<Metric>> gpuUtilizations(double... values) {
+    Map<String, List<Metric>> metrics = new HashMap<>();
+    for (int i = 0; i < values.length; i++) {
+      metrics.put("worker:" + i, Collections.singletonList(new Metric(Constants.AVG_GPU_UTILIZATION, values[i])));
+    }
+    return metrics;
+  }
+
+  @Test
+  public void testMedian() {
+    assertEquals(StragglerDetector.median(new ArrayList<>(Arrays.asList(3d, 1d, 2d))), 2d);
+    assertEquals(StragglerDetector.median(new ArrayList<>(Arrays.asList(4d, 1d, 3d, 2d))), 2.5d);
+  }
+
+  @Test
+  public void testModifiedZScore() {
+    assertEquals(StragglerDetector.modifiedZScore(10, 2, 3), 0.6745 * 5, 1e-9);
+    assertEquals(StragglerDetector.modifiedZScore(10, 0, 4), 0.7979 * 2.5, 1e-9);
+    assertEquals(StragglerDetector.modifiedZScore(10, 0, 0), 0d);
+  }
+
+  @Test
+  public void testEvaluationInterval() {
+    assertFalse(detector.isEvaluationDue(999));
+    assertTrue(detector.isEvaluationDue(1000));
+    detector.evaluate(Collections.emptyMap(), 1000);
+    assertFalse(detector.isEvaluationDue(1999));
+  }
+
+  @Test
+  public void testLowMetricIsStraggler() {
+    Map<String, StragglerDetector.Straggler> stragglers = detector.evaluate(
+        Collections.singletonMap("worker", gpuUtilizations(90, 88, 92, 91, 20)), 1000);
+    assertEquals(stragglers.keySet(), Collections.singleton("worker:4"));
+    StragglerDetector.Straggler straggler = stragglers.get("worker:4");
+    assertEquals(straggler.getMetric(), Constants.AVG_GPU_UTILIZATION);
+    assertEquals(straggler.getValue(), 20d);
+    assertEquals(straggler.getMedian(), 90d);
+    assertEquals(straggler.getReason(), "AVG_GPU_UTILIZATION far below the median of worker tasks");
+  }
+
+  @Test
+  public void testHighMetricIsNotStraggler() {
+    assertTrue(detector.evaluate(
+        Collections.singletonMap("worker", gpuUtilizations(50, 52, 49, 51, 99)), 1000).isEmpty());
+  }
+
+  @Test
+  public void testSmallDeviationIsNotStraggler() {
+    // All but one are equal, so any deviation has an infinite MAD-based score.
+    assertTrue(detector.evaluate(
+        Collections.singletonMap("worker", gpuUtilizations(90, 90, 90, 90, 85)), 1000).isEmpty());
+    assertEquals(detector.evaluate(
+        Collections.singletonMap("worker", gpuUtilizations(90, 90, 90, 90, 30)), 1000).keySet(),
+        Collections.singleton("worker:4"));
+  }
+
+  @Test
+  public void testTooFewTasks() {
+    assertTrue(detector.evaluate(Collections.singletonMap("worker", gpuUtilizations(90, 10)), 1000).isEmpty());
+  }
+
+  @Test
+  public void testUnavailableMetricsAreIgnored() {
+    assertTrue(detector.evaluate(
+        Collections.singletonMap("worker", gpuUtilizations(-1, -1, -1, -1, 10)), 1000).isEmpty());
+  }
+
+  @Test
+  public void testHeartbeatGap() {
+    Map<String, List<Metric>> tasks = gpuUtilizations(90, 90, 90, 90, 90);
+    for (long now = 0; now <= 1000; now += 100) {
+      for (String taskId : tasks.keySet()) {
+        // worker:2 misses the heartbeats between 100 and 900.
+        if (!taskId.equals("worker:2") || now <= 100 || now >= 900) {
+          detector.onHeartbeat(taskId, now);
+        }
+      }
+    }
+    Map<String, StragglerDetector.Straggler> stragglers =
+        detector.evaluate(Collections.singletonMap("worker", tasks), 1000);
+    assertEquals(stragglers.keySet(), Collections.singleton("worker:2"));
+    assertEquals(stragglers.get("worker:2").getMetric(), StragglerDetector.HEARTBEAT_GAP_MS);
+    assertEquals(stragglers.get("worker:2").getValue(), 800d);
+
+    // The gap is only counted in the evaluation it occurred before.
+    for (long now = 1100; now <= 2000; now += 100) {
+      for (String taskId : tasks.keySet()) {
+        detector.onHeartbeat(taskId, now);
+      }
+    }
+    assertTrue(detector.evaluate(Collections.singletonMap("worker", tasks), 2000).isEmpty());
+  }
+
+  @Test
+  public void testReplacementGracePeriod() {
+    Map<String, List<Metric>> tasks = gpuUtilizations(90, 88, 92, 91, 20);
+    for (String taskId : tasks.keySet()) {
+      detector.onHeartbeat(taskId, 0);
+    }
+    // worker:4 has just been replaced, and the replacement is still starting up.
+    detector.onReplaced("worker:4", 800);
+    for (String taskId : tasks.keySet()) {
+      detector.onHeartbeat(taskId, 1000);
+    }
+    assertTrue(detector.evaluate(Collections.singletonMap("worker", tasks), 1000).isEmpty());
+
+    for (String taskId : tasks.keySet()) {
+      detector.onHeartbeat(taskId, 1300);
+    }
+    assertEquals(detector.evaluate(Collections.singletonMap("worker", tasks), 1300).keySet(),
+        Collections.singleton("worker:4"));
+  }
+}
@@ -4,8 +4,16 @@
  */
 package com.linkedin.tony;
 
-import com.linkedin.tony.rpc.MetricsRpc;
+import com.linkedin.tony.events.Metric;
+import com.linkedin.tony.rpc.impl.AsyncApplicationRpcClient;
 import com.linkedin.tony.rpc.impl.MetricsWritable;
+import com.linkedin.tony.util.gpu.PerGpuDeviceInformation;
+import com.linkedin.tony.util.gpu.PerGpuFBMemoryUsage;
+import com.linkedin.tony.util.gpu.PerGpuPowerReadings;
+import com.linkedin.tony.util.gpu.PerGpuUtilizations;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Collectors;
 import org.apache.hadoop.conf.Configuration;
 import org.mockito.Mock;
 import org.testng.Assert;
@@ -24,7 +32,7 @@ public class TestTaskMonitor {
   Configuration tonyConf = mock(Configuration.class);
 
   @Mock
-  MetricsRpc metricsRpcClient;
+  AsyncApplicationRpcClient metricsRpcClient;
 
   @Mock
   private TaskMonitor taskMonitor = mock(TaskMonitor.class);
@@ -60,4 +68,72 @@ public class TestTaskMonitor {
     MetricsWritable metrics = taskMonitor.getMetrics();
     Assert.assertEquals(metrics.getMetric(TaskMonitor.AVG_GPU_FB_MEMORY_USAGE_INDEX).getValue(), 0.4);
   }
+
+  private static PerGpuDeviceInformation gpu(float utilization, long usedMemoryMiB, float powerDraw) {
+    PerGpuDeviceInformation gpu = new PerGpuDeviceInformation();
+    PerGpuUtilizations utilizations = new PerGpuUtilizations();
+    utilizations.setOverallGpuUtilization(utilization);
+    gpu.setGpuUtilizations(utilizations);
+    PerGpuFBMemoryUsage fbMemoryUsage = new PerGpuFBMemoryUsage();
+    fbMemoryUsage.setUsedMemoryMiB(usedMemoryMiB);
+    fbMemoryUsage.setAvailMemoryMiB(1000 - usedMemoryMiB);
+    gpu.setGpuFBMemoryUsage(fbMemoryUsage);
+    PerGpuPowerReadings powerReadings = new PerGpuPowerReadings();
+    powerReadings.setPowerDraw(powerDraw);
+    gpu.setPowerReadings(powerReadings);
+    return gpu;
+  }
+
+  @Test
+  public void testRefreshPerGpuMetrics() {
+    TaskMonitor monitor = new TaskMonitor("worker", 0, yarnConf, tonyConf, metricsRpcClient);
+    int numTaskMetrics = TaskMonitor.METRICS_TO_COLLECT.size()
+        + TaskMonitor.QUANTILE_METRICS_TO_COLLECT.size() * TaskMonitor.PERCENTILES_TO_REPORT.length;
+    Assert.assertEquals(monitor.getMetricsToReport().getMetricsAsList().size(), numTaskMetrics);
+
+    monitor.refreshPerGpuMetrics(Arrays.asList(gpu(100, 500, 200), gpu(0, 100, 50)));
+    monitor.refreshPerGpuMetrics(Arrays.asList(gpu(50, 250, 100), gpu(0, 100, 50)));
+    Map<String, Double> metrics = monitor.getMetricsToReport().getMetricsAsList().stream()
+        .collect(Collectors.toMap(metric -> metric.getName().toString(), Metric::getValue));
+    Assert.assertEquals(metrics.size(), numTaskMetrics + 2 * TaskMonitor.PER_GPU_METRICS_TO_COLLECT.size());
+    Assert.assertEquals(metrics.get(Constants.MAX_GPU_UTILIZATION + ":0"), 100d);
+    Assert.assertEquals(metrics.get(Constants.AVG_GPU_UTILIZATION + ":0"), 75d);
+    Assert.assertEquals(metrics.get(Constants.MAX_GPU_UTILIZATION + ":1"), 0d);
+    Assert.assertEquals(metrics.get(Constants.MAX_GPU_FB_MEMORY_USAGE + ":0"), 50d);
+    Assert.assertEquals(metrics.get(Constants.AVG_GPU_FB_MEMORY_USAGE + ":1"), 10d);
+    Assert.assertEquals(metrics.get(Constants.MAX_GPU_POWER_DRAW + ":0"), 200d);
+    Assert.assertEquals(metrics.get(Constants.AVG_GPU_POWER_DRAW + ":0"), 150d);
+    // No temperature was read.
+    Assert.assertEquals(metrics.get(Constants.MAX_GPU_TEMPERATURE + ":1"), -1d);
+  }
+
+  @Test
+  public void testRefreshPerGpuMetricsSkipsMissingReadings() {
+    TaskMonitor monitor = new TaskMonitor("worker", 0, yarnConf, tonyConf, metricsRpcClient);
+    // As nvidia-smi reports [N/A] for the power draw and utilization of MIG and some consumer GPUs.
+    PerGpuDeviceInformation unknown = gpu(-1, 0, -1);
+    unknown.getGpuFBMemoryUsage().setUsedMemoryMiB(-1L);
+    unknown.getGpuFBMemoryUsage().setAvailMemoryMiB(-1L);
+
+    monitor.refreshPerGpuMetrics(Arrays.asList(gpu(40, 500, 100), unknown));
+    monitor.refreshPerGpuMetrics(Arrays.asList(unknown, unknown));
+    monitor.refreshPerGpuMetrics(Arrays.asList(gpu(80, 500, 200), unknown));
+    Map<String, Double> metrics = monitor.getMetricsToReport().getMetricsAsList().stream()
+        .collect(Collectors.toMap(metric -> metric.getName().toString(), Metric::getValue));
+    Assert.assertEquals(metrics.get(Constants.AVG_GPU_UTILIZATION + ":0"), 60d);
+    Assert.assertEquals(metrics.get(Constants.AVG_GPU_POWER_DRAW + ":0"), 150d);
+    Assert.assertEquals(metrics.get(Constants.AVG_GPU_FB_MEMORY_USAGE + ":0"), 50d);
+    Assert.assertEquals(metrics.get(Constants.AVG_GPU_UTILIZATION + ":1"), -1d);
+    Assert.assertEquals(metrics.get(Constants.MAX_GPU_POWER_DRAW + ":1"), -1d);
+    Assert.assertEquals(metrics.get(Constants.MAX_GPU_FB_MEMORY_USAGE + ":1"), -1d);
+  }
+
+  @Test
+  public void testPercentileMetricsBeforeRefresh() {
+    TaskMonitor monitor = new TaskMonitor("worker", 0, yarnConf, tonyConf, metricsRpcClient);
+    Map<String, Double> metrics = monitor.getMetricsToReport().getMetricsAsList().stream()
+        .collect(Collectors.toMap(metric -> metric.getName().toString(), Metric::getValue));
+    Assert.assertEquals(metrics.get("P50_" + Constants.MEMORY_BYTES), -1d);
+    Assert.assertEquals(metrics.get("P99_" + Constants.GPU_UTILIZATION), -1d);
+  }
 }
@@ -4,6 +4,7 @@
  */
 package com.linkedin.tony;
 
+import com.linkedin.tony.events.EventHandler;
 import com.linkedin.tony.tensorflow.JobContainerRequest;
 import com.linkedin.tony.tensorflow.TonySession;
 import java.util.ArrayList;
@@ -34,6 +35,7 @@ public class TestTaskScheduler {
   Map<String, Map<String, LocalResource>> jobTypeToContainerResources = mock(HashMap.class);
   Map<String, LocalResource> localResources = mock(HashMap.class);
   Configuration conf = mock(Configuration.class);
+  EventHandler eventHandler = mock(EventHandler.class);
   TaskScheduler taskScheduler;
 
   @Mock
@@ -42,7 +44,8 @@ public class TestTaskScheduler {
 
   @BeforeClass
   public void doBeforeClass() {
-    taskScheduler = new TaskScheduler(session, amRMClient, localResources, fileSystem, conf, jobTypeToContainerResources);
+    taskScheduler = new TaskScheduler(session, amRMClient, localResources, fileSystem, conf, jobTypeToContainerResources,
+        eventHandler);
     doNothing().when(amRMClient).addContainerRequest(any());
     when(jobTypeToContainerResources.put(any(), any())).thenReturn(new HashMap<>());
     when(conf.getStrings(any())).thenReturn(null);
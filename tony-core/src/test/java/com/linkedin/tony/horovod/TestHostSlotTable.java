@@ -0,0 +1,41 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.horovod;
+
+import java.util.Arrays;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestHostSlotTable {
+
+    @Test
+    public void testPutAndRemove() {
+        HostSlotTable table = new HostSlotTable();
+        table.put("worker:2", 2, "h1");
+        table.put("worker:0", 0, "h1");
+        table.put("worker:1", 1, "h2");
+        Assert.assertEquals(table.getTaskIndices("h1"), Arrays.asList(0, 2));
+        Assert.assertEquals(table.getWorkerList(), "h1:2,h2:1");
+
+        long version = table.getVersion();
+        // Registering again on the same host changes nothing.
+        table.put("worker:0", 0, "h1");
+        Assert.assertEquals(table.getVersion(), version);
+
+        // A restarted worker moves to its new host.
+        table.put("worker:2", 2, "h2");
+        Assert.assertNotEquals(table.getVersion(), version);
+        Assert.assertEquals(table.getTaskIndices("h1"), Arrays.asList(0));
+        Assert.assertEquals(table.getTaskIndices("h2"), Arrays.asList(1, 2));
+
+        table.remove("worker:0", 0);
+        Assert.assertTrue(table.getTaskIndices("h1").isEmpty());
+        Assert.assertEquals(table.getWorkerList(), "h2:2");
+
+        table.clear();
+        Assert.assertEquals(table.getWorkerList(), "");
+    }
+}
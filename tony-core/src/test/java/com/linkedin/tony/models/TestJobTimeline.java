@@ -0,0 +1,74 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.models;
+
+import com.linkedin.tony.events.ContainerAllocated;
+import com.linkedin.tony.events.ContainerLaunched;
+import com.linkedin.tony.events.ContainerRequested;
+import com.linkedin.tony.events.Event;
+import com.linkedin.tony.events.EventType;
+import com.linkedin.tony.events.GangReady;
+import com.linkedin.tony.events.TaskFinished;
+import com.linkedin.tony.events.TaskFirstHeartbeat;
+import com.linkedin.tony.events.TaskRegistered;
+import com.linkedin.tony.events.TaskStarted;
+import com.linkedin.tony.util.ParserUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+
+public class TestJobTimeline {
+
+  @Test
+  public void testTimelineFromEvents() {
+    List<Event> events = Arrays.asList(
+        new Event(EventType.CONTAINER_REQUESTED, new ContainerRequested("worker", 2, 1), 1000L),
+        new Event(EventType.CONTAINER_ALLOCATED, new ContainerAllocated("worker", 1, "host1", "c1"), 3000L),
+        // The NM may confirm the launch before the AM records the task as started.
+        new Event(EventType.CONTAINER_LAUNCHED, new ContainerLaunched("worker", 0, "host1", "c1"), 3500L),
+        new Event(EventType.TASK_STARTED, new TaskStarted("worker", 0, "host1", "c1"), 3600L),
+        new Event(EventType.CONTAINER_ALLOCATED, new ContainerAllocated("worker", 1, "host2", "c2"), 5000L),
+        new Event(EventType.TASK_STARTED, new TaskStarted("worker", 1, "host2", "c2"), 5100L),
+        new Event(EventType.CONTAINER_LAUNCHED, new ContainerLaunched("worker", 1, "host2", "c2"), 5200L),
+        new Event(EventType.TASK_REGISTERED, new TaskRegistered("worker", 0, "host1:1234"), 7000L),
+        new Event(EventType.TASK_FIRST_HEARTBEAT, new TaskFirstHeartbeat("worker", 0), 7001L),
+        new Event(EventType.TASK_REGISTERED, new TaskRegistered("worker", 1, "host2:1234"), 9000L),
+        new Event(EventType.GANG_READY, new GangReady(2, 0), 9000L),
+        new Event(EventType.TASK_FINISHED, new TaskFinished("worker", 0, "SUCCEEDED", new ArrayList<>(), "NA"),
+            11000L));
+
+    JobTimeline timeline = JobTimeline.fromEvents(ParserUtils.mapEventToJobEvent(events));
+    assertEquals(timeline.getStart(), 1000L);
+    assertEquals(timeline.getEnd(), 11000L);
+    assertEquals(timeline.getGangReady(), 9000L);
+    assertEquals(timeline.getTasks().size(), 2);
+
+    TaskTimeline worker0 = timeline.getTasks().get(0);
+    assertEquals(worker0.getTaskId(), "worker:0");
+    assertEquals(worker0.getRequested(), 1000L);
+    assertEquals(worker0.getAllocated(), 3000L);
+    assertEquals(worker0.getLaunched(), 3500L);
+    assertEquals(worker0.getRegistered(), 7000L);
+    assertEquals(worker0.getFirstHeartbeat(), 7001L);
+    assertEquals(worker0.getFinished(), 11000L);
+
+    List<TaskTimeline.Segment> segments = timeline.getSegments(worker0);
+    assertEquals(segments.size(), 4);
+    assertEquals(segments.get(0).getName(), "allocation");
+    assertEquals(segments.get(0).getDurationMs(), 2000L);
+    assertEquals(segments.get(0).getOffsetPercent(), 0d);
+    assertEquals(segments.get(0).getWidthPercent(), 20d);
+
+    TaskTimeline worker1 = timeline.getTasks().get(1);
+    assertEquals(worker1.getLaunched(), 5200L);
+    assertEquals(worker1.getFinished(), -1L);
+    // Unfinished tasks have no running segment.
+    assertEquals(timeline.getSegments(worker1).size(), 3);
+  }
+}
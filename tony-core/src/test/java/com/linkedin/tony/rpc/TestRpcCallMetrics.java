@@ -0,0 +1,56 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.rpc;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+
+public class TestRpcCallMetrics {
+  interface Echo {
+    String echo(String message) throws IOException;
+  }
+  @Test
+  public void testRecordsCallsByMethod() {
+    RpcCallMetrics metrics = new RpcCallMetrics();
+    long now = System.nanoTime();
+    metrics.record("registerWorkerSpec", now - TimeUnit.MILLISECONDS.toNanos(30));
+    metrics.record("registerWorkerSpec", now - TimeUnit.MILLISECONDS.toNanos(10));
+    metrics.record("taskExecutorHeartbeat", now);
+
+    assertEquals(metrics.getCalls("registerWorkerSpec"), 2);
+    assertEquals(metrics.getCalls("taskExecutorHeartbeat"), 1);
+    assertEquals(metrics.getCalls("getTaskInfos"), 0);
+    assertTrue(metrics.getMaxLatencyMs("registerWorkerSpec") >= 30);
+    assertTrue(metrics.getAvgLatencyMs("registerWorkerSpec") >= 20);
+    assertTrue(metrics.getAvgLatencyMs("registerWorkerSpec") < metrics.getMaxLatencyMs("registerWorkerSpec"));
+    assertTrue(metrics.toString().startsWith("registerWorkerSpec: calls=2"));
+  }
+
+  @Test
+  public void testTimedRecordsEveryCall() {
+    RpcCallMetrics metrics = new RpcCallMetrics();
+    Echo echo = metrics.timed(Echo.class, message -> {
+      if (message == null) {
+        throw new IOException("Nothing to echo");
+      }
+      return message;
+    });
+
+    try {
+      assertEquals(echo.echo("hi"), "hi");
+      echo.echo(null);
+      fail("The call should have failed");
+    } catch (IOException e) {
+      assertEquals(e.getMessage(), "Nothing to echo");
+    }
+    assertEquals(metrics.getCalls("echo"), 2);
+  }
+}
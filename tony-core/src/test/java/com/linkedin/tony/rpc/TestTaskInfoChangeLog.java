@@ -0,0 +1,48 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.rpc;
+
+import com.google.common.collect.ImmutableSet;
+import com.linkedin.tony.rpc.impl.TaskStatus;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+
+public class TestTaskInfoChangeLog {
+  @Test
+  public void testReturnsOnlyTasksChangedSinceVersion() {
+    TaskInfoChangeLog changeLog = new TaskInfoChangeLog();
+    TaskInfo worker0 = new TaskInfo("worker", "0", "url0");
+    TaskInfo worker1 = new TaskInfo("worker", "1", "url1");
+    changeLog.record(worker0);
+    changeLog.record(worker1);
+
+    TaskInfoDelta delta = changeLog.getChangesSince(0);
+    assertEquals(delta.getVersion(), 2);
+    assertEquals(delta.getTaskInfos(), ImmutableSet.of(worker0, worker1));
+    assertTrue(changeLog.getChangesSince(2).getTaskInfos().isEmpty());
+
+    worker1.setStatus(TaskStatus.RUNNING);
+    changeLog.record(worker1);
+    delta = changeLog.getChangesSince(2);
+    assertEquals(delta.getVersion(), 3);
+    assertEquals(delta.getTaskInfos(), ImmutableSet.of(worker1));
+    // A task is only returned once however many times it changed.
+    assertEquals(changeLog.getChangesSince(0).getTaskInfos().size(), 2);
+  }
+
+  @Test
+  public void testReturnsAllTasksForVersionAheadOfLog() {
+    TaskInfoChangeLog changeLog = new TaskInfoChangeLog();
+    TaskInfo worker0 = new TaskInfo("worker", "0", "url0");
+    changeLog.record(worker0);
+
+    TaskInfoDelta delta = changeLog.getChangesSince(100);
+    assertEquals(delta.getVersion(), 1);
+    assertEquals(delta.getTaskInfos(), ImmutableSet.of(worker0));
+  }
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.rpc.impl;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+
+public class TestApplicationRpcClient {
+  @Test
+  public void testClientsAreSharedUntilReleased() {
+    Configuration yarnConf = new YarnConfiguration();
+    Configuration tonyConf = new Configuration(false);
+
+    ApplicationRpcClient client = ApplicationRpcClient.acquire("localhost", 12345, yarnConf, tonyConf);
+    ApplicationRpcClient sameClient = ApplicationRpcClient.acquire("localhost", 12345, yarnConf, tonyConf);
+    ApplicationRpcClient otherClient = ApplicationRpcClient.acquire("localhost", 12346, yarnConf, tonyConf);
+    assertSame(sameClient, client);
+    assertNotSame(otherClient, client);
+    assertEquals(client.getRefCount(), 2);
+
+    sameClient.close();
+    assertEquals(client.getRefCount(), 1);
+    assertSame(ApplicationRpcClient.acquire("localhost", 12345, yarnConf, tonyConf), client);
+    client.close();
+    client.close();
+    assertEquals(client.getRefCount(), 0);
+
+    // Once released by everyone, the client is stopped and a new one is created.
+    ApplicationRpcClient newClient = ApplicationRpcClient.acquire("localhost", 12345, yarnConf, tonyConf);
+    assertNotSame(newClient, client);
+    newClient.close();
+    otherClient.close();
+  }
+}
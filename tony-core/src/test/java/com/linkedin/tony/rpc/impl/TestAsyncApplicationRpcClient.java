@@ -0,0 +1,88 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.rpc.impl;
+
+import com.linkedin.tony.rpc.ApplicationRpc;
+import com.linkedin.tony.rpc.MetricsRpc;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+
+public class TestAsyncApplicationRpcClient {
+  @Test
+  public void testSlowCallDoesNotBlockOthers() throws Exception {
+    ApplicationRpc rpc = mock(ApplicationRpc.class);
+    CountDownLatch amPaused = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      amPaused.await();
+      return 0L;
+    }).when(rpc).taskExecutorHeartbeat("worker:0");
+    when(rpc.registerWorkerSpec("worker:1", "host:1234")).thenReturn("spec");
+
+    try (AsyncApplicationRpcClient client = new AsyncApplicationRpcClient(rpc, 2)) {
+      CompletableFuture<Long> heartbeat = client.taskExecutorHeartbeat("worker:0", 100);
+      assertEquals(client.registerWorkerSpec("worker:1", "host:1234", 0).get(5, TimeUnit.SECONDS), "spec");
+      try {
+        heartbeat.get(5, TimeUnit.SECONDS);
+        fail("The heartbeat should have timed out");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof TimeoutException);
+      } finally {
+        amPaused.countDown();
+      }
+    }
+  }
+
+  @Test
+  public void testFailedCallCompletesExceptionally() throws Exception {
+    ApplicationRpc rpc = mock(ApplicationRpc.class);
+    doThrow(new IOException("AM is gone")).when(rpc).registerCallbackInfo("worker:0", "info");
+
+    try (AsyncApplicationRpcClient client = new AsyncApplicationRpcClient(rpc, 1)) {
+      client.registerCallbackInfo("worker:0", "info", 1000).get(5, TimeUnit.SECONDS);
+      fail("The call should have failed");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IOException);
+    }
+  }
+
+  @Test
+  public void testUpdateMetricsGoesToMetricsServer() throws Exception {
+    ApplicationRpc rpc = mock(ApplicationRpc.class);
+    MetricsRpc metricsRpc = mock(MetricsRpc.class);
+    MetricsWritable metrics = new MetricsWritable(0);
+
+    try (AsyncApplicationRpcClient client = new AsyncApplicationRpcClient(rpc, metricsRpc, 1)) {
+      client.updateMetrics("worker", 1, "container_1", metrics, 0).get(5, TimeUnit.SECONDS);
+    }
+    verify(metricsRpc).updateMetrics("worker", 1, "container_1", metrics);
+  }
+
+  @Test
+  public void testHeartbeatReturnsClusterSpecVersion() throws Exception {
+    ApplicationRpc rpc = mock(ApplicationRpc.class);
+    when(rpc.taskExecutorHeartbeat("worker:0")).thenReturn(3L);
+    when(rpc.getClusterSpec()).thenReturn("{\"worker\":[\"host:1234\"]}");
+
+    try (AsyncApplicationRpcClient client = new AsyncApplicationRpcClient(rpc, 1)) {
+      assertEquals((long) client.taskExecutorHeartbeat("worker:0", 0).get(5, TimeUnit.SECONDS), 3L);
+      assertEquals(client.getClusterSpec(0).get(5, TimeUnit.SECONDS), "{\"worker\":[\"host:1234\"]}");
+    }
+  }
+}
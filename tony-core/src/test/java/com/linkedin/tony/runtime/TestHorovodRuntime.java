@@ -4,8 +4,8 @@
  */
 package com.linkedin.tony.runtime;
 
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -14,6 +14,10 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
 
+import com.google.gson.Gson;
+import com.linkedin.tony.TonyConfigurationKeys;
+import com.linkedin.tony.horovod.DriverCallbackInfo;
+import com.linkedin.tony.horovod.HostSlotTable;
 import com.linkedin.tony.tensorflow.TonySession;
 
 public class TestHorovodRuntime {
@@ -38,20 +42,51 @@ public class TestHorovodRuntime {
     }
 
     @Test
-    public void testBuildWorkerList() {
-        List<Integer> sameHostIndexCollection = new ArrayList<>();
-        String currenthost = "localhost1";
-        String workerList = amAdapter.buildWorkerList(session, currenthost, sameHostIndexCollection);
-        Assert.assertEquals("localhost3:1,localhost2:1,localhost1:2", workerList);
-        Assert.assertEquals(2, sameHostIndexCollection.size());
-        Assert.assertEquals("[0, 1]", sameHostIndexCollection.toString());
-
-        sameHostIndexCollection = new ArrayList<>();
-        currenthost = "localhost2";
-        workerList = amAdapter.buildWorkerList(session, currenthost, sameHostIndexCollection);
-        Assert.assertEquals("localhost3:1,localhost2:1,localhost1:2", workerList);
-        Assert.assertEquals(1, sameHostIndexCollection.size());
-        Assert.assertEquals("[2]", sameHostIndexCollection.toString());
+    public void testWorkerList() {
+        amAdapter.setTonySession(session);
+        session.getTonyTasks().values().stream()
+                .flatMap(Arrays::stream)
+                .forEach(amAdapter::onTaskRegistered);
+        HostSlotTable hostSlots = amAdapter.getHostSlots();
+        Assert.assertEquals("localhost3:1,localhost2:1,localhost1:2", hostSlots.getWorkerList());
+        Assert.assertEquals("[0, 1]", hostSlots.getTaskIndices("localhost1").toString());
+        Assert.assertEquals("[2]", hostSlots.getTaskIndices("localhost2").toString());
+        Assert.assertTrue(hostSlots.getTaskIndices("localhost4").isEmpty());
+    }
+
+    @Test
+    public void testCanScaleJob() {
+        TonySession registering = new TonySession();
+        registering.addNumExpectedTask(5);
+        amAdapter.setTonySession(registering);
+        Assert.assertTrue(amAdapter.canScaleJob(TonyConfigurationKeys.DistributedMode.GANG, "worker"));
+        Assert.assertFalse(amAdapter.canScaleJob(TonyConfigurationKeys.DistributedMode.GANG, "driver"));
+
+        // The gang has started.
+        for (int i = 0; i < 5; i++) {
+            registering.addRegisteredTask("worker:" + i);
+        }
+        Assert.assertFalse(amAdapter.canScaleJob(TonyConfigurationKeys.DistributedMode.GANG, "worker"));
+    }
+
+    @Test
+    public void testWorkerStartsAfterDriver() {
+        TonySession gang = new TonySession();
+        gang.getTonyTasks().put("worker", new TonySession.TonyTask[] {gang.buildTonyTask("worker", "0", "localhost1")});
+        gang.getTonyTasks().put("driver", new TonySession.TonyTask[] {gang.buildTonyTask("driver", "0", "localhost2")});
+        gang.addNumExpectedTask(2);
+        gang.addRegisteredTask("worker:0");
+        gang.addRegisteredTask("driver:0");
+
+        HorovodRuntime.HorovodAMAdapter adapter = (HorovodRuntime.HorovodAMAdapter) new HorovodRuntime().getAMAdapter();
+        adapter.setTonySession(gang);
+        Assert.assertTrue(adapter.canStartTask(TonyConfigurationKeys.DistributedMode.GANG, "driver:0"));
+        // Workers aren't held in the RPC handler, they poll until the driver has called back.
+        Assert.assertFalse(adapter.canStartTask(TonyConfigurationKeys.DistributedMode.GANG, "worker:0"));
+
+        String callbackInfo = new Gson().toJson(new DriverCallbackInfo("9999", "localhost2", Collections.emptyList()));
+        Assert.assertTrue(adapter.receiveTaskCallbackInfo("driver:0", callbackInfo));
+        Assert.assertTrue(adapter.canStartTask(TonyConfigurationKeys.DistributedMode.GANG, "worker:0"));
     }
 
     @Test
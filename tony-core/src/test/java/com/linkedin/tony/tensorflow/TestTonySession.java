@@ -6,6 +6,9 @@ package com.linkedin.tony.tensorflow;
 
 import com.linkedin.tony.Constants;
 import com.linkedin.tony.TonyConfigurationKeys;
+import com.linkedin.tony.rpc.impl.TaskStatus;
+import java.util.Collections;
+import java.util.List;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.yarn.api.records.impl.pb.ContainerPBImpl;
 import org.testng.Assert;
@@ -35,6 +38,134 @@ public class TestTonySession {
     Assert.assertEquals(session.getNumCompletedTrackedTasks(), 1);
   }
 
+  @Test
+  public void testStragglerReplacement() {
+    Configuration tonyConf = new Configuration(false);
+    tonyConf.setInt(TonyConfigurationKeys.getInstancesKey(Constants.WORKER_JOB_NAME), 2);
+    TonySession session = new TonySession.Builder().setTonyConf(tonyConf).build();
+    int workerPriority = session.getContainerRequestForType(Constants.WORKER_JOB_NAME).getPriority();
+    for (int i = 0; i < 2; i++) {
+      TonySession.TonyTask task = session.getAndInitMatchingTaskByPriority(workerPriority);
+      task.setTaskInfo(new ContainerPBImpl());
+      task.setHostPort("host" + i + ":1000");
+    }
+    TonySession.TonyTask straggler = session.getTask("worker:1");
+
+    Assert.assertTrue(session.requestReplacement(straggler, 1));
+    // Already pending.
+    Assert.assertFalse(session.requestReplacement(straggler, 1));
+    TonySession.TonyTask replacement = session.getAndInitMatchingTaskByPriority(workerPriority);
+    Assert.assertEquals(replacement.getId(), "worker:1");
+    Assert.assertFalse(session.isCurrent(replacement));
+    Assert.assertNull(session.getAndInitMatchingTaskByPriority(workerPriority));
+
+    // Clients keep seeing the straggler until the replacement registers.
+    long version = session.getTaskInfoChangeLog().getVersion();
+    replacement.setTaskInfo(new ContainerPBImpl());
+    replacement.setStatus(TaskStatus.RUNNING);
+    Assert.assertEquals(session.getTaskInfoChangeLog().getVersion(), version);
+
+    // The straggler registering again isn't the replacement.
+    Assert.assertNull(session.registerReplacement("worker:1", "host1:1000"));
+    Assert.assertSame(session.registerReplacement("worker:1", "host2:1000"), straggler);
+    Assert.assertSame(session.getTask("worker:1"), replacement);
+    Assert.assertFalse(session.isCurrent(straggler));
+    Assert.assertEquals(session.getTaskInfoChangeLog().getVersion(), version + 1);
+
+    // The worker job type is out of replacements.
+    Assert.assertFalse(session.requestReplacement(session.getTask("worker:0"), 1));
+  }
+
+  @Test
+  public void testCancelStragglerReplacement() {
+    Configuration tonyConf = new Configuration(false);
+    tonyConf.setInt(TonyConfigurationKeys.getInstancesKey(Constants.WORKER_JOB_NAME), 1);
+    TonySession session = new TonySession.Builder().setTonyConf(tonyConf).build();
+    int workerPriority = session.getContainerRequestForType(Constants.WORKER_JOB_NAME).getPriority();
+    TonySession.TonyTask straggler = session.getAndInitMatchingTaskByPriority(workerPriority);
+    straggler.setTaskInfo(new ContainerPBImpl());
+
+    Assert.assertTrue(session.requestReplacement(straggler, 2));
+    Assert.assertNull(session.cancelReplacement("worker:0"));
+    Assert.assertNull(session.getAndInitMatchingTaskByPriority(workerPriority));
+
+    Assert.assertTrue(session.requestReplacement(straggler, 2));
+    TonySession.TonyTask replacement = session.getAndInitMatchingTaskByPriority(workerPriority);
+    Assert.assertTrue(session.discardReplacement(replacement));
+    Assert.assertFalse(session.discardReplacement(replacement));
+    Assert.assertSame(session.getTask("worker:0"), straggler);
+  }
+
+  @Test
+  public void testRetryTask() {
+    Configuration tonyConf = new Configuration(false);
+    tonyConf.setInt(TonyConfigurationKeys.getInstancesKey(Constants.WORKER_JOB_NAME), 2);
+    tonyConf.setInt(TonyConfigurationKeys.getMaxTaskAttemptsKey(Constants.WORKER_JOB_NAME), 2);
+    TonySession session = new TonySession.Builder().setTonyConf(tonyConf).build();
+    int workerPriority = session.getContainerRequestForType(Constants.WORKER_JOB_NAME).getPriority();
+    for (int i = 0; i < 2; i++) {
+      session.getAndInitMatchingTaskByPriority(workerPriority).setTaskInfo(new ContainerPBImpl());
+    }
+    TonySession.TonyTask failed = session.getTask("worker:1");
+
+    Assert.assertTrue(session.retryTask(failed));
+    Assert.assertEquals(failed.getTaskInfo().getStatus(), TaskStatus.NEW);
+    Assert.assertFalse(session.isCurrent(failed));
+    // Already waiting for a container.
+    Assert.assertFalse(session.retryTask(failed));
+    Assert.assertTrue(session.allTasksScheduled());
+
+    TonySession.TonyTask nextAttempt = session.getAndInitMatchingTaskByPriority(workerPriority);
+    Assert.assertEquals(nextAttempt.getId(), "worker:1");
+    Assert.assertNotSame(nextAttempt, failed);
+    Assert.assertSame(session.getTask("worker:1"), nextAttempt);
+    Assert.assertEquals(session.getTaskAttempts("worker:1"), 2);
+    nextAttempt.setTaskInfo(new ContainerPBImpl());
+
+    // Out of attempts.
+    Assert.assertFalse(session.retryTask(nextAttempt));
+    Assert.assertTrue(session.isCurrent(nextAttempt));
+    Assert.assertEquals(session.getTaskAttempts("worker:0"), 1);
+  }
+
+  @Test
+  public void testResizeJob() {
+    Configuration tonyConf = new Configuration(false);
+    tonyConf.setInt(TonyConfigurationKeys.getInstancesKey(Constants.WORKER_JOB_NAME), 3);
+    TonySession session = new TonySession.Builder().setTonyConf(tonyConf).build();
+    int workerPriority = session.getContainerRequestForType(Constants.WORKER_JOB_NAME).getPriority();
+    for (int i = 0; i < 3; i++) {
+      TonySession.TonyTask task = session.getAndInitMatchingTaskByPriority(workerPriority);
+      task.setTaskInfo(new ContainerPBImpl());
+      task.setContainer(new ContainerPBImpl());
+      session.addRegisteredTask(task.getId());
+    }
+    TonySession.TonyTask lastWorker = session.getTask("worker:2");
+
+    List<TonySession.TonyTask> removed = session.resizeJob(Constants.WORKER_JOB_NAME, 2);
+    Assert.assertEquals(removed, Collections.singletonList(lastWorker));
+    Assert.assertEquals(lastWorker.getTaskInfo().getStatus(), TaskStatus.FINISHED);
+    Assert.assertNull(session.getTask("worker:2"));
+    Assert.assertFalse(session.isCurrent(lastWorker));
+    Assert.assertEquals(session.getTotalTasks(), 2);
+    Assert.assertEquals(session.getNumRegisteredTasks(), 2);
+    Assert.assertEquals(session.getContainerRequestForType(Constants.WORKER_JOB_NAME).getNumInstances(), 2);
+
+    Assert.assertTrue(session.resizeJob(Constants.WORKER_JOB_NAME, 4).isEmpty());
+    Assert.assertEquals(session.getTotalTasks(), 4);
+    Assert.assertFalse(session.allTasksScheduled());
+    Assert.assertEquals(session.getAndInitMatchingTaskByPriority(workerPriority).getId(), "worker:2");
+    Assert.assertEquals(session.getAndInitMatchingTaskByPriority(workerPriority).getId(), "worker:3");
+    Assert.assertNull(session.getAndInitMatchingTaskByPriority(workerPriority));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testResizeJobToNoInstances() {
+    Configuration tonyConf = new Configuration(false);
+    tonyConf.setInt(TonyConfigurationKeys.getInstancesKey(Constants.WORKER_JOB_NAME), 2);
+    new TonySession.Builder().setTonyConf(tonyConf).build().resizeJob(Constants.WORKER_JOB_NAME, 0);
+  }
+
   @Test
   public void testTaskComparable() {
     Configuration tonyConf = new Configuration(false);
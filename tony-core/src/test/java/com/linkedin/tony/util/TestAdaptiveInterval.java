@@ -0,0 +1,30 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.util;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+
+public class TestAdaptiveInterval {
+  @Test
+  public void testBacksOffUntilChange() {
+    AdaptiveInterval interval = new AdaptiveInterval(1000, 5000);
+    assertEquals(interval.getIntervalMs(), 1000);
+    interval.onNoChange();
+    assertEquals(interval.getIntervalMs(), 2000);
+    interval.onNoChange();
+    interval.onNoChange();
+    assertEquals(interval.getIntervalMs(), 5000);
+    interval.onChange();
+    assertEquals(interval.getIntervalMs(), 1000);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testRejectsInvalidRange() {
+    new AdaptiveInterval(2000, 1000);
+  }
+}
@@ -9,11 +9,14 @@ import com.linkedin.tony.events.ApplicationFinished;
 import com.linkedin.tony.events.ApplicationInited;
 import com.linkedin.tony.events.Event;
 import com.linkedin.tony.events.EventType;
+import com.linkedin.tony.events.Metric;
 import com.linkedin.tony.events.TaskFinished;
 import com.linkedin.tony.events.TaskStarted;
+import com.linkedin.tony.events.TaskStartupPhases;
 import com.linkedin.tony.models.JobConfig;
 import com.linkedin.tony.models.JobLog;
 import com.linkedin.tony.models.JobMetadata;
+import com.linkedin.tony.models.JobStartupPhase;
 import java.io.IOException;
 import java.time.Instant;
 import java.time.ZoneId;
@@ -194,6 +197,29 @@ public class TestParserUtils {
     //mock(ApplicationMaster)
   }
 
+  @Test
+  public void testMapJobEventToJobStartupPhases() {
+    List<Event> events = new ArrayList<>(eventBuilder());
+    for (int i = 0; i < 20; i++) {
+      List<Metric> phases = new ArrayList<>();
+      phases.add(new Metric("extract-resources", (double) (i + 1) * 100));
+      phases.add(new Metric("register", 50d));
+      events.add(new Event(EventType.TASK_STARTUP_PHASES,
+          new TaskStartupPhases("worker", i, "fakehost" + i, phases), 5L + i));
+    }
+
+    List<JobStartupPhase> startupPhases = ParserUtils.mapJobEventToJobStartupPhases(
+        ParserUtils.mapEventToJobEvent(events));
+    assertEquals(startupPhases.size(), 2);
+    JobStartupPhase extract = startupPhases.get(0);
+    assertEquals(extract.getPhase(), "extract-resources");
+    assertEquals(extract.getNumTasks(), 20);
+    assertEquals(extract.getP50(), 1000d);
+    assertEquals(extract.getP95(), 1900d);
+    assertEquals(extract.getMax(), 2000d);
+    assertEquals(extract.getSlowestTask(), "worker:19");
+    assertEquals(startupPhases.get(1).getMax(), 50d);
+  }
 
   private List<Event> eventBuilder() {
     ApplicationInited applicationInited = new ApplicationInited("fakeid123", 2, "fakehost2", "fakecontainerID");
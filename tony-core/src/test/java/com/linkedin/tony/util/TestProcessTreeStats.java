@@ -0,0 +1,99 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+public class TestProcessTreeStats {
+  private File procfs;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    procfs = new File("target/temp/" + TestProcessTreeStats.class.getName()).getAbsoluteFile();
+    FileUtils.deleteDirectory(procfs);
+    Assert.assertTrue(procfs.mkdirs());
+  }
+
+  private void writeProcess(String pid, long utime, long stime, long voluntary, long nonvoluntary, long readBytes,
+      long writeBytes) throws IOException {
+    File dir = new File(procfs, pid);
+    FileUtils.writeStringToFile(new File(dir, "stat"), pid + " (python (worker) x) S 1 " + pid + " " + pid
+        + " 0 -1 4194560 5000 0 0 0 " + utime + " " + stime + " 0 0 20 0 8 0 100 1000000 200\n", "UTF-8");
+    FileUtils.writeStringToFile(new File(dir, "status"), "Name:\tpython\nState:\tS (sleeping)\n"
+        + "voluntary_ctxt_switches:\t" + voluntary + "\nnonvoluntary_ctxt_switches:\t" + nonvoluntary + "\n",
+        "UTF-8");
+    FileUtils.writeStringToFile(new File(dir, "io"), "rchar: 100\nwchar: 200\nsyscr: 3\nsyscw: 4\n"
+        + "read_bytes: " + readBytes + "\nwrite_bytes: " + writeBytes + "\ncancelled_write_bytes: 999\n", "UTF-8");
+  }
+
+  private void writeNetDev(long ethReceive, long ethTransmit) throws IOException {
+    FileUtils.writeStringToFile(new File(procfs, "net/dev"),
+        "Inter-|   Receive                                                |  Transmit\n"
+            + " face |bytes    packets errs drop fifo frame compressed multicast|bytes    packets errs drop fifo colls "
+            + "carrier compressed\n"
+            + "    lo: 5000 10 0 0 0 0 0 0 5000 10 0 0 0 0 0 0\n"
+            + "  eth0: " + ethReceive + " 20 0 0 0 0 0 0 " + ethTransmit + " 30 0 0 0 0 0 0\n", "UTF-8");
+  }
+
+  @Test
+  public void testUpdate() throws IOException {
+    writeProcess("100", 250, 50, 10, 2, 4096, 8192);
+    writeProcess("101", 100, 0, 5, 1, 0, 1024);
+    writeNetDev(1000, 2000);
+    ProcessTreeStats stats = new ProcessTreeStats(procfs.getAbsolutePath());
+    stats.update(Arrays.asList("100", "101"));
+    Assert.assertEquals(stats.getCpuTimeMs(), 4000);
+    Assert.assertEquals(stats.getVoluntaryContextSwitches(), 15);
+    Assert.assertEquals(stats.getNonvoluntaryContextSwitches(), 3);
+    Assert.assertEquals(stats.getReadBytes(), 4096);
+    Assert.assertEquals(stats.getWriteBytes(), 9216);
+    Assert.assertEquals(stats.getNetworkReceiveBytes(), 0);
+
+    writeProcess("100", 300, 100, 20, 2, 4096, 8192);
+    writeNetDev(1500, 2100);
+    stats.update(Arrays.asList("100", "101"));
+    Assert.assertEquals(stats.getCpuTimeMs(), 5000);
+    Assert.assertEquals(stats.getNetworkReceiveBytes(), 500);
+    Assert.assertEquals(stats.getNetworkTransmitBytes(), 100);
+  }
+
+  @Test
+  public void testKeepsCountersOfExitedProcesses() throws IOException {
+    writeProcess("100", 250, 50, 10, 2, 4096, 8192);
+    writeProcess("101", 100, 0, 5, 1, 0, 1024);
+    ProcessTreeStats stats = new ProcessTreeStats(procfs.getAbsolutePath());
+    stats.update(Arrays.asList("100", "101"));
+
+    // 101 has exited.
+    FileUtils.deleteDirectory(new File(procfs, "101"));
+    stats.update(Collections.singletonList("100"));
+    Assert.assertEquals(stats.getCpuTimeMs(), 4000);
+    Assert.assertEquals(stats.getWriteBytes(), 9216);
+
+    // 100 disappeared between listing the tree and reading its files.
+    FileUtils.deleteDirectory(new File(procfs, "100"));
+    stats.update(Collections.singletonList("100"));
+    Assert.assertEquals(stats.getCpuTimeMs(), 4000);
+  }
+
+  @Test
+  public void testReadsOwnProcess() {
+    if (!new File("/proc/self/stat").exists()) {
+      return;
+    }
+    ProcessTreeStats stats = new ProcessTreeStats();
+    stats.update(Collections.singletonList("self"));
+    Assert.assertTrue(stats.getCpuTimeMs() > 0);
+    Assert.assertTrue(stats.getVoluntaryContextSwitches() + stats.getNonvoluntaryContextSwitches() > 0);
+  }
+}
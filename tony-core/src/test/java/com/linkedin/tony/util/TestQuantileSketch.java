@@ -0,0 +1,68 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.util;
+
+import java.util.Random;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class TestQuantileSketch {
+  private static void assertWithinRelativeError(double actual, double expected, double relativeError) {
+    Assert.assertEquals(actual, expected, expected * relativeError);
+  }
+
+  @Test
+  public void testQuantiles() {
+    QuantileSketch sketch = new QuantileSketch();
+    for (int i = 1; i <= 1000; i++) {
+      sketch.add(i);
+    }
+    Assert.assertEquals(sketch.getCount(), 1000);
+    assertWithinRelativeError(sketch.getQuantile(0.5), 500, QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+    assertWithinRelativeError(sketch.getQuantile(0.9), 900, QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+    assertWithinRelativeError(sketch.getQuantile(0.99), 990, QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+    Assert.assertEquals(sketch.getQuantile(0), 1d);
+    Assert.assertEquals(sketch.getQuantile(1), 1000d);
+  }
+
+  @Test
+  public void testBurstyValues() {
+    // Mostly idle with occasional bursts, which a mean would hide.
+    QuantileSketch sketch = new QuantileSketch();
+    Random random = new Random(0);
+    for (int i = 0; i < 10000; i++) {
+      sketch.add(i % 20 == 0 ? 90 + random.nextInt(10) : 0);
+    }
+    Assert.assertEquals(sketch.getQuantile(0.5), 0d);
+    Assert.assertEquals(sketch.getQuantile(0.9), 0d);
+    Assert.assertTrue(sketch.getQuantile(0.99) >= 90 * (1 - QuantileSketch.DEFAULT_RELATIVE_ACCURACY));
+  }
+
+  @Test
+  public void testIgnoresUnavailableValues() {
+    QuantileSketch sketch = new QuantileSketch();
+    Assert.assertTrue(Double.isNaN(sketch.getQuantile(0.5)));
+    sketch.add(-1);
+    sketch.add(Double.NaN);
+    Assert.assertEquals(sketch.getCount(), 0);
+  }
+
+  @Test
+  public void testCollapsesLowestBuckets() {
+    QuantileSketch sketch = new QuantileSketch(0.01, 64);
+    for (int i = 0; i < 100; i++) {
+      sketch.add(1);
+    }
+    for (int i = 0; i < 100; i++) {
+      sketch.add(1e12);
+    }
+    Assert.assertEquals(sketch.getCount(), 200);
+    // The high values are still accurate, the low ones have been merged into the lowest bucket.
+    assertWithinRelativeError(sketch.getQuantile(0.99), 1e12, 0.01);
+    Assert.assertEquals(sketch.getQuantile(0), 1d);
+    Assert.assertTrue(sketch.getQuantile(0.25) <= sketch.getQuantile(0.75));
+  }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.util;
+
+import com.linkedin.tony.TonyConfigurationKeys;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.yarn.api.records.LocalResourceVisibility;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+
+public class TestResourceCache {
+  private File workDir;
+  private Configuration tonyConf;
+  private FileSystem fs;
+
+  @BeforeMethod
+  public void setup() throws IOException {
+    workDir = com.google.common.io.Files.createTempDir();
+    tonyConf = new Configuration(false);
+    tonyConf.setBoolean(TonyConfigurationKeys.RESOURCE_CACHE_ENABLED, true);
+    tonyConf.set(TonyConfigurationKeys.RESOURCE_CACHE_LOCATION, new File(workDir, "cache").getAbsolutePath());
+    fs = FileSystem.getLocal(new Configuration());
+  }
+
+  @AfterMethod
+  public void cleanup() throws IOException {
+    FileUtils.deleteDirectory(workDir);
+  }
+
+  @Test
+  public void testUploadIsReusedForSameContent() throws IOException {
+    File first = new File(workDir, "venv.zip");
+    FileUtils.writeStringToFile(first, "same content", StandardCharsets.UTF_8);
+    ResourceCache cache = new ResourceCache(tonyConf, fs);
+
+    Path cached = cache.getOrUpload(new Path(first.getAbsolutePath()), first.getName());
+    assertTrue(fs.exists(cached));
+    long modificationTime = fs.getFileStatus(cached).getModificationTime();
+
+    assertEquals(cache.getOrUpload(new Path(first.getAbsolutePath()), first.getName()), cached);
+    assertEquals(fs.getFileStatus(cached).getModificationTime(), modificationTime);
+  }
+
+  @Test
+  public void testChangedContentGetsNewEntry() throws IOException {
+    File file = new File(workDir, "venv.zip");
+    FileUtils.writeStringToFile(file, "v1", StandardCharsets.UTF_8);
+    ResourceCache cache = new ResourceCache(tonyConf, fs);
+    Path first = cache.getOrUpload(new Path(file.getAbsolutePath()), file.getName());
+
+    FileUtils.writeStringToFile(file, "v2", StandardCharsets.UTF_8);
+    assertNull(cache.lookup(ResourceCache.hash(file.toPath()), file.getName()));
+    Path second = cache.getOrUpload(new Path(file.getAbsolutePath()), file.getName());
+    assertNotEquals(second, first);
+  }
+
+  @Test
+  public void testDirectoryHashDependsOnContentAndLayout() throws IOException {
+    File dirA = new File(workDir, "a");
+    File dirB = new File(workDir, "b");
+    FileUtils.writeStringToFile(new File(dirA, "x/model.py"), "print(1)", StandardCharsets.UTF_8);
+    FileUtils.writeStringToFile(new File(dirB, "x/model.py"), "print(1)", StandardCharsets.UTF_8);
+    assertEquals(ResourceCache.hash(dirA.toPath()), ResourceCache.hash(dirB.toPath()));
+
+    FileUtils.writeStringToFile(new File(dirB, "y/model.py"), "print(1)", StandardCharsets.UTF_8);
+    FileUtils.deleteDirectory(new File(dirB, "x"));
+    assertNotEquals(ResourceCache.hash(dirA.toPath()), ResourceCache.hash(dirB.toPath()));
+  }
+
+  @Test
+  public void testVisibilityOnlyAppliesInsideCache() throws IOException {
+    tonyConf.set(TonyConfigurationKeys.RESOURCE_CACHE_VISIBILITY, "APPLICATION");
+    ResourceCache cache = new ResourceCache(tonyConf, fs);
+
+    assertEquals(ResourceCache.getVisibility(new Path(cache.getCacheRoot(), "abc/venv.zip"), tonyConf),
+        LocalResourceVisibility.APPLICATION);
+    assertEquals(ResourceCache.getVisibility(new Path(workDir.getAbsolutePath(), "venv.zip"), tonyConf),
+        LocalResourceVisibility.PRIVATE);
+    assertEquals(ResourceCache.getVisibility(new Path(cache.getCacheRoot(), "abc/venv.zip"), null),
+        LocalResourceVisibility.PRIVATE);
+  }
+}
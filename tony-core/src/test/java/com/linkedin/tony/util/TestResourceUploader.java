@@ -0,0 +1,78 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.zip.ZipFile;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+
+
+public class TestResourceUploader {
+  private File workDir;
+  private FileSystem fs;
+
+  @BeforeMethod
+  public void setup() throws IOException {
+    workDir = com.google.common.io.Files.createTempDir();
+    fs = FileSystem.getLocal(new Configuration());
+  }
+
+  @AfterMethod
+  public void cleanup() throws IOException {
+    FileUtils.deleteDirectory(workDir);
+  }
+
+  @Test
+  public void testParallelFileUploads() throws Exception {
+    List<Future<Path>> uploads = new ArrayList<>();
+    try (ResourceUploader uploader = new ResourceUploader(fs, 3)) {
+      for (int i = 0; i < 5; i++) {
+        File src = new File(workDir, "src" + i);
+        FileUtils.writeStringToFile(src, "content" + i, StandardCharsets.UTF_8);
+        Path dst = new Path(workDir.getAbsolutePath(), "remote/dst" + i);
+        uploads.add(uploader.submit(() -> {
+          uploader.uploadFile(new Path(src.getAbsolutePath()), dst);
+          return dst;
+        }));
+      }
+      for (int i = 0; i < uploads.size(); i++) {
+        File uploaded = new File(uploads.get(i).get().toUri().getPath());
+        assertEquals(FileUtils.readFileToString(uploaded, StandardCharsets.UTF_8), "content" + i);
+      }
+    }
+  }
+
+  @Test
+  public void testDirectoryIsZippedWhileUploading() throws IOException {
+    File dir = new File(workDir, "src");
+    FileUtils.writeStringToFile(new File(dir, "main.py"), "print(1)", StandardCharsets.UTF_8);
+    FileUtils.writeStringToFile(new File(dir, "lib/util.py"), "print(2)", StandardCharsets.UTF_8);
+    Path dst = new Path(workDir.getAbsolutePath(), "remote/src.zip");
+
+    try (ResourceUploader uploader = new ResourceUploader(fs, 1)) {
+      uploader.uploadDirectory(dir.toPath(), dst);
+    }
+
+    try (ZipFile zip = new ZipFile(dst.toUri().getPath())) {
+      assertEquals(zip.size(), 2);
+      assertNotNull(zip.getEntry("main.py"));
+      assertNotNull(zip.getEntry("lib/util.py"));
+    }
+  }
+}
@@ -7,6 +7,7 @@ package com.linkedin.tony.util;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.linkedin.tony.TFConfig;
+import com.linkedin.tony.TonyConfigurationKeys;
 import com.linkedin.tony.tensorflow.JobContainerRequest;
 
 import java.io.File;
@@ -31,6 +32,7 @@ import org.testng.annotations.Test;
 
 import static com.linkedin.tony.Constants.JOBS_SUFFIX;
 import static com.linkedin.tony.Constants.LOGS_SUFFIX;
+import static com.linkedin.tony.Constants.TIMELINE_SUFFIX;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
@@ -50,6 +52,20 @@ public class TestUtils {
     assertEquals(Utils.parseMemoryString("3"), "3");
   }
 
+  @Test
+  public void testGetRpcHandlerCount() {
+    Configuration conf = new Configuration(false);
+    conf.setInt("tony.worker.instances", 2000);
+    conf.setInt("tony.ps.instances", 10);
+    assertEquals(Utils.getRpcHandlerCount(conf, TonyConfigurationKeys.AM_RPC_HANDLER_COUNT), 41);
+
+    conf.setInt("tony.worker.instances", 2);
+    assertEquals(Utils.getRpcHandlerCount(conf, TonyConfigurationKeys.AM_RPC_HANDLER_COUNT), 4);
+
+    conf.setInt(TonyConfigurationKeys.AM_RPC_HANDLER_COUNT, 7);
+    assertEquals(Utils.getRpcHandlerCount(conf, TonyConfigurationKeys.AM_RPC_HANDLER_COUNT), 7);
+  }
+
   @Test
   public void testPoll() {
     assertTrue(Utils.poll(() -> true, 1, 1));
@@ -316,8 +332,9 @@ public class TestUtils {
   public void testLinksToBeDisplayedOnPage() {
     assertEquals(Utils.linksToBeDisplayedOnPage(null), new TreeMap<>());
     Map<String, String> linksToBeDisplayed = Utils.linksToBeDisplayedOnPage("fakeJobId");
-    assertEquals(linksToBeDisplayed.size(), 2);
+    assertEquals(linksToBeDisplayed.size(), 3);
     assertEquals(linksToBeDisplayed.get("Logs"), "/" + LOGS_SUFFIX + "/" + "fakeJobId");
     assertEquals(linksToBeDisplayed.get("Events"), "/" + JOBS_SUFFIX + "/" + "fakeJobId");
+    assertEquals(linksToBeDisplayed.get("Timeline"), "/" + TIMELINE_SUFFIX + "/" + "fakeJobId");
   }
 }
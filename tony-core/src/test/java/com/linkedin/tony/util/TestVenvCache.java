@@ -0,0 +1,104 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+
+public class TestVenvCache {
+  private File workDir;
+  private File venvDir;
+  private File venvZip;
+  private VenvCache venvCache;
+
+  @BeforeMethod
+  public void setup() throws IOException {
+    workDir = com.google.common.io.Files.createTempDir();
+    venvDir = new File(workDir, "venv-src");
+    FileUtils.writeStringToFile(new File(venvDir, "bin/python"), "#!/bin/sh", StandardCharsets.UTF_8);
+    FileUtils.writeStringToFile(new File(venvDir, "lib/site-packages/tony.py"), "x = 1", StandardCharsets.UTF_8);
+    venvZip = new File(workDir, "venv.zip");
+    zip(venvDir, venvZip);
+    venvCache = new VenvCache(new File(workDir, "cache").toPath(), System.getProperty("user.name"));
+  }
+
+  @AfterMethod
+  public void cleanup() throws IOException {
+    FileUtils.deleteDirectory(workDir);
+  }
+
+  private static void zip(File dir, File zip) throws IOException {
+    try (OutputStream out = new FileOutputStream(zip)) {
+      Utils.zipFolder(dir.toPath(), out);
+    }
+  }
+
+  @Test
+  public void testContainersShareExtractedTree() throws IOException {
+    Path first = new File(workDir, "container1/venv").toPath();
+    Path second = new File(workDir, "container2/venv").toPath();
+    Files.createDirectories(first.getParent());
+    Files.createDirectories(second.getParent());
+
+    try (ZipExtractor extractor = new ZipExtractor(2)) {
+      venvCache.extract(venvZip.getAbsolutePath(), first.toString(), extractor);
+      // A different copy of the same archive maps to the same cache entry.
+      File copy = new File(workDir, "container2/venv.zip");
+      FileUtils.copyFile(venvZip, copy);
+      venvCache.extract(copy.getAbsolutePath(), second.toString(), extractor);
+    }
+
+    assertTrue(Files.isSymbolicLink(first));
+    assertEquals(Files.readSymbolicLink(second), Files.readSymbolicLink(first));
+    assertEquals(FileUtils.readFileToString(second.resolve("lib/site-packages/tony.py").toFile(),
+        StandardCharsets.UTF_8), "x = 1");
+    assertEquals(PosixFilePermissions.toString(Files.getPosixFilePermissions(Files.readSymbolicLink(first)
+        .getParent())), "rwx------");
+  }
+
+  @Test
+  public void testUnsafeCacheDirIsNotUsed() throws IOException {
+    // Another user could have placed a venv in a user directory that's writable by others.
+    Path userDir = new File(workDir, "cache/" + System.getProperty("user.name")).toPath();
+    Files.createDirectories(userDir);
+    Files.setPosixFilePermissions(userDir, PosixFilePermissions.fromString("rwxrwxrwx"));
+    Path venv = new File(workDir, "container1/venv").toPath();
+    Files.createDirectories(venv.getParent());
+
+    try (ZipExtractor extractor = new ZipExtractor(2)) {
+      venvCache.extract(venvZip.getAbsolutePath(), venv.toString(), extractor);
+    }
+
+    assertFalse(Files.isSymbolicLink(venv));
+    assertEquals(FileUtils.readFileToString(venv.resolve("lib/site-packages/tony.py").toFile(),
+        StandardCharsets.UTF_8), "x = 1");
+  }
+
+  @Test
+  public void testChangedArchiveGetsNewEntry() throws IOException {
+    String checksum = VenvCache.checksum(venvZip.getAbsolutePath());
+    assertEquals(VenvCache.checksum(venvZip.getAbsolutePath()), checksum);
+
+    FileUtils.writeStringToFile(new File(venvDir, "lib/site-packages/tony.py"), "x = 2", StandardCharsets.UTF_8);
+    zip(venvDir, venvZip);
+    assertNotEquals(VenvCache.checksum(venvZip.getAbsolutePath()), checksum);
+  }
+}
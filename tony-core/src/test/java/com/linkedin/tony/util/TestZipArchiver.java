@@ -0,0 +1,113 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+
+public class TestZipArchiver {
+  private File workDir;
+  private File srcDir;
+
+  @BeforeMethod
+  public void setup() throws IOException {
+    workDir = com.google.common.io.Files.createTempDir();
+    srcDir = new File(workDir, "src");
+    Random random = new Random(42);
+
+    StringBuilder text = new StringBuilder();
+    while (text.length() < 3 * ZipArchiver.CHUNK_SIZE + 123) {
+      text.append("step ").append(random.nextInt(1000)).append('\n');
+    }
+    FileUtils.writeStringToFile(new File(srcDir, "logs/train.log"), text.toString(), StandardCharsets.UTF_8);
+    byte[] wheel = new byte[ZipArchiver.CHUNK_SIZE + 7];
+    random.nextBytes(wheel);
+    FileUtils.writeByteArrayToFile(new File(srcDir, "numpy-1.19.5-cp37-cp37m-linux_x86_64.whl"), wheel);
+    FileUtils.writeStringToFile(new File(srcDir, "model.py"), "print('hello')", StandardCharsets.UTF_8);
+    FileUtils.writeByteArrayToFile(new File(srcDir, "empty"), new byte[0]);
+  }
+
+  @AfterMethod
+  public void cleanup() throws IOException {
+    FileUtils.deleteDirectory(workDir);
+  }
+
+  private byte[] archive(int numThreads, boolean storeOnly) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ZipArchiver archiver = new ZipArchiver(numThreads, storeOnly)) {
+      archiver.archive(srcDir.toPath(), out);
+    }
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testArchiveIsReproducible() throws IOException {
+    byte[] first = archive(1, false);
+    assertTrue(new File(srcDir, "model.py").setLastModified(System.currentTimeMillis() - 100000));
+    byte[] second = archive(4, false);
+    assertTrue(Arrays.equals(first, second));
+  }
+
+  @Test
+  public void testArchiveRoundTrip() throws IOException {
+    File zip = new File(workDir, "src.zip");
+    FileUtils.writeByteArrayToFile(zip, archive(4, false));
+
+    try (ZipFile zipFile = new ZipFile(zip)) {
+      assertEquals(zipFile.getEntry("logs/train.log").getMethod(), ZipEntry.DEFLATED);
+      assertEquals(zipFile.getEntry("numpy-1.19.5-cp37-cp37m-linux_x86_64.whl").getMethod(), ZipEntry.STORED);
+      assertEquals(Collections.list(zipFile.entries()).size(), 4);
+    }
+
+    File extracted = new File(workDir, "extracted");
+    Utils.unzipArchive(zip.getAbsolutePath(), extracted.getAbsolutePath());
+    for (String name : new String[]{"logs/train.log", "numpy-1.19.5-cp37-cp37m-linux_x86_64.whl", "model.py", "empty"}) {
+      assertTrue(FileUtils.contentEquals(new File(srcDir, name), new File(extracted, name)), name);
+    }
+  }
+
+  @Test
+  public void testStoreOnly() throws IOException {
+    File zip = new File(workDir, "src.zip");
+    FileUtils.writeByteArrayToFile(zip, archive(2, true));
+    try (ZipFile zipFile = new ZipFile(zip)) {
+      for (ZipEntry entry : Collections.list(zipFile.entries())) {
+        assertEquals(entry.getMethod(), ZipEntry.STORED, entry.getName());
+        assertEquals(entry.getCompressedSize(), entry.getSize());
+      }
+    }
+  }
+
+  @Test
+  public void testCrc32Combine() throws IOException {
+    byte[] data = Files.readAllBytes(new File(srcDir, "logs/train.log").toPath());
+    int split = 12345;
+    CRC32 whole = new CRC32();
+    whole.update(data);
+    CRC32 first = new CRC32();
+    first.update(data, 0, split);
+    CRC32 second = new CRC32();
+    second.update(data, split, data.length - split);
+
+    assertEquals(ZipArchiver.crc32Combine(first.getValue(), second.getValue(), data.length - split), whole.getValue());
+  }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+
+public class TestZipExtractor {
+  private File workDir;
+
+  @BeforeMethod
+  public void setup() {
+    workDir = com.google.common.io.Files.createTempDir();
+  }
+
+  @AfterMethod
+  public void cleanup() throws IOException {
+    FileUtils.deleteDirectory(workDir);
+  }
+
+  @Test
+  public void testExtractMatchesSource() throws IOException {
+    File srcDir = new File(workDir, "src");
+    byte[] data = new byte[3 * 1024 * 1024];
+    new Random(7).nextBytes(data);
+    FileUtils.writeByteArrayToFile(new File(srcDir, "lib/libtorch.so"), data);
+    for (int i = 0; i < 50; i++) {
+      FileUtils.writeStringToFile(new File(srcDir, "pkg" + i % 5 + "/mod" + i + ".py"), "x = " + i,
+          StandardCharsets.UTF_8);
+    }
+    FileUtils.writeByteArrayToFile(new File(srcDir, "empty"), new byte[0]);
+    File zip = new File(workDir, "src.zip");
+    try (OutputStream out = new FileOutputStream(zip)) {
+      Utils.zipFolder(srcDir.toPath(), out);
+    }
+
+    File dst = new File(workDir, "dst");
+    try (ZipExtractor extractor = new ZipExtractor(4)) {
+      extractor.extract(zip.getAbsolutePath(), dst.getAbsolutePath());
+    }
+    assertTrue(FileUtils.contentEquals(new File(srcDir, "lib/libtorch.so"), new File(dst, "lib/libtorch.so")));
+    assertTrue(FileUtils.contentEquals(new File(srcDir, "pkg3/mod13.py"), new File(dst, "pkg3/mod13.py")));
+    assertTrue(new File(dst, "empty").isFile());
+  }
+
+  @Test
+  public void testEntriesOutsideTargetAreRejected() throws IOException {
+    File zip = new File(workDir, "evil.zip");
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip))) {
+      out.putNextEntry(new ZipEntry("../escaped.txt"));
+      out.write(1);
+      out.closeEntry();
+    }
+
+    File dst = new File(workDir, "dst");
+    try (ZipExtractor extractor = new ZipExtractor(2)) {
+      extractor.extract(zip.getAbsolutePath(), dst.getAbsolutePath());
+      fail("Extracting an entry outside of the target directory should fail");
+    } catch (IOException e) {
+      assertFalse(new File(workDir, "escaped.txt").exists());
+    }
+  }
+}
@@ -45,5 +45,8 @@ public class TestGpuDeviceInformationParser {
     Assert.assertEquals(16384, gpu1.getGpuMainMemoryUsage().getTotalMemoryMiB());
     Assert.assertEquals(10.3f,
         gpu1.getGpuUtilizations().getOverallGpuUtilization(), 1e-6);
+    Assert.assertEquals(34f, gpu1.getTemperature().getCurrentGpuTemp(), 1e-6);
+    Assert.assertEquals(25.54f, gpu1.getPowerReadings().getPowerDraw(), 1e-6);
+    Assert.assertTrue(gpu1.getProcesses().isEmpty());
   }
 }
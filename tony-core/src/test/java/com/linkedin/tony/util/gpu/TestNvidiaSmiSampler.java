@@ -0,0 +1,115 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.tony.util.gpu;
+
+import com.linkedin.tony.TonyConfigurationKeys;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+public class TestNvidiaSmiSampler {
+  private static final long TIMEOUT_MS = 10000;
+  private File folder;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    folder = new File("target/temp/" + TestNvidiaSmiSampler.class.getName()).getAbsoluteFile();
+    FileUtils.deleteDirectory(folder);
+    Assert.assertTrue(folder.mkdirs());
+  }
+
+  private File fakeNvidiaSmi(String script) throws IOException {
+    File binary = new File(folder, GpuDiscoverer.DEFAULT_BINARY_NAME);
+    FileUtils.writeStringToFile(binary, "#!/bin/sh\n" + script, "UTF-8");
+    Assert.assertTrue(binary.setExecutable(true));
+    return binary;
+  }
+
+  @Test
+  public void testParseLine() {
+    PerGpuDeviceInformation gpu =
+        NvidiaSmiSampler.parseLine("1, GPU-5a2e, Tesla V100-SXM2-16GB, 45, 1024, 15136, 38, 62.47");
+    Assert.assertNotNull(gpu);
+    Assert.assertEquals(gpu.getMinorNumber(), 1);
+    Assert.assertEquals(gpu.getUuid(), "GPU-5a2e");
+    Assert.assertEquals(gpu.getProductName(), "Tesla V100-SXM2-16GB");
+    Assert.assertEquals(gpu.getGpuUtilizations().getOverallGpuUtilization(), 45f, 1e-6);
+    Assert.assertEquals(gpu.getGpuFBMemoryUsage().getUsedMemoryMiB().longValue(), 1024L);
+    Assert.assertEquals(gpu.getGpuFBMemoryUsage().getTotalMemoryMiB(), 16160L);
+    Assert.assertEquals(gpu.getTemperature().getCurrentGpuTemp(), 38f, 1e-6);
+    Assert.assertEquals(gpu.getPowerReadings().getPowerDraw(), 62.47f, 1e-6);
+    Assert.assertNull(gpu.getGpuMainMemoryUsage());
+
+    gpu = NvidiaSmiSampler.parseLine("0, GPU-1b3c, Tesla K80, [Not Supported], 0, 11441, 30, [N/A]");
+    Assert.assertNotNull(gpu);
+    Assert.assertEquals(gpu.getGpuUtilizations().getOverallGpuUtilization(), -1f, 1e-6);
+    Assert.assertEquals(gpu.getPowerReadings().getPowerDraw(), -1f, 1e-6);
+
+    Assert.assertNull(NvidiaSmiSampler.parseLine("index, uuid, name"));
+    Assert.assertNull(NvidiaSmiSampler.parseLine("Failed to initialize NVML: Driver/library version mismatch"));
+  }
+
+  @Test
+  public void testSampler() throws Exception {
+    File binary = fakeNvidiaSmi("while true; do\n"
+        + "  case \"$1\" in\n"
+        + "    --query-gpu=*)\n"
+        + "      echo '0, GPU-aaaa, Tesla V100, 10, 1000, 15000, 35, 40.5'\n"
+        + "      echo '1, GPU-bbbb, Tesla V100, 90, 8000, 8000, 60, 250.1';;\n"
+        + "    --query-compute-apps=*)\n"
+        + "      echo 'GPU-bbbb, 4242, 7990';;\n"
+        + "  esac\n"
+        + "  sleep 0.05\n"
+        + "done\n");
+    try (NvidiaSmiSampler sampler = new NvidiaSmiSampler(binary.getAbsolutePath(), new HashMap<>(), 50)) {
+      sampler.start();
+      GpuDeviceInformation info = null;
+      long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+      while ((info == null || info.getGpus().size() < 2 || info.getGpus().get(1).getProcesses().isEmpty())
+          && System.currentTimeMillis() < deadline) {
+        Thread.sleep(20);
+        info = sampler.getLatestSample(TIMEOUT_MS);
+      }
+      Assert.assertNotNull(info);
+      Assert.assertEquals(info.getGpus().size(), 2);
+      Assert.assertEquals(info.getGpus().get(0).getUuid(), "GPU-aaaa");
+      Assert.assertEquals(info.getGpus().get(1).getGpuUtilizations().getOverallGpuUtilization(), 90f, 1e-6);
+      Assert.assertTrue(info.getGpus().get(0).getProcesses().isEmpty());
+      PerGpuProcessInfo process = info.getGpus().get(1).getProcesses().get(0);
+      Assert.assertEquals(process.getPid(), 4242);
+      Assert.assertEquals(process.getUsedMemoryMiB().longValue(), 7990L);
+      Assert.assertTrue(sampler.isRunning());
+    }
+  }
+
+  @Test
+  public void testFallBackToXmlWhenSamplerExits() throws Exception {
+    File xml = new File("tony-core/src/test/resources/nvidia-smi-sample-xml-output").getAbsoluteFile();
+    // Only supports -x -q, like an nvidia-smi too old for query mode.
+    File binary = fakeNvidiaSmi("if [ \"$1\" = \"-x\" ]; then cat '" + xml + "'; else exit 1; fi\n");
+    Configuration conf = new Configuration(false);
+    conf.set(TonyConfigurationKeys.GPU_PATH_TO_EXEC, binary.getAbsolutePath());
+    GpuDiscoverer discoverer = new GpuDiscoverer();
+    Assert.assertNotNull(discoverer.initialize(conf));
+    discoverer.startSampling(50);
+    Assert.assertTrue(discoverer.isSampling());
+
+    long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+    while (discoverer.isSampling() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+      Assert.assertEquals(discoverer.getGpuDeviceInformation().getGpus().size(), 2);
+    }
+    Assert.assertFalse(discoverer.isSampling());
+    GpuDeviceInformation info = discoverer.getGpuDeviceInformation();
+    Assert.assertEquals(info.getDriverVersion(), "375.66");
+    Assert.assertEquals(info.getGpus().get(1).getGpuMainMemoryUsage().getTotalMemoryMiB(), 16384);
+  }
+}
@@ -41,7 +41,8 @@ public class JobEventPageController extends Controller {
     // Check cache
     listOfEvents = cache.getIfPresent(jobId);
     if (listOfEvents != null) {
-      return ok(views.html.event.render(listOfEvents, Utils.linksToBeDisplayedOnPage(jobId)));
+      return ok(views.html.event.render(listOfEvents, ParserUtils.mapJobEventToJobStartupPhases(listOfEvents),
+          Utils.linksToBeDisplayedOnPage(jobId)));
     }
 
     // Check finished dir
@@ -50,7 +51,8 @@ public class JobEventPageController extends Controller {
       listOfEvents = ParserUtils.mapEventToJobEvent(ParserUtils.parseEvents(myFs, jobFolder));
       cache.put(jobId, listOfEvents);
       //todo: Since file is already parsed , its better to populate job log cache
-      return ok(views.html.event.render(listOfEvents, Utils.linksToBeDisplayedOnPage(jobId)));
+      return ok(views.html.event.render(listOfEvents, ParserUtils.mapJobEventToJobStartupPhases(listOfEvents),
+          Utils.linksToBeDisplayedOnPage(jobId)));
     }
 
     // Check intermediate dir
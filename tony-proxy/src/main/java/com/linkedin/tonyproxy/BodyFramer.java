@@ -0,0 +1,219 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+
+package com.linkedin.tonyproxy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+
+/**
+ * Tracks where the body of an HTTP/1.x message ends while it is passed through unchanged, so that the connection
+ * can carry another message afterwards. Chunked bodies are followed chunk by chunk without being decoded.
+ */
+final class BodyFramer {
+  private enum Mode { LENGTH, CHUNKED, UNTIL_CLOSE }
+
+  private enum ChunkState { SIZE, EXTENSION, DATA, DATA_END, TRAILER_START, TRAILER_LINE }
+
+  private final Mode mode;
+  private long remaining;
+  private ChunkState chunkState = ChunkState.SIZE;
+  private boolean complete;
+
+  private BodyFramer(Mode mode, long length) {
+    this.mode = mode;
+    this.remaining = length;
+    this.complete = mode == Mode.LENGTH && length == 0;
+  }
+
+  /**
+   * Upstream connections are reused for requests of other clients, so a request whose body length is ambiguous is
+   * rejected rather than guessed at: the upstream server could frame it differently and take the rest of the body
+   * as another request.
+   * @throws IOException if the request can't be framed unambiguously
+   */
+  static BodyFramer forRequest(HttpHead request) throws IOException {
+    if (!request.getHeaders("Transfer-Encoding").isEmpty()) {
+      if (!request.getHeaders("Content-Length").isEmpty()) {
+        throw new IOException("Both Transfer-Encoding and Content-Length");
+      }
+      if (!isChunkedLast(request)) {
+        throw new IOException("Unsupported Transfer-Encoding: " + request.getHeaders("Transfer-Encoding"));
+      }
+      return new BodyFramer(Mode.CHUNKED, 0);
+    }
+    long length = contentLength(request);
+    if (!request.getHeaders("Content-Length").isEmpty()) {
+      // Forward a repeated length once.
+      request.setHeader("Content-Length", String.valueOf(length));
+    }
+    return new BodyFramer(Mode.LENGTH, length);
+  }
+
+  /**
+   * @return whether chunked is the last transfer coding, which is the only way it delimits the body
+   */
+  private static boolean isChunkedLast(HttpHead head) {
+    List<String> values = head.getHeaders("Transfer-Encoding");
+    String[] codings = values.get(values.size() - 1).split(",");
+    return codings[codings.length - 1].trim().equalsIgnoreCase("chunked");
+  }
+
+  static BodyFramer forResponse(HttpHead request, HttpHead response) throws IOException {
+    int status = response.getStatus();
+    if ("HEAD".equals(request.getMethod()) || status / 100 == 1 || status == 204 || status == 304) {
+      return new BodyFramer(Mode.LENGTH, 0);
+    }
+    if (response.hasToken("Transfer-Encoding", "chunked")) {
+      return new BodyFramer(Mode.CHUNKED, 0);
+    }
+    if (!response.getHeaders("Content-Length").isEmpty()) {
+      return new BodyFramer(Mode.LENGTH, contentLength(response));
+    }
+    return untilClose();
+  }
+
+  /**
+   * @return a framer for a body that only ends when its connection is closed, which is also how the two directions
+   *         of an upgraded (e.g. WebSocket) connection are passed through
+   */
+  static BodyFramer untilClose() {
+    return new BodyFramer(Mode.UNTIL_CLOSE, 0);
+  }
+
+  /**
+   * @return the length of the body, which may be repeated, in several headers or as a list, but only with one value
+   */
+  private static long contentLength(HttpHead head) throws IOException {
+    long length = -1;
+    for (String header : head.getHeaders("Content-Length")) {
+      for (String value : header.split(",", -1)) {
+        long valueLength = parseContentLength(value.trim());
+        if (length >= 0 && valueLength != length) {
+          throw new IOException("Conflicting Content-Length: " + head.getHeaders("Content-Length"));
+        }
+        length = valueLength;
+      }
+    }
+    return Math.max(length, 0);
+  }
+
+  private static long parseContentLength(String value) throws IOException {
+    // Long.parseLong would also take a sign.
+    if (!value.isEmpty() && value.length() <= 18 && value.chars().allMatch(c -> c >= '0' && c <= '9')) {
+      return Long.parseLong(value);
+    }
+    throw new IOException("Invalid Content-Length: " + value);
+  }
+
+  boolean isComplete() {
+    return complete;
+  }
+
+  boolean isDelimitedByClose() {
+    return mode == Mode.UNTIL_CLOSE;
+  }
+
+  /**
+   * Called when the connection the body is read from reaches end of stream.
+   * @throws IOException if the body was cut short
+   */
+  void onEndOfStream() throws IOException {
+    if (mode == Mode.UNTIL_CLOSE) {
+      complete = true;
+    } else if (!complete) {
+      throw new IOException("Connection closed in the middle of a message body");
+    }
+  }
+
+  /**
+   * Scans bytes from {@code buffer}'s position up to its limit, without moving the position.
+   * @return how many of them belong to the body, which is fewer than available only if the body ends within them
+   */
+  int scan(ByteBuffer buffer) throws IOException {
+    int available = buffer.remaining();
+    if (complete) {
+      return 0;
+    }
+    switch (mode) {
+      case UNTIL_CLOSE:
+        return available;
+      case LENGTH: {
+        int n = (int) Math.min(remaining, available);
+        remaining -= n;
+        complete = remaining == 0;
+        return n;
+      }
+      default:
+        return scanChunked(buffer, available);
+    }
+  }
+
+  private int scanChunked(ByteBuffer buffer, int available) throws IOException {
+    int start = buffer.position();
+    int i = 0;
+    while (i < available && !complete) {
+      if (chunkState == ChunkState.DATA) {
+        int n = (int) Math.min(remaining, available - i);
+        remaining -= n;
+        i += n;
+        if (remaining == 0) {
+          chunkState = ChunkState.DATA_END;
+        }
+        continue;
+      }
+      byte b = buffer.get(start + i++);
+      switch (chunkState) {
+        case SIZE: {
+          int digit = Character.digit(b, 16);
+          if (digit >= 0) {
+            if (remaining > (Long.MAX_VALUE >> 4)) {
+              throw new IOException("Chunk size too large");
+            }
+            remaining = remaining * 16 + digit;
+          } else if (b == '\n') {
+            endOfSizeLine();
+          } else {
+            chunkState = ChunkState.EXTENSION;
+          }
+          break;
+        }
+        case EXTENSION:
+          if (b == '\n') {
+            endOfSizeLine();
+          }
+          break;
+        case DATA_END:
+          if (b == '\n') {
+            chunkState = ChunkState.SIZE;
+          } else if (b != '\r') {
+            throw new IOException("Malformed chunk");
+          }
+          break;
+        case TRAILER_START:
+          if (b == '\n') {
+            complete = true;
+          } else if (b != '\r') {
+            chunkState = ChunkState.TRAILER_LINE;
+          }
+          break;
+        case TRAILER_LINE:
+          if (b == '\n') {
+            chunkState = ChunkState.TRAILER_START;
+          }
+          break;
+        default:
+          throw new IllegalStateException("Unexpected state " + chunkState);
+      }
+    }
+    return i;
+  }
+
+  private void endOfSizeLine() {
+    chunkState = remaining == 0 ? ChunkState.TRAILER_START : ChunkState.DATA;
+  }
+}
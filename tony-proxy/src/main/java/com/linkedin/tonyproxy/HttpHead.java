@@ -0,0 +1,192 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+
+package com.linkedin.tonyproxy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+
+/**
+ * Start line and headers of an HTTP/1.x request or response.
+ */
+final class HttpHead {
+  private final String[] startLine;
+  // name/value pairs, in the order they were received
+  private final List<String[]> headers;
+
+  private HttpHead(String[] startLine, List<String[]> headers) {
+    this.startLine = startLine;
+    this.headers = headers;
+  }
+
+  /**
+   * @return the length of the head at the start of {@code buffer}, which is in fill mode, including the empty line
+   *         that ends it, or -1 if the buffer doesn't contain a complete head yet
+   */
+  static int find(ByteBuffer buffer) {
+    for (int i = 0; i < buffer.position(); i++) {
+      if (buffer.get(i) != '\n') {
+        continue;
+      }
+      if (i >= 1 && buffer.get(i - 1) == '\n') {
+        return i + 1;
+      }
+      if (i >= 2 && buffer.get(i - 1) == '\r' && buffer.get(i - 2) == '\n') {
+        return i + 1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Parses and removes the first {@code length} bytes of {@code buffer}, which is in fill mode.
+   */
+  static HttpHead parse(ByteBuffer buffer, int length) throws IOException {
+    byte[] bytes = new byte[length];
+    buffer.flip();
+    buffer.get(bytes);
+    buffer.compact();
+
+    String[] lines = new String(bytes, StandardCharsets.ISO_8859_1).split("\r?\n");
+    String[] startLine = lines[0].split(" ", 3);
+    if (startLine.length == 2 && startLine[0].startsWith("HTTP/")) {
+      // The reason phrase of a status line may be empty.
+      startLine = new String[] {startLine[0], startLine[1], ""};
+    }
+    if (startLine.length < 3 || (!startLine[0].startsWith("HTTP/") && !startLine[2].startsWith("HTTP/"))) {
+      throw new IOException("Malformed HTTP start line: " + lines[0]);
+    }
+    List<String[]> headers = new ArrayList<>();
+    for (int i = 1; i < lines.length; i++) {
+      int colon = lines[i].indexOf(':');
+      if (colon <= 0) {
+        throw new IOException("Malformed HTTP header: " + lines[i]);
+      }
+      headers.add(new String[] {lines[i].substring(0, colon).trim(), lines[i].substring(colon + 1).trim()});
+    }
+    return new HttpHead(startLine, headers);
+  }
+
+  String getMethod() {
+    return startLine[0];
+  }
+
+  String getTarget() {
+    return startLine[1];
+  }
+
+  void setTarget(String target) {
+    startLine[1] = target;
+  }
+
+  int getStatus() {
+    try {
+      return Integer.parseInt(startLine[1]);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  boolean isHttp11() {
+    return "HTTP/1.1".equals(startLine[0].startsWith("HTTP/") ? startLine[0] : startLine[2]);
+  }
+
+  String getHeader(String name) {
+    for (String[] header : headers) {
+      if (header[0].equalsIgnoreCase(name)) {
+        return header[1];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the values of every {@code name} header, in the order they were received
+   */
+  List<String> getHeaders(String name) {
+    List<String> values = new ArrayList<>();
+    for (String[] header : headers) {
+      if (header[0].equalsIgnoreCase(name)) {
+        values.add(header[1]);
+      }
+    }
+    return values;
+  }
+
+  void setHeader(String name, String value) {
+    removeHeader(name);
+    headers.add(new String[] {name, value});
+  }
+
+  void removeHeader(String name) {
+    Iterator<String[]> it = headers.iterator();
+    while (it.hasNext()) {
+      if (it.next()[0].equalsIgnoreCase(name)) {
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * @return whether a comma-separated header such as Connection or Transfer-Encoding lists {@code token}
+   */
+  boolean hasToken(String name, String token) {
+    for (String[] header : headers) {
+      if (header[0].equalsIgnoreCase(name)) {
+        for (String value : header[1].split(",")) {
+          if (value.trim().equalsIgnoreCase(token)) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  boolean isKeepAlive() {
+    return isHttp11() ? !hasToken("Connection", "close") : hasToken("Connection", "keep-alive");
+  }
+
+  ByteBuffer toBuffer() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(startLine[0]).append(' ').append(startLine[1]).append(' ').append(startLine[2]).append("\r\n");
+    for (String[] header : headers) {
+      sb.append(header[0]).append(": ").append(header[1]).append("\r\n");
+    }
+    sb.append("\r\n");
+    return ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.ISO_8859_1));
+  }
+
+  /**
+   * @return a complete response carrying {@code message} as plain text, after which the connection is closed
+   */
+  static ByteBuffer errorResponse(int status, String reason, String message) {
+    byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+    String head = "HTTP/1.1 " + status + " " + reason + "\r\n"
+        + "Content-Type: text/plain; charset=utf-8\r\n"
+        + "Content-Length: " + body.length + "\r\n"
+        + "Connection: close\r\n\r\n";
+    ByteBuffer buffer = ByteBuffer.allocate(head.length() + body.length);
+    buffer.put(head.getBytes(StandardCharsets.ISO_8859_1)).put(body);
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * @return a response redirecting to {@code location}, after which the connection is closed
+   */
+  static ByteBuffer redirectResponse(String location) {
+    String head = "HTTP/1.1 301 Moved Permanently\r\n"
+        + "Location: " + location + "\r\n"
+        + "Content-Length: 0\r\n"
+        + "Connection: close\r\n\r\n";
+    return ByteBuffer.wrap(head.getBytes(StandardCharsets.ISO_8859_1));
+  }
+}
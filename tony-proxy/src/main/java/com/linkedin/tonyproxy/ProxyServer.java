@@ -5,11 +5,17 @@
 
 package com.linkedin.tonyproxy;
 
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.function.LongConsumer;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -17,75 +23,318 @@ import org.apache.commons.logging.LogFactory;
 /**
  * This class is used to proxy requests from gateway to the cluster hosts.
  * Initial purpose of this class to to proxy requests to gateway to the hosts.
+ *
+ * <p>All connections are served by a single selector thread. Each direction of a connection has one direct buffer
+ * that bytes are read into and written out of, so data is never copied onto the heap. When a buffer is full,
+ * reading from its source pauses until the other side has drained it. Once {@code maxConnections} connections are
+ * open, new connections are left in the accept backlog until one is closed.
  */
-public class ProxyServer {
+public class ProxyServer implements Closeable {
 
   private static final Log LOG = LogFactory.getLog(ProxyServer.class);
-  private String remoteHost;
-  private int remotePort;
-  private int localPort;
+  public static final int DEFAULT_MAX_CONNECTIONS = 1024;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  // How long accepting pauses after it failed, e.g. because the process ran out of file descriptors, since the
+  // pending connection keeps the server socket ready and would otherwise be retried in a busy loop.
+  private static final long ACCEPT_RETRY_MS = 100;
+
+  private final String remoteHost;
+  private final int remotePort;
+  private final int localPort;
+  private final int maxConnections;
+  private final ProxyStats stats = new ProxyStats();
+  private InetSocketAddress remoteAddress;
+  private volatile Selector selector;
+  private volatile ServerSocketChannel serverChannel;
+  private SelectionKey acceptKey;
+  // When to accept again after accepting failed, or 0
+  private long acceptResumeMs;
+  private volatile boolean running = true;
+
   public ProxyServer(String remoteHost, int remotePort, int localPort) {
+    this(remoteHost, remotePort, localPort, DEFAULT_MAX_CONNECTIONS);
+  }
+
+  public ProxyServer(String remoteHost, int remotePort, int localPort, int maxConnections) {
     this.remoteHost = remoteHost;
     this.remotePort = remotePort;
     this.localPort = localPort;
+    this.maxConnections = maxConnections;
   }
+
+  /**
+   * Binds the local port and proxies connections until {@link #close()} is called.
+   */
   public void start() throws IOException {
+    bind();
+    serve();
+  }
+
+  /**
+   * @return the port the proxy is listening on, which is only known after binding if 0 was requested
+   */
+  public int getLocalPort() {
+    return serverChannel != null ? serverChannel.socket().getLocalPort() : localPort;
+  }
+
+  public ProxyStats getStats() {
+    return stats;
+  }
+
+  /**
+   * Stops the proxy and closes all connections.
+   */
+  @Override
+  public void close() {
+    running = false;
+    if (selector != null) {
+      selector.wakeup();
+    }
+  }
+
+  synchronized void bind() throws IOException {
     LOG.info("Starting proxy for " + remoteHost + ":" + remotePort
              + " on port " + localPort);
-    ServerSocket server = new ServerSocket(localPort);
-    while (true) {
-      new Proxy(server.accept(), remoteHost, remotePort).start();
+    remoteAddress = new InetSocketAddress(remoteHost, remotePort);
+    selector = Selector.open();
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.configureBlocking(false);
+    serverChannel.bind(new InetSocketAddress(localPort));
+    acceptKey = serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+  }
+
+  void serve() throws IOException {
+    try {
+      while (running) {
+        if (acceptResumeMs == 0) {
+          selector.select();
+        } else {
+          selector.select(Math.max(1, acceptResumeMs - System.currentTimeMillis()));
+          if (System.currentTimeMillis() >= acceptResumeMs) {
+            acceptResumeMs = 0;
+            resumeAccepting();
+          }
+        }
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+          if (key.isAcceptable()) {
+            accept();
+          } else {
+            ((Connection) key.attachment()).handle(key);
+          }
+        }
+      }
+    } finally {
+      for (SelectionKey key : selector.keys()) {
+        if (key.attachment() instanceof Connection) {
+          ((Connection) key.attachment()).close();
+        }
+      }
+      selector.close();
+      serverChannel.close();
+      LOG.info("Proxy for " + remoteHost + ":" + remotePort + " stopped: " + stats);
     }
   }
 
-  static class Proxy extends Thread {
-    private Socket clientSocket;
-    private final String serverHost;
-    private final int serverPort;
-    Proxy(Socket client, String host, int port) {
-      this.clientSocket = client;
-      this.serverHost = host;
-      this.serverPort = port;
-    }
-
-    @Override
-    public void run() {
-      try (Socket server = new Socket(serverHost, serverPort);
-          final InputStream inFromClient = clientSocket.getInputStream();
-          final OutputStream outToClient = clientSocket.getOutputStream();
-          final InputStream inFromServer = server.getInputStream();
-          final OutputStream outToServer = server.getOutputStream();
-      ) {
-        final byte[] request = new byte[1024];
-        byte[] reply = new byte[4096];
-        new Thread(() -> {
-          int bytesRead;
-          try {
-            while ((bytesRead = inFromClient.read(request)) != -1) {
-              outToServer.write(request, 0, bytesRead);
-              outToServer.flush();
-            }
-            outToServer.close();
-          } catch (IOException e) {
-            LOG.error(e);
+  /**
+   * Accepts a connection and starts connecting to the remote for it. A failure only affects that connection.
+   */
+  private void accept() {
+    SocketChannel client;
+    try {
+      client = serverChannel.accept();
+    } catch (IOException e) {
+      LOG.warn("Failed to accept a connection, pausing for " + ACCEPT_RETRY_MS + " ms", e);
+      acceptKey.interestOps(0);
+      acceptResumeMs = System.currentTimeMillis() + ACCEPT_RETRY_MS;
+      return;
+    }
+    if (client == null) {
+      return;
+    }
+    stats.connectionOpened();
+    SocketChannel remote;
+    try {
+      remote = SocketChannel.open();
+    } catch (IOException e) {
+      LOG.warn("Failed to open a connection to " + remoteAddress, e);
+      stats.connectionFailed();
+      closeQuietly(client);
+      stats.connectionClosed();
+      return;
+    }
+    Connection connection = new Connection(client, remote);
+    try {
+      connection.register();
+    } catch (IOException e) {
+      LOG.warn("Failed to connect to " + remoteAddress, e);
+      stats.connectionFailed();
+      connection.close();
+    }
+    if (stats.getActiveConnections() >= maxConnections && acceptKey.interestOps() != 0) {
+      LOG.info("Reached " + maxConnections + " connections, not accepting new ones until some are closed");
+      acceptKey.interestOps(0);
+    }
+  }
+
+  private void resumeAccepting() {
+    if (running && acceptKey.isValid() && acceptKey.interestOps() == 0 && acceptResumeMs == 0
+        && stats.getActiveConnections() < maxConnections) {
+      acceptKey.interestOps(SelectionKey.OP_ACCEPT);
+    }
+  }
+
+  /**
+   * A client connection and its connection to the remote.
+   */
+  private final class Connection {
+    private final SocketChannel client;
+    private final SocketChannel remote;
+    private final Pipe toRemote;
+    private final Pipe toClient;
+    private final long startNanos = System.nanoTime();
+    private SelectionKey clientKey;
+    private SelectionKey remoteKey;
+    private boolean connected;
+    private boolean closed;
+
+    Connection(SocketChannel client, SocketChannel remote) {
+      this.client = client;
+      this.remote = remote;
+      this.toRemote = new Pipe(client, remote, stats::addBytesToRemote);
+      this.toClient = new Pipe(remote, client, stats::addBytesToClient);
+    }
+
+    void register() throws IOException {
+      client.configureBlocking(false);
+      client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      remote.configureBlocking(false);
+      remote.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      clientKey = client.register(selector, 0, this);
+      remoteKey = remote.register(selector, SelectionKey.OP_CONNECT, this);
+      if (remote.connect(remoteAddress)) {
+        onConnected();
+      }
+    }
+
+    private void onConnected() {
+      connected = true;
+      stats.recordConnectLatency(System.nanoTime() - startNanos);
+      updateInterestOps();
+    }
+
+    void handle(SelectionKey key) {
+      try {
+        if (key.isConnectable()) {
+          if (!remote.finishConnect()) {
+            return;
           }
-        }).start();
-        int bytesRead;
-        while ((bytesRead = inFromServer.read(reply)) != -1) {
-          outToClient.write(reply, 0, bytesRead);
-          outToClient.flush();
+          onConnected();
+          return;
+        }
+        boolean isClient = key == clientKey;
+        if (key.isReadable()) {
+          (isClient ? toRemote : toClient).read();
+        }
+        if (key.isValid() && key.isWritable()) {
+          (isClient ? toClient : toRemote).flush();
+        }
+        if (toRemote.isDone() && toClient.isDone()) {
+          close();
+        } else {
+          updateInterestOps();
         }
       } catch (IOException e) {
-        e.printStackTrace();
-        throw new RuntimeException(e);
-      } finally {
-        try {
-          clientSocket.close();
-        } catch (IOException e) {
-          LOG.error(e);
+        if (!connected) {
+          LOG.warn("Failed to connect to " + remoteAddress, e);
+          stats.connectionFailed();
+        } else {
+          LOG.debug("Closing proxied connection", e);
         }
+        close();
+      }
+    }
+
+    private void updateInterestOps() {
+      clientKey.interestOps((toRemote.wantsRead() ? SelectionKey.OP_READ : 0)
+          | (toClient.wantsWrite() ? SelectionKey.OP_WRITE : 0));
+      remoteKey.interestOps((toClient.wantsRead() ? SelectionKey.OP_READ : 0)
+          | (toRemote.wantsWrite() ? SelectionKey.OP_WRITE : 0));
+    }
+
+    void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      closeQuietly(client);
+      closeQuietly(remote);
+      stats.connectionClosed();
+      resumeAccepting();
+    }
+  }
+
+  /**
+   * Moves bytes from one channel to another through a direct buffer. The buffer is kept in fill mode between calls.
+   */
+  private static final class Pipe {
+    private final SocketChannel source;
+    private final SocketChannel sink;
+    private final LongConsumer bytesWritten;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private boolean sourceClosed;
+    private boolean sinkShutdown;
+
+    Pipe(SocketChannel source, SocketChannel sink, LongConsumer bytesWritten) {
+      this.source = source;
+      this.sink = sink;
+      this.bytesWritten = bytesWritten;
+    }
+
+    void read() throws IOException {
+      if (source.read(buffer) < 0) {
+        sourceClosed = true;
+      }
+      // Most of the time the sink can take everything right away, saving a trip through the selector.
+      flush();
+    }
+
+    void flush() throws IOException {
+      buffer.flip();
+      int written = sink.write(buffer);
+      buffer.compact();
+      if (written > 0) {
+        bytesWritten.accept(written);
+      }
+      if (sourceClosed && buffer.position() == 0 && !sinkShutdown) {
+        sink.shutdownOutput();
+        sinkShutdown = true;
       }
     }
 
+    boolean wantsRead() {
+      return !sourceClosed && buffer.hasRemaining();
+    }
+
+    boolean wantsWrite() {
+      return buffer.position() > 0;
+    }
+
+    boolean isDone() {
+      return sinkShutdown;
+    }
+  }
+
+  private static void closeQuietly(SocketChannel channel) {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      LOG.debug("Failed to close " + channel, e);
+    }
   }
 }
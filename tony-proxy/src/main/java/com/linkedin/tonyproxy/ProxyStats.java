@@ -0,0 +1,117 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+
+package com.linkedin.tonyproxy;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Counters of a {@link ProxyServer} or {@link RoutingProxyServer}. They are updated by the proxy's selector
+ * thread and can be read from any thread.
+ */
+public class ProxyStats {
+  private final AtomicLong activeConnections = new AtomicLong();
+  private final AtomicLong totalConnections = new AtomicLong();
+  private final AtomicLong failedConnections = new AtomicLong();
+  private final AtomicLong reusedRemoteConnections = new AtomicLong();
+  private final AtomicLong bytesToRemote = new AtomicLong();
+  private final AtomicLong bytesToClient = new AtomicLong();
+  private final AtomicLong connects = new AtomicLong();
+  private final AtomicLong totalConnectNanos = new AtomicLong();
+  private final AtomicLong maxConnectNanos = new AtomicLong();
+
+  void connectionOpened() {
+    activeConnections.incrementAndGet();
+    totalConnections.incrementAndGet();
+  }
+
+  void connectionClosed() {
+    activeConnections.decrementAndGet();
+  }
+
+  void connectionFailed() {
+    failedConnections.incrementAndGet();
+  }
+
+  void remoteConnectionReused() {
+    reusedRemoteConnections.incrementAndGet();
+  }
+
+  void addBytesToRemote(long bytes) {
+    bytesToRemote.addAndGet(bytes);
+  }
+
+  void addBytesToClient(long bytes) {
+    bytesToClient.addAndGet(bytes);
+  }
+
+  void recordConnectLatency(long nanos) {
+    connects.incrementAndGet();
+    totalConnectNanos.addAndGet(nanos);
+    maxConnectNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  /**
+   * @return the number of client connections currently being proxied
+   */
+  public long getActiveConnections() {
+    return activeConnections.get();
+  }
+
+  /**
+   * @return the number of client connections accepted since the proxy started
+   */
+  public long getTotalConnections() {
+    return totalConnections.get();
+  }
+
+  /**
+   * @return the number of connections to the remote that couldn't be established
+   */
+  public long getFailedConnections() {
+    return failedConnections.get();
+  }
+
+  /**
+   * @return the number of requests sent over an idle connection to the remote instead of a new one
+   */
+  public long getReusedRemoteConnections() {
+    return reusedRemoteConnections.get();
+  }
+
+  public long getBytesToRemote() {
+    return bytesToRemote.get();
+  }
+
+  public long getBytesToClient() {
+    return bytesToClient.get();
+  }
+
+  /**
+   * @return the average time taken to connect to the remote, in milliseconds
+   */
+  public double getAvgConnectLatencyMs() {
+    long count = connects.get();
+    return count == 0 ? 0 : (double) totalConnectNanos.get() / count / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  /**
+   * @return the longest time taken to connect to the remote, in milliseconds
+   */
+  public double getMaxConnectLatencyMs() {
+    return (double) maxConnectNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("activeConnections=%d, totalConnections=%d, failedConnections=%d, "
+            + "reusedRemoteConnections=%d, bytesToRemote=%d, bytesToClient=%d, avgConnectLatencyMs=%.2f, "
+            + "maxConnectLatencyMs=%.2f", getActiveConnections(), getTotalConnections(), getFailedConnections(),
+        getReusedRemoteConnections(), getBytesToRemote(), getBytesToClient(), getAvgConnectLatencyMs(),
+        getMaxConnectLatencyMs());
+  }
+}
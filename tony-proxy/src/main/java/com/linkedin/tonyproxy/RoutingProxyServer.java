@@ -0,0 +1,865 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+
+package com.linkedin.tonyproxy;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * An HTTP reverse proxy for the web UIs of many applications' tasks (TensorBoard, Jupyter notebooks, ...) on one
+ * port. A request for {@code /app/{appId}/{task}/some/path} is sent to {@code some/path} under the URL that the
+ * {@link UpstreamResolver} returns for the task, with {@code X-Forwarded-Prefix} set to {@code /app/{appId}/{task}}
+ * so that the task can generate links that go through the proxy.
+ *
+ * <p>Like {@link ProxyServer}, all connections are served by a single selector thread through direct buffers. HTTP
+ * messages are passed through unchanged apart from their heads; only their framing is followed so that connections
+ * can be kept alive. Connections to tasks are pooled once a response has been received, so that the many asset and
+ * API requests of a page don't each pay for a new connection. Upgraded connections (WebSockets, used by Jupyter
+ * kernels) are tunnelled until either side closes.
+ */
+public class RoutingProxyServer implements Closeable {
+
+  private static final Log LOG = LogFactory.getLog(RoutingProxyServer.class);
+  public static final String PATH_PREFIX = "/app/";
+  public static final int DEFAULT_MAX_IDLE_CONNECTIONS_PER_TASK = 8;
+  private static final long IDLE_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(30);
+  private static final int BUFFER_SIZE = 64 * 1024;
+  // How long accepting pauses after it failed, as in ProxyServer.
+  private static final long ACCEPT_RETRY_MS = 100;
+
+  private final UpstreamResolver resolver;
+  private final int localPort;
+  private final int maxConnections;
+  private final ProxyStats stats = new ProxyStats();
+  // Tasks posted from resolver threads, run by the selector thread.
+  private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+  private final Map<InetSocketAddress, Deque<IdleRemote>> idleRemotes = new HashMap<>();
+  private ExecutorService resolverPool;
+  private volatile Selector selector;
+  private volatile ServerSocketChannel serverChannel;
+  private SelectionKey acceptKey;
+  // When to accept again after accepting failed, or 0
+  private long acceptResumeMs;
+  private volatile boolean running = true;
+
+  public RoutingProxyServer(UpstreamResolver resolver, int localPort) {
+    this(resolver, localPort, ProxyServer.DEFAULT_MAX_CONNECTIONS);
+  }
+
+  public RoutingProxyServer(UpstreamResolver resolver, int localPort, int maxConnections) {
+    this.resolver = resolver;
+    this.localPort = localPort;
+    this.maxConnections = maxConnections;
+  }
+
+  /**
+   * Binds the local port and proxies requests until {@link #close()} is called.
+   */
+  public void start() throws IOException {
+    bind();
+    serve();
+  }
+
+  /**
+   * @return the port the proxy is listening on, which is only known after binding if 0 was requested
+   */
+  public int getLocalPort() {
+    return serverChannel != null ? serverChannel.socket().getLocalPort() : localPort;
+  }
+
+  public ProxyStats getStats() {
+    return stats;
+  }
+
+  /**
+   * Stops the proxy and closes all connections.
+   */
+  @Override
+  public void close() {
+    running = false;
+    if (selector != null) {
+      selector.wakeup();
+    }
+  }
+
+  synchronized void bind() throws IOException {
+    AtomicInteger threadCount = new AtomicInteger();
+    ThreadFactory threadFactory = r -> {
+      Thread thread = new Thread(r, "proxy-resolver-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+    resolverPool = Executors.newCachedThreadPool(threadFactory);
+    selector = Selector.open();
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.configureBlocking(false);
+    serverChannel.bind(new InetSocketAddress(localPort));
+    acceptKey = serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    LOG.info("Routing proxy listening on port " + getLocalPort());
+  }
+
+  void serve() throws IOException {
+    try {
+      while (running) {
+        if (acceptResumeMs == 0) {
+          selector.select(IDLE_TIMEOUT_MS / 2);
+        } else {
+          selector.select(Math.max(1, Math.min(IDLE_TIMEOUT_MS / 2, acceptResumeMs - System.currentTimeMillis())));
+          if (System.currentTimeMillis() >= acceptResumeMs) {
+            acceptResumeMs = 0;
+            resumeAccepting();
+          }
+        }
+        Runnable task;
+        while ((task = selectorTasks.poll()) != null) {
+          task.run();
+        }
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+          if (key.isAcceptable()) {
+            accept();
+          } else if (key.attachment() instanceof Exchange) {
+            ((Exchange) key.attachment()).handle(key);
+          } else {
+            // An idle connection became readable, which means the task closed it.
+            ((IdleRemote) key.attachment()).close();
+          }
+        }
+        closeIdleRemotes(System.currentTimeMillis() - IDLE_TIMEOUT_MS);
+      }
+    } finally {
+      resolverPool.shutdownNow();
+      for (SelectionKey key : selector.keys()) {
+        if (key.attachment() instanceof Exchange) {
+          ((Exchange) key.attachment()).close();
+        }
+      }
+      closeIdleRemotes(Long.MAX_VALUE);
+      selector.close();
+      serverChannel.close();
+      LOG.info("Routing proxy stopped: " + stats);
+    }
+  }
+
+  private void runOnSelector(Runnable task) {
+    selectorTasks.add(task);
+    selector.wakeup();
+  }
+
+  /**
+   * Accepts a connection. A failure only affects that connection.
+   */
+  private void accept() {
+    SocketChannel client;
+    try {
+      client = serverChannel.accept();
+    } catch (IOException e) {
+      LOG.warn("Failed to accept a connection, pausing for " + ACCEPT_RETRY_MS + " ms", e);
+      acceptKey.interestOps(0);
+      acceptResumeMs = System.currentTimeMillis() + ACCEPT_RETRY_MS;
+      return;
+    }
+    if (client == null) {
+      return;
+    }
+    stats.connectionOpened();
+    Exchange exchange = new Exchange(client);
+    try {
+      client.configureBlocking(false);
+      client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      exchange.clientKey = client.register(selector, SelectionKey.OP_READ, exchange);
+    } catch (IOException e) {
+      LOG.warn("Failed to set up connection from " + client, e);
+      exchange.close();
+    }
+    if (stats.getActiveConnections() >= maxConnections && acceptKey.interestOps() != 0) {
+      LOG.info("Reached " + maxConnections + " connections, not accepting new ones until some are closed");
+      acceptKey.interestOps(0);
+    }
+  }
+
+  private void resumeAccepting() {
+    if (running && acceptKey.isValid() && acceptKey.interestOps() == 0 && acceptResumeMs == 0
+        && stats.getActiveConnections() < maxConnections) {
+      acceptKey.interestOps(SelectionKey.OP_ACCEPT);
+    }
+  }
+
+  private void closeIdleRemotes(long idleSinceBefore) {
+    for (Deque<IdleRemote> idle : new ArrayList<>(idleRemotes.values())) {
+      // Oldest first
+      while (!idle.isEmpty() && idle.peekFirst().idleSinceMs < idleSinceBefore) {
+        idle.peekFirst().close();
+      }
+    }
+  }
+
+  private static void closeQuietly(SocketChannel channel) {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      LOG.debug("Failed to close " + channel, e);
+    }
+  }
+
+  /**
+   * Writes up to {@code count} bytes from the start of {@code buffer}, which is in fill mode, and removes them.
+   */
+  private static int writeFront(ByteBuffer buffer, int count, SocketChannel channel) throws IOException {
+    ByteBuffer view = buffer.duplicate();
+    view.flip();
+    view.limit(count);
+    int written = channel.write(view);
+    if (written > 0) {
+      buffer.flip();
+      buffer.position(written);
+      buffer.compact();
+    }
+    return written;
+  }
+
+  /**
+   * Where requests for a task go.
+   */
+  private static final class Route {
+    private final InetSocketAddress address;
+    private final String authority;
+    private final String basePath;
+
+    Route(URI uri) throws IOException {
+      if (!"http".equalsIgnoreCase(uri.getScheme()) || uri.getHost() == null) {
+        throw new IOException("Only http URLs can be proxied: " + uri);
+      }
+      int port = uri.getPort() == -1 ? 80 : uri.getPort();
+      address = new InetSocketAddress(uri.getHost(), port);
+      if (address.isUnresolved()) {
+        throw new IOException("Unknown host " + uri.getHost());
+      }
+      authority = uri.getHost() + ":" + port;
+      String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+      basePath = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+  }
+
+  /**
+   * A pooled connection to a task, not currently used by any exchange.
+   */
+  private final class IdleRemote {
+    private final InetSocketAddress address;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final long idleSinceMs = System.currentTimeMillis();
+
+    IdleRemote(InetSocketAddress address, SocketChannel channel, SelectionKey key) {
+      this.address = address;
+      this.channel = channel;
+      this.key = key;
+    }
+
+    void close() {
+      Deque<IdleRemote> idle = idleRemotes.get(address);
+      idle.remove(this);
+      if (idle.isEmpty()) {
+        idleRemotes.remove(address);
+      }
+      closeQuietly(channel);
+    }
+  }
+
+  private enum State { READING_REQUEST_HEAD, RESOLVING, FORWARDING, LOCAL_RESPONSE }
+
+  /**
+   * A client connection, and the connection to the task its current request is routed to. Requests on the
+   * connection are handled one at a time.
+   */
+  private final class Exchange {
+    private final SocketChannel client;
+    private SelectionKey clientKey;
+    private final ByteBuffer fromClient = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer fromRemote = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private State state = State.READING_REQUEST_HEAD;
+    private boolean clientEof;
+    private boolean closed;
+    // The last route used, so that following requests for the same task don't go through the resolver.
+    private String routedPrefix;
+    private Route route;
+
+    // Current request
+    private HttpHead request;
+    private ByteBuffer requestHead;
+    private ByteBuffer sentRequestHead;
+    private BodyFramer requestBody;
+    // Bytes at the start of fromClient that are part of the request body and yet to be sent.
+    private int requestPending;
+    private boolean keepClientAlive;
+    private boolean retriable;
+
+    // Connection to the task
+    private SocketChannel remote;
+    private SelectionKey remoteKey;
+    private boolean remoteConnected;
+    private boolean remoteReused;
+    private boolean remoteEof;
+    private long connectStartNanos;
+
+    // Current response
+    private boolean responseStarted;
+    private boolean responseHeadDone;
+    private ByteBuffer responseHead;
+    private BodyFramer responseBody;
+    // Bytes at the start of fromRemote that are part of the response body and yet to be sent.
+    private int responsePending;
+    private boolean remoteReusable;
+    private boolean tunnel;
+    private ByteBuffer localResponse;
+
+    Exchange(SocketChannel client) {
+      this.client = client;
+    }
+
+    void handle(SelectionKey key) {
+      if (key == clientKey) {
+        if (key.isReadable()) {
+          readClient();
+        }
+        if (!closed && key.isValid() && key.isWritable()) {
+          flushToClient();
+        }
+      } else if (key == remoteKey) {
+        if (key.isConnectable()) {
+          finishConnect();
+        } else {
+          if (key.isReadable()) {
+            readRemote();
+          }
+          if (!closed && remoteKey != null && key.isValid() && key.isWritable()) {
+            flushToRemote();
+          }
+        }
+      }
+      progress();
+    }
+
+    private void readClient() {
+      try {
+        if (client.read(fromClient) < 0) {
+          clientEof = true;
+        }
+      } catch (IOException e) {
+        LOG.debug("Failed to read from client", e);
+        close();
+        return;
+      }
+      if (state == State.READING_REQUEST_HEAD) {
+        readRequestHead();
+      } else if (state == State.FORWARDING) {
+        try {
+          scanRequest();
+          if (clientEof) {
+            requestBody.onEndOfStream();
+            keepClientAlive = false;
+          }
+        } catch (IOException e) {
+          LOG.debug("Bad request body from client", e);
+          close();
+          return;
+        }
+        flushToRemote();
+      }
+    }
+
+    private void readRequestHead() {
+      int length = HttpHead.find(fromClient);
+      if (length < 0) {
+        if (clientEof) {
+          close();
+        } else if (!fromClient.hasRemaining()) {
+          respondLocally(HttpHead.errorResponse(431, "Request Header Fields Too Large", "Request head too large"));
+        }
+        return;
+      }
+      try {
+        request = HttpHead.parse(fromClient, length);
+        requestBody = BodyFramer.forRequest(request);
+      } catch (IOException e) {
+        respondLocally(HttpHead.errorResponse(400, "Bad Request", e.getMessage()));
+        return;
+      }
+
+      String target = request.getTarget();
+      if (!target.startsWith(PATH_PREFIX)) {
+        respondLocally(HttpHead.errorResponse(404, "Not Found", "Expected a path like " + PATH_PREFIX
+            + "{appId}/{task}/..."));
+        return;
+      }
+      int queryStart = target.indexOf('?');
+      String path = target.substring(PATH_PREFIX.length(), queryStart < 0 ? target.length() : queryStart);
+      String query = queryStart < 0 ? "" : target.substring(queryStart);
+      String[] parts = path.split("/", 3);
+      if (parts.length < 2 || parts[0].isEmpty() || parts[1].isEmpty()) {
+        respondLocally(HttpHead.errorResponse(404, "Not Found", "Expected a path like " + PATH_PREFIX
+            + "{appId}/{task}/..."));
+        return;
+      }
+      String prefix = PATH_PREFIX + parts[0] + "/" + parts[1];
+      if (parts.length == 2) {
+        // Relative links in the task's pages only resolve under the prefix if it ends with a slash.
+        respondLocally(HttpHead.redirectResponse(prefix + "/" + query));
+        return;
+      }
+      String forwardedTarget = "/" + parts[2] + query;
+
+      if (prefix.equals(routedPrefix)) {
+        startForwarding(prefix, forwardedTarget);
+        return;
+      }
+      state = State.RESOLVING;
+      String appId = parts[0];
+      String task = parts[1];
+      resolverPool.execute(() -> {
+        Route resolved = null;
+        IOException error = null;
+        try {
+          URI uri = resolver.resolve(appId, task);
+          resolved = uri == null ? null : new Route(uri);
+        } catch (IOException | RuntimeException e) {
+          error = e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+        Route result = resolved;
+        IOException failure = error;
+        runOnSelector(() -> onResolved(appId, task, prefix, forwardedTarget, result, failure));
+      });
+    }
+
+    private void onResolved(String appId, String task, String prefix, String forwardedTarget, Route resolved,
+        IOException error) {
+      if (closed) {
+        return;
+      }
+      if (error != null) {
+        LOG.warn("Failed to look up " + task + " of " + appId, error);
+        respondLocally(HttpHead.errorResponse(502, "Bad Gateway", "Failed to look up " + task + " of " + appId
+            + ": " + error.getMessage()));
+      } else if (resolved == null) {
+        respondLocally(HttpHead.errorResponse(404, "Not Found", "Unknown task " + task + " of " + appId));
+      } else {
+        routedPrefix = prefix;
+        route = resolved;
+        startForwarding(prefix, forwardedTarget);
+      }
+      progress();
+    }
+
+    private void startForwarding(String prefix, String forwardedTarget) {
+      request.setTarget(route.basePath + forwardedTarget);
+      keepClientAlive = request.isKeepAlive() && request.isHttp11() && !clientEof;
+      String host = request.getHeader("Host");
+      if (host != null) {
+        request.setHeader("X-Forwarded-Host", host);
+      }
+      request.setHeader("Host", route.authority);
+      request.setHeader("X-Forwarded-Prefix", prefix);
+      String forwardedFor = request.getHeader("X-Forwarded-For");
+      String clientAddress = client.socket().getInetAddress().getHostAddress();
+      request.setHeader("X-Forwarded-For", forwardedFor == null ? clientAddress : forwardedFor + ", " + clientAddress);
+      if (!request.hasToken("Connection", "upgrade")) {
+        // Hop-by-hop headers, connections to the task are managed separately.
+        request.removeHeader("Connection");
+        request.removeHeader("Keep-Alive");
+      }
+      retriable = requestBody.isComplete();
+      requestHead = request.toBuffer();
+      sentRequestHead = requestHead.duplicate();
+      responseStarted = false;
+      responseHeadDone = false;
+      responseHead = null;
+      responseBody = null;
+      tunnel = false;
+      state = State.FORWARDING;
+
+      connectRemote(true);
+      try {
+        scanRequest();
+      } catch (IOException e) {
+        respondLocally(HttpHead.errorResponse(400, "Bad Request", e.getMessage()));
+        return;
+      }
+      flushToRemote();
+    }
+
+    private void connectRemote(boolean allowPooled) {
+      Deque<IdleRemote> idle = idleRemotes.get(route.address);
+      if (allowPooled && idle != null) {
+        // Most recently used first, so that rarely needed connections time out.
+        IdleRemote pooled = idle.peekLast();
+        idle.removeLast();
+        if (idle.isEmpty()) {
+          idleRemotes.remove(route.address);
+        }
+        remote = pooled.channel;
+        remoteKey = pooled.key;
+        remoteKey.attach(this);
+        remoteConnected = true;
+        remoteReused = true;
+        remoteEof = false;
+        stats.remoteConnectionReused();
+        return;
+      }
+      remoteReused = false;
+      remoteConnected = false;
+      remoteEof = false;
+      connectStartNanos = System.nanoTime();
+      try {
+        remote = SocketChannel.open();
+        remote.configureBlocking(false);
+        remote.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        remoteKey = remote.register(selector, SelectionKey.OP_CONNECT, this);
+        if (remote.connect(route.address)) {
+          onRemoteConnected();
+        }
+      } catch (IOException e) {
+        onRemoteFailure(e);
+      }
+    }
+
+    private void finishConnect() {
+      try {
+        if (remote.finishConnect()) {
+          onRemoteConnected();
+          flushToRemote();
+        }
+      } catch (IOException e) {
+        onRemoteFailure(e);
+      }
+    }
+
+    private void onRemoteConnected() {
+      remoteConnected = true;
+      stats.recordConnectLatency(System.nanoTime() - connectStartNanos);
+    }
+
+    /**
+     * Marks newly read bytes from the client that are part of the request body as ready to be sent.
+     */
+    private void scanRequest() throws IOException {
+      ByteBuffer view = fromClient.duplicate();
+      view.flip();
+      view.position(requestPending);
+      requestPending += requestBody.scan(view);
+    }
+
+    private void flushToRemote() {
+      if (closed || remote == null || !remoteConnected) {
+        return;
+      }
+      try {
+        if (requestHead != null) {
+          stats.addBytesToRemote(remote.write(requestHead));
+          if (requestHead.hasRemaining()) {
+            return;
+          }
+          requestHead = null;
+        }
+        if (requestPending > 0) {
+          int written = writeFront(fromClient, requestPending, remote);
+          requestPending -= written;
+          stats.addBytesToRemote(written);
+        }
+      } catch (IOException e) {
+        onRemoteFailure(e);
+      }
+    }
+
+    private void readRemote() {
+      try {
+        if (remote.read(fromRemote) < 0) {
+          remoteEof = true;
+          remoteReusable = false;
+        }
+        processResponse();
+      } catch (IOException e) {
+        onRemoteFailure(e);
+        return;
+      }
+      flushToClient();
+    }
+
+    private void processResponse() throws IOException {
+      while (!responseHeadDone) {
+        int length = HttpHead.find(fromRemote);
+        if (length < 0) {
+          if (remoteEof) {
+            throw new EOFException("Connection closed before a complete response was received");
+          }
+          if (!fromRemote.hasRemaining()) {
+            throw new IOException("Response head too large");
+          }
+          return;
+        }
+        HttpHead response = HttpHead.parse(fromRemote, length);
+        responseStarted = true;
+        int status = response.getStatus();
+        if (status == 101) {
+          tunnel = true;
+          keepClientAlive = false;
+          remoteReusable = false;
+          requestBody = BodyFramer.untilClose();
+          responseBody = BodyFramer.untilClose();
+          scanRequest();
+        } else if (status / 100 != 1) {
+          responseBody = BodyFramer.forResponse(request, response);
+          keepClientAlive &= !responseBody.isDelimitedByClose();
+          remoteReusable = response.isKeepAlive() && !responseBody.isDelimitedByClose();
+          response.removeHeader("Connection");
+          response.removeHeader("Keep-Alive");
+          if (!keepClientAlive) {
+            response.setHeader("Connection", "close");
+          }
+        }
+        // Interim responses such as 100 Continue are passed on, and followed by another head.
+        responseHeadDone = status == 101 || status / 100 != 1;
+        appendResponseHead(response.toBuffer());
+      }
+
+      ByteBuffer view = fromRemote.duplicate();
+      view.flip();
+      view.position(responsePending);
+      responsePending += responseBody.scan(view);
+      if (remoteEof) {
+        responseBody.onEndOfStream();
+      }
+      if (responseBody.isComplete() && fromRemote.position() > responsePending) {
+        LOG.warn("Discarding unexpected data from " + route.authority + " after the response");
+        remoteReusable = false;
+      }
+    }
+
+    private void appendResponseHead(ByteBuffer head) {
+      if (responseHead == null) {
+        responseHead = head;
+      } else {
+        ByteBuffer combined = ByteBuffer.allocate(responseHead.remaining() + head.remaining());
+        combined.put(responseHead).put(head);
+        combined.flip();
+        responseHead = combined;
+      }
+    }
+
+    private void flushToClient() {
+      try {
+        if (localResponse != null) {
+          stats.addBytesToClient(client.write(localResponse));
+          if (!localResponse.hasRemaining()) {
+            close();
+          }
+          return;
+        }
+        if (responseHead != null) {
+          stats.addBytesToClient(client.write(responseHead));
+          if (responseHead.hasRemaining()) {
+            return;
+          }
+          responseHead = null;
+        }
+        if (responsePending > 0) {
+          int written = writeFront(fromRemote, responsePending, client);
+          responsePending -= written;
+          stats.addBytesToClient(written);
+        }
+      } catch (IOException e) {
+        LOG.debug("Failed to write to client", e);
+        close();
+      }
+    }
+
+    /**
+     * Handles a failure of the connection to the task. A request without a body that failed on a pooled connection
+     * before any response was received is retried once on a new connection, since the task may have closed the
+     * connection just as it was taken from the pool.
+     */
+    private void onRemoteFailure(IOException e) {
+      if (closed) {
+        return;
+      }
+      boolean wasConnected = remoteConnected;
+      boolean wasReused = remoteReused;
+      closeRemote();
+      if (!responseStarted && wasReused && retriable) {
+        LOG.debug("Pooled connection to " + route.authority + " failed, retrying on a new connection", e);
+        retriable = false;
+        requestHead = sentRequestHead.duplicate();
+        connectRemote(false);
+        return;
+      }
+      if (!wasConnected) {
+        stats.connectionFailed();
+      }
+      if (responseStarted) {
+        LOG.debug("Connection to " + route.authority + " failed during the response", e);
+        close();
+      } else {
+        LOG.warn("Request to " + route.authority + " failed", e);
+        respondLocally(HttpHead.errorResponse(502, "Bad Gateway", "Request to " + route.authority + " failed: "
+            + e.getMessage()));
+      }
+    }
+
+    private void respondLocally(ByteBuffer response) {
+      closeRemote();
+      state = State.LOCAL_RESPONSE;
+      localResponse = response;
+      flushToClient();
+    }
+
+    /**
+     * Checks whether the current exchange is done, and updates the interest ops otherwise.
+     */
+    private void progress() {
+      if (closed || state != State.FORWARDING) {
+        updateInterestOps();
+        return;
+      }
+      boolean requestDone = requestHead == null && requestBody.isComplete() && requestPending == 0;
+      boolean responseDone = responseHeadDone && responseHead == null && responseBody.isComplete()
+          && responsePending == 0;
+      try {
+        if (tunnel) {
+          if (requestDone && remote != null && !remote.socket().isOutputShutdown()) {
+            remote.shutdownOutput();
+          }
+          if (responseDone && !client.socket().isOutputShutdown()) {
+            client.shutdownOutput();
+          }
+          if (requestDone && responseDone) {
+            close();
+            return;
+          }
+        } else if (responseDone) {
+          if (!requestDone) {
+            // The task answered before reading the whole request, so the client connection can't be reused.
+            close();
+            return;
+          }
+          finishExchange();
+          return;
+        }
+      } catch (IOException e) {
+        LOG.debug("Failed to shut down tunnel", e);
+        close();
+        return;
+      }
+      updateInterestOps();
+    }
+
+    private void finishExchange() {
+      if (remoteReusable && !remoteEof) {
+        releaseRemote();
+      } else {
+        closeRemote();
+      }
+      fromRemote.clear();
+      request = null;
+      state = State.READING_REQUEST_HEAD;
+      if (!keepClientAlive) {
+        close();
+        return;
+      }
+      // The client may have sent the next request already.
+      readRequestHead();
+      if (state != State.RESOLVING) {
+        progress();
+      } else {
+        updateInterestOps();
+      }
+    }
+
+    private void releaseRemote() {
+      Deque<IdleRemote> idle = idleRemotes.computeIfAbsent(route.address, k -> new ArrayDeque<>());
+      if (idle.size() >= DEFAULT_MAX_IDLE_CONNECTIONS_PER_TASK) {
+        idle.peekFirst().close();
+        idle = idleRemotes.computeIfAbsent(route.address, k -> new ArrayDeque<>());
+      }
+      IdleRemote pooled = new IdleRemote(route.address, remote, remoteKey);
+      remoteKey.attach(pooled);
+      remoteKey.interestOps(SelectionKey.OP_READ);
+      idle.addLast(pooled);
+      remote = null;
+      remoteKey = null;
+    }
+
+    private void closeRemote() {
+      if (remote != null) {
+        closeQuietly(remote);
+        remote = null;
+        remoteKey = null;
+      }
+      remoteConnected = false;
+    }
+
+    private void updateInterestOps() {
+      if (closed) {
+        return;
+      }
+      boolean forwarding = state == State.FORWARDING;
+      boolean readClient = !clientEof && fromClient.hasRemaining()
+          && (state == State.READING_REQUEST_HEAD || (forwarding && !requestBody.isComplete()));
+      boolean writeClient = localResponse != null || responseHead != null || responsePending > 0;
+      clientKey.interestOps((readClient ? SelectionKey.OP_READ : 0) | (writeClient ? SelectionKey.OP_WRITE : 0));
+      if (remote == null || !forwarding) {
+        return;
+      }
+      if (!remoteConnected) {
+        remoteKey.interestOps(SelectionKey.OP_CONNECT);
+        return;
+      }
+      boolean readRemote = !remoteEof && fromRemote.hasRemaining()
+          && (!responseHeadDone || !responseBody.isComplete());
+      boolean writeRemote = requestHead != null || requestPending > 0;
+      remoteKey.interestOps((readRemote ? SelectionKey.OP_READ : 0) | (writeRemote ? SelectionKey.OP_WRITE : 0));
+    }
+
+    void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      closeQuietly(client);
+      closeRemote();
+      stats.connectionClosed();
+      resumeAccepting();
+    }
+  }
+}
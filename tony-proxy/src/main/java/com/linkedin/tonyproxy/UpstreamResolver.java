@@ -0,0 +1,25 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+
+package com.linkedin.tonyproxy;
+
+import java.io.IOException;
+import java.net.URI;
+
+
+/**
+ * Looks up where a {@link RoutingProxyServer} should send requests for a task of an application.
+ */
+public interface UpstreamResolver {
+  /**
+   * Called off the proxy's selector thread, so it may block, but it is called for every request that isn't sent on
+   * a connection already routed to the same task, so implementations should cache.
+   *
+   * @param appId the application ID, e.g. application_1600000000000_0001
+   * @param task the task within the application, e.g. worker:0 or notebook:0
+   * @return the base http URL of the task, e.g. http://host:8888/some/path, or null if there is no such task
+   */
+  URI resolve(String appId, String task) throws IOException;
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+
+package com.linkedin.tonyproxy;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+
+public class TestProxyServer {
+  private ServerSocket echoServer;
+  private ExecutorService executor;
+
+  @BeforeMethod
+  public void setup() throws IOException {
+    echoServer = new ServerSocket(0);
+    executor = Executors.newCachedThreadPool();
+    executor.submit(() -> {
+      while (!echoServer.isClosed()) {
+        Socket socket = echoServer.accept();
+        executor.submit(() -> echo(socket));
+      }
+      return null;
+    });
+  }
+
+  @AfterMethod
+  public void cleanup() throws IOException {
+    echoServer.close();
+    executor.shutdownNow();
+  }
+
+  private static Void echo(Socket socket) throws IOException {
+    try (Socket s = socket; InputStream in = s.getInputStream(); OutputStream out = s.getOutputStream()) {
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+    }
+    return null;
+  }
+
+  private ProxyServer startProxy(int maxConnections) throws IOException {
+    ProxyServer proxy = new ProxyServer("localhost", echoServer.getLocalPort(), 0, maxConnections);
+    proxy.bind();
+    executor.submit(() -> {
+      proxy.serve();
+      return null;
+    });
+    return proxy;
+  }
+
+  private static byte[] roundTrip(Socket socket, byte[] data) throws IOException {
+    socket.getOutputStream().write(data);
+    byte[] received = new byte[data.length];
+    new DataInputStream(socket.getInputStream()).readFully(received);
+    return received;
+  }
+
+  @Test
+  public void testConcurrentConnections() throws Exception {
+    // Larger than the proxy's buffers so that back-pressure kicks in.
+    byte[] data = new byte[1024 * 1024];
+    new Random(0).nextBytes(data);
+
+    try (ProxyServer proxy = startProxy(ProxyServer.DEFAULT_MAX_CONNECTIONS)) {
+      Future<?>[] clients = new Future<?>[8];
+      for (int i = 0; i < clients.length; i++) {
+        clients[i] = executor.submit(() -> {
+          try (Socket socket = new Socket("localhost", proxy.getLocalPort())) {
+            assertTrue(Arrays.equals(roundTrip(socket, data), data));
+          }
+          return null;
+        });
+      }
+      for (Future<?> client : clients) {
+        client.get();
+      }
+
+      ProxyStats stats = proxy.getStats();
+      // The last bytes are counted after the clients may have read them, but before the connections are closed.
+      long deadline = System.currentTimeMillis() + 10000;
+      while (stats.getActiveConnections() > 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(stats.getTotalConnections(), clients.length);
+      assertEquals(stats.getBytesToRemote(), (long) clients.length * data.length);
+      assertEquals(stats.getBytesToClient(), (long) clients.length * data.length);
+      assertEquals(stats.getFailedConnections(), 0);
+    }
+  }
+
+  @Test
+  public void testConnectionLimit() throws Exception {
+    byte[] data = "hello".getBytes("UTF-8");
+    try (ProxyServer proxy = startProxy(1);
+        Socket first = new Socket("localhost", proxy.getLocalPort())) {
+      assertEquals(roundTrip(first, data), data);
+
+      // Connects through the backlog, but isn't served until the first connection is closed.
+      try (Socket second = new Socket("localhost", proxy.getLocalPort())) {
+        Future<byte[]> reply = executor.submit(() -> roundTrip(second, data));
+        Thread.sleep(500);
+        assertTrue(!reply.isDone());
+        first.close();
+        assertEquals(reply.get(), data);
+      }
+      assertEquals(proxy.getStats().getTotalConnections(), 2);
+    }
+  }
+}
@@ -0,0 +1,216 @@
+/**
+ * Copyright 2021 LinkedIn Corporation. All rights reserved. Licensed under the BSD-2 Clause license.
+ * See LICENSE in the project root for license information.
+ */
+
+package com.linkedin.tonyproxy;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+
+public class TestRoutingProxyServer {
+  private HttpServer upstream;
+  private ServerSocket webSocketUpstream;
+  private ExecutorService executor;
+  private RoutingProxyServer proxy;
+  private final AtomicInteger resolutions = new AtomicInteger();
+
+  @BeforeMethod
+  public void setup() throws IOException {
+    executor = Executors.newCachedThreadPool();
+    upstream = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    upstream.createContext("/base/", TestRoutingProxyServer::echo);
+    upstream.setExecutor(executor);
+    upstream.start();
+    webSocketUpstream = new ServerSocket(0);
+
+    proxy = new RoutingProxyServer((appId, task) -> {
+      resolutions.incrementAndGet();
+      if (!appId.equals("application_1_0001")) {
+        return null;
+      }
+      switch (task) {
+        case "tensorboard:0":
+          return URI.create("http://localhost:" + upstream.getAddress().getPort() + "/base/");
+        case "notebook:0":
+          return URI.create("http://localhost:" + webSocketUpstream.getLocalPort());
+        default:
+          return null;
+      }
+    }, 0);
+    proxy.bind();
+    executor.submit(() -> {
+      proxy.serve();
+      return null;
+    });
+  }
+
+  @AfterMethod
+  public void cleanup() throws IOException {
+    proxy.close();
+    upstream.stop(0);
+    webSocketUpstream.close();
+    executor.shutdownNow();
+  }
+
+  /**
+   * Replies with the request's path, query and forwarding prefix, followed by its body.
+   */
+  private static void echo(HttpExchange exchange) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    body.write((exchange.getRequestURI() + " " + exchange.getRequestHeaders().getFirst("X-Forwarded-Prefix") + "\n")
+        .getBytes(StandardCharsets.UTF_8));
+    copy(exchange.getRequestBody(), body);
+    exchange.sendResponseHeaders(200, body.size());
+    try (OutputStream out = exchange.getResponseBody()) {
+      body.writeTo(out);
+    }
+  }
+
+  private static void copy(InputStream in, OutputStream out) throws IOException {
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      out.write(buffer, 0, read);
+    }
+  }
+
+  private HttpURLConnection open(String path) throws IOException {
+    HttpURLConnection connection =
+        (HttpURLConnection) new URL("http://localhost:" + proxy.getLocalPort() + path).openConnection();
+    connection.setInstanceFollowRedirects(false);
+    return connection;
+  }
+
+  private static String read(HttpURLConnection connection) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (InputStream in = connection.getInputStream()) {
+      copy(in, out);
+    }
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testRoutesAndReusesConnections() throws IOException {
+    for (int i = 0; i < 5; i++) {
+      HttpURLConnection connection = open("/app/application_1_0001/tensorboard:0/data/runs?i=" + i);
+      assertEquals(connection.getResponseCode(), 200);
+      assertEquals(read(connection), "/base/data/runs?i=" + i + " /app/application_1_0001/tensorboard:0\n");
+    }
+    // HttpURLConnection keeps its connection to the proxy alive, so the route is only looked up once, and the
+    // proxy's connection to the task is reused.
+    assertEquals(resolutions.get(), 1);
+    assertEquals(proxy.getStats().getReusedRemoteConnections(), 4);
+  }
+
+  @Test
+  public void testForwardsChunkedRequestBody() throws IOException {
+    HttpURLConnection connection = open("/app/application_1_0001/tensorboard:0/upload");
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.setChunkedStreamingMode(16);
+    try (OutputStream out = connection.getOutputStream()) {
+      for (int i = 0; i < 100; i++) {
+        out.write(("line " + i + "\n").getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    assertEquals(connection.getResponseCode(), 200);
+    String body = read(connection);
+    assertTrue(body.startsWith("/base/upload /app/application_1_0001/tensorboard:0\nline 0\n"));
+    assertTrue(body.endsWith("line 99\n"));
+  }
+
+  @Test
+  public void testRedirectsAndRejects() throws IOException {
+    HttpURLConnection connection = open("/app/application_1_0001/tensorboard:0?x=1");
+    assertEquals(connection.getResponseCode(), 301);
+    assertEquals(connection.getHeaderField("Location"), "/app/application_1_0001/tensorboard:0/?x=1");
+
+    assertEquals(open("/app/application_1_0001/worker:3/").getResponseCode(), 404);
+    assertEquals(open("/other").getResponseCode(), 404);
+  }
+
+  private String sendRaw(String request) throws IOException {
+    try (Socket socket = new Socket("localhost", proxy.getLocalPort())) {
+      socket.getOutputStream().write(request.getBytes(StandardCharsets.ISO_8859_1));
+      ByteArrayOutputStream response = new ByteArrayOutputStream();
+      copy(socket.getInputStream(), response);
+      return new String(response.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+  }
+
+  @Test
+  public void testRejectsAmbiguousRequestBodies() throws IOException {
+    String head = "POST /app/application_1_0001/tensorboard:0/upload HTTP/1.1\r\nHost: gateway\r\n"
+        + "Connection: close\r\n";
+    assertTrue(sendRaw(head + "Transfer-Encoding: chunked\r\nContent-Length: 5\r\n\r\n0\r\n\r\n")
+        .startsWith("HTTP/1.1 400 "));
+    assertTrue(sendRaw(head + "Content-Length: 5\r\nContent-Length: 6\r\n\r\nhello!")
+        .startsWith("HTTP/1.1 400 "));
+    assertTrue(sendRaw(head + "Content-Length: 5, 6\r\n\r\nhello!").startsWith("HTTP/1.1 400 "));
+    assertTrue(sendRaw(head + "Transfer-Encoding: chunked, gzip\r\n\r\n0\r\n\r\n").startsWith("HTTP/1.1 400 "));
+    // Repeating the same length is allowed.
+    assertTrue(sendRaw(head + "Content-Length: 5\r\nContent-Length: 5\r\n\r\nhello")
+        .startsWith("HTTP/1.1 200 "));
+  }
+
+  @Test
+  public void testTunnelsUpgradedConnections() throws Exception {
+    executor.submit(() -> {
+      try (Socket socket = webSocketUpstream.accept()) {
+        InputStream in = socket.getInputStream();
+        OutputStream out = socket.getOutputStream();
+        int matched = 0;
+        while (matched < 4) {
+          int b = in.read();
+          matched = (b == '\r' || b == '\n') ? matched + 1 : 0;
+        }
+        out.write(("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n\r\n")
+            .getBytes(StandardCharsets.ISO_8859_1));
+        copy(in, out);
+      }
+      return null;
+    });
+
+    try (Socket socket = new Socket("localhost", proxy.getLocalPort())) {
+      OutputStream out = socket.getOutputStream();
+      out.write(("GET /app/application_1_0001/notebook:0/api/kernels/1/channels HTTP/1.1\r\nHost: gateway\r\n"
+          + "Connection: Upgrade\r\nUpgrade: websocket\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+      DataInputStream in = new DataInputStream(socket.getInputStream());
+      String expectedHead = "HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n\r\n";
+      byte[] head = new byte[expectedHead.length()];
+      in.readFully(head);
+      assertEquals(new String(head, StandardCharsets.ISO_8859_1), expectedHead);
+
+      byte[] frame = "frame".getBytes(StandardCharsets.ISO_8859_1);
+      for (int i = 0; i < 3; i++) {
+        out.write(frame);
+        byte[] echoed = new byte[frame.length];
+        in.readFully(echoed);
+        assertEquals(echoed, frame);
+      }
+    }
+  }
+}